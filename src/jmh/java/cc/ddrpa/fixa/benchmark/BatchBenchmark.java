@@ -0,0 +1,82 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.benchmark.CalendarFixture.Density;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量计算与逐个调用的对比：netWorkdays / workday
+ * <p>
+ * 每次调用处理 rows 行，逐个调用的基准使用 LocalDate 参数，与批量接口之外的常见用法一致
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    @Param({"5", "50"})
+    public int years;
+
+    @Param({"SPARSE", "DENSE"})
+    public Density density;
+
+    @Param({"1000", "1000000"})
+    public int rows;
+
+    private FixaCalendar calendar;
+    private int[] starts;
+    private int[] ends;
+    private int[] durations;
+    private int[] results;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        calendar = CalendarFixture.calendar(years, density);
+        LocalDate[] dates = CalendarFixture.dates(years, 400);
+        starts = new int[rows];
+        ends = new int[rows];
+        durations = new int[rows];
+        results = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            starts[i] = Math.toIntExact(dates[i % dates.length].toEpochDay());
+            durations[i] = (i * 31) % 250;
+            ends[i] = starts[i] + (i * 17) % 365;
+        }
+    }
+
+    @Benchmark
+    public int[] netWorkdaysLoop() {
+        for (int i = 0; i < rows; i++) {
+            results[i] = calendar.netWorkdays(LocalDate.ofEpochDay(starts[i]), LocalDate.ofEpochDay(ends[i]));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public int[] netWorkdaysBatch() {
+        calendar.netWorkdays(starts, ends, results);
+        return results;
+    }
+
+    @Benchmark
+    public int[] workdayLoop() {
+        for (int i = 0; i < rows; i++) {
+            results[i] = Math.toIntExact(calendar.workday(LocalDate.ofEpochDay(starts[i]),
+                    Duration.ofDays(durations[i])).toEpochDay());
+        }
+        return results;
+    }
+
+    @Benchmark
+    public int[] workdayBatch() {
+        calendar.workday(starts, durations, results);
+        return results;
+    }
+}
@@ -0,0 +1,71 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaBusinessCalendar;
+import cc.ddrpa.fixa.FixaBusinessHours;
+import cc.ddrpa.fixa.benchmark.CalendarFixture.Density;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.SAMPLE_MASK;
+
+/**
+ * 工作时长：addBusinessTime / businessDuration
+ * <p>
+ * 单次计算的耗时不应随 SLA 时长增长
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusinessTimeBenchmark {
+
+    @Param({"5", "50"})
+    public int years;
+
+    @Param({"SPARSE", "DENSE"})
+    public Density density;
+
+    @Param({"4", "16", "500"})
+    public int slaInHours;
+
+    private FixaBusinessCalendar business;
+    private LocalDateTime[] times;
+    private Duration sla;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        business = new FixaBusinessCalendar(CalendarFixture.calendar(years, density),
+                FixaBusinessHours.of(LocalTime.of(9, 0), LocalTime.of(12, 0), LocalTime.of(13, 0), LocalTime.of(18, 0)),
+                ZoneOffset.ofHours(8));
+        LocalDate[] dates = CalendarFixture.dates(years, 0);
+        times = new LocalDateTime[dates.length];
+        for (int i = 0; i < dates.length; i++) {
+            times[i] = dates[i].atTime(LocalTime.ofSecondOfDay((i * 7919L) % 86400));
+        }
+        sla = Duration.ofHours(slaInHours);
+    }
+
+    private LocalDateTime nextTime() {
+        return times[cursor++ & SAMPLE_MASK];
+    }
+
+    @Benchmark
+    public LocalDateTime addBusinessTime() {
+        return business.addBusinessTime(nextTime(), sla);
+    }
+
+    @Benchmark
+    public Duration businessDuration() {
+        LocalDateTime start = nextTime();
+        return business.businessDuration(start, start.plus(sla));
+    }
+}
@@ -0,0 +1,102 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarBuilder;
+import cc.ddrpa.fixa.FixaWeekendEnum;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+/**
+ * 基准测试使用的日历与查询数据
+ * <p>
+ * 所有数据均由固定种子生成，保证不同版本之间的结果可比
+ */
+public final class CalendarFixture {
+
+    public static final LocalDate FIRST_DAY = LocalDate.of(2000, 1, 1);
+    /**
+     * 查询样本数量，必须是 2 的幂，便于使用掩码循环取样
+     */
+    public static final int SAMPLES = 1024;
+    public static final int SAMPLE_MASK = SAMPLES - 1;
+
+    private static final long SEED = 0x5EEDL;
+
+    private CalendarFixture() {
+    }
+
+    /**
+     * 节假日密度
+     */
+    public enum Density {
+        /**
+         * 每年约 10 天节假日和 2 天调休，接近国内法定节假日的分布
+         */
+        SPARSE(10, 2, 0),
+        /**
+         * 每年约 60 天节假日、8 天调休，外加一段 21 天的连续假期，用于放大 workday() 的迭代次数
+         */
+        DENSE(60, 8, 21);
+
+        private final int holidaysPerYear;
+        private final int flexibleWorkdaysPerYear;
+        private final int longStreakDays;
+
+        Density(int holidaysPerYear, int flexibleWorkdaysPerYear, int longStreakDays) {
+            this.holidaysPerYear = holidaysPerYear;
+            this.flexibleWorkdaysPerYear = flexibleWorkdaysPerYear;
+            this.longStreakDays = longStreakDays;
+        }
+    }
+
+    /**
+     * 构造一个覆盖指定年数的日历
+     *
+     * @param years   日历覆盖的年数
+     * @param density 节假日密度
+     * @return 日历实例
+     */
+    public static FixaCalendar calendar(int years, Density density) {
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .setWeekendType(FixaWeekendEnum.SATURDAY_AND_SUNDAY)
+                .build();
+        Random random = new Random(SEED);
+        for (int year = 0; year < years; year++) {
+            LocalDate firstDayOfYear = FIRST_DAY.plusYears(year);
+            for (int i = 0; i < density.holidaysPerYear; i++) {
+                calendar.addHoliday(firstDayOfYear.plusDays(random.nextInt(365)));
+            }
+            for (int i = 0; i < density.flexibleWorkdaysPerYear; i++) {
+                calendar.addFlexibleWorkday(firstDayOfYear.plusDays(random.nextInt(365)));
+            }
+            if (density.longStreakDays > 0) {
+                LocalDate streakStart = firstDayOfYear.plusDays(random.nextInt(365 - density.longStreakDays));
+                calendar.addHolidays(streakStart, streakStart.plusDays(density.longStreakDays - 1));
+            }
+        }
+        return calendar;
+    }
+
+    /**
+     * 生成落在日历覆盖范围内的随机查询日期
+     *
+     * @param years  日历覆盖的年数
+     * @param margin 距离范围末尾需要保留的天数，避免查询结果越过日历的覆盖范围
+     * @return 查询日期
+     */
+    public static LocalDate[] dates(int years, int margin) {
+        Random random = new Random(SEED ^ years);
+        int bound = Math.max(1, spanInDays(years) - margin);
+        LocalDate[] dates = new LocalDate[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            dates[i] = FIRST_DAY.plusDays(random.nextInt(bound));
+        }
+        return dates;
+    }
+
+    public static int spanInDays(int years) {
+        return Math.toIntExact(FIRST_DAY.until(FIRST_DAY.plusYears(years), ChronoUnit.DAYS));
+    }
+}
@@ -0,0 +1,115 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarBuilder;
+import cc.ddrpa.fixa.FixaWeekendEnum;
+import cc.ddrpa.fixa.loader.IFixaDateLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.FIRST_DAY;
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.SAMPLE_MASK;
+
+/**
+ * 多线程读取的同时更新日历
+ * <p>
+ * 3 个线程调用 isWorkday / netWorkdays，1 个线程不断调用 update(year) 重新加载一年的节假日
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentUpdateBenchmark {
+
+    @Param({"5", "50"})
+    public int years;
+
+    private FixaCalendar calendar;
+    private LocalDate[] dates;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        calendar = new FixaCalendarBuilder()
+                .setWeekendType(FixaWeekendEnum.SATURDAY_AND_SUNDAY)
+                .registerDateLoader(new RandomYearLoader(years))
+                .build();
+        dates = CalendarFixture.dates(years, 30);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int value;
+        int year;
+    }
+
+    @Benchmark
+    @Group("readWhileUpdate")
+    @GroupThreads(3)
+    public boolean isWorkday(Cursor cursor) {
+        return calendar.isWorkday(dates[cursor.value++ & SAMPLE_MASK]);
+    }
+
+    @Benchmark
+    @Group("readWhileUpdate")
+    @GroupThreads(1)
+    public boolean update(Cursor cursor) {
+        return calendar.update(FIRST_DAY.getYear() + (cursor.year++ % years));
+    }
+
+    @Benchmark
+    @Group("rangeWhileUpdate")
+    @GroupThreads(3)
+    public int netWorkdays(Cursor cursor) {
+        LocalDate startDate = dates[cursor.value++ & SAMPLE_MASK];
+        return calendar.netWorkdays(startDate, startDate.plusDays(30));
+    }
+
+    @Benchmark
+    @Group("rangeWhileUpdate")
+    @GroupThreads(1)
+    public boolean updateRange(Cursor cursor) {
+        return update(cursor);
+    }
+
+    /**
+     * 每次更新为指定年份随机添加节假日和调休工作日
+     */
+    private static final class RandomYearLoader implements IFixaDateLoader {
+
+        private final int years;
+        private final Random random = new Random(0x5EEDL);
+
+        private RandomYearLoader(int years) {
+            this.years = years;
+        }
+
+        @Override
+        public boolean load(FixaCalendar calendarInstance) {
+            for (int year = 0; year < years; year++) {
+                update(FIRST_DAY.getYear() + year, calendarInstance);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean update(int year, FixaCalendar calendarInstance) {
+            LocalDate firstDayOfYear = LocalDate.ofYearDay(year, 1);
+            for (int i = 0; i < 10; i++) {
+                LocalDate holiday = firstDayOfYear.plusDays(random.nextInt(360));
+                calendarInstance.addHolidays(holiday, holiday.plusDays(2));
+            }
+            calendarInstance.addFlexibleWorkday(firstDayOfYear.plusDays(random.nextInt(365)));
+            return true;
+        }
+
+        @Override
+        public boolean isOutdated() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package cc.ddrpa.fixa.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 在本地提供生成的 ICS 日历文件，代替真实的节假日数据源，使加载器的基准测试不依赖网络
+ * <p>
+ * 提供两个地址：
+ * <ul>
+ *     <li>{@code /stable.ics}：每次返回相同的内容</li>
+ *     <li>{@code /alternating.ics}：每次请求在两个版本之间切换，两个版本每年相差一天调休，用于测量重新解析的耗时</li>
+ * </ul>
+ * 不返回 ETag 和 Last-Modified，每次请求都会传输完整的文件
+ */
+public final class IcsFeedServer implements AutoCloseable {
+
+    public static final int FIRST_YEAR = 2000;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final HttpServer server;
+    private final boolean gzip;
+    private final byte[][] versions;
+    private final byte[][] gzippedVersions;
+    private final AtomicLong alternatingRequests = new AtomicLong();
+
+    private IcsFeedServer(int years, boolean gzip) throws IOException {
+        this.gzip = gzip;
+        this.versions = new byte[][]{feed(years, false), feed(years, true)};
+        this.gzippedVersions = new byte[][]{gzip(versions[0]), gzip(versions[1])};
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stable.ics", exchange -> send(exchange, 0));
+        server.createContext("/alternating.ics",
+                exchange -> send(exchange, (int) (alternatingRequests.getAndIncrement() & 1)));
+        server.start();
+    }
+
+    /**
+     * 启动服务，提供从 {@link #FIRST_YEAR} 开始、覆盖指定年数的日历
+     *
+     * @param years 日历覆盖的年数
+     * @param gzip  客户端接受 gzip 时是否压缩响应
+     */
+    public static IcsFeedServer start(int years, boolean gzip) {
+        try {
+            return new IcsFeedServer(years, gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public URI stable() {
+        return uri("/stable.ics");
+    }
+
+    public URI alternating() {
+        return uri("/alternating.ics");
+    }
+
+    /**
+     * 未压缩的文件大小
+     */
+    public int size() {
+        return versions[0].length;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private void send(HttpExchange exchange, int version) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean compressed = gzip && acceptEncoding != null && acceptEncoding.contains("gzip");
+        byte[] body = compressed ? gzippedVersions[version] : versions[version];
+        exchange.getResponseHeaders().add("Content-Type", "text/calendar; charset=UTF-8");
+        if (compressed) {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    /**
+     * 生成日历文件，每年包含与国内法定节假日相近的 8 个假期和 5 个调休，事件带有 UID、DESCRIPTION 等不参与解析的属性
+     *
+     * @param variant 为 true 时每年多一天调休
+     */
+    static byte[] feed(int years, boolean variant) {
+        StringBuilder ics = new StringBuilder(years * 4096);
+        line(ics, "BEGIN:VCALENDAR");
+        line(ics, "VERSION:2.0");
+        line(ics, "PRODID:-//fixa//benchmark//CN");
+        line(ics, "X-WR-CALNAME:中国节假日");
+        for (int year = FIRST_YEAR; year < FIRST_YEAR + years; year++) {
+            event(ics, "元旦（休）", LocalDate.of(year, 1, 1), 1);
+            event(ics, "春节（休）", LocalDate.of(year, 2, 10), 8);
+            event(ics, "春节补班（班）", LocalDate.of(year, 2, 4), 1);
+            event(ics, "春节补班（班）", LocalDate.of(year, 2, 18), 1);
+            event(ics, "清明节（休）", LocalDate.of(year, 4, 4), 3);
+            event(ics, "劳动节（休）", LocalDate.of(year, 5, 1), 5);
+            event(ics, "劳动节补班（班）", LocalDate.of(year, 4, 28), 1);
+            event(ics, "端午节（休）", LocalDate.of(year, 6, 10), 1);
+            event(ics, "中秋节（休）", LocalDate.of(year, 9, 15), 3);
+            event(ics, "中秋节补班（班）", LocalDate.of(year, 9, 14), 1);
+            event(ics, "国庆节（休）", LocalDate.of(year, 10, 1), 7);
+            event(ics, "国庆节补班（班）", LocalDate.of(year, 10, 12), 1);
+            event(ics, "元旦补班（班）", LocalDate.of(year, 12, 29), 1);
+            if (variant) {
+                event(ics, "临时补班（班）", LocalDate.of(year, 12, 28), 1);
+            }
+        }
+        line(ics, "END:VCALENDAR");
+        return ics.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void event(StringBuilder ics, String summary, LocalDate start, int days) {
+        line(ics, "BEGIN:VEVENT");
+        line(ics, "UID:" + start.format(DATE) + "-" + summary.hashCode() + "@fixa");
+        line(ics, "DTSTAMP:20240101T000000Z");
+        line(ics, "DTSTART;VALUE=DATE:" + start.format(DATE));
+        if (days > 1) {
+            line(ics, "DTEND;VALUE=DATE:" + start.plusDays(days).format(DATE));
+        }
+        line(ics, "SUMMARY:" + summary);
+        line(ics, "DESCRIPTION:" + summary + "，" + start.getYear() + " 年国务院办公厅关于部分节假日安排的通知");
+        line(ics, "TRANSP:TRANSPARENT");
+        line(ics, "END:VEVENT");
+    }
+
+    private static void line(StringBuilder ics, String content) {
+        ics.append(content).append("\r\n");
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream os = new GZIPOutputStream(buffer)) {
+            os.write(content);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,147 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarBuilder;
+import cc.ddrpa.fixa.FixaWeekendEnum;
+import cc.ddrpa.fixa.loader.ICSDateLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 启动与刷新：build() + ICSDateLoader.load() 到首次查询的耗时，以及 update(year) 的耗时
+ * <p>
+ * 日历文件由 {@link IcsFeedServer} 在本地生成并提供，覆盖 1 / 10 / 100 年，分别以原文和 gzip 传输：
+ * <ul>
+ *     <li>coldStart：没有缓存文件，下载、解析后查询</li>
+ *     <li>warmStart：已有缓存文件，只解析缓存文件后查询</li>
+ *     <li>updateModified：每次更新时文件内容都有变化，下载后重新解析该年份</li>
+ *     <li>updateUnmodified：文件内容不变，下载后根据内容摘要跳过解析</li>
+ * </ul>
+ * 配合 {@code -prof gc} 查看分配速率，配合 {@code -prof cc.ddrpa.fixa.benchmark.PeakHeapProfiler} 查看堆内存峰值。
+ * <p>
+ * JDK 内置的 HttpServer 默认启用 Nagle 算法，响应头和响应体分开发送时每个请求会多等待约 40 毫秒，因此在 fork 出的 JVM 中关闭
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class LoaderBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int years;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private IcsFeedServer server;
+    private Path directory;
+    private LocalDate firstQuery;
+    private FixaCalendar modified;
+    private FixaCalendar unmodified;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = IcsFeedServer.start(years, gzip);
+        directory = Files.createTempDirectory("fixa-loader-benchmark");
+        firstQuery = LocalDate.of(lastYear(), 10, 1);
+        // warmStart 使用的缓存文件
+        calendar(server.stable(), "warm.ics");
+        modified = calendar(server.alternating(), "modified.ics");
+        unmodified = calendar(server.stable(), "unmodified.ics");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+        deleteRecursively(directory);
+    }
+
+    /**
+     * coldStart 每次调用前删除缓存文件
+     */
+    @State(Scope.Thread)
+    public static class ColdCache {
+
+        private Path directory;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("fixa-loader-benchmark-cold");
+        }
+
+        @Setup(Level.Invocation)
+        public void clear() throws IOException {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(LoaderBenchmark::delete);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public boolean coldStart(ColdCache cache) {
+        return new FixaCalendarBuilder()
+                .setWeekendType(FixaWeekendEnum.SATURDAY_AND_SUNDAY)
+                .registerDateLoader(new ICSDateLoader(server.stable(), cache.directory.resolve("cold.ics").toString()))
+                .build()
+                .isWorkday(firstQuery);
+    }
+
+    @Benchmark
+    public boolean warmStart() {
+        return calendar(server.stable(), "warm.ics").isWorkday(firstQuery);
+    }
+
+    /**
+     * 始终更新同一年份，文件的两个版本交替返回，每次更新的内容都与上次不同
+     */
+    @Benchmark
+    public boolean updateModified() {
+        return modified.update(lastYear());
+    }
+
+    @Benchmark
+    public boolean updateUnmodified() {
+        return unmodified.update(lastYear());
+    }
+
+    private int lastYear() {
+        return IcsFeedServer.FIRST_YEAR + years - 1;
+    }
+
+    private FixaCalendar calendar(URI uri, String cacheFileName) {
+        return new FixaCalendarBuilder()
+                .setWeekendType(FixaWeekendEnum.SATURDAY_AND_SUNDAY)
+                .registerDateLoader(new ICSDateLoader(uri, directory.resolve(cacheFileName).toString()))
+                .build();
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(LoaderBenchmark::delete);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
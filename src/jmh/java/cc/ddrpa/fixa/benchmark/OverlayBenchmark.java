@@ -0,0 +1,90 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaOverlayCalendar;
+import cc.ddrpa.fixa.benchmark.CalendarFixture.Density;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.FIRST_DAY;
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.SAMPLE_MASK;
+
+/**
+ * 叠加个人请假、加班后的查询：isWorkday / netWorkdays / workday
+ * <p>
+ * 个人标记每年约 15 天请假和 3 天加班，与直接查询基础日历比较组合带来的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlayBenchmark {
+
+    @Param({"5", "50"})
+    public int years;
+
+    @Param({"30", "365"})
+    public int spanInDays;
+
+    private FixaCalendar base;
+    private FixaOverlayCalendar overlay;
+    private LocalDate[] dates;
+    private Duration span;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        base = CalendarFixture.calendar(years, Density.SPARSE);
+        overlay = new FixaOverlayCalendar(base);
+        Random random = new Random(years);
+        for (int year = 0; year < years; year++) {
+            LocalDate firstDayOfYear = FIRST_DAY.plusYears(year);
+            for (int i = 0; i < 5; i++) {
+                LocalDate leave = firstDayOfYear.plusDays(random.nextInt(360));
+                overlay.addDaysOff(leave, leave.plusDays(2));
+            }
+            for (int i = 0; i < 3; i++) {
+                overlay.addWorkday(firstDayOfYear.plusDays(random.nextInt(365)));
+            }
+        }
+        dates = CalendarFixture.dates(years, spanInDays * 2);
+        span = Duration.ofDays(spanInDays);
+    }
+
+    private LocalDate nextDate() {
+        return dates[cursor++ & SAMPLE_MASK];
+    }
+
+    @Benchmark
+    public boolean isWorkday() {
+        return overlay.isWorkday(nextDate());
+    }
+
+    @Benchmark
+    public int netWorkdays() {
+        LocalDate startDate = nextDate();
+        return overlay.netWorkdays(startDate, startDate.plusDays(spanInDays));
+    }
+
+    @Benchmark
+    public int netWorkdaysBase() {
+        LocalDate startDate = nextDate();
+        return base.netWorkdays(startDate, startDate.plusDays(spanInDays));
+    }
+
+    @Benchmark
+    public LocalDate workday() {
+        return overlay.workday(nextDate(), span);
+    }
+
+    @Benchmark
+    public LocalDate workdayBase() {
+        return base.workday(nextDate(), span);
+    }
+}
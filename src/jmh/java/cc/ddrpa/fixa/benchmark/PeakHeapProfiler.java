@@ -0,0 +1,47 @@
+package cc.ddrpa.fixa.benchmark;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 报告每轮迭代中堆内存的峰值占用
+ * <p>
+ * 每轮迭代开始前执行一次 GC 并重置各堆内存池的峰值，结束后报告各内存池峰值之和（各内存池的峰值不一定出现在同一时刻，
+ * 结果偏大）。多轮迭代取最大值。使用方式：{@code -prof cc.ddrpa.fixa.benchmark.PeakHeapProfiler}
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+
+    @Override
+    public String getDescription() {
+        return "Peak heap usage per iteration";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @Override
+    public Collection<? extends Result<?>> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                          IterationResult result) {
+        long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return List.of(new ScalarResult("peak.heap", peak / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+    }
+}
@@ -0,0 +1,99 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaWorkdayCursor;
+import cc.ddrpa.fixa.benchmark.CalendarFixture.Density;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.SAMPLE_MASK;
+
+/**
+ * 单日判定类查询：isWorkday / isDayOff / nextDayOff / nextWorkday / previousWorkday，以及工作日游标的步进
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int years;
+
+    @Param({"SPARSE", "DENSE"})
+    public Density density;
+
+    private FixaCalendar calendar;
+    private LocalDate[] dates;
+    private int[] epochDays;
+    private int cursor;
+    private FixaWorkdayCursor workdayCursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        calendar = CalendarFixture.calendar(years, density);
+        dates = CalendarFixture.dates(years, 30);
+        epochDays = new int[dates.length];
+        for (int i = 0; i < dates.length; i++) {
+            epochDays[i] = (int) dates[i].toEpochDay();
+        }
+        workdayCursor = calendar.cursor(dates[0]);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCursor() {
+        workdayCursor.moveTo(dates[0]);
+    }
+
+    private LocalDate nextDate() {
+        return dates[cursor++ & SAMPLE_MASK];
+    }
+
+    private int nextEpochDay() {
+        return epochDays[cursor++ & SAMPLE_MASK];
+    }
+
+    @Benchmark
+    public boolean isWorkday() {
+        return calendar.isWorkday(nextDate());
+    }
+
+    @Benchmark
+    public boolean isDayOff() {
+        return calendar.isDayOff(nextDate());
+    }
+
+    @Benchmark
+    public LocalDate nextDayOff() {
+        return calendar.nextDayOff(nextDate());
+    }
+
+    @Benchmark
+    public boolean isWorkdayEpochDay() {
+        return calendar.isWorkday(nextEpochDay());
+    }
+
+    @Benchmark
+    public LocalDate nextWorkday() {
+        return calendar.nextWorkday(nextDate());
+    }
+
+    @Benchmark
+    public int nextWorkdayEpochDay() {
+        return calendar.nextWorkday(nextEpochDay());
+    }
+
+    @Benchmark
+    public int previousWorkdayEpochDay() {
+        return calendar.previousWorkday(nextEpochDay());
+    }
+
+    @Benchmark
+    public int cursorNext() {
+        return workdayCursor.next();
+    }
+}
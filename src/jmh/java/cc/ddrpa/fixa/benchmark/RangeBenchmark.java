@@ -0,0 +1,117 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaPeriod;
+import cc.ddrpa.fixa.FixaPeriodCounts;
+import cc.ddrpa.fixa.benchmark.CalendarFixture.Density;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.SAMPLE_MASK;
+
+/**
+ * 区间类查询：netWorkdays / dayOffs
+ * <p>
+ * 可配合 {@code -prof gc} 比较 dayOffs 视图、int[] 与 IntConsumer 几种结果形式的分配速率；
+ * 流的基准比较顺序与并行遍历工作日的耗时；countByMonth 与逐月调用 netWorkdays 比较分组统计的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int years;
+
+    @Param({"SPARSE", "DENSE"})
+    public Density density;
+
+    @Param({"30", "3650"})
+    public int spanInDays;
+
+    private FixaCalendar calendar;
+    private LocalDate[] dates;
+    private Duration span;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        calendar = CalendarFixture.calendar(years, density);
+        dates = CalendarFixture.dates(years, 0);
+        span = Duration.ofDays(spanInDays);
+    }
+
+    private LocalDate nextDate() {
+        return dates[cursor++ & SAMPLE_MASK];
+    }
+
+    @Benchmark
+    public int netWorkdays() {
+        LocalDate startDate = nextDate();
+        return calendar.netWorkdays(startDate, startDate.plusDays(spanInDays));
+    }
+
+    @Benchmark
+    public int netWorkdaysWithDuration() {
+        return calendar.netWorkdays(nextDate(), span);
+    }
+
+    @Benchmark
+    public List<LocalDate> dayOffs() {
+        LocalDate startDate = nextDate();
+        return calendar.dayOffs(startDate, startDate.plusDays(spanInDays));
+    }
+
+    @Benchmark
+    public List<LocalDate> dayOffsWithDuration() {
+        return calendar.dayOffs(nextDate(), span);
+    }
+
+    @Benchmark
+    public int[] dayOffEpochDays() {
+        LocalDate startDate = nextDate();
+        return calendar.dayOffEpochDays(startDate, startDate.plusDays(spanInDays));
+    }
+
+    @Benchmark
+    public void forEachWorkday(Blackhole blackhole) {
+        LocalDate startDate = nextDate();
+        calendar.forEachWorkday(startDate, startDate.plusDays(spanInDays), blackhole::consume);
+    }
+
+    @Benchmark
+    public long workdayStream() {
+        LocalDate startDate = nextDate();
+        return calendar.workdayEpochDayStream(startDate, startDate.plusDays(spanInDays)).asLongStream().sum();
+    }
+
+    @Benchmark
+    public long workdayParallelStream() {
+        LocalDate startDate = nextDate();
+        return calendar.workdayEpochDayStream(startDate, startDate.plusDays(spanInDays)).parallel().asLongStream().sum();
+    }
+
+    @Benchmark
+    public FixaPeriodCounts countByMonth() {
+        LocalDate startDate = nextDate();
+        return calendar.countByPeriod(startDate, startDate.plusDays(spanInDays), FixaPeriod.MONTH);
+    }
+
+    @Benchmark
+    public void netWorkdaysPerMonth(Blackhole blackhole) {
+        LocalDate startDate = nextDate();
+        LocalDate endDate = startDate.plusDays(spanInDays);
+        for (LocalDate from = startDate; !from.isAfter(endDate); from = from.withDayOfMonth(1).plusMonths(1)) {
+            LocalDate to = from.withDayOfMonth(from.lengthOfMonth());
+            blackhole.consume(calendar.netWorkdays(from, to.isAfter(endDate) ? endDate : to));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package cc.ddrpa.fixa.benchmark;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.benchmark.CalendarFixture.Density;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static cc.ddrpa.fixa.benchmark.CalendarFixture.SAMPLE_MASK;
+
+/**
+ * 工作日推算：workday / reverseWorkday
+ * <p>
+ * 较长的 duration 会让 rangeCardinality 循环执行更多轮次，是该组基准关注的重点
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkdayBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int years;
+
+    @Param({"SPARSE", "DENSE"})
+    public Density density;
+
+    @Param({"5", "250", "5000"})
+    public int durationInDays;
+
+    private FixaCalendar calendar;
+    private LocalDate[] dates;
+    private Duration duration;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        calendar = CalendarFixture.calendar(years, density);
+        dates = CalendarFixture.dates(years, 0);
+        duration = Duration.ofDays(durationInDays);
+    }
+
+    private LocalDate nextDate() {
+        return dates[cursor++ & SAMPLE_MASK];
+    }
+
+    @Benchmark
+    public LocalDate workday() {
+        return calendar.workday(nextDate(), duration);
+    }
+
+    @Benchmark
+    public LocalDate reverseWorkday() {
+        return calendar.reverseWorkday(nextDate(), duration, true);
+    }
+}
@@ -0,0 +1,73 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+import org.roaringbitmap.PeekableIntIterator;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * 由位图直接存储的日期集合
+ */
+final class BitmapDaySet implements DaySet {
+
+    private final ImmutableBitmapDataProvider bitmap;
+
+    BitmapDaySet(ImmutableBitmapDataProvider bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    @Override
+    public boolean contains(int pos) {
+        return bitmap.contains(pos);
+    }
+
+    @Override
+    public long count(long from, long to) {
+        return SignedBitmaps.count(bitmap, from, to);
+    }
+
+    @Override
+    public long next(int pos) {
+        return SignedBitmaps.next(bitmap, pos);
+    }
+
+    @Override
+    public long nextAbsent(int pos) {
+        return SignedBitmaps.nextAbsent(bitmap, pos);
+    }
+
+    @Override
+    public long previous(int pos) {
+        return SignedBitmaps.previous(bitmap, pos);
+    }
+
+    @Override
+    public long previousAbsent(int pos) {
+        return SignedBitmaps.previousAbsent(bitmap, pos);
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator(int from, int to, boolean complement) {
+        if (complement) {
+            return DaySet.super.iterator(from, to, true);
+        }
+        // 位图自身的迭代器逐个前进，不需要每次重新查找；按有符号整数的顺序遍历，区间可以跨越 1970-01-01
+        PeekableIntIterator present = bitmap.getSignedIntIterator();
+        present.advanceIfNeeded(from);
+        return new PrimitiveIterator.OfInt() {
+            @Override
+            public boolean hasNext() {
+                return present.hasNext() && present.peekNext() < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return present.next();
+            }
+        };
+    }
+}
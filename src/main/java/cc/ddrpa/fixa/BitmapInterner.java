@@ -0,0 +1,53 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of bitmaps with identical content.
+ * <p>
+ * 内容相同的位图只保留一份。已发布的位图不再修改，因此可以被多个快照共用；
+ * 池中只持有位图的弱引用，不再被任何快照使用的位图可以被回收
+ */
+final class BitmapInterner {
+
+    private final Map<Integer, List<WeakReference<RoaringBitmap>>> pool = new HashMap<>();
+
+    /**
+     * 返回池中内容相同的位图，不存在时将给定位图放入池中
+     *
+     * @param bitmap 已发布、不再修改的位图
+     * @return 内容相同的位图
+     */
+    synchronized RoaringBitmap intern(RoaringBitmap bitmap) {
+        int hash = bitmap.hashCode();
+        List<WeakReference<RoaringBitmap>> bucket = pool.computeIfAbsent(hash, k -> new ArrayList<>(1));
+        Iterator<WeakReference<RoaringBitmap>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            RoaringBitmap candidate = iterator.next().get();
+            if (candidate == null) {
+                iterator.remove();
+            } else if (candidate.equals(bitmap)) {
+                return candidate;
+            }
+        }
+        bucket.add(new WeakReference<>(bitmap));
+        return bitmap;
+    }
+
+    /**
+     * 清理已被回收的位图
+     */
+    synchronized void purge() {
+        pool.values().removeIf(bucket -> {
+            bucket.removeIf(reference -> reference.get() == null);
+            return bucket.isEmpty();
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+
+/**
+ * 非工作日集合：周末规则给出的周末，加上落在工作日上的节假日，减去落在周末上的调休工作日
+ * <p>
+ * day-off = weekend + extraDayOff - extraWorkday
+ * <p>
+ * extraDayOff 与周末不相交，extraWorkday 是周末的子集，因此区间内的非工作日数量可以直接由
+ * 周末数量和两个例外位图的基数相加减得到。例外位图可以是堆上的 {@link org.roaringbitmap.RoaringBitmap}，
+ * 也可以是映射自文件的 {@link org.roaringbitmap.buffer.ImmutableRoaringBitmap}。
+ */
+final class DayOffSet implements DaySet {
+
+    private final FixaWeekendRule weekendRule;
+    private final ImmutableBitmapDataProvider extraDayOffMap;
+    private final ImmutableBitmapDataProvider extraWorkdayMap;
+
+    DayOffSet(FixaWeekendRule weekendRule, ImmutableBitmapDataProvider extraDayOffMap,
+              ImmutableBitmapDataProvider extraWorkdayMap) {
+        this.weekendRule = weekendRule;
+        this.extraDayOffMap = extraDayOffMap;
+        this.extraWorkdayMap = extraWorkdayMap;
+    }
+
+    @Override
+    public boolean contains(int pos) {
+        return weekendRule.isWeekend(pos)
+                ? !extraWorkdayMap.contains(pos)
+                : extraDayOffMap.contains(pos);
+    }
+
+    @Override
+    public long count(long from, long to) {
+        if (from >= to) {
+            return 0L;
+        }
+        return weekendRule.count(from, to)
+                + SignedBitmaps.count(extraDayOffMap, from, to)
+                - SignedBitmaps.count(extraWorkdayMap, from, to);
+    }
+
+    @Override
+    public long next(int pos) {
+        long weekend = weekendRule.next(pos);
+        // 跳过被调休为工作日的周末
+        while (weekend != NOT_FOUND && weekend <= Integer.MAX_VALUE && extraWorkdayMap.contains((int) weekend)) {
+            weekend = weekendRule.next(weekend + 1);
+        }
+        if (weekend > Integer.MAX_VALUE) {
+            weekend = NOT_FOUND;
+        }
+        long holiday = SignedBitmaps.next(extraDayOffMap, pos);
+        if (weekend == NOT_FOUND) {
+            return holiday;
+        }
+        return holiday == NOT_FOUND ? weekend : Math.min(weekend, holiday);
+    }
+
+    @Override
+    public long nextAbsent(int pos) {
+        long candidate = pos;
+        while (candidate <= Integer.MAX_VALUE) {
+            int current = (int) candidate;
+            if (weekendRule.isWeekend(current)) {
+                if (extraWorkdayMap.contains(current)) {
+                    return current;
+                }
+                candidate++;
+            } else if (extraDayOffMap.contains(current)) {
+                // 一次跳过连续的节假日
+                candidate = SignedBitmaps.nextAbsent(extraDayOffMap, current);
+                if (candidate == NOT_FOUND) {
+                    return NOT_FOUND;
+                }
+            } else {
+                return current;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    @Override
+    public long previous(int pos) {
+        long weekend = weekendRule.previous(pos);
+        // 跳过被调休为工作日的周末
+        while (weekend >= Integer.MIN_VALUE && extraWorkdayMap.contains((int) weekend)) {
+            weekend = weekendRule.previous(weekend - 1);
+        }
+        if (weekend < Integer.MIN_VALUE) {
+            weekend = NOT_FOUND;
+        }
+        // NOT_FOUND 小于任何日期
+        return Math.max(weekend, SignedBitmaps.previous(extraDayOffMap, pos));
+    }
+
+    @Override
+    public long previousAbsent(int pos) {
+        long candidate = pos;
+        while (candidate >= Integer.MIN_VALUE) {
+            int current = (int) candidate;
+            if (weekendRule.isWeekend(current)) {
+                if (extraWorkdayMap.contains(current)) {
+                    return current;
+                }
+                candidate--;
+            } else if (extraDayOffMap.contains(current)) {
+                // 一次跳过连续的节假日，不存在时为 NOT_FOUND
+                candidate = SignedBitmaps.previousAbsent(extraDayOffMap, current);
+            } else {
+                return current;
+            }
+        }
+        return NOT_FOUND;
+    }
+}
@@ -0,0 +1,79 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A set of epoch days.
+ * <p>
+ * 以 epoch day 表示的日期集合。集合可以直接由位图存储，例如节假日；
+ * 也可以由周末规则和例外位图组合而成，例如非工作日，此时集合可能是无限的。
+ */
+interface DaySet {
+
+    /**
+     * 查找不到时的返回值。epoch day 可以是负数（1970 年之前），因此不能使用 -1
+     */
+    long NOT_FOUND = Long.MIN_VALUE;
+
+    static DaySet of(ImmutableBitmapDataProvider bitmap) {
+        return new BitmapDaySet(bitmap);
+    }
+
+    boolean contains(int pos);
+
+    /**
+     * 返回 [from, to) 内的元素数量
+     */
+    long count(long from, long to);
+
+    /**
+     * 返回大于等于 pos 的第一个元素，不存在时返回 {@link #NOT_FOUND}
+     */
+    long next(int pos);
+
+    /**
+     * 返回大于等于 pos 的第一个不在集合中的值，不存在时返回 {@link #NOT_FOUND}
+     */
+    long nextAbsent(int pos);
+
+    /**
+     * 返回小于等于 pos 的最后一个元素，不存在时返回 {@link #NOT_FOUND}
+     */
+    long previous(int pos);
+
+    /**
+     * 返回小于等于 pos 的最后一个不在集合中的值，不存在时返回 {@link #NOT_FOUND}
+     */
+    long previousAbsent(int pos);
+
+    /**
+     * 按升序遍历 [from, to) 内的元素（complement 为 false）或不在集合中的值（complement 为 true）
+     */
+    default PrimitiveIterator.OfInt iterator(int from, int to, boolean complement) {
+        return new PrimitiveIterator.OfInt() {
+            private long pos = seek(from);
+
+            private long seek(int start) {
+                return complement ? DaySet.this.nextAbsent(start) : DaySet.this.next(start);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return pos != NOT_FOUND && pos < to;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int current = (int) pos;
+                pos = current + 1 < to ? seek(current + 1) : to;
+                return current;
+            }
+        };
+    }
+}
@@ -0,0 +1,223 @@
+package cc.ddrpa.fixa;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Epoch days within [startPos, endPos) that are present in (or absent from) a {@link DaySet}.
+ * <p>
+ * 日期集合在区间 [startPos, endPos) 内存在（或不存在）的日期，不复制集合中的数据。
+ * <p>
+ * 使用 {@link #of(DaySet, int, int)} 获取集合中存在的日期，例如节假日；
+ * 使用 {@link #complementOf(DaySet, int, int)} 获取集合中不存在的日期，例如工作日是非工作日的补集。
+ */
+final class EpochDayRange {
+
+    private final DaySet days;
+    private final int startPos;
+    private final int endPos;
+    private final boolean complement;
+    private final int size;
+
+    private EpochDayRange(DaySet days, int startPos, int endPos, boolean complement) {
+        this.days = days;
+        this.startPos = startPos;
+        this.endPos = endPos;
+        this.complement = complement;
+        int cardinality = (int) days.count(startPos, endPos);
+        this.size = complement ? endPos - startPos - cardinality : cardinality;
+    }
+
+    /**
+     * 集合在 [startPos, endPos) 内存在的日期
+     */
+    static EpochDayRange of(DaySet days, int startPos, int endPos) {
+        return new EpochDayRange(days, startPos, endPos, false);
+    }
+
+    /**
+     * 集合在 [startPos, endPos) 内不存在的日期
+     */
+    static EpochDayRange complementOf(DaySet days, int startPos, int endPos) {
+        return new EpochDayRange(days, startPos, endPos, true);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 按升序返回区间内的所有日期
+     */
+    int[] toArray() {
+        int[] epochDays = new int[size];
+        PrimitiveIterator.OfInt iterator = iterator();
+        for (int i = 0; i < size; i++) {
+            epochDays[i] = iterator.nextInt();
+        }
+        return epochDays;
+    }
+
+    /**
+     * 按升序访问区间内的所有日期
+     */
+    void forEach(IntConsumer consumer) {
+        PrimitiveIterator.OfInt iterator = iterator();
+        while (iterator.hasNext()) {
+            consumer.accept(iterator.nextInt());
+        }
+    }
+
+    /**
+     * 返回区间内第 index 个日期（从 0 开始）
+     */
+    int get(int index) {
+        Objects.checkIndex(index, size);
+        // 二分查找满足 [startPos, pos] 内恰好有 index + 1 个目标日期的最小位置
+        long low = startPos + index;
+        long high = endPos - 1;
+        while (low < high) {
+            // 区间可以在 1970 年之前，low、high 可能为负数，不能使用无符号右移
+            long mid = low + (high - low) / 2;
+            long present = days.count(startPos, mid + 1);
+            long matched = complement ? mid + 1 - startPos - present : present;
+            if (matched > index) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return (int) low;
+    }
+
+    PrimitiveIterator.OfInt iterator() {
+        return days.iterator(startPos, endPos, complement);
+    }
+
+    /**
+     * 返回可拆分的 {@link Spliterator}，按日期区间对半拆分，拆分后的两部分都可以直接算出大小
+     */
+    Spliterator.OfInt spliterator() {
+        return new EpochDaySpliterator(startPos, endPos, size);
+    }
+
+    /**
+     * 返回以 {@link LocalDate} 表示的只读视图，只有在访问元素时才会创建对象
+     */
+    List<LocalDate> asList() {
+        return new LocalDateView();
+    }
+
+    private final class EpochDaySpliterator implements Spliterator.OfInt {
+
+        // 区间短于该长度时不再拆分
+        private static final int MIN_SPLIT_LENGTH = 128;
+
+        private int from;
+        private final int to;
+        private long remaining;
+        // 开始遍历后不再拆分
+        private PrimitiveIterator.OfInt iterator;
+
+        private EpochDaySpliterator(int from, int to, long remaining) {
+            this.from = from;
+            this.to = to;
+            this.remaining = remaining;
+        }
+
+        private long count(int start, int end) {
+            long present = days.count(start, end);
+            return complement ? end - start - present : present;
+        }
+
+        @Override
+        public OfInt trySplit() {
+            if (iterator != null || to - from < MIN_SPLIT_LENGTH) {
+                return null;
+            }
+            // 区间可以在 1970 年之前，from、to 可能为负数，不能使用无符号右移
+            int middle = from + (to - from) / 2;
+            long prefix = count(from, middle);
+            EpochDaySpliterator prefixPart = new EpochDaySpliterator(from, middle, prefix);
+            from = middle;
+            remaining -= prefix;
+            return prefixPart;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (iterator == null) {
+                iterator = days.iterator(from, to, complement);
+            }
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            remaining--;
+            action.accept(iterator.nextInt());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (iterator == null) {
+                iterator = days.iterator(from, to, complement);
+            }
+            while (iterator.hasNext()) {
+                action.accept(iterator.nextInt());
+            }
+            remaining = 0;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    private final class LocalDateView extends AbstractList<LocalDate> implements RandomAccess {
+
+        @Override
+        public LocalDate get(int index) {
+            return LocalDate.ofEpochDay(EpochDayRange.this.get(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<LocalDate> iterator() {
+            PrimitiveIterator.OfInt iterator = EpochDayRange.this.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public LocalDate next() {
+                    return LocalDate.ofEpochDay(iterator.nextInt());
+                }
+            };
+        }
+    }
+}
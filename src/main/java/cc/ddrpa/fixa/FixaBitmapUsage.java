@@ -0,0 +1,55 @@
+package cc.ddrpa.fixa;
+
+/**
+ * Memory usage of a bitmap in a {@link FixaCalendar}.
+ * <p>
+ * 日历中某个位图的元素数量、内存占用和序列化后的大小
+ */
+public final class FixaBitmapUsage {
+
+    private final String name;
+    private final long cardinality;
+    private final long sizeInBytes;
+    private final long serializedSizeInBytes;
+
+    FixaBitmapUsage(String name, long cardinality, long sizeInBytes, long serializedSizeInBytes) {
+        this.name = name;
+        this.cardinality = cardinality;
+        this.sizeInBytes = sizeInBytes;
+        this.serializedSizeInBytes = serializedSizeInBytes;
+    }
+
+    /**
+     * 位图名称：holidayMap、flexibleWorkdayMap、extraDayOffMap 或 extraWorkdayMap
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 位图中的日期数量
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * 估算的内存占用
+     */
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * 序列化后的大小，即写入快照文件时占用的空间
+     */
+    public long getSerializedSizeInBytes() {
+        return serializedSizeInBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "FixaBitmapUsage[" + name + ", cardinality=" + cardinality + ", size=" + sizeInBytes
+                + ", serialized=" + serializedSizeInBytes + "]";
+    }
+}
@@ -0,0 +1,164 @@
+package cc.ddrpa.fixa;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * Business time calculation on top of a {@link FixaCalendar}.
+ * <p>
+ * 在 {@link FixaCalendar} 之上按工作时段计算工作时长，例如「16 个工作小时内响应」的截止时间。
+ * <ul>
+ *     <li>只有工作日的工作时段计入工作时长，非工作日由日历判定</li>
+ *     <li>跨越多天时，中间的完整工作日由日历的区间计数直接得出，计算量与时长无关</li>
+ *     <li>每次计算只读取一次日历快照，日历更新后的调用自动使用新的数据</li>
+ * </ul>
+ * {@link Instant} 参数按构造时给定的时区换算为本地时间。对象不可变，可以在多个线程中共用。
+ */
+public class FixaBusinessCalendar {
+
+    private final FixaCalendar calendar;
+    private final FixaBusinessHours hours;
+    private final ZoneId zone;
+
+    /**
+     * 使用系统默认时区创建
+     *
+     * @param calendar calendar deciding workdays
+     * @param hours    working hours of each workday
+     */
+    public FixaBusinessCalendar(FixaCalendar calendar, FixaBusinessHours hours) {
+        this(calendar, hours, ZoneId.systemDefault());
+    }
+
+    /**
+     * @param calendar calendar deciding workdays
+     * @param hours    working hours of each workday
+     * @param zone     time zone used to convert {@link Instant}
+     */
+    public FixaBusinessCalendar(FixaCalendar calendar, FixaBusinessHours hours, ZoneId zone) {
+        this.calendar = Objects.requireNonNull(calendar, "Calendar cannot be null.");
+        this.hours = Objects.requireNonNull(hours, "Business hours cannot be null.");
+        this.zone = Objects.requireNonNull(zone, "Zone cannot be null.");
+    }
+
+    /**
+     * Returns the business time between start and end
+     * <p>
+     * 返回 [start, end) 内的工作时长
+     *
+     * @param start start time(included)
+     * @param end   end time(excluded)
+     * @return the business time
+     */
+    public Duration businessDuration(LocalDateTime start, LocalDateTime end) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Start should be before end");
+        }
+        long startPos = start.toLocalDate().toEpochDay();
+        long endPos = end.toLocalDate().toEpochDay();
+        FixaSnapshot current = calendar.read(startPos, endPos + 1);
+        long startElapsed = hours.elapsed(start.toLocalTime().toNanoOfDay());
+        long endElapsed = hours.elapsed(end.toLocalTime().toNanoOfDay());
+        if (startPos == endPos) {
+            return Duration.ofNanos(isWorkday(current, startPos) ? endElapsed - startElapsed : 0L);
+        }
+        // 开始日期的剩余部分 + 中间的完整工作日 + 结束日期的开始部分
+        long total = Math.multiplyExact(calendar.countWorkdays(current, startPos + 1, endPos), hours.dailyNanos());
+        if (isWorkday(current, startPos)) {
+            total += hours.dailyNanos() - startElapsed;
+        }
+        if (isWorkday(current, endPos)) {
+            total += endElapsed;
+        }
+        return Duration.ofNanos(total);
+    }
+
+    /**
+     * Returns the business time between start and end
+     * <p>
+     * 返回 [start, end) 内的工作时长
+     *
+     * @param start start time(included)
+     * @param end   end time(excluded)
+     * @return the business time
+     */
+    public Duration businessDuration(Instant start, Instant end) {
+        return businessDuration(LocalDateTime.ofInstant(start, zone), LocalDateTime.ofInstant(end, zone));
+    }
+
+    /**
+     * Returns the earliest time when the given business time has elapsed since start
+     * <p>
+     * 返回从 start 开始累计给定工作时长的最早时刻。如果恰好在某个时段结束时用完，返回该时段的结束时间，
+     * 例如 17:00 开始的一小时返回当天 18:00，而不是下一个工作日的 09:00
+     *
+     * @param start    start time
+     * @param duration business time to add, negative value is not supported for now.
+     * @return the deadline
+     */
+    public LocalDateTime addBusinessTime(LocalDateTime start, Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Negative duration is not supported right now.");
+        }
+        long remaining = duration.toNanos();
+        if (remaining == 0) {
+            return start;
+        }
+        long daily = hours.dailyNanos();
+        long pos = start.toLocalDate().toEpochDay();
+        FixaSnapshot current = calendar.read(pos);
+        if (isWorkday(current, pos)) {
+            long elapsed = hours.elapsed(start.toLocalTime().toNanoOfDay());
+            if (remaining <= daily - elapsed) {
+                return at(pos, hours.locate(elapsed + remaining));
+            }
+            remaining -= daily - elapsed;
+        }
+        // 剩余时长由若干个完整工作日和最后一个工作日的 (0, daily] 组成
+        long wholeDays = (remaining - 1) / daily;
+        long lastDay = calendar.workdayPos(current, pos, wholeDays + 1);
+        // 延迟加载时，推算结果跨入尚未加载的年份则加载后重新推算
+        if (!calendar.isLoaded(pos, lastDay + 1)) {
+            lastDay = calendar.resolve(pos, snapshot -> calendar.workdayPos(snapshot, pos, wholeDays + 1));
+        }
+        return at(lastDay, hours.locate(remaining - wholeDays * daily));
+    }
+
+    /**
+     * Returns the earliest time when the given business time has elapsed since start
+     * <p>
+     * 返回从 start 开始累计给定工作时长的最早时刻
+     *
+     * @param start    start time
+     * @param duration business time to add, negative value is not supported for now.
+     * @return the deadline
+     */
+    public Instant addBusinessTime(Instant start, Duration duration) {
+        return addBusinessTime(LocalDateTime.ofInstant(start, zone), duration).atZone(zone).toInstant();
+    }
+
+    public FixaCalendar getCalendar() {
+        return calendar;
+    }
+
+    public FixaBusinessHours getBusinessHours() {
+        return hours;
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    private static boolean isWorkday(FixaSnapshot current, long pos) {
+        return !current.dayOffs.contains(Math.toIntExact(pos));
+    }
+
+    private static LocalDateTime at(long pos, long nanoOfDay) {
+        return LocalDateTime.of(LocalDate.ofEpochDay(pos), LocalTime.ofNanoOfDay(nanoOfDay));
+    }
+}
@@ -0,0 +1,117 @@
+package cc.ddrpa.fixa;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Working hours of a workday.
+ * <p>
+ * 工作日内的工作时段，例如 09:00-12:00、13:00-18:00。时段为左闭右开区间，按时间顺序排列且互不重叠，
+ * 每个工作日使用相同的时段。对象不可变，可以被多个 {@link FixaBusinessCalendar} 共用。
+ */
+public final class FixaBusinessHours {
+
+    // 时段的边界，以一天内的纳秒数表示，偶数下标为开始时间，奇数下标为结束时间
+    private final long[] boundaries;
+    // elapsedBefore[i] 为第 i 个时段开始之前的工作时长
+    private final long[] elapsedBefore;
+    private final long dailyNanos;
+
+    private FixaBusinessHours(long[] boundaries) {
+        this.boundaries = boundaries;
+        this.elapsedBefore = new long[boundaries.length / 2 + 1];
+        for (int i = 0; i < boundaries.length; i += 2) {
+            elapsedBefore[i / 2 + 1] = elapsedBefore[i / 2] + boundaries[i + 1] - boundaries[i];
+        }
+        this.dailyNanos = elapsedBefore[elapsedBefore.length - 1];
+    }
+
+    /**
+     * Create working hours from ascending pairs of start and end times
+     * <p>
+     * 使用成对的开始时间和结束时间创建工作时段，例如 {@code of(09:00, 12:00, 13:00, 18:00)} 表示午休一小时
+     *
+     * @param boundaries start and end times of each period, in ascending order
+     * @return the working hours
+     */
+    public static FixaBusinessHours of(LocalTime... boundaries) {
+        if (boundaries.length == 0 || boundaries.length % 2 != 0) {
+            throw new IllegalArgumentException("Business hours should be pairs of start and end times.");
+        }
+        long[] nanos = new long[boundaries.length];
+        for (int i = 0; i < boundaries.length; i++) {
+            nanos[i] = Objects.requireNonNull(boundaries[i], "Time cannot be null.").toNanoOfDay();
+            if (i > 0 && nanos[i] <= nanos[i - 1]) {
+                throw new IllegalArgumentException("Business hours should be in ascending order.");
+            }
+        }
+        return new FixaBusinessHours(nanos);
+    }
+
+    /**
+     * Total working time of a workday
+     * <p>
+     * 每个工作日的工作时长
+     */
+    public Duration getDailyDuration() {
+        return Duration.ofNanos(dailyNanos);
+    }
+
+    long dailyNanos() {
+        return dailyNanos;
+    }
+
+    /**
+     * 返回工作日内 [00:00, nanoOfDay) 中的工作时长
+     */
+    long elapsed(long nanoOfDay) {
+        for (int i = 0; i < boundaries.length; i += 2) {
+            if (nanoOfDay < boundaries[i + 1]) {
+                return elapsedBefore[i / 2] + Math.max(0L, nanoOfDay - boundaries[i]);
+            }
+        }
+        return dailyNanos;
+    }
+
+    /**
+     * 返回工作日内累计工作时长恰好达到 businessNanos 的最早时刻，businessNanos 取值为 (0, dailyNanos]
+     */
+    long locate(long businessNanos) {
+        int i = 0;
+        while (elapsedBefore[i + 1] < businessNanos) {
+            i++;
+        }
+        return boundaries[2 * i] + businessNanos - elapsedBefore[i];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FixaBusinessHours)) {
+            return false;
+        }
+        return Arrays.equals(boundaries, ((FixaBusinessHours) o).boundaries);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(boundaries);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FixaBusinessHours[");
+        for (int i = 0; i < boundaries.length; i += 2) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(LocalTime.ofNanoOfDay(boundaries[i])).append('-')
+                    .append(LocalTime.ofNanoOfDay(boundaries[i + 1]));
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -2,32 +2,67 @@ package cc.ddrpa.fixa;
 
 import cc.ddrpa.fixa.loader.IFixaDateLoader;
 import cc.ddrpa.fixa.loader.NopeDateLoader;
-import org.roaringbitmap.IntConsumer;
 import org.roaringbitmap.RoaringBitmap;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ToLongFunction;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 /**
  * FixaCalendar was mainly used to calculate workdays and holidays.
+ * <p>
+ * Queries read an immutable snapshot and never take a lock. Modifications, including
+ * {@link #update(int)}, are serialized and published by replacing the snapshot at once,
+ * so readers never observe a half-applied change.
+ * <p>
+ * 查询操作读取不可变的快照，不需要加锁；修改操作（包括 {@link #update(int)}）互斥执行，
+ * 完成后整体替换快照，读线程不会看到只应用了一半的修改。
  */
 public class FixaCalendar {
 
-    // 存储周末
-    private final RoaringBitmap weekendMap = RoaringBitmap.bitmapOf();
-    // 存储节日
-    private final RoaringBitmap holidayMap = RoaringBitmap.bitmapOf();
-    // 存储调休产生的工作日
-    private final RoaringBitmap flexibleWorkdayMap = RoaringBitmap.bitmapOf();
-    // 非工作日计算方法
-    // day-off = weekend + holiday - flexibleWorkday
-    private final RoaringBitmap dayOffMap = RoaringBitmap.bitmapOf();
+    /**
+     * Returned by epoch day navigation methods when there is no such day
+     * <p>
+     * epoch day 版本的查找方法找不到结果时的返回值。1970 年之前的 epoch day 为负数，因此不使用 -1
+     */
+    public static final int NO_EPOCH_DAY = Integer.MIN_VALUE;
+
+    // 批量计算时，行数达到该值才使用工作日索引
+    private static final int BATCH_INDEX_THRESHOLD = 1024;
+
+    // 当前发布的快照，读操作只访问该快照，不需要加锁
+    private volatile FixaSnapshot snapshot;
+    // 写操作之间互斥
+    private final Object writeLock = new Object();
+    // 加载或更新节假日数据期间使用的暂存快照，只有持有 writeLock 的线程可以访问
+    private FixaSnapshot staging;
+    // 暂存快照发布后执行的动作，只有持有 writeLock 的线程可以访问
+    private List<Runnable> publishActions;
     private final IFixaDateLoader dateLoader;
+    // 是否启用工作日 rank/select 索引
+    private final boolean workdayIndexEnabled;
+    // 是否按年份延迟加载节假日数据
+    private final boolean lazyLoading;
+    // 是否拒绝修改，例如由 FixaCalendarRegistry 提供、被多个 key 共用的日历
+    private final boolean readOnly;
+    // 延迟加载时已加载年份覆盖的日期，只在持有 writeLock 时整体替换，查询时不需要加锁
+    private volatile RoaringBitmap loadedDays = new RoaringBitmap();
+    // 运行指标，未注册监听器时为 FixaMetrics.NONE
+    private final FixaMetrics metrics;
+    // 后台自动刷新，未启用时为 null
+    private volatile FixaRefreshScheduler refreshScheduler;
+    private volatile FixaRefreshStatus refreshStatus = FixaRefreshStatus.NEVER;
 
     /**
      * Construct a new FixaCalendar with default settings
@@ -46,7 +81,12 @@ public class FixaCalendar {
      */
     @Deprecated
     public FixaCalendar() {
+        this.snapshot = FixaSnapshot.of(FixaWeekendRule.none());
         this.dateLoader = new NopeDateLoader();
+        this.workdayIndexEnabled = false;
+        this.lazyLoading = false;
+        this.readOnly = false;
+        this.metrics = FixaMetrics.NONE;
         new FixaCalendar(FixaWeekendEnum.SATURDAY_AND_SUNDAY, LocalDate.now(),
                 Duration.ofDays(365 * 5));
     }
@@ -65,34 +105,68 @@ public class FixaCalendar {
         if (duration.isNegative()) {
             throw new IllegalArgumentException("Negative duration is not supported right now.");
         }
-        int durationInDays = Math.toIntExact(duration.toDays());
-        int dayOfWeek = setWeekendAfter.getDayOfWeek().getValue();
-        int startPos = Math.toIntExact(setWeekendAfter.toEpochDay());
-        int[] weekendPos;
-        if (weekend.isSingleDayWeekend()) {
-            startPos = startPos - dayOfWeek - 4 + weekend.getCode();
-            weekendPos = IntStream.iterate(startPos, i -> i + 7)
-                    .limit(durationInDays / 7)
-                    .toArray();
-        } else if (weekend.isDoubleDayWeekend()) {
-            startPos = startPos - dayOfWeek - 2 + weekend.getCode();
-            weekendPos = IntStream.iterate(startPos, i -> i + 7)
-                    .limit(durationInDays / 7)
-                    .flatMap(i -> IntStream.of(i, i + 1))
-                    .toArray();
-        } else {
+        if (!weekend.isSingleDayWeekend() && !weekend.isDoubleDayWeekend()) {
             throw new IllegalArgumentException("Invalid weekend type.");
         }
-        this.weekendMap.add(weekendPos);
-        this.dayOffMap.add(weekendPos);
+        this.snapshot = FixaSnapshot.of(FixaWeekendRule.ofWindow(weekend, setWeekendAfter, duration));
+        this.dateLoader = new NopeDateLoader();
+        this.workdayIndexEnabled = false;
+        this.lazyLoading = false;
+        this.readOnly = false;
+        this.metrics = FixaMetrics.NONE;
+    }
+
+    /**
+     * 直接使用已发布的快照创建日历，不加载任何数据；只读的日历只能通过 {@link #replaceSnapshot(FixaSnapshot)} 替换数据
+     */
+    FixaCalendar(FixaSnapshot snapshot, boolean workdayIndexEnabled, FixaMetrics metrics, boolean readOnly) {
+        this.snapshot = snapshot;
         this.dateLoader = new NopeDateLoader();
+        this.workdayIndexEnabled = workdayIndexEnabled;
+        this.lazyLoading = false;
+        this.readOnly = readOnly;
+        this.metrics = metrics;
     }
 
+    /**
+     * Construct a calendar whose weekends are the given epoch days
+     * <p>
+     * 以逐个列出的 epoch day 作为周末构造日历，并使用加载器加载数据。
+     * 这些日期必须是一段时间内每周固定的几天，例如旧版本按周末类型和区间生成的周末；请改用 {@link FixaCalendarBuilder#setWeekendRule(FixaWeekendRule)}
+     *
+     * @param weekendPos epoch days of weekends
+     * @param dateLoader date loader
+     */
+    @Deprecated
     protected FixaCalendar(int[] weekendPos, IFixaDateLoader dateLoader) {
-        this.weekendMap.add(weekendPos);
-        this.dayOffMap.add(weekendPos);
+        this(FixaWeekendRule.ofDays(weekendPos), dateLoader);
+    }
+
+    protected FixaCalendar(FixaWeekendRule weekendRule, IFixaDateLoader dateLoader) {
+        this(weekendRule, dateLoader, false);
+    }
+
+    protected FixaCalendar(FixaWeekendRule weekendRule, IFixaDateLoader dateLoader, boolean workdayIndexEnabled) {
+        this(weekendRule, dateLoader, workdayIndexEnabled, FixaMetrics.NONE);
+    }
+
+    FixaCalendar(FixaWeekendRule weekendRule, IFixaDateLoader dateLoader, boolean workdayIndexEnabled,
+                 FixaMetrics metrics) {
+        this(weekendRule, dateLoader, workdayIndexEnabled, false, metrics);
+    }
+
+    FixaCalendar(FixaWeekendRule weekendRule, IFixaDateLoader dateLoader, boolean workdayIndexEnabled,
+                 boolean lazyLoading, FixaMetrics metrics) {
+        this.snapshot = FixaSnapshot.of(weekendRule);
         this.dateLoader = dateLoader;
-        this.dateLoader.load(this);
+        this.workdayIndexEnabled = workdayIndexEnabled;
+        this.lazyLoading = lazyLoading;
+        this.readOnly = false;
+        this.metrics = metrics;
+        // 延迟加载时，各年份的数据在第一次被查询时才加载
+        if (!lazyLoading) {
+            stage(() -> this.dateLoader.load(this));
+        }
     }
 
     /**
@@ -104,7 +178,10 @@ public class FixaCalendar {
      * @return true if it's a workday
      */
     public boolean isWorkday(LocalDate date) {
-        return !dayOffMap.contains(Math.toIntExact(date.toEpochDay()));
+        long start = metrics.start();
+        boolean result = !read(date).dayOffs.contains(Math.toIntExact(date.toEpochDay()));
+        metrics.query("isWorkday", start);
+        return result;
     }
 
     /**
@@ -116,7 +193,10 @@ public class FixaCalendar {
      * @return true if it's a day-off
      */
     public boolean isDayOff(LocalDate date) {
-        return dayOffMap.contains(Math.toIntExact(date.toEpochDay()));
+        long start = metrics.start();
+        boolean result = read(date).dayOffs.contains(Math.toIntExact(date.toEpochDay()));
+        metrics.query("isDayOff", start);
+        return result;
     }
 
     /**
@@ -128,7 +208,11 @@ public class FixaCalendar {
      * @return
      */
     public boolean isWeekend(LocalDate date) {
-        return weekendMap.contains(Math.toIntExact(date.toEpochDay()));
+        long start = metrics.start();
+        // 周末由规则直接计算，与节假日、调休无关
+        boolean result = snapshot.weekendRule.isWeekend(date.toEpochDay());
+        metrics.query("isWeekend", start);
+        return result;
     }
 
     /**
@@ -140,7 +224,10 @@ public class FixaCalendar {
      * @return
      */
     public boolean isHoliday(LocalDate date) {
-        return holidayMap.contains(Math.toIntExact(date.toEpochDay()));
+        long start = metrics.start();
+        boolean result = read(date).holidayMap.contains(Math.toIntExact(date.toEpochDay()));
+        metrics.query("isHoliday", start);
+        return result;
     }
 
     /**
@@ -152,7 +239,85 @@ public class FixaCalendar {
      * @return
      */
     public boolean isFlexibleWorkday(LocalDate date) {
-        return flexibleWorkdayMap.contains(Math.toIntExact(date.toEpochDay()));
+        long start = metrics.start();
+        boolean result = read(date).flexibleWorkdayMap.contains(Math.toIntExact(date.toEpochDay()));
+        metrics.query("isFlexibleWorkday", start);
+        return result;
+    }
+
+    /**
+     * whether given epoch day is a workday
+     * <p>
+     * 判定给定的 epoch day 是否是工作日，与 {@link #isWorkday(LocalDate)} 相同，但不需要创建 {@link LocalDate}
+     *
+     * @param epochDay epoch day to be checked
+     * @return true if it's a workday
+     */
+    public boolean isWorkday(int epochDay) {
+        long start = metrics.start();
+        boolean result = !read(epochDay).dayOffs.contains(epochDay);
+        metrics.query("isWorkday", start);
+        return result;
+    }
+
+    /**
+     * whether given epoch day is a day-off
+     * <p>
+     * 判定给定的 epoch day 是否是非工作日（包括周末和节假日）
+     *
+     * @param epochDay epoch day to be checked
+     * @return true if it's a day-off
+     */
+    public boolean isDayOff(int epochDay) {
+        long start = metrics.start();
+        boolean result = read(epochDay).dayOffs.contains(epochDay);
+        metrics.query("isDayOff", start);
+        return result;
+    }
+
+    /**
+     * whether given epoch day is a weekend
+     * <p>
+     * 判定给定的 epoch day 是否是周末
+     *
+     * @param epochDay epoch day to be checked
+     * @return true if it's a weekend
+     */
+    public boolean isWeekend(int epochDay) {
+        long start = metrics.start();
+        boolean result = snapshot.weekendRule.isWeekend(epochDay);
+        metrics.query("isWeekend", start);
+        return result;
+    }
+
+    /**
+     * whether given epoch day is a holiday
+     * <p>
+     * 判定给定的 epoch day 是否是节假日
+     *
+     * @param epochDay epoch day to be checked
+     * @return true if it's a holiday
+     */
+    public boolean isHoliday(int epochDay) {
+        long start = metrics.start();
+        boolean result = read(epochDay).holidayMap.contains(epochDay);
+        metrics.query("isHoliday", start);
+        return result;
+    }
+
+    /**
+     * whether given epoch day is a flexible workday
+     * <p>
+     * 判定给定的 epoch day 是否是调休产生的工作日
+     *
+     * @param epochDay epoch day to be checked
+     * @return true if it's a flexible workday
+     */
+    public boolean isFlexibleWorkday(int epochDay) {
+        long start = metrics.start();
+        boolean result = read(epochDay).flexibleWorkdayMap.contains(epochDay);
+        metrics.query("isFlexibleWorkday", start);
+        return result;
     }
 
     /**
@@ -174,10 +339,12 @@ public class FixaCalendar {
         if (startDate.isAfter(endDate)) {
             throw new IllegalArgumentException("StartDate should be before endDate");
         }
+        long start = metrics.start();
         long startPos = startDate.toEpochDay();
         long endPos = endDate.toEpochDay() + 1;
-        long cardinality = dayOffMap.rangeCardinality(startPos, endPos);
-        return Math.toIntExact(endPos - startPos - cardinality);
+        int result = Math.toIntExact(countWorkdays(read(startPos, endPos), startPos, endPos));
+        metrics.query("netWorkdays", start);
+        return result;
     }
 
     /**
@@ -213,20 +380,12 @@ public class FixaCalendar {
      * @return the date
      */
     public LocalDate workday(LocalDate startDate, Duration duration) {
-        long length = duration.toDays();
+        long start = metrics.start();
         long startPos = startDate.toEpochDay();
-        long possibleEndPos = startPos + length;
-        // RoaringBitmap::rangeCardinality calculate cardinality between [start, end)
-        // by adding 1 to both start and end, we can calculate the cardinality between (start, end]
-        long cardinality = dayOffMap.rangeCardinality(startPos + 1, possibleEndPos + 1);
-        while (cardinality != 0) {
-            // if there are values between (start, end], move the startPos to the end of the range
-            startPos = possibleEndPos;
-            possibleEndPos += cardinality;
-            // re-calculate the cardinality between (new-start, new-end]
-            cardinality = dayOffMap.rangeCardinality(startPos + 1, possibleEndPos + 1);
-        }
-        return LocalDate.ofEpochDay(possibleEndPos);
+        long length = duration.toDays();
+        long result = resolve(startPos, current -> workdayPos(current, startPos, length));
+        metrics.query("workday", start);
+        return LocalDate.ofEpochDay(result);
     }
 
     /**
@@ -240,32 +399,220 @@ public class FixaCalendar {
      * @return
      */
     public LocalDate reverseWorkday(LocalDate endDate, Duration duration, boolean endDateMustBeWorkday) {
+        long start = metrics.start();
+        LocalDate result = LocalDate.ofEpochDay(resolve(endDate.toEpochDay(),
+                current -> reverseWorkday(current, endDate, duration, endDateMustBeWorkday).toEpochDay()));
+        metrics.query("reverseWorkday", start);
+        return result;
+    }
+
+    private LocalDate reverseWorkday(FixaSnapshot current, LocalDate endDate, Duration duration,
+                                     boolean endDateMustBeWorkday) {
         long length = duration.toDays();
         long endPos = endDate.toEpochDay();
+        if (workdayIndexEnabled && (length > 0 || (length == 0 && endDateMustBeWorkday))) {
+            WorkdayIndex index = current.workdayIndex();
+            // endDateMustBeWorkday 时先将 endDate 推至最近的工作日（含当日），再向前推算 n 个工作日
+            long rank = endDateMustBeWorkday
+                    ? index.rank(endPos + 1) - 1 - length
+                    : index.rank(endPos) - length;
+            return LocalDate.ofEpochDay(index.select(rank));
+        }
+        DaySet dayOffs = current.dayOffs;
         long possibleStartPos = endPos - length;
         long cardinality;
         if (endDateMustBeWorkday) {
-            // RoaringBitmap::rangeCardinality calculate cardinality between [start, end)
+            // DaySet::count calculate cardinality between [start, end)
             // 首轮计算需要考虑 endDate 是否为工作日, return [start, end]
-            cardinality = dayOffMap.rangeCardinality(possibleStartPos, endPos + 1);
+            cardinality = dayOffs.count(possibleStartPos, endPos + 1);
         } else {
             // return [start, end)
-            cardinality = dayOffMap.rangeCardinality(possibleStartPos, endPos);
+            cardinality = dayOffs.count(possibleStartPos, endPos);
         }
+        int iterations = 1;
         while (cardinality != 0) {
             // if there are values between (start, end], move the endPos to the start of the range
             endPos = possibleStartPos;
             possibleStartPos -= cardinality;
             // re-calculate the cardinality between [new-start, new-end)
-            cardinality = dayOffMap.rangeCardinality(possibleStartPos, endPos);
+            cardinality = dayOffs.count(possibleStartPos, endPos);
+            iterations++;
         }
+        metrics.rangeCount("reverseWorkday", iterations);
         return LocalDate.ofEpochDay(possibleStartPos);
     }
 
     /**
-     * Return list of holidays between startDate and given duration
+     * Batch version of {@link #netWorkdays(LocalDate, LocalDate)} over epoch days
+     * <p>
+     * 批量计算工作日数量，results[i] 为 [startEpochDays[i], endEpochDays[i]]（均包含）内的工作日数量。
+     * 所有行使用同一个快照；行数较多时会创建工作日索引（未启用 {@link FixaCalendarBuilder#enableWorkdayIndex()} 时也是如此），
+     * 并使用 {@link java.util.concurrent.ForkJoinPool#commonPool()} 并行计算。
+     * 某一行参数不合法时抛出异常，此时 results 中的结果不完整
+     *
+     * @param startEpochDays start dates(included) as epoch days
+     * @param endEpochDays   end dates(included) as epoch days
+     * @param results        array to be filled with the number of workdays
+     */
+    public void netWorkdays(int[] startEpochDays, int[] endEpochDays, int[] results) {
+        checkBatch(startEpochDays, endEpochDays, results);
+        long start = metrics.start();
+        FixaSnapshot current = lazyLoading && results.length > 0
+                ? read(IntStream.of(startEpochDays).min().getAsInt(), IntStream.of(endEpochDays).max().getAsInt() + 1L)
+                : snapshot;
+        WorkdayBatch.netWorkdays(current.dayOffs, batchIndex(current, results.length),
+                startEpochDays, endEpochDays, results);
+        metrics.query("netWorkdaysBatch", start);
+    }
+
+    /**
+     * Batch version of {@link #workday(LocalDate, Duration)} over epoch days
+     * <p>
+     * 批量推算工作日，results[i] 为 startEpochDays[i] 之后的第 durationsInDays[i] 个工作日（epoch day）。
+     * 与 {@link #netWorkdays(int[], int[], int[])} 一样共用快照、按需创建索引并行计算
+     *
+     * @param startEpochDays  start dates as epoch days
+     * @param durationsInDays number of workdays after each start date, negative value is not supported for now.
+     * @param results         array to be filled with epoch days
+     */
+    public void workday(int[] startEpochDays, int[] durationsInDays, int[] results) {
+        checkBatch(startEpochDays, durationsInDays, results);
+        long start = metrics.start();
+        FixaSnapshot current = snapshot;
+        WorkdayBatch.workday(current.dayOffs, batchIndex(current, results.length),
+                startEpochDays, durationsInDays, results);
+        // 延迟加载时，从最早的开始日期到最晚的结果之间有尚未加载的年份则加载后重新计算
+        while (lazyLoading && results.length > 0) {
+            long first = Math.min(IntStream.of(startEpochDays).min().getAsInt(), IntStream.of(results).min().getAsInt());
+            long last = Math.max(IntStream.of(startEpochDays).max().getAsInt(), IntStream.of(results).max().getAsInt()) + 1L;
+            if (isLoaded(first, last)) {
+                break;
+            }
+            current = read(first, last);
+            WorkdayBatch.workday(current.dayOffs, batchIndex(current, results.length),
+                    startEpochDays, durationsInDays, results);
+        }
+        metrics.query("workdayBatch", start);
+    }
+
+    /**
+     * Count workdays, day-offs, weekends, holidays and flexible workdays per period between startDate and endDate
      * <p>
-     * 给定起始日期和一个持续时间，返回在这段时间内的非工作日列表
+     * 按周期（ISO 周、月、季度、年）分组统计给定日期范围内的工作日、非工作日、周末、节假日和调休工作日数量，
+     * 只遍历一次区间内的位图，结果按列存储为 int 数组。首尾两个周期只统计范围内的日期
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @param period    period to group by
+     * @return counts per period, in ascending order
+     */
+    public FixaPeriodCounts countByPeriod(LocalDate startDate, LocalDate endDate, FixaPeriod period) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        long start = metrics.start();
+        FixaSnapshot current = read(startDate, endDate);
+        FixaPeriodCounts result = FixaPeriodCounts.count(current.weekendRule, current.holidayMap,
+                current.flexibleWorkdayMap, current.extraDayOffMap, current.extraWorkdayMap,
+                Math.toIntExact(startDate.toEpochDay()), Math.toIntExact(endDate.toEpochDay()) + 1, period);
+        metrics.query("countByPeriod", start);
+        return result;
+    }
+
+    private static void checkBatch(int[] first, int[] second, int[] results) {
+        if (first.length != second.length || first.length != results.length) {
+            throw new IllegalArgumentException("Arrays should have the same length.");
+        }
+    }
+
+    /**
+     * 行数较少时创建索引并不划算，直接按区间计数
+     */
+    private WorkdayIndex batchIndex(FixaSnapshot current, int rows) {
+        return workdayIndexEnabled || rows >= BATCH_INDEX_THRESHOLD ? current.workdayIndex() : null;
+    }
+
+    /**
+     * 返回 [startPos, endPos) 内的工作日数量
+     */
+    long countWorkdays(FixaSnapshot current, long startPos, long endPos) {
+        if (workdayIndexEnabled) {
+            WorkdayIndex index = current.workdayIndex();
+            return index.rank(endPos) - index.rank(startPos);
+        }
+        return endPos - startPos - current.dayOffs.count(startPos, endPos);
+    }
+
+    /**
+     * 返回 startPos 之后的第 length 个工作日，length 为 0 时返回 startPos
+     */
+    long workdayPos(FixaSnapshot current, long startPos, long length) {
+        if (workdayIndexEnabled && length > 0) {
+            // 第 n 个工作日的序号为 (start, ...] 中第一个工作日的序号 + n - 1
+            WorkdayIndex index = current.workdayIndex();
+            return index.select(index.rank(startPos + 1) + length - 1);
+        }
+        return workdayPos(current.dayOffs, startPos, length, metrics);
+    }
+
+    /**
+     * 不使用索引，按区间计数返回 startPos 之后的第 length 个工作日
+     */
+    static long workdayPos(DaySet dayOffs, long startPos, long length, FixaMetrics metrics) {
+        long possibleEndPos = startPos + length;
+        // DaySet::count calculate cardinality between [start, end)
+        // by adding 1 to both start and end, we can calculate the cardinality between (start, end]
+        long cardinality = dayOffs.count(startPos + 1, possibleEndPos + 1);
+        int iterations = 1;
+        while (cardinality != 0) {
+            // if there are values between (start, end], move the startPos to the end of the range
+            startPos = possibleEndPos;
+            possibleEndPos += cardinality;
+            // re-calculate the cardinality between (new-start, new-end]
+            cardinality = dayOffs.count(startPos + 1, possibleEndPos + 1);
+            iterations++;
+        }
+        metrics.rangeCount("workday", iterations);
+        return possibleEndPos;
+    }
+
+    /**
+     * 返回 endPos 之前（不含）的第 length 个工作日，length 为 0 时返回 endPos
+     */
+    long reverseWorkdayPos(FixaSnapshot current, long endPos, long length) {
+        if (workdayIndexEnabled && length > 0) {
+            WorkdayIndex index = current.workdayIndex();
+            return index.select(index.rank(endPos) - length);
+        }
+        return reverseWorkdayPos(current.dayOffs, endPos, length, metrics);
+    }
+
+    /**
+     * 不使用索引，按区间计数返回 endPos 之前（不含）的第 length 个工作日
+     */
+    static long reverseWorkdayPos(DaySet dayOffs, long endPos, long length, FixaMetrics metrics) {
+        long possibleStartPos = endPos - length;
+        // [start, end) 中没有非工作日时，start 即为所求
+        long cardinality = dayOffs.count(possibleStartPos, endPos);
+        int iterations = 1;
+        while (cardinality != 0) {
+            endPos = possibleStartPos;
+            possibleStartPos -= cardinality;
+            cardinality = dayOffs.count(possibleStartPos, endPos);
+            iterations++;
+        }
+        metrics.rangeCount("reverseWorkday", iterations);
+        return possibleStartPos;
+    }
+
+    /**
+     * Return list of day-off between startDate and given duration
+     * <p>
+     * The returned list is a read-only view backed by the calendar,
+     * {@link LocalDate} objects are created only when accessed.
+     * <p>
+     * 给定起始日期和一个持续时间，返回在这段时间内的非工作日列表。
+     * 返回的列表是只读视图，只有在访问元素时才会创建 {@link LocalDate} 对象
      *
      * @param startDate start date(included)
      * @param duration
@@ -275,50 +622,409 @@ public class FixaCalendar {
         if (duration.isNegative()) {
             throw new IllegalArgumentException("Negative duration is not supported right now.");
         }
-        int startPos = Math.toIntExact(startDate.toEpochDay());
-        int length = Math.toIntExact(duration.toDays());
-        List<Integer> bits = new ArrayList<>(length);
-        // RoaringBitmap::forEachInRange calculate retrieve values between [start, end)
-        // get [start, end] by using [start, end + 1)
-        dayOffMap.forEachInRange(startPos, length + 1, new FixaDateConsumer(bits));
-        return bits.stream()
-                .map(LocalDate::ofEpochDay)
-                .collect(Collectors.toList());
+        return dayOffs(startDate, startDate.plusDays(duration.toDays()));
     }
 
     /**
      * Return list of day-off between startDate and endDate
      * <p>
-     * 给定起始日期和结束日期，返回在这段时间内的非工作日列表
+     * The returned list is a read-only view backed by the calendar,
+     * {@link LocalDate} objects are created only when accessed.
+     * <p>
+     * 给定起始日期和结束日期，返回在这段时间内的非工作日列表。
+     * 返回的列表是只读视图，只有在访问元素时才会创建 {@link LocalDate} 对象
      *
      * @param startDate start date(included)
      * @param endDate   end date(included)
      * @return
      */
     public List<LocalDate> dayOffs(LocalDate startDate, LocalDate endDate) {
-        if (startDate.isAfter(endDate)) {
-            throw new IllegalArgumentException("StartDate should be before endDate");
-        }
-        int startPos = Math.toIntExact(startDate.toEpochDay());
-        int length = Math.toIntExact(endDate.toEpochDay()) + 1 - startPos;
-        List<Integer> bits = new ArrayList<>(length);
-        dayOffMap.forEachInRange(startPos, length, new FixaDateConsumer(bits));
-        return bits.stream()
-                .map(LocalDate::ofEpochDay)
-                .collect(Collectors.toList());
+        long start = metrics.start();
+        List<LocalDate> result = range(read(startDate, endDate).dayOffs, startDate, endDate, false).asList();
+        metrics.query("dayOffs", start);
+        return result;
+    }
+
+    /**
+     * Return day-offs between startDate and endDate as epoch days
+     * <p>
+     * 给定起始日期和结束日期，按升序返回这段时间内的非工作日，以 epoch day 表示
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public int[] dayOffEpochDays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        int[] result = range(read(startDate, endDate).dayOffs, startDate, endDate, false).toArray();
+        metrics.query("dayOffEpochDays", start);
+        return result;
+    }
+
+    /**
+     * Visit day-offs between startDate and endDate in ascending order
+     * <p>
+     * 给定起始日期和结束日期，按升序访问这段时间内的非工作日，不会创建任何中间对象
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @param consumer  accepts epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public void forEachDayOff(LocalDate startDate, LocalDate endDate, IntConsumer consumer) {
+        long start = metrics.start();
+        range(read(startDate, endDate).dayOffs, startDate, endDate, false).forEach(consumer);
+        metrics.query("forEachDayOff", start);
+    }
+
+    /**
+     * Return day-offs between startDate and endDate as a lazy stream of epoch days
+     * <p>
+     * 给定起始日期和结束日期，以惰性的 {@link IntStream} 按升序返回这段时间内的非工作日（epoch day）。
+     * 流按日期区间对半拆分，每一部分的大小都可以直接算出，{@link IntStream#parallel()} 可以充分利用多核
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public IntStream dayOffEpochDayStream(LocalDate startDate, LocalDate endDate) {
+        return StreamSupport.intStream(range(read(startDate, endDate).dayOffs, startDate, endDate, false).spliterator(), false);
+    }
+
+    /**
+     * Return day-offs between startDate and endDate as a lazy stream
+     * <p>
+     * 给定起始日期和结束日期，以惰性的 {@link Stream} 按升序返回这段时间内的非工作日，
+     * 见 {@link #dayOffEpochDayStream(LocalDate, LocalDate)}
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return day-offs
+     */
+    public Stream<LocalDate> dayOffStream(LocalDate startDate, LocalDate endDate) {
+        return dayOffEpochDayStream(startDate, endDate).mapToObj(LocalDate::ofEpochDay);
+    }
+
+    /**
+     * Return list of holidays between startDate and endDate
+     * <p>
+     * The returned list is a read-only view backed by the calendar.
+     * <p>
+     * 给定起始日期和结束日期，返回在这段时间内的节假日列表，返回的列表是只读视图
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return
+     */
+    public List<LocalDate> holidays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        List<LocalDate> result = range(DaySet.of(read(startDate, endDate).holidayMap), startDate, endDate, false).asList();
+        metrics.query("holidays", start);
+        return result;
+    }
+
+    /**
+     * Return holidays between startDate and endDate as epoch days
+     * <p>
+     * 给定起始日期和结束日期，按升序返回这段时间内的节假日，以 epoch day 表示
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public int[] holidayEpochDays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        int[] result = range(DaySet.of(read(startDate, endDate).holidayMap), startDate, endDate, false).toArray();
+        metrics.query("holidayEpochDays", start);
+        return result;
+    }
+
+    /**
+     * Visit holidays between startDate and endDate in ascending order
+     * <p>
+     * 给定起始日期和结束日期，按升序访问这段时间内的节假日
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @param consumer  accepts epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public void forEachHoliday(LocalDate startDate, LocalDate endDate, IntConsumer consumer) {
+        long start = metrics.start();
+        range(DaySet.of(read(startDate, endDate).holidayMap), startDate, endDate, false).forEach(consumer);
+        metrics.query("forEachHoliday", start);
+    }
+
+    /**
+     * Return list of flexible workdays between startDate and endDate
+     * <p>
+     * The returned list is a read-only view backed by the calendar.
+     * <p>
+     * 给定起始日期和结束日期，返回在这段时间内调休产生的工作日列表，返回的列表是只读视图
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return
+     */
+    public List<LocalDate> flexibleWorkdays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        List<LocalDate> result = range(DaySet.of(read(startDate, endDate).flexibleWorkdayMap), startDate, endDate, false).asList();
+        metrics.query("flexibleWorkdays", start);
+        return result;
+    }
+
+    /**
+     * Return flexible workdays between startDate and endDate as epoch days
+     * <p>
+     * 给定起始日期和结束日期，按升序返回这段时间内调休产生的工作日，以 epoch day 表示
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public int[] flexibleWorkdayEpochDays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        int[] result = range(DaySet.of(read(startDate, endDate).flexibleWorkdayMap), startDate, endDate, false).toArray();
+        metrics.query("flexibleWorkdayEpochDays", start);
+        return result;
+    }
+
+    /**
+     * Visit flexible workdays between startDate and endDate in ascending order
+     * <p>
+     * 给定起始日期和结束日期，按升序访问这段时间内调休产生的工作日
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @param consumer  accepts epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public void forEachFlexibleWorkday(LocalDate startDate, LocalDate endDate, IntConsumer consumer) {
+        long start = metrics.start();
+        range(DaySet.of(read(startDate, endDate).flexibleWorkdayMap), startDate, endDate, false).forEach(consumer);
+        metrics.query("forEachFlexibleWorkday", start);
+    }
+
+    /**
+     * Return list of workdays between startDate and endDate
+     * <p>
+     * The returned list is a read-only view backed by the calendar.
+     * <p>
+     * 给定起始日期和结束日期，返回在这段时间内的工作日列表，返回的列表是只读视图
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return
+     */
+    public List<LocalDate> workdays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        List<LocalDate> result = range(read(startDate, endDate).dayOffs, startDate, endDate, true).asList();
+        metrics.query("workdays", start);
+        return result;
+    }
+
+    /**
+     * Return workdays between startDate and endDate as epoch days
+     * <p>
+     * 给定起始日期和结束日期，按升序返回这段时间内的工作日，以 epoch day 表示
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public int[] workdayEpochDays(LocalDate startDate, LocalDate endDate) {
+        long start = metrics.start();
+        int[] result = range(read(startDate, endDate).dayOffs, startDate, endDate, true).toArray();
+        metrics.query("workdayEpochDays", start);
+        return result;
+    }
+
+    /**
+     * Visit workdays between startDate and endDate in ascending order
+     * <p>
+     * 给定起始日期和结束日期，按升序访问这段时间内的工作日
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @param consumer  accepts epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public void forEachWorkday(LocalDate startDate, LocalDate endDate, IntConsumer consumer) {
+        long start = metrics.start();
+        range(read(startDate, endDate).dayOffs, startDate, endDate, true).forEach(consumer);
+        metrics.query("forEachWorkday", start);
+    }
+
+    /**
+     * Return workdays between startDate and endDate as a lazy stream of epoch days
+     * <p>
+     * 给定起始日期和结束日期，以惰性的 {@link IntStream} 按升序返回这段时间内的工作日（epoch day）。
+     * 与 {@link #dayOffEpochDayStream(LocalDate, LocalDate)} 一样可以高效地并行处理
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return epoch days, see {@link LocalDate#toEpochDay()}
+     */
+    public IntStream workdayEpochDayStream(LocalDate startDate, LocalDate endDate) {
+        return StreamSupport.intStream(range(read(startDate, endDate).dayOffs, startDate, endDate, true).spliterator(), false);
+    }
+
+    /**
+     * Return workdays between startDate and endDate as a lazy stream
+     * <p>
+     * 给定起始日期和结束日期，以惰性的 {@link Stream} 按升序返回这段时间内的工作日，
+     * 见 {@link #workdayEpochDayStream(LocalDate, LocalDate)}
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return workdays
+     */
+    public Stream<LocalDate> workdayStream(LocalDate startDate, LocalDate endDate) {
+        return workdayEpochDayStream(startDate, endDate).mapToObj(LocalDate::ofEpochDay);
     }
 
     /**
      * Get the next day-off after the given date
      * <p>
-     * 给定一个日期，返回下一个非工作日（当日不计）
+     * 给定一个日期，返回下一个非工作日（当日不计），不存在时返回 null
      *
      * @param startDate start date(not include)
-     * @return
+     * @return the next day-off after startDate, or null if there is none
      */
     public LocalDate nextDayOff(LocalDate startDate) {
-        return LocalDate.ofEpochDay(
-                dayOffMap.nextValue(Math.toIntExact(startDate.toEpochDay()) + 1));
+        return toDate(nextDayOff(Math.toIntExact(startDate.toEpochDay())));
+    }
+
+    /**
+     * Get the last day-off before the given date
+     * <p>
+     * 给定一个日期，返回上一个非工作日（当日不计），不存在时返回 null
+     *
+     * @param startDate start date(not include)
+     * @return the last day-off before startDate, or null if there is none
+     */
+    public LocalDate previousDayOff(LocalDate startDate) {
+        return toDate(previousDayOff(Math.toIntExact(startDate.toEpochDay())));
+    }
+
+    /**
+     * Get the next workday after the given date
+     * <p>
+     * 给定一个日期，返回下一个工作日（当日不计），不存在时返回 null
+     *
+     * @param startDate start date(not include)
+     * @return the next workday after startDate, or null if there is none
+     */
+    public LocalDate nextWorkday(LocalDate startDate) {
+        return toDate(nextWorkday(Math.toIntExact(startDate.toEpochDay())));
+    }
+
+    /**
+     * Get the last workday before the given date
+     * <p>
+     * 给定一个日期，返回上一个工作日（当日不计），不存在时返回 null
+     *
+     * @param startDate start date(not include)
+     * @return the last workday before startDate, or null if there is none
+     */
+    public LocalDate previousWorkday(LocalDate startDate) {
+        return toDate(previousWorkday(Math.toIntExact(startDate.toEpochDay())));
+    }
+
+    /**
+     * Epoch day version of {@link #nextDayOff(LocalDate)}
+     * <p>
+     * 返回给定 epoch day 之后（不含）的第一个非工作日，不存在时返回 {@link #NO_EPOCH_DAY}
+     *
+     * @param epochDay start epoch day(not include)
+     * @return the next day-off as epoch day, or {@link #NO_EPOCH_DAY} if there is none
+     */
+    public int nextDayOff(int epochDay) {
+        long start = metrics.start();
+        long result = epochDay < Integer.MAX_VALUE
+                ? resolve(epochDay, current -> current.dayOffs.next(epochDay + 1))
+                : DaySet.NOT_FOUND;
+        metrics.query("nextDayOff", start);
+        return toEpochDay(result);
+    }
+
+    /**
+     * Epoch day version of {@link #previousDayOff(LocalDate)}
+     * <p>
+     * 返回给定 epoch day 之前（不含）的最后一个非工作日，不存在时返回 {@link #NO_EPOCH_DAY}
+     *
+     * @param epochDay start epoch day(not include)
+     * @return the last day-off as epoch day, or {@link #NO_EPOCH_DAY} if there is none
+     */
+    public int previousDayOff(int epochDay) {
+        long start = metrics.start();
+        long result = epochDay > Integer.MIN_VALUE
+                ? resolve(epochDay, current -> current.dayOffs.previous(epochDay - 1))
+                : DaySet.NOT_FOUND;
+        metrics.query("previousDayOff", start);
+        return toEpochDay(result);
+    }
+
+    /**
+     * Epoch day version of {@link #nextWorkday(LocalDate)}
+     * <p>
+     * 返回给定 epoch day 之后（不含）的第一个工作日，不存在时返回 {@link #NO_EPOCH_DAY}
+     *
+     * @param epochDay start epoch day(not include)
+     * @return the next workday as epoch day, or {@link #NO_EPOCH_DAY} if there is none
+     */
+    public int nextWorkday(int epochDay) {
+        long start = metrics.start();
+        long result = epochDay < Integer.MAX_VALUE
+                ? resolve(epochDay, current -> current.dayOffs.nextAbsent(epochDay + 1))
+                : DaySet.NOT_FOUND;
+        metrics.query("nextWorkday", start);
+        return toEpochDay(result);
+    }
+
+    /**
+     * Epoch day version of {@link #previousWorkday(LocalDate)}
+     * <p>
+     * 返回给定 epoch day 之前（不含）的最后一个工作日，不存在时返回 {@link #NO_EPOCH_DAY}
+     *
+     * @param epochDay start epoch day(not include)
+     * @return the last workday as epoch day, or {@link #NO_EPOCH_DAY} if there is none
+     */
+    public int previousWorkday(int epochDay) {
+        long start = metrics.start();
+        long result = epochDay > Integer.MIN_VALUE
+                ? resolve(epochDay, current -> current.dayOffs.previousAbsent(epochDay - 1))
+                : DaySet.NOT_FOUND;
+        metrics.query("previousWorkday", start);
+        return toEpochDay(result);
+    }
+
+    private static int toEpochDay(long result) {
+        return result == DaySet.NOT_FOUND ? NO_EPOCH_DAY : (int) result;
+    }
+
+    private static LocalDate toDate(int epochDay) {
+        return epochDay == NO_EPOCH_DAY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Create a cursor positioned at the given date
+     * <p>
+     * 创建一个位于给定日期的工作日游标，见 {@link FixaWorkdayCursor}
+     *
+     * @param date initial position
+     * @return the cursor
+     */
+    public FixaWorkdayCursor cursor(LocalDate date) {
+        return cursor(Math.toIntExact(date.toEpochDay()));
+    }
+
+    /**
+     * Create a cursor positioned at the given epoch day
+     * <p>
+     * 创建一个位于给定 epoch day 的工作日游标，见 {@link FixaWorkdayCursor}
+     *
+     * @param epochDay initial position
+     * @return the cursor
+     */
+    public FixaWorkdayCursor cursor(int epochDay) {
+        return new FixaWorkdayCursor(this, epochDay);
     }
 
     /**
@@ -335,8 +1041,7 @@ public class FixaCalendar {
         int[] bits = IntStream.range(0, loop)
                 .map(i -> startPos + i * interval)
                 .toArray();
-        holidayMap.add(bits);
-        dayOffMap.add(bits);
+        mutate(next -> next.addHolidays(bits));
     }
 
     /**
@@ -348,8 +1053,7 @@ public class FixaCalendar {
      */
     public void addHoliday(LocalDate date) {
         int pos = Math.toIntExact(date.toEpochDay());
-        holidayMap.add(pos);
-        dayOffMap.add(pos);
+        mutate(next -> next.addHoliday(pos));
     }
 
     /**
@@ -365,8 +1069,7 @@ public class FixaCalendar {
                         Math.toIntExact(firstDay.toEpochDay()),
                         Math.toIntExact(lastDay.toEpochDay()))
                 .toArray();
-        holidayMap.add(bits);
-        dayOffMap.add(bits);
+        mutate(next -> next.addHolidays(bits));
     }
 
     /**
@@ -382,8 +1085,7 @@ public class FixaCalendar {
                 .mapToInt(Math::toIntExact)
                 .sorted()
                 .toArray();
-        holidayMap.add(bits);
-        dayOffMap.add(bits);
+        mutate(next -> next.addHolidays(bits));
     }
 
     /**
@@ -399,8 +1101,7 @@ public class FixaCalendar {
      */
     public void addFlexibleWorkday(LocalDate date) {
         int pos = Math.toIntExact(date.toEpochDay());
-        flexibleWorkdayMap.add(pos);
-        dayOffMap.remove(pos);
+        mutate(next -> next.addFlexibleWorkday(pos));
     }
 
     /**
@@ -416,8 +1117,7 @@ public class FixaCalendar {
                         Math.toIntExact(firstDay.toEpochDay()),
                         Math.toIntExact(lastDay.toEpochDay()))
                 .toArray();
-        flexibleWorkdayMap.add(bits);
-        dayOffMap.andNot(flexibleWorkdayMap);
+        mutate(next -> next.addFlexibleWorkdays(bits));
     }
 
     /**
@@ -433,8 +1133,61 @@ public class FixaCalendar {
                 .mapToInt(Math::toIntExact)
                 .sorted()
                 .toArray();
-        flexibleWorkdayMap.add(bits);
-        dayOffMap.andNot(flexibleWorkdayMap);
+        mutate(next -> next.addFlexibleWorkdays(bits));
+    }
+
+    /**
+     * Start a batch of holiday and flexible workday edits
+     * <p>
+     * 开始批量修改节假日和调休工作日，所有修改在 {@link FixaCalendarEditor#commit()} 时一次性应用
+     *
+     * @return editor of this calendar
+     */
+    public FixaCalendarEditor edit() {
+        return new FixaCalendarEditor(this);
+    }
+
+    /**
+     * Create an empty calendar for a loader to stage its data, see {@link #mergeLayers(List)}
+     * <p>
+     * 创建一个只包含当前周末规则的空日历，供组合加载器让每个子加载器把数据加载到各自的位图中，
+     * 之后通过 {@link #mergeLayers(List)} 合并。新日历与当前日历共用指标监听器，但不会报告快照发布
+     *
+     * @return an empty calendar with the same weekend rule
+     */
+    public FixaCalendar createLayer() {
+        return new FixaCalendar(FixaSnapshot.of(snapshot.weekendRule), false, metrics.withoutPublications(), false);
+    }
+
+    /**
+     * Merge holidays and flexible workdays of the given layers, later layers take precedence
+     * <p>
+     * 按优先级合并多个图层（由 {@link #createLayer()} 创建）中的节假日和调休工作日，列表中靠后的图层优先级更高。
+     * 某个日期被多个图层标记时，只采用优先级最高的图层对该日期的标记（包括是否休息），例如公司图层可以把全国节假日改为工作日；
+     * 没有被任何图层标记的日期保持不变。合并只进行一次位图运算和一次快照替换
+     *
+     * @param layers layers ordered from the lowest to the highest priority
+     */
+    public void mergeLayers(List<FixaCalendar> layers) {
+        RoaringBitmap holidays = new RoaringBitmap();
+        RoaringBitmap flexibleWorkdays = new RoaringBitmap();
+        RoaringBitmap covered = new RoaringBitmap();
+        RoaringBitmap dayOffs = new RoaringBitmap();
+        // 从优先级最高的图层开始，每个图层只贡献尚未被更高优先级图层标记的日期
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            FixaSnapshot layer = layers.get(i).snapshot;
+            RoaringBitmap marked = RoaringBitmap.or(layer.holidayMap, layer.flexibleWorkdayMap);
+            marked.andNot(covered);
+            holidays.or(RoaringBitmap.and(layer.holidayMap, marked));
+            flexibleWorkdays.or(RoaringBitmap.and(layer.flexibleWorkdayMap, marked));
+            marked.forEach((int pos) -> {
+                if (layer.dayOffs.contains(pos)) {
+                    dayOffs.add(pos);
+                }
+            });
+            covered.or(marked);
+        }
+        mutate(next -> next.overlay(holidays, flexibleWorkdays, covered, dayOffs));
     }
 
     /**
@@ -444,31 +1197,436 @@ public class FixaCalendar {
      * @return
      */
     public boolean update(int year) {
-        return this.dateLoader.update(year, this);
+        checkWritable();
+        synchronized (writeLock) {
+            boolean result = stage(() -> this.dateLoader.update(year, this));
+            markLoaded(year);
+            return result;
+        }
+    }
+
+    /**
+     * Update holiday info of given year, and return what has changed
+     * <p>
+     * 与 {@link #update(int)} 相同，返回该年份内节假日和调休工作日的变化。内置加载器以整年替换的方式更新，
+     * 数据源中被撤销的节假日、调休也会被移除，见 {@link #replaceYear(int, FixaCalendar)}
+     *
+     * @param year year to be updated
+     * @return changes within the year
+     */
+    public FixaYearChanges updateYear(int year) {
+        checkWritable();
+        synchronized (writeLock) {
+            FixaSnapshot before = snapshot;
+            stage(() -> this.dateLoader.update(year, this));
+            markLoaded(year);
+            return FixaYearChanges.diff(year, before, snapshot);
+        }
+    }
+
+    /**
+     * Run the action once the data being loaded is published
+     * <p>
+     * 加载器在加载、更新过程中调用时，动作在暂存快照发布之后执行，加载失败时不执行；不在加载、更新过程中时立即执行。
+     * 加载器可以借此记录已处理的数据源内容，避免在加载失败后误以为该内容已经生效
+     *
+     * @param action action to run after publishing
+     */
+    public void afterPublish(Runnable action) {
+        synchronized (writeLock) {
+            if (staging != null) {
+                publishActions.add(action);
+            } else {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Replace holidays and flexible workdays of given year with those of the source calendar
+     * <p>
+     * 用 source（通常由 {@link #createLayer()} 创建并由加载器写入）中该年份的节假日和调休工作日替换本日历中同一年份的数据：
+     * 只在 source 中的标记被添加，只在本日历中的标记被移除，年份之外的数据保持不变。
+     * 只修改发生变化的日期，并在一次快照替换中完成；在加载器中调用时，修改随加载结果一并发布
+     *
+     * @param year   year to be replaced
+     * @param source calendar holding the new data
+     * @return changes within the year
+     */
+    public FixaYearChanges replaceYear(int year, FixaCalendar source) {
+        RoaringBitmap range = FixaYearChanges.yearRange(year);
+        FixaSnapshot layer = source.snapshot;
+        RoaringBitmap holidays = RoaringBitmap.and(layer.holidayMap, range);
+        RoaringBitmap flexibleWorkdays = RoaringBitmap.and(layer.flexibleWorkdayMap, range);
+        RoaringBitmap marked = RoaringBitmap.or(holidays, flexibleWorkdays);
+        RoaringBitmap dayOffs = new RoaringBitmap();
+        marked.forEach((int pos) -> {
+            if (layer.dayOffs.contains(pos)) {
+                dayOffs.add(pos);
+            }
+        });
+        FixaYearChanges[] changes = new FixaYearChanges[1];
+        mutate(next -> {
+            FixaSnapshot before = next.copy();
+            // 新旧标记的并集之外的日期不受影响
+            RoaringBitmap covered = RoaringBitmap.or(next.holidayMap, next.flexibleWorkdayMap);
+            covered.and(range);
+            covered.or(marked);
+            next.overlay(holidays, flexibleWorkdays, covered, dayOffs);
+            changes[0] = FixaYearChanges.diff(year, before, next);
+        });
+        return changes[0];
+    }
+
+    /**
+     * Return the status of the background refresh
+     * <p>
+     * 返回后台自动刷新的状态，包括最近一次检查、刷新的时间和结果
+     *
+     * @return
+     */
+    public FixaRefreshStatus getRefreshStatus() {
+        return refreshStatus;
+    }
+
+    /**
+     * Stop the background refresh
+     * <p>
+     * 停止后台自动刷新，正在进行的刷新会继续完成
+     */
+    public void stopAutoRefresh() {
+        FixaRefreshScheduler scheduler = refreshScheduler;
+        if (scheduler != null) {
+            scheduler.stop();
+            refreshScheduler = null;
+        }
+    }
+
+    void startAutoRefresh(Duration interval) {
+        stopAutoRefresh();
+        refreshScheduler = FixaRefreshScheduler.start(this, interval);
+    }
+
+    boolean isOutdated() {
+        return dateLoader.isOutdated();
+    }
+
+    /**
+     * 在同一个暂存快照上更新给定的年份，全部成功后一次性发布
+     */
+    boolean refresh(int... years) {
+        return stage(() -> {
+            boolean result = true;
+            for (int year : years) {
+                result &= dateLoader.update(year, this);
+            }
+            return result;
+        });
+    }
+
+    void setRefreshStatus(FixaRefreshStatus refreshStatus) {
+        this.refreshStatus = refreshStatus;
+    }
+
+    /**
+     * Listener receiving metrics of this calendar, for date loaders to report their phases
+     * <p>
+     * 返回接收本日历运行指标的监听器，加载器可以通过它报告下载、解析、写入等阶段的耗时；未注册监听器时不做任何事
+     *
+     * @return the listener
+     */
+    public FixaMetricsListener getMetricsListener() {
+        return metrics.listener();
+    }
+
+    /**
+     * Return memory usage of each bitmap
+     * <p>
+     * 返回当前数据中每个位图的元素数量、内存占用和序列化后的大小
+     *
+     * @return usage of holidayMap, flexibleWorkdayMap, extraDayOffMap and extraWorkdayMap
+     */
+    public List<FixaBitmapUsage> getBitmapUsage() {
+        return FixaMetrics.usageOf(snapshot);
     }
 
     /**
-     * Return a {@link RoaringBitmap} copy of the dayOffMap
+     * Write the weekend rule, holidays and flexible workdays as a binary snapshot
      * <p>
-     * 返回实际存储非工作日信息的 {@link RoaringBitmap} 副本
+     * 将周末规则、节假日和调休数据以二进制快照写入输出流，之后可以使用 {@link #loadSnapshot(InputStream, String)}
+     * 直接恢复位图而无需重新解析数据源。在加载器中调用时，写入的是加载过程中尚未发布的数据。输出流不会被关闭
+     *
+     * @param out    output stream
+     * @param source where the data came from, e.g. the version of the ics file, used to detect stale snapshots
+     */
+    public void saveSnapshot(OutputStream out, String source) {
+        FixaSnapshot current;
+        synchronized (writeLock) {
+            current = staging != null ? staging : snapshot;
+        }
+        try {
+            current.writeTo(out, source);
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to write snapshot", e);
+        }
+    }
+
+    /**
+     * Replace holidays and flexible workdays with a snapshot written by {@link #saveSnapshot(OutputStream, String)}
+     * <p>
+     * 使用 {@link #saveSnapshot(OutputStream, String)} 写入的快照替换日历中的节假日和调休数据。
+     * 快照的格式版本、周末规则或数据来源与当前不一致时视为过期，日历保持不变。输入流不会被关闭
+     *
+     * @param in             input stream
+     * @param expectedSource expected source of the snapshot, null to accept any source
+     * @return true if the snapshot is loaded, false if it is stale
+     */
+    public boolean loadSnapshot(InputStream in, String expectedSource) {
+        checkWritable();
+        FixaSnapshot restored;
+        try {
+            restored = FixaSnapshot.readFrom(in, expectedSource);
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to read snapshot", e);
+        }
+        if (restored == null || !restored.weekendRule.equals(snapshot.weekendRule)) {
+            return false;
+        }
+        replaceSnapshot(restored);
+        return true;
+    }
+
+    /**
+     * Return day-offs as a {@link RoaringBitmap}
+     * <p>
+     * Weekends are evaluated from the weekend rule and not stored, so they are written into the bitmap
+     * only within the years covered by holiday and flexible workday data, and within the weekend window
+     * if there is one.
+     * <p>
+     * 以 {@link RoaringBitmap} 返回非工作日。周末由周末规则计算而不存储，因此只有存储了节假日、调休数据的年份
+     * （以及周末规则的生效区间，如果有的话）内的周末会写入位图；需要指定区间时请使用
+     * {@link #rawDayOffMapClone(LocalDate, LocalDate)}
      *
      * @return
      */
     public RoaringBitmap rawDayOffMapClone() {
-        return dayOffMap.clone();
+        return snapshot.dayOffMap();
     }
 
-    private final class FixaDateConsumer implements IntConsumer {
+    /**
+     * Return day-offs between startDate and endDate as a {@link RoaringBitmap}
+     * <p>
+     * 以 {@link RoaringBitmap} 返回给定日期范围内的非工作日
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return
+     */
+    public RoaringBitmap rawDayOffMapClone(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        return read(startDate, endDate).dayOffMap(Math.toIntExact(startDate.toEpochDay()),
+                Math.toIntExact(endDate.toEpochDay()) + 1);
+    }
 
-        List<Integer> presentDates;
+    /**
+     * Return the weekend rule of this calendar
+     * <p>
+     * 返回日历使用的周末规则
+     *
+     * @return
+     */
+    public FixaWeekendRule getWeekendRule() {
+        return snapshot.weekendRule;
+    }
+
+    /**
+     * 给定起始日期和结束日期（均包含在内），返回集合在这段时间内存在或不存在的日期
+     */
+    private static EpochDayRange range(DaySet days, LocalDate startDate, LocalDate endDate,
+                                       boolean complement) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        int startPos = Math.toIntExact(startDate.toEpochDay());
+        int endPos = Math.toIntExact(endDate.toEpochDay()) + 1;
+        return complement
+                ? EpochDayRange.complementOf(days, startPos, endPos)
+                : EpochDayRange.of(days, startPos, endPos);
+    }
+
+    FixaSnapshot snapshot() {
+        return snapshot;
+    }
+
+    private FixaSnapshot read(LocalDate date) {
+        return read(date.toEpochDay());
+    }
+
+    private FixaSnapshot read(LocalDate startDate, LocalDate endDate) {
+        return read(startDate.toEpochDay(), endDate.toEpochDay() + 1);
+    }
+
+    FixaSnapshot read(long epochDay) {
+        return read(epochDay, epochDay + 1);
+    }
+
+    /**
+     * 返回包含 [fromDay, toDay) 的快照；按年份延迟加载时，先加载其中尚未加载的年份
+     */
+    FixaSnapshot read(long fromDay, long toDay) {
+        if (lazyLoading && !isLoaded(fromDay, toDay)) {
+            loadYears(fromDay, toDay);
+        }
+        return snapshot;
+    }
+
+    /**
+     * 在快照上执行结果位置事先未知的查询（例如推算工作日），返回结果位置；
+     * 按年份延迟加载时，如果 anchor 与结果之间有尚未加载的年份，加载后重新查询，直到整个区间都已加载
+     */
+    long resolve(long anchor, ToLongFunction<FixaSnapshot> query) {
+        long result = query.applyAsLong(read(anchor));
+        while (result != DaySet.NOT_FOUND && !isLoaded(Math.min(anchor, result), Math.max(anchor, result) + 1)) {
+            result = query.applyAsLong(read(Math.min(anchor, result), Math.max(anchor, result) + 1));
+        }
+        return result;
+    }
+
+    /**
+     * [fromDay, toDay) 所在的年份是否都已加载，未启用延迟加载时总是返回 true
+     */
+    boolean isLoaded(long fromDay, long toDay) {
+        if (!lazyLoading || fromDay >= toDay) {
+            return true;
+        }
+        RoaringBitmap loaded = loadedDays;
+        if (toDay - fromDay == 1) {
+            return loaded.contains((int) fromDay);
+        }
+        // 位图按无符号整数排列，1970 年之前的日期位于末尾
+        if (fromDay >= 0) {
+            return loaded.contains(fromDay, toDay);
+        }
+        if (toDay <= 0) {
+            return loaded.contains(fromDay + (1L << 32), toDay + (1L << 32));
+        }
+        return loaded.contains(fromDay + (1L << 32), 1L << 32) && loaded.contains(0L, toDay);
+    }
+
+    /**
+     * 加载 [fromDay, toDay) 涉及的、尚未加载的年份。所有年份在同一个暂存快照中加载，成功后一次性发布并标记为已加载，
+     * 加载失败时抛出异常，下次查询这些年份时重试。
+     * 加载器或指标监听器在加载、更新过程中查询尚未加载的年份时无法递归加载，抛出 {@link IllegalStateException}
+     */
+    private void loadYears(long fromDay, long toDay) {
+        int firstYear = LocalDate.ofEpochDay(fromDay).getYear();
+        int lastYear = LocalDate.ofEpochDay(toDay - 1).getYear();
+        synchronized (writeLock) {
+            List<Integer> years = new ArrayList<>();
+            RoaringBitmap ranges = new RoaringBitmap();
+            for (int year = firstYear; year <= lastYear; year++) {
+                RoaringBitmap range = FixaYearChanges.yearRange(year);
+                if (!loadedDays.contains(range)) {
+                    years.add(year);
+                    ranges.or(range);
+                }
+            }
+            // 其他线程已经加载了这些年份
+            if (years.isEmpty()) {
+                return;
+            }
+            if (staging != null) {
+                throw new IllegalStateException("Year " + years + " is not loaded yet, "
+                        + "it cannot be queried while the calendar is loading or updating.");
+            }
+            stage(() -> {
+                for (int year : years) {
+                    this.dateLoader.loadYear(year, this);
+                }
+                return true;
+            });
+            loadedDays = RoaringBitmap.or(loadedDays, ranges);
+        }
+    }
 
-        public FixaDateConsumer(List<Integer> presentDates) {
-            this.presentDates = presentDates;
+    /**
+     * 延迟加载时，更新过的年份视为已加载，只能在持有 writeLock 时调用
+     */
+    private void markLoaded(int year) {
+        if (lazyLoading) {
+            loadedDays = RoaringBitmap.or(loadedDays, FixaYearChanges.yearRange(year));
         }
+    }
 
-        @Override
-        public void accept(int value) {
-            presentDates.add(value);
+    /**
+     * 使用给定的快照替换当前数据；如果正在加载或更新节假日数据，替换的是暂存快照
+     */
+    void replaceSnapshot(FixaSnapshot replacement) {
+        synchronized (writeLock) {
+            if (staging != null) {
+                staging = replacement;
+            } else {
+                publish(replacement);
+            }
+        }
+    }
+
+    /**
+     * 在新的快照上应用修改，然后整体替换当前快照
+     * <p>
+     * 如果正在加载或更新节假日数据，修改会应用到暂存快照上，在加载完成后一并发布
+     */
+    void mutate(Consumer<FixaSnapshot> change) {
+        checkWritable();
+        synchronized (writeLock) {
+            if (staging != null) {
+                change.accept(staging);
+                return;
+            }
+            FixaSnapshot next = snapshot.copy();
+            change.accept(next);
+            next.optimize();
+            publish(next);
+        }
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Calendar is read-only.");
+        }
+    }
+
+    private void publish(FixaSnapshot next) {
+        snapshot = next;
+        metrics.published(next);
+    }
+
+    /**
+     * 在暂存快照上执行加载动作，成功后一次性发布，再执行 {@link #afterPublish(Runnable)} 登记的动作；
+     * 加载失败时暂存快照和登记的动作被丢弃，当前快照保持不变
+     */
+    private boolean stage(BooleanSupplier loading) {
+        synchronized (writeLock) {
+            if (staging != null) {
+                return loading.getAsBoolean();
+            }
+            staging = snapshot.copy();
+            publishActions = new ArrayList<>();
+            List<Runnable> actions;
+            boolean result;
+            try {
+                result = loading.getAsBoolean();
+                staging.optimize();
+                publish(staging);
+                actions = publishActions;
+            } finally {
+                staging = null;
+                publishActions = null;
+            }
+            actions.forEach(Runnable::run);
+            return result;
         }
     }
 }
@@ -5,32 +5,74 @@ import cc.ddrpa.fixa.loader.NopeDateLoader;
 
 import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.stream.IntStream;
 
 public class FixaCalendarBuilder {
 
     private FixaWeekendEnum weekend = FixaWeekendEnum.SATURDAY_AND_SUNDAY;
+    private FixaWeekendRule weekendRule;
+    // 仅在调用 startWeekendCalcAfter 或 setWeekendCalcDuration 后将周末限制在指定区间内
+    private boolean weekendWindowEnabled = false;
     private LocalDate setWeekendAfter = LocalDate.now();
     private Duration duration = Duration.ofDays(365 * 5);
     private IFixaDateLoader loader;
+    private boolean workdayIndexEnabled = false;
+    private boolean lazyLoadingEnabled = false;
+    private Duration autoRefreshInterval;
+    private final List<FixaMetricsListener> metricsListeners = new ArrayList<>();
 
     public FixaCalendarBuilder setWeekendType(FixaWeekendEnum weekend) {
         if (Objects.isNull(weekend)) {
             throw new NullPointerException("Weekend type cannot be null.");
         }
         this.weekend = weekend;
+        this.weekendRule = null;
         return this;
     }
 
+    /**
+     * Use an arbitrary weekend rule, e.g. a three-day weekend or a shift rotation
+     * <p>
+     * 使用任意的周末规则，例如三休、做四休三的轮班
+     *
+     * @param weekendRule weekend rule
+     * @return this builder
+     */
+    public FixaCalendarBuilder setWeekendRule(FixaWeekendRule weekendRule) {
+        if (Objects.isNull(weekendRule)) {
+            throw new NullPointerException("Weekend rule cannot be null.");
+        }
+        this.weekendRule = weekendRule;
+        return this;
+    }
+
+    /**
+     * Weekends are evaluated for any date, calling this method restricts them to a window starting near the given date.
+     * <p>
+     * 周末对任意日期都有效，调用此方法会将周末限制在给定日期附近开始的区间内，仅为兼容旧版本行为而保留
+     *
+     * @deprecated weekends are no longer materialized
+     */
+    @Deprecated
     public FixaCalendarBuilder startWeekendCalcAfter(LocalDate setWeekendAfter) {
         if (Objects.isNull(setWeekendAfter)) {
             throw new NullPointerException("Start date cannot be null.");
         }
         this.setWeekendAfter = setWeekendAfter;
+        this.weekendWindowEnabled = true;
         return this;
     }
 
+    /**
+     * Weekends are evaluated for any date, calling this method restricts them to a window of the given duration.
+     * <p>
+     * 周末对任意日期都有效，调用此方法会将周末限制在给定长度的区间内，仅为兼容旧版本行为而保留
+     *
+     * @deprecated weekends are no longer materialized
+     */
+    @Deprecated
     public FixaCalendarBuilder setWeekendCalcDuration(Duration duration) {
         if (Objects.isNull(duration)) {
             throw new NullPointerException("Duration cannot be null.");
@@ -39,6 +81,7 @@ public class FixaCalendarBuilder {
             throw new IllegalArgumentException("Negative duration is not supported right now.");
         }
         this.duration = duration;
+        this.weekendWindowEnabled = true;
         return this;
     }
 
@@ -47,24 +90,114 @@ public class FixaCalendarBuilder {
         return this;
     }
 
+    /**
+     * Precompute a rank/select index of workdays, so that netWorkdays, workday and reverseWorkday
+     * can be answered with a few array lookups.
+     * <p>
+     * 启用工作日 rank/select 索引，netWorkdays、workday、reverseWorkday 只需查表即可得到结果。
+     * 索引按 dayOffMap 的跨度占用内存（每天约 8 字节），日历变化后会在下次查询时重建。
+     *
+     * @return this builder
+     */
+    public FixaCalendarBuilder enableWorkdayIndex() {
+        this.workdayIndexEnabled = true;
+        return this;
+    }
+
+    /**
+     * Load holidays and flexible workdays year by year, when a query touches the year for the first time
+     * <p>
+     * 按年份延迟加载节假日数据：构造日历时不调用 {@link IFixaDateLoader#load(FixaCalendar)}，
+     * 查询第一次涉及某一年时才调用 {@link IFixaDateLoader#loadYear(int, FixaCalendar)}，启动耗时和内存占用只与实际用到的年份有关。
+     * 每个年份只加载一次，已加载年份的查询不需要加锁。
+     * 导出整个日历的方法（例如 {@link FixaCalendar#rawDayOffMapClone()}、{@link FixaCalendar#saveSnapshot}）只包含已加载的年份
+     *
+     * @return this builder
+     */
+    public FixaCalendarBuilder enableLazyLoading() {
+        this.lazyLoadingEnabled = true;
+        return this;
+    }
+
+    /**
+     * Check {@link IFixaDateLoader#isOutdated()} periodically and refresh outdated data in background
+     * <p>
+     * 定期检查 {@link IFixaDateLoader#isOutdated()}，数据过期时在后台线程中刷新今年（12 月时包括明年）的数据，
+     * 刷新期间日历继续提供原有数据。刷新结果见 {@link FixaCalendar#getRefreshStatus()}
+     *
+     * @param checkInterval interval between checks
+     * @return this builder
+     */
+    public FixaCalendarBuilder enableAutoRefresh(Duration checkInterval) {
+        if (Objects.isNull(checkInterval)) {
+            throw new NullPointerException("Check interval cannot be null.");
+        }
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("Check interval should be positive.");
+        }
+        this.autoRefreshInterval = checkInterval;
+        return this;
+    }
+
+    /**
+     * Report query latencies, loader timings and bitmap sizes to the given listener
+     * <p>
+     * 将查询耗时、加载器各阶段耗时和位图大小报告给给定的监听器，可以多次调用注册多个监听器。
+     * 使用 {@link FixaFlightRecorderListener} 记录为 JDK Flight Recorder 事件
+     *
+     * @param listener metrics listener
+     * @return this builder
+     */
+    public FixaCalendarBuilder addMetricsListener(FixaMetricsListener listener) {
+        if (Objects.isNull(listener)) {
+            throw new NullPointerException("Metrics listener cannot be null.");
+        }
+        this.metricsListeners.add(listener);
+        return this;
+    }
+
     public FixaCalendar build() {
-        int durationInDays = Math.toIntExact(duration.toDays());
-        int dayOfWeek = setWeekendAfter.getDayOfWeek().getValue();
-        int startPos = Math.toIntExact(setWeekendAfter.toEpochDay());
-        int[] weekendPos = new int[0];
-        if (weekend.isSingleDayWeekend()) {
-            startPos = startPos - dayOfWeek - 4 + weekend.getCode();
-            weekendPos = IntStream.iterate(startPos, i -> i + 7)
-                    .limit(durationInDays / 7)
-                    .toArray();
-        } else if (weekend.isDoubleDayWeekend()) {
-            startPos = startPos - dayOfWeek - 2 + weekend.getCode();
-            weekendPos = IntStream.iterate(startPos, i -> i + 7)
-                    .limit(durationInDays / 7)
-                    .flatMap(i -> IntStream.of(i, i + 1))
-                    .toArray();
+        FixaCalendar calendar = new FixaCalendar(resolveWeekendRule(),
+                Objects.isNull(loader) ? new NopeDateLoader() : loader,
+                workdayIndexEnabled, lazyLoadingEnabled, metrics());
+        if (Objects.nonNull(autoRefreshInterval)) {
+            calendar.startAutoRefresh(autoRefreshInterval);
+        }
+        return calendar;
+    }
+
+    FixaWeekendRule resolveWeekendRule() {
+        FixaWeekendRule rule = Objects.isNull(weekendRule) ? FixaWeekendRule.of(weekend) : weekendRule;
+        if (weekendWindowEnabled) {
+            if (Objects.nonNull(weekendRule)) {
+                throw new IllegalStateException("Weekend window is only supported with FixaWeekendEnum.");
+            }
+            rule = FixaWeekendRule.ofWindow(weekend, setWeekendAfter, duration);
         }
-        return new FixaCalendar(weekendPos,
-                Objects.isNull(loader) ? new NopeDateLoader() : loader);
+        return rule;
+    }
+
+    IFixaDateLoader loader() {
+        return loader;
+    }
+
+    boolean isWorkdayIndexEnabled() {
+        return workdayIndexEnabled;
+    }
+
+    boolean isLazyLoadingEnabled() {
+        return lazyLoadingEnabled;
+    }
+
+    Duration autoRefreshInterval() {
+        return autoRefreshInterval;
+    }
+
+    FixaMetrics metrics() {
+        return FixaMetrics.of(metricsListeners);
+    }
+
+    List<FixaMetricsListener> metricsListeners() {
+        return List.copyOf(metricsListeners);
     }
-}
\ No newline at end of file
+}
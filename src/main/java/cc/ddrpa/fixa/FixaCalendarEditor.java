@@ -0,0 +1,158 @@
+package cc.ddrpa.fixa;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Collects holiday and flexible workday edits and applies them at once.
+ * <p>
+ * 批量修改节假日和调休工作日。修改先记录在编辑器中，调用 {@link #commit()} 时在同一个快照副本上按调用顺序一次性应用，
+ * 只复制、压缩一次位图，读线程只会看到全部修改完成后的结果。
+ * <p>
+ * 同一日期的多次修改按调用顺序生效，与逐个调用 {@link FixaCalendar#addHoliday(LocalDate)} 等方法的结果一致。
+ * 编辑器不是线程安全的，提交后会被清空，可以继续使用。
+ */
+public final class FixaCalendarEditor {
+
+    private static final int ADD_HOLIDAY = 0;
+    private static final int ADD_FLEXIBLE_WORKDAY = 1;
+    private static final int REMOVE_HOLIDAY = 2;
+    private static final int REMOVE_FLEXIBLE_WORKDAY = 3;
+
+    private final FixaCalendar calendar;
+    // 每个操作占用三个元素：操作类型、起始日期、结束日期（包含）
+    private int[] operations = new int[3 * 16];
+    private int size = 0;
+
+    FixaCalendarEditor(FixaCalendar calendar) {
+        this.calendar = calendar;
+    }
+
+    /**
+     * 添加单个日期作为节假日
+     */
+    public FixaCalendarEditor addHoliday(LocalDate date) {
+        return record(ADD_HOLIDAY, date, date);
+    }
+
+    /**
+     * 使用开始日期和结束日期（均包含）添加多个节假日
+     */
+    public FixaCalendarEditor addHolidays(LocalDate firstDay, LocalDate lastDay) {
+        return record(ADD_HOLIDAY, firstDay, lastDay);
+    }
+
+    /**
+     * 添加多个节假日
+     */
+    public FixaCalendarEditor addHolidays(Iterable<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            record(ADD_HOLIDAY, date, date);
+        }
+        return this;
+    }
+
+    /**
+     * 添加单个日期作为调休产生的工作日
+     */
+    public FixaCalendarEditor addFlexibleWorkday(LocalDate date) {
+        return record(ADD_FLEXIBLE_WORKDAY, date, date);
+    }
+
+    /**
+     * 使用开始日期和结束日期（均包含）添加多个调休产生的工作日
+     */
+    public FixaCalendarEditor addFlexibleWorkdays(LocalDate firstDay, LocalDate lastDay) {
+        return record(ADD_FLEXIBLE_WORKDAY, firstDay, lastDay);
+    }
+
+    /**
+     * 添加多个调休产生的工作日
+     */
+    public FixaCalendarEditor addFlexibleWorkdays(Iterable<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            record(ADD_FLEXIBLE_WORKDAY, date, date);
+        }
+        return this;
+    }
+
+    /**
+     * 取消单个日期的节假日标记，如果它同时是调休工作日则成为工作日，否则由周末规则决定
+     */
+    public FixaCalendarEditor removeHoliday(LocalDate date) {
+        return record(REMOVE_HOLIDAY, date, date);
+    }
+
+    /**
+     * 取消开始日期和结束日期（均包含）之间的节假日标记
+     */
+    public FixaCalendarEditor removeHolidays(LocalDate firstDay, LocalDate lastDay) {
+        return record(REMOVE_HOLIDAY, firstDay, lastDay);
+    }
+
+    /**
+     * 取消单个日期的调休工作日标记，如果它同时是节假日则成为非工作日，否则由周末规则决定
+     */
+    public FixaCalendarEditor removeFlexibleWorkday(LocalDate date) {
+        return record(REMOVE_FLEXIBLE_WORKDAY, date, date);
+    }
+
+    /**
+     * 取消开始日期和结束日期（均包含）之间的调休工作日标记
+     */
+    public FixaCalendarEditor removeFlexibleWorkdays(LocalDate firstDay, LocalDate lastDay) {
+        return record(REMOVE_FLEXIBLE_WORKDAY, firstDay, lastDay);
+    }
+
+    /**
+     * Apply all recorded edits in one snapshot
+     * <p>
+     * 一次性应用所有记录的修改，然后清空编辑器。在加载器中使用时，修改会随加载结果一并发布
+     */
+    public void commit() {
+        if (size == 0) {
+            return;
+        }
+        int[] recorded = Arrays.copyOf(operations, size);
+        size = 0;
+        calendar.mutate(next -> apply(next, recorded));
+    }
+
+    private static void apply(FixaSnapshot snapshot, int[] recorded) {
+        for (int i = 0; i < recorded.length; i += 3) {
+            int operation = recorded[i];
+            for (int pos = recorded[i + 1], end = recorded[i + 2]; pos <= end; pos++) {
+                switch (operation) {
+                    case ADD_HOLIDAY:
+                        snapshot.addHoliday(pos);
+                        break;
+                    case ADD_FLEXIBLE_WORKDAY:
+                        snapshot.addFlexibleWorkday(pos);
+                        break;
+                    case REMOVE_HOLIDAY:
+                        snapshot.removeHoliday(pos);
+                        break;
+                    default:
+                        snapshot.removeFlexibleWorkday(pos);
+                        break;
+                }
+            }
+        }
+    }
+
+    private FixaCalendarEditor record(int operation, LocalDate firstDay, LocalDate lastDay) {
+        Objects.requireNonNull(firstDay, "Date cannot be null.");
+        Objects.requireNonNull(lastDay, "Date cannot be null.");
+        if (firstDay.isAfter(lastDay)) {
+            throw new IllegalArgumentException("FirstDay should be before lastDay");
+        }
+        if (size + 3 > operations.length) {
+            operations = Arrays.copyOf(operations, operations.length * 2);
+        }
+        operations[size++] = operation;
+        operations[size++] = Math.toIntExact(firstDay.toEpochDay());
+        operations[size++] = Math.toIntExact(lastDay.toEpochDay());
+        return this;
+    }
+}
@@ -0,0 +1,315 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.loader.IFixaDateLoader;
+import cc.ddrpa.fixa.loader.NopeDateLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * A registry of calendars that share loaded data and bitmaps.
+ * <p>
+ * 为大量的 key（例如租户、地区）提供日历，相同的数据只加载、存储一次。
+ * <ul>
+ *     <li>每个 key 的日历由 {@link FixaCalendarBuilder} 定义；周末规则、加载器实例和选项都相同的 key 共用同一个日历实例</li>
+ *     <li>每个加载器实例只加载一次，不同周末规则的日历由加载结果推导得到，节假日和调休位图直接共用</li>
+ *     <li>内容相同的位图只保留一份，例如多个加载器读取的是同一份数据</li>
+ *     <li>key 的数量超过上限时淘汰最久未访问的 key，不再被任何 key 使用的日历和加载结果随之释放</li>
+ *     <li>加载器在注册表的锁之外加载数据，一个数据源加载缓慢时，其他 key 的 {@link #get(Object)} 不受影响</li>
+ * </ul>
+ * 注册表中的日历是只读的：它们可能被多个 key 共用，{@link #update(int)} 时也会被整体替换，
+ * 修改节假日、调休或调用日历自身的 {@link FixaCalendar#update(int)} 时抛出 {@link UnsupportedOperationException}，
+ * 请使用 {@link #update(int)} 更新所有日历。注册表不支持自动刷新和延迟加载。
+ *
+ * @param <K> type of keys
+ */
+public class FixaCalendarRegistry<K> {
+
+    private final Function<? super K, FixaCalendarBuilder> definition;
+    private final BitmapInterner interner = new BitmapInterner();
+    // 按访问顺序排列，超出容量时淘汰最久未访问的 key
+    private final LinkedHashMap<K, SharedCalendar> calendars;
+    // 定义相同的 key 共用一个日历
+    private final Map<List<Object>, SharedCalendar> sharedCalendars = new HashMap<>();
+    // 每个加载器实例只加载一次
+    private final Map<IFixaDateLoader, Source> sources = new IdentityHashMap<>();
+
+    /**
+     * 创建注册表
+     *
+     * @param maximumSize 最多保留的 key 数量
+     * @param definition  根据 key 返回日历的定义；需要共用数据的 key 应当返回同一个加载器实例
+     */
+    public FixaCalendarRegistry(int maximumSize, Function<? super K, FixaCalendarBuilder> definition) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size should be positive.");
+        }
+        this.definition = Objects.requireNonNull(definition, "Definition cannot be null.");
+        this.calendars = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, SharedCalendar> eldest) {
+                if (size() > maximumSize) {
+                    release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the calendar of the given key, create it if absent
+     * <p>
+     * 返回给定 key 的日历，不存在时按定义创建；加载器只在第一次使用时加载数据，
+     * 同一个加载器的其他调用者等待加载完成，加载失败时都抛出加载器的异常
+     *
+     * @param key key
+     * @return the read-only calendar
+     */
+    public FixaCalendar get(K key) {
+        FixaCalendarBuilder builder;
+        FixaWeekendRule rule;
+        List<Object> identity;
+        Source source;
+        boolean loading = false;
+        synchronized (this) {
+            SharedCalendar calendar = calendars.get(key);
+            if (calendar != null) {
+                return calendar.calendar;
+            }
+            builder = Objects.requireNonNull(definition.apply(key), "Definition returned null for " + key);
+            if (Objects.nonNull(builder.autoRefreshInterval())) {
+                throw new IllegalArgumentException("Auto refresh is not supported in registry, use update(year) instead.");
+            }
+            if (builder.isLazyLoadingEnabled()) {
+                throw new IllegalArgumentException("Lazy loading is not supported in registry.");
+            }
+            rule = builder.resolveWeekendRule();
+            identity = Arrays.asList(rule, new LoaderIdentity(builder.loader()), builder.isWorkdayIndexEnabled(),
+                    builder.metricsListeners());
+            calendar = sharedCalendars.get(identity);
+            if (calendar != null) {
+                return register(key, calendar);
+            }
+            source = sources.get(builder.loader());
+            if (source == null) {
+                source = new Source(builder.loader());
+                sources.put(builder.loader(), source);
+                loading = true;
+            }
+            // 在创建日历之前占用数据源，等待加载期间数据源不会因为其他 key 被淘汰而释放
+            source.references++;
+        }
+        if (loading) {
+            load(source);
+        }
+        FixaCalendar loaded = source.await();
+        synchronized (this) {
+            // 等待期间其他线程可能已经创建了该 key 或相同定义的日历
+            SharedCalendar existing = calendars.get(key);
+            if (existing != null) {
+                unreserve(source);
+                return existing.calendar;
+            }
+            SharedCalendar calendar = sharedCalendars.get(identity);
+            if (calendar != null) {
+                unreserve(source);
+            } else {
+                calendar = new SharedCalendar(identity, source, rule, new FixaCalendar(derive(loaded, rule),
+                        builder.isWorkdayIndexEnabled(), builder.metrics(), true));
+                sharedCalendars.put(identity, calendar);
+            }
+            return register(key, calendar);
+        }
+    }
+
+    /**
+     * Update every loaded source for the given year, calendars of all keys are replaced at once
+     * <p>
+     * 使用每个加载器更新指定年份的数据，并替换由它推导出的所有日历；加载器在注册表的锁之外更新数据
+     *
+     * @param year year to update
+     * @return false if any loader reports a failure
+     */
+    public boolean update(int year) {
+        List<FixaCalendar> loaded = new ArrayList<>();
+        synchronized (this) {
+            for (Source source : sources.values()) {
+                if (source.isLoaded()) {
+                    loaded.add(source.calendar.join());
+                }
+            }
+        }
+        boolean result = true;
+        for (FixaCalendar calendar : loaded) {
+            result &= calendar.update(year);
+            calendar.replaceSnapshot(calendar.snapshot().intern(interner));
+        }
+        synchronized (this) {
+            for (SharedCalendar calendar : sharedCalendars.values()) {
+                calendar.calendar.replaceSnapshot(derive(calendar.source.calendar.join(), calendar.rule));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove the given key
+     * <p>
+     * 移除给定的 key，已经返回的日历仍然可用，但不会再被 {@link #update(int)} 更新
+     *
+     * @param key key
+     */
+    public synchronized void invalidate(K key) {
+        SharedCalendar calendar = calendars.remove(key);
+        if (calendar != null) {
+            release(calendar);
+        }
+    }
+
+    /**
+     * Number of keys in the registry
+     * <p>
+     * 注册表中 key 的数量
+     */
+    public synchronized int size() {
+        return calendars.size();
+    }
+
+    /**
+     * Number of distinct calendar instances
+     * <p>
+     * 注册表中不同日历实例的数量
+     */
+    public synchronized int calendarCount() {
+        return sharedCalendars.size();
+    }
+
+    private FixaCalendar register(K key, SharedCalendar calendar) {
+        calendar.references++;
+        calendars.put(key, calendar);
+        return calendar.calendar;
+    }
+
+    private FixaSnapshot derive(FixaCalendar source, FixaWeekendRule rule) {
+        return source.snapshot().withWeekendRule(rule).intern(interner);
+    }
+
+    /**
+     * 在注册表的锁之外加载数据源，加载失败时移除数据源，之后的调用者重新加载
+     */
+    private void load(Source source) {
+        FixaCalendar calendar;
+        try {
+            calendar = new FixaCalendar(FixaWeekendRule.none(),
+                    Objects.isNull(source.loader) ? new NopeDateLoader() : source.loader);
+            calendar.replaceSnapshot(calendar.snapshot().intern(interner));
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                sources.remove(source.loader, source);
+            }
+            source.calendar.completeExceptionally(e);
+            return;
+        }
+        source.calendar.complete(calendar);
+    }
+
+    private void release(SharedCalendar calendar) {
+        if (--calendar.references > 0) {
+            return;
+        }
+        sharedCalendars.remove(calendar.identity);
+        unreserve(calendar.source);
+        interner.purge();
+    }
+
+    private void unreserve(Source source) {
+        if (--source.references == 0) {
+            sources.remove(source.loader, source);
+        }
+    }
+
+    /**
+     * 加载器及其加载结果，周末规则为空，节假日和调休保持加载时的顺序语义
+     */
+    private static final class Source {
+
+        private final IFixaDateLoader loader;
+        private final CompletableFuture<FixaCalendar> calendar = new CompletableFuture<>();
+        // 使用该数据源的日历数量，以及正在等待加载完成的调用者数量
+        private int references = 0;
+
+        private Source(IFixaDateLoader loader) {
+            this.loader = loader;
+        }
+
+        private boolean isLoaded() {
+            return calendar.isDone() && !calendar.isCompletedExceptionally();
+        }
+
+        /**
+         * 等待加载完成，加载失败时抛出加载器的异常
+         */
+        private FixaCalendar await() {
+            try {
+                return calendar.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new FixaCalendarException("Failed to load calendar", cause);
+            }
+        }
+    }
+
+    private static final class SharedCalendar {
+
+        private final List<Object> identity;
+        private final Source source;
+        private final FixaWeekendRule rule;
+        private final FixaCalendar calendar;
+        private int references = 0;
+
+        private SharedCalendar(List<Object> identity, Source source, FixaWeekendRule rule, FixaCalendar calendar) {
+            this.identity = identity;
+            this.source = source;
+            this.rule = rule;
+            this.calendar = calendar;
+        }
+    }
+
+    /**
+     * 以加载器实例（而不是 equals）区分数据源
+     */
+    private static final class LoaderIdentity {
+
+        private final IFixaDateLoader loader;
+
+        private LoaderIdentity(IFixaDateLoader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LoaderIdentity && ((LoaderIdentity) o).loader == loader;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(loader);
+        }
+    }
+}
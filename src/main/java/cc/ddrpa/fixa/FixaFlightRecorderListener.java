@@ -0,0 +1,147 @@
+package cc.ddrpa.fixa;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.List;
+
+/**
+ * Records metrics as JDK Flight Recorder events.
+ * <p>
+ * 将指标记录为 JDK Flight Recorder 事件，事件类别为 Fixa：
+ * <ul>
+ *     <li>{@code cc.ddrpa.fixa.Query}：查询耗时，默认不启用，需要在录制配置中开启</li>
+ *     <li>{@code cc.ddrpa.fixa.RangeCount}：workday / reverseWorkday 统计区间的次数，默认不启用</li>
+ *     <li>{@code cc.ddrpa.fixa.LoaderPhase}：加载器下载、解析、写入的耗时和事件数量</li>
+ *     <li>{@code cc.ddrpa.fixa.SnapshotPublished}：新数据发布时每个位图的大小</li>
+ * </ul>
+ * 未在录制中启用的事件不会被创建。
+ */
+public class FixaFlightRecorderListener implements FixaMetricsListener {
+
+    @Override
+    public void onQuery(String method, long elapsedNanos) {
+        QueryEvent event = new QueryEvent();
+        if (event.isEnabled()) {
+            event.method = method;
+            event.elapsed = elapsedNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onRangeCount(String method, int iterations) {
+        RangeCountEvent event = new RangeCountEvent();
+        if (event.isEnabled()) {
+            event.method = method;
+            event.iterations = iterations;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onLoaderPhase(String loader, String phase, long elapsedNanos, int events) {
+        LoaderPhaseEvent event = new LoaderPhaseEvent();
+        if (event.isEnabled()) {
+            event.loader = loader;
+            event.phase = phase;
+            event.elapsed = elapsedNanos;
+            event.events = events;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void onSnapshotPublished(List<FixaBitmapUsage> bitmaps) {
+        for (FixaBitmapUsage usage : bitmaps) {
+            BitmapUsageEvent event = new BitmapUsageEvent();
+            if (!event.isEnabled()) {
+                return;
+            }
+            event.bitmap = usage.getName();
+            event.cardinality = usage.getCardinality();
+            event.size = usage.getSizeInBytes();
+            event.serializedSize = usage.getSerializedSizeInBytes();
+            event.commit();
+        }
+    }
+
+    @Name("cc.ddrpa.fixa.Query")
+    @Label("Fixa Query")
+    @Category("Fixa")
+    @StackTrace(false)
+    @Enabled(false)
+    static class QueryEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+    }
+
+    @Name("cc.ddrpa.fixa.RangeCount")
+    @Label("Fixa Range Count")
+    @Description("Range counts performed by workday / reverseWorkday without the workday index")
+    @Category("Fixa")
+    @StackTrace(false)
+    @Enabled(false)
+    static class RangeCountEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Iterations")
+        int iterations;
+    }
+
+    @Name("cc.ddrpa.fixa.LoaderPhase")
+    @Label("Fixa Loader Phase")
+    @Category("Fixa")
+    @StackTrace(false)
+    static class LoaderPhaseEvent extends Event {
+
+        @Label("Loader")
+        String loader;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Elapsed")
+        @Timespan
+        long elapsed;
+
+        @Label("Events")
+        int events;
+    }
+
+    @Name("cc.ddrpa.fixa.SnapshotPublished")
+    @Label("Fixa Bitmap Usage")
+    @Description("Size of each bitmap when a new snapshot is published")
+    @Category("Fixa")
+    @StackTrace(false)
+    static class BitmapUsageEvent extends Event {
+
+        @Label("Bitmap")
+        String bitmap;
+
+        @Label("Cardinality")
+        long cardinality;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        @Label("Serialized Size")
+        @DataAmount
+        long serializedSize;
+    }
+}
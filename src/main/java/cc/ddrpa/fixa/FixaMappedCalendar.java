@@ -0,0 +1,514 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A read-only calendar backed by a memory-mapped file, shared by processes on the same host.
+ * <p>
+ * 由内存映射文件支撑的只读日历。同一主机上的多个 JVM 映射同一个文件时共用操作系统的页缓存，
+ * 位图以 {@link ImmutableRoaringBitmap} 直接读取映射的内存，不会复制到堆上。
+ * <ul>
+ *     <li>由 {@link #write(FixaCalendar, Path)} 写入文件：先写临时文件再原子地重命名，已映射旧文件的进程不受影响</li>
+ *     <li>{@link #reload()} 发现文件被替换后映射新文件，整体替换内部状态；查询不需要加锁，正在进行的查询继续使用旧的映射</li>
+ *     <li>{@link #open(Path, Duration)} 在后台线程中定期调用 {@link #reload()}</li>
+ * </ul>
+ * 周末由文件中记录的周末规则直接计算，任意日期都可以查询。
+ */
+public final class FixaMappedCalendar implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixaMappedCalendar.class);
+
+    // 文件格式：魔数 "FIXM"、格式版本、周末规则、五个位图（节假日、调休工作日、两个例外位图、非工作日），最后是以上内容的 CRC32
+    private static final int MAGIC = 0x4649584D;
+    static final int FORMAT_VERSION = 2;
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fixa-mapped-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path file;
+    private final Object reloadLock = new Object();
+    // 当前的映射，查询只读取该字段一次
+    private volatile Mapping mapping;
+    private volatile ScheduledFuture<?> watcher;
+
+    private FixaMappedCalendar(Path file, Mapping mapping) {
+        this.file = file;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Write holidays, flexible workdays and the weekend rule of the calendar for mapping
+     * <p>
+     * 将日历的周末规则、节假日和调休写入文件，供 {@link #open(Path)} 映射。先写入同一目录下的临时文件，
+     * 再原子地重命名为目标文件，正在映射旧文件的进程不会读到写了一半的内容
+     *
+     * @param calendar calendar to be written
+     * @param file     target file
+     */
+    public static void write(FixaCalendar calendar, Path file) {
+        FixaSnapshot snapshot = calendar.snapshot();
+        Path tempFile = null;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (OutputStream os = Files.newOutputStream(tempFile)) {
+                writeTo(snapshot, os);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to write mapped calendar " + file, e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // 临时文件名是随机的，残留的文件不会影响下次写入
+                }
+            }
+        }
+    }
+
+    /**
+     * Map the given file
+     * <p>
+     * 映射由 {@link #write(FixaCalendar, Path)} 写入的文件，文件被替换后需要调用 {@link #reload()} 才会读取新内容
+     *
+     * @param file mapped file
+     * @return the calendar
+     */
+    public static FixaMappedCalendar open(Path file) {
+        return new FixaMappedCalendar(file, map(file));
+    }
+
+    /**
+     * Map the given file, and remap it after it is replaced
+     * <p>
+     * 映射给定的文件，并在后台线程中按给定间隔检查文件是否被替换，替换后映射新文件。
+     * 新文件无法读取时保留原有映射并记录警告，下次检查时重试。所有日历共用一个守护线程，日历被回收或 {@link #close()} 后停止检查
+     *
+     * @param file          mapped file
+     * @param checkInterval interval between checks
+     * @return the calendar
+     */
+    public static FixaMappedCalendar open(Path file, Duration checkInterval) {
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("Check interval should be positive.");
+        }
+        FixaMappedCalendar calendar = open(file);
+        calendar.watcher = EXECUTOR.scheduleWithFixedDelay(new Watcher(calendar), checkInterval.toMillis(),
+                checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        return calendar;
+    }
+
+    /**
+     * Remap the file if it has been replaced
+     * <p>
+     * 文件被替换（文件标识、修改时间或大小发生变化）时映射新文件并整体替换内部状态，正在进行的查询继续使用旧的映射。
+     * 新文件无法读取时抛出异常，原有映射保持不变
+     *
+     * @return true if the file is remapped
+     */
+    public boolean reload() {
+        synchronized (reloadLock) {
+            BasicFileAttributes attributes = attributesOf(file);
+            if (mapping.isSameFile(attributes)) {
+                return false;
+            }
+            mapping = map(file);
+            logger.debug("Remapped calendar {}", file);
+            return true;
+        }
+    }
+
+    /**
+     * Stop checking the file, the current mapping is kept until this calendar is garbage collected
+     * <p>
+     * 停止后台检查，当前映射在日历被回收后由 JVM 释放
+     */
+    @Override
+    public void close() {
+        ScheduledFuture<?> current = watcher;
+        if (current != null) {
+            current.cancel(false);
+            watcher = null;
+        }
+    }
+
+    /**
+     * whether given date is a workday
+     * <p>
+     * 判定给定日期是否是工作日
+     */
+    public boolean isWorkday(LocalDate date) {
+        return isWorkday(Math.toIntExact(date.toEpochDay()));
+    }
+
+    public boolean isWorkday(int epochDay) {
+        return !mapping.dayOffs.contains(epochDay);
+    }
+
+    /**
+     * whether given date is a day-off
+     * <p>
+     * 判定给定日期是否是非工作日（包括周末和节假日）
+     */
+    public boolean isDayOff(LocalDate date) {
+        return isDayOff(Math.toIntExact(date.toEpochDay()));
+    }
+
+    public boolean isDayOff(int epochDay) {
+        return mapping.dayOffs.contains(epochDay);
+    }
+
+    /**
+     * whether given date is a weekend
+     * <p>
+     * 判定给定日期是否是周末
+     */
+    public boolean isWeekend(LocalDate date) {
+        return mapping.weekendRule.isWeekend(date.toEpochDay());
+    }
+
+    public boolean isWeekend(int epochDay) {
+        return mapping.weekendRule.isWeekend(epochDay);
+    }
+
+    /**
+     * whether given date is a holiday
+     * <p>
+     * 判定给定日期是否是节假日
+     */
+    public boolean isHoliday(LocalDate date) {
+        return isHoliday(Math.toIntExact(date.toEpochDay()));
+    }
+
+    public boolean isHoliday(int epochDay) {
+        return mapping.holidayMap.contains(epochDay);
+    }
+
+    /**
+     * whether given date is a flexible workday
+     * <p>
+     * 判定给定日期是否是调休产生的工作日
+     */
+    public boolean isFlexibleWorkday(LocalDate date) {
+        return isFlexibleWorkday(Math.toIntExact(date.toEpochDay()));
+    }
+
+    public boolean isFlexibleWorkday(int epochDay) {
+        return mapping.flexibleWorkdayMap.contains(epochDay);
+    }
+
+    /**
+     * Returns the number of whole working days between startDate and endDate
+     * <p>
+     * 返回给定日期范围内的工作日数量（包括开始和结束日期），与 {@link FixaCalendar#netWorkdays(LocalDate, LocalDate)} 相同
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return the number of whole working days between
+     */
+    public int netWorkdays(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        long startPos = startDate.toEpochDay();
+        long endPos = endDate.toEpochDay() + 1;
+        return Math.toIntExact(endPos - startPos - mapping.dayOffs.count(startPos, endPos));
+    }
+
+    /**
+     * Count workdays, day-offs, weekends, holidays and flexible workdays per period between startDate and endDate
+     * <p>
+     * 按周期分组统计给定日期范围内的日期数量，与 {@link FixaCalendar#countByPeriod(LocalDate, LocalDate, FixaPeriod)} 相同
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @param period    period to group by
+     * @return counts per period, in ascending order
+     */
+    public FixaPeriodCounts countByPeriod(LocalDate startDate, LocalDate endDate, FixaPeriod period) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        Mapping current = mapping;
+        return FixaPeriodCounts.count(current.weekendRule, current.holidayMap, current.flexibleWorkdayMap,
+                current.extraDayOffMap, current.extraWorkdayMap,
+                Math.toIntExact(startDate.toEpochDay()), Math.toIntExact(endDate.toEpochDay()) + 1, period);
+    }
+
+    /**
+     * Returns a date that is the indicated number of working days after the starting date
+     * <p>
+     * 返回给定日期之后的第 n 个工作日，与 {@link FixaCalendar#workday(LocalDate, Duration)} 相同
+     *
+     * @param startDate start date
+     * @param duration  number of workdays after start_date, negative value is not supported for now.
+     * @return the date
+     */
+    public LocalDate workday(LocalDate startDate, Duration duration) {
+        return LocalDate.ofEpochDay(FixaCalendar.workdayPos(mapping.dayOffs, startDate.toEpochDay(),
+                duration.toDays(), FixaMetrics.NONE));
+    }
+
+    /**
+     * Returns the date that is the indicated number of working days before the end date
+     * <p>
+     * 返回给定日期之前的第 n 个工作日，与 {@link FixaCalendar#reverseWorkday(LocalDate, Duration, boolean)} 相同
+     *
+     * @param endDate              end date(included if it is a workday)
+     * @param duration             number of workdays before end_date
+     * @param endDateMustBeWorkday if true, the end date must be a workday, otherwise it should be pushed to the last workday
+     * @return the date
+     */
+    public LocalDate reverseWorkday(LocalDate endDate, Duration duration, boolean endDateMustBeWorkday) {
+        long endPos = endDate.toEpochDay();
+        long length = duration.toDays();
+        // endDateMustBeWorkday 时 endDate 本身也参与计数，相当于在 endDate 的次日之前向前推算 n + 1 个工作日
+        long result = endDateMustBeWorkday
+                ? FixaCalendar.reverseWorkdayPos(mapping.dayOffs, endPos + 1, length + 1, FixaMetrics.NONE)
+                : FixaCalendar.reverseWorkdayPos(mapping.dayOffs, endPos, length, FixaMetrics.NONE);
+        return LocalDate.ofEpochDay(result);
+    }
+
+    /**
+     * Return list of day-offs between startDate and endDate
+     * <p>
+     * 返回给定日期范围内（均包含）的非工作日，返回的列表是只读视图
+     */
+    public List<LocalDate> dayOffs(LocalDate startDate, LocalDate endDate) {
+        return range(mapping.dayOffs, startDate, endDate).asList();
+    }
+
+    /**
+     * Return list of holidays between startDate and endDate
+     * <p>
+     * 返回给定日期范围内（均包含）的节假日，返回的列表是只读视图
+     */
+    public List<LocalDate> holidays(LocalDate startDate, LocalDate endDate) {
+        return range(DaySet.of(mapping.holidayMap), startDate, endDate).asList();
+    }
+
+    /**
+     * Return list of flexible workdays between startDate and endDate
+     * <p>
+     * 返回给定日期范围内（均包含）的调休工作日，返回的列表是只读视图
+     */
+    public List<LocalDate> flexibleWorkdays(LocalDate startDate, LocalDate endDate) {
+        return range(DaySet.of(mapping.flexibleWorkdayMap), startDate, endDate).asList();
+    }
+
+    /**
+     * Return day-offs as a bitmap view of the mapped file
+     * <p>
+     * 以 {@link ImmutableRoaringBitmap} 返回文件中存储的非工作日，范围与 {@link FixaCalendar#rawDayOffMapClone()} 相同。
+     * 位图直接读取映射的内存，不会复制到堆上；文件被重新映射后，已返回的位图仍然指向旧的映射
+     *
+     * @return day-offs of the mapped file
+     */
+    public ImmutableRoaringBitmap rawDayOffMap() {
+        return mapping.dayOffMap;
+    }
+
+    /**
+     * 以 {@link ImmutableRoaringBitmap} 返回文件中存储的节假日，不会复制到堆上
+     */
+    public ImmutableRoaringBitmap rawHolidayMap() {
+        return mapping.holidayMap;
+    }
+
+    /**
+     * 以 {@link ImmutableRoaringBitmap} 返回文件中存储的调休工作日，不会复制到堆上
+     */
+    public ImmutableRoaringBitmap rawFlexibleWorkdayMap() {
+        return mapping.flexibleWorkdayMap;
+    }
+
+    public FixaWeekendRule getWeekendRule() {
+        return mapping.weekendRule;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static EpochDayRange range(DaySet days, LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        return EpochDayRange.of(days, Math.toIntExact(startDate.toEpochDay()),
+                Math.toIntExact(endDate.toEpochDay()) + 1);
+    }
+
+    static void writeTo(FixaSnapshot snapshot, OutputStream out) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(out), new CRC32());
+        DataOutputStream data = new DataOutputStream(checked);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        FixaWeekendRule weekendRule = snapshot.weekendRule;
+        data.writeLong(weekendRule.mask());
+        data.writeInt(weekendRule.cycle());
+        data.writeInt(weekendRule.phase());
+        data.writeLong(weekendRule.lowerBound());
+        data.writeLong(weekendRule.upperBound());
+        for (RoaringBitmap bitmap : new RoaringBitmap[]{snapshot.holidayMap, snapshot.flexibleWorkdayMap,
+                snapshot.extraDayOffMap, snapshot.extraWorkdayMap, snapshot.dayOffMap()}) {
+            bitmap.serialize(data);
+        }
+        data.flush();
+        // 校验和本身不参与计算
+        data.writeInt((int) checked.getChecksum().getValue());
+        data.flush();
+    }
+
+    private static BasicFileAttributes attributesOf(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to read attributes of " + file, e);
+        }
+    }
+
+    /**
+     * 映射文件并校验内容，映射在文件通道关闭后仍然有效
+     */
+    private static Mapping map(Path file) {
+        BasicFileAttributes attributes = attributesOf(file);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to map " + file, e);
+        }
+        try {
+            return Mapping.of(buffer, attributes);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new FixaCalendarException("Invalid mapped calendar " + file, e);
+        }
+    }
+
+    /**
+     * 一次映射的内容，对象不可变
+     */
+    private static final class Mapping {
+
+        private final FixaWeekendRule weekendRule;
+        private final ImmutableRoaringBitmap holidayMap;
+        private final ImmutableRoaringBitmap flexibleWorkdayMap;
+        private final ImmutableRoaringBitmap extraDayOffMap;
+        private final ImmutableRoaringBitmap extraWorkdayMap;
+        private final ImmutableRoaringBitmap dayOffMap;
+        private final DayOffSet dayOffs;
+        // 映射时文件的标识、修改时间和大小，用于判断文件是否被替换
+        private final Object fileKey;
+        private final long lastModified;
+        private final long size;
+
+        private Mapping(FixaWeekendRule weekendRule, ImmutableRoaringBitmap[] bitmaps, BasicFileAttributes attributes) {
+            this.weekendRule = weekendRule;
+            this.holidayMap = bitmaps[0];
+            this.flexibleWorkdayMap = bitmaps[1];
+            this.extraDayOffMap = bitmaps[2];
+            this.extraWorkdayMap = bitmaps[3];
+            this.dayOffs = new DayOffSet(weekendRule, extraDayOffMap, extraWorkdayMap);
+            this.dayOffMap = bitmaps[4];
+            this.fileKey = attributes.fileKey();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+            this.size = attributes.size();
+        }
+
+        static Mapping of(ByteBuffer buffer, BasicFileAttributes attributes) throws IOException {
+            int end = buffer.limit() - Integer.BYTES;
+            if (end < 0) {
+                throw new IOException("File is too short");
+            }
+            // 校验一次整个文件，映射后只读取查询用到的页
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(end));
+            if (buffer.getInt(end) != (int) crc.getValue()) {
+                throw new IOException("Checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a fixa mapped calendar");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported format version " + version);
+            }
+            FixaWeekendRule weekendRule = FixaWeekendRule.restore(buffer.getLong(), buffer.getInt(), buffer.getInt(),
+                    buffer.getLong(), buffer.getLong());
+            ImmutableRoaringBitmap[] bitmaps = new ImmutableRoaringBitmap[5];
+            for (int i = 0; i < bitmaps.length; i++) {
+                bitmaps[i] = new ImmutableRoaringBitmap(buffer.slice());
+                buffer.position(buffer.position() + bitmaps[i].serializedSizeInBytes());
+            }
+            if (buffer.position() != end) {
+                throw new IOException("Unexpected trailing data");
+            }
+            return new Mapping(weekendRule, bitmaps, attributes);
+        }
+
+        boolean isSameFile(BasicFileAttributes attributes) {
+            return Objects.equals(fileKey, attributes.fileKey())
+                    && lastModified == attributes.lastModifiedTime().toMillis()
+                    && size == attributes.size();
+        }
+    }
+
+    /**
+     * 定期检查文件是否被替换；只持有日历的弱引用，日历被回收后任务自动结束
+     */
+    private static final class Watcher implements Runnable {
+
+        private final WeakReference<FixaMappedCalendar> calendar;
+
+        private Watcher(FixaMappedCalendar calendar) {
+            this.calendar = new WeakReference<>(calendar);
+        }
+
+        @Override
+        public void run() {
+            FixaMappedCalendar target = calendar.get();
+            if (target == null) {
+                // 抛出异常后周期任务不再执行
+                throw new IllegalStateException("Calendar has been garbage collected");
+            }
+            try {
+                target.reload();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to remap calendar {}, keeping the current mapping", target.file, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.List;
+
+/**
+ * 将指标分发给注册的监听器；没有监听器时所有方法都直接返回，不读取时钟
+ */
+final class FixaMetrics {
+
+    static final FixaMetrics NONE = new FixaMetrics(List.of(), true);
+
+    private final FixaMetricsListener[] listeners;
+    private final boolean enabled;
+    // 加载器暂存数据用的日历不报告快照发布
+    private final boolean publishing;
+    // 供加载器使用的监听器，转发给所有注册的监听器
+    private final FixaMetricsListener dispatcher;
+
+    private FixaMetrics(List<FixaMetricsListener> listeners, boolean publishing) {
+        this.listeners = listeners.toArray(new FixaMetricsListener[0]);
+        this.enabled = this.listeners.length > 0;
+        this.publishing = publishing;
+        this.dispatcher = new FixaMetricsListener() {
+            @Override
+            public void onQuery(String method, long elapsedNanos) {
+                for (FixaMetricsListener listener : FixaMetrics.this.listeners) {
+                    listener.onQuery(method, elapsedNanos);
+                }
+            }
+
+            @Override
+            public void onRangeCount(String method, int iterations) {
+                for (FixaMetricsListener listener : FixaMetrics.this.listeners) {
+                    listener.onRangeCount(method, iterations);
+                }
+            }
+
+            @Override
+            public void onLoaderPhase(String loader, String phase, long elapsedNanos, int events) {
+                for (FixaMetricsListener listener : FixaMetrics.this.listeners) {
+                    listener.onLoaderPhase(loader, phase, elapsedNanos, events);
+                }
+            }
+
+            @Override
+            public void onSnapshotPublished(List<FixaBitmapUsage> bitmaps) {
+                for (FixaMetricsListener listener : FixaMetrics.this.listeners) {
+                    listener.onSnapshotPublished(bitmaps);
+                }
+            }
+        };
+    }
+
+    static FixaMetrics of(List<FixaMetricsListener> listeners) {
+        return listeners.isEmpty() ? NONE : new FixaMetrics(List.copyOf(listeners), true);
+    }
+
+    /**
+     * 返回转发给相同监听器、但不报告快照发布的实例，供暂存加载结果的日历使用
+     */
+    FixaMetrics withoutPublications() {
+        return enabled ? new FixaMetrics(List.of(listeners), false) : NONE;
+    }
+
+    FixaMetricsListener listener() {
+        return dispatcher;
+    }
+
+    /**
+     * 查询开始时调用，返回值交给 {@link #query(String, long)}
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    void query(String method, long start) {
+        if (enabled) {
+            dispatcher.onQuery(method, System.nanoTime() - start);
+        }
+    }
+
+    void rangeCount(String method, int iterations) {
+        if (enabled) {
+            dispatcher.onRangeCount(method, iterations);
+        }
+    }
+
+    void published(FixaSnapshot snapshot) {
+        if (enabled && publishing) {
+            dispatcher.onSnapshotPublished(usageOf(snapshot));
+        }
+    }
+
+    static List<FixaBitmapUsage> usageOf(FixaSnapshot snapshot) {
+        return List.of(usageOf("holidayMap", snapshot.holidayMap),
+                usageOf("flexibleWorkdayMap", snapshot.flexibleWorkdayMap),
+                usageOf("extraDayOffMap", snapshot.extraDayOffMap),
+                usageOf("extraWorkdayMap", snapshot.extraWorkdayMap));
+    }
+
+    private static FixaBitmapUsage usageOf(String name, RoaringBitmap bitmap) {
+        return new FixaBitmapUsage(name, bitmap.getLongCardinality(), bitmap.getLongSizeInBytes(),
+                bitmap.serializedSizeInBytes());
+    }
+}
@@ -0,0 +1,74 @@
+package cc.ddrpa.fixa;
+
+import java.util.List;
+
+/**
+ * Receives metrics of a {@link FixaCalendar}.
+ * <p>
+ * 接收日历的运行指标，通过 {@link FixaCalendarBuilder#addMetricsListener(FixaMetricsListener)} 注册，
+ * 可以将指标转发到自有的监控系统；{@link FixaFlightRecorderListener} 将指标记录为 JDK Flight Recorder 事件。
+ * <p>
+ * 未注册监听器时查询不会读取时钟，也不会产生任何开销。回调在调用查询的线程中同步执行，
+ * {@link #onSnapshotPublished(List)} 还会在持有写锁时执行，实现应当尽快返回且不能抛出异常。
+ * 所有方法都有空的默认实现，只需覆盖关心的指标。
+ */
+public interface FixaMetricsListener {
+
+    /**
+     * 下载数据源
+     */
+    String PHASE_DOWNLOAD = "download";
+    /**
+     * 解析数据源
+     */
+    String PHASE_PARSE = "parse";
+    /**
+     * 将解析结果写入日历
+     */
+    String PHASE_APPLY = "apply";
+
+    /**
+     * Called after a query completes
+     * <p>
+     * 查询完成后调用，method 为方法名，例如 isWorkday、netWorkdays、dayOffs
+     *
+     * @param method       name of the query method
+     * @param elapsedNanos time spent in the query
+     */
+    default void onQuery(String method, long elapsedNanos) {
+    }
+
+    /**
+     * Called after workday / reverseWorkday counted day-offs without the workday index
+     * <p>
+     * 未使用工作日索引时，workday / reverseWorkday 统计区间内非工作日数量（rangeCardinality）的次数
+     *
+     * @param method     workday or reverseWorkday
+     * @param iterations number of range counts
+     */
+    default void onRangeCount(String method, int iterations) {
+    }
+
+    /**
+     * Called after a phase of a date loader completes
+     * <p>
+     * 加载器的某个阶段完成后调用，phase 为 {@link #PHASE_DOWNLOAD}、{@link #PHASE_PARSE} 或 {@link #PHASE_APPLY}
+     *
+     * @param loader       name of the loader
+     * @param phase        phase of loading
+     * @param elapsedNanos time spent in the phase
+     * @param events       number of events parsed or applied, 0 for downloading
+     */
+    default void onLoaderPhase(String loader, String phase, long elapsedNanos, int events) {
+    }
+
+    /**
+     * Called after a new snapshot is published
+     * <p>
+     * 修改、加载或更新完成，新的数据发布后调用
+     *
+     * @param bitmaps memory usage of each bitmap in the new snapshot
+     */
+    default void onSnapshotPublished(List<FixaBitmapUsage> bitmaps) {
+    }
+}
@@ -0,0 +1,277 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Personal days off and workdays on top of a shared {@link FixaCalendar}.
+ * <p>
+ * 在共用的基础日历之上叠加个人的休息日（例如请假）和工作日（例如加班），适用于为大量员工分别维护日历的场景：
+ * <ul>
+ *     <li>只存储个人标记的日期，占用的内存与个人标记的数量成正比，与基础日历覆盖的年数无关</li>
+ *     <li>查询时即时组合基础日历和个人标记，不会生成合并后的位图；基础日历更新后，所有叠加日历立即使用新的数据</li>
+ *     <li>个人标记优先于基础日历：个人休息日总是非工作日，个人工作日总是工作日</li>
+ * </ul>
+ * 与 {@link FixaCalendar} 一样，查询不加锁，修改时复制个人位图后整体替换，可以在多个线程中共用。
+ */
+public final class FixaOverlayCalendar {
+
+    private final FixaCalendar base;
+    private volatile Overlay overlay = Overlay.EMPTY;
+
+    /**
+     * @param base shared calendar providing weekends, holidays and flexible workdays
+     */
+    public FixaOverlayCalendar(FixaCalendar base) {
+        this.base = Objects.requireNonNull(base, "Base calendar cannot be null.");
+    }
+
+    /**
+     * 将给定日期标记为个人休息日
+     */
+    public void addDayOff(LocalDate date) {
+        addDaysOff(date, date);
+    }
+
+    /**
+     * 将给定日期范围（均包含）标记为个人休息日，其中原有的个人工作日标记被取消
+     */
+    public void addDaysOff(LocalDate firstDay, LocalDate lastDay) {
+        mutate(firstDay, lastDay, (from, to, next) -> {
+            next.dayOffMap.add(from, to);
+            next.workdayMap.remove(from, to);
+        });
+    }
+
+    /**
+     * 将给定日期标记为个人工作日
+     */
+    public void addWorkday(LocalDate date) {
+        addWorkdays(date, date);
+    }
+
+    /**
+     * 将给定日期范围（均包含）标记为个人工作日，其中原有的个人休息日标记被取消
+     */
+    public void addWorkdays(LocalDate firstDay, LocalDate lastDay) {
+        mutate(firstDay, lastDay, (from, to, next) -> {
+            next.workdayMap.add(from, to);
+            next.dayOffMap.remove(from, to);
+        });
+    }
+
+    /**
+     * 取消给定日期范围（均包含）内的个人标记，这些日期恢复为由基础日历决定
+     */
+    public void reset(LocalDate firstDay, LocalDate lastDay) {
+        mutate(firstDay, lastDay, (from, to, next) -> {
+            next.dayOffMap.remove(from, to);
+            next.workdayMap.remove(from, to);
+        });
+    }
+
+    /**
+     * Check if the given date is a workday
+     * <p>
+     * 判断给定日期是否为工作日
+     */
+    public boolean isWorkday(LocalDate date) {
+        return isWorkday(Math.toIntExact(date.toEpochDay()));
+    }
+
+    /**
+     * Check if the given date is a day-off
+     * <p>
+     * 判断给定日期是否为非工作日
+     */
+    public boolean isDayOff(LocalDate date) {
+        return !isWorkday(date);
+    }
+
+    /**
+     * Epoch day version of {@link #isWorkday(LocalDate)}
+     */
+    public boolean isWorkday(int epochDay) {
+        Overlay current = overlay;
+        if (current.dayOffMap.contains(epochDay)) {
+            return false;
+        }
+        return current.workdayMap.contains(epochDay) || base.isWorkday(epochDay);
+    }
+
+    /**
+     * Epoch day version of {@link #isDayOff(LocalDate)}
+     */
+    public boolean isDayOff(int epochDay) {
+        return !isWorkday(epochDay);
+    }
+
+    /**
+     * Returns the number of whole working days between startDate and endDate
+     * <p>
+     * 返回给定日期范围内的工作日数量（包括开始和结束日期）。在基础日历的结果上，逐个修正范围内的个人标记，
+     * 计算量与范围内个人标记的数量成正比
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return the number of whole working days between
+     */
+    public int netWorkdays(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        long startPos = startDate.toEpochDay();
+        long endPos = endDate.toEpochDay() + 1;
+        FixaSnapshot current = base.read(startPos, endPos);
+        long delta = overlay.on(current).delta(startPos, endPos);
+        return Math.toIntExact(base.countWorkdays(current, startPos, endPos) - delta);
+    }
+
+    /**
+     * Returns a date that is the indicated number of working days after the starting date
+     * <p>
+     * 返回给定日期之后的第 n 个工作日，与 {@link FixaCalendar#workday(LocalDate, Duration)} 相同
+     *
+     * @param startDate start date
+     * @param duration  number of workdays after start_date, negative value is not supported for now.
+     * @return the date
+     */
+    public LocalDate workday(LocalDate startDate, Duration duration) {
+        Overlay current = overlay;
+        long startPos = startDate.toEpochDay();
+        long length = duration.toDays();
+        return LocalDate.ofEpochDay(base.resolve(startPos,
+                snapshot -> FixaCalendar.workdayPos(current.on(snapshot), startPos, length, FixaMetrics.NONE)));
+    }
+
+    /**
+     * Returns the date that is the indicated number of working days before the end date
+     * <p>
+     * 返回给定日期之前的第 n 个工作日，与 {@link FixaCalendar#reverseWorkday(LocalDate, Duration, boolean)} 相同
+     *
+     * @param endDate              end date(included if it is a workday)
+     * @param duration             number of workdays before end_date
+     * @param endDateMustBeWorkday if true, the end date must be a workday, otherwise it should be pushed to the last workday
+     * @return the date
+     */
+    public LocalDate reverseWorkday(LocalDate endDate, Duration duration, boolean endDateMustBeWorkday) {
+        Overlay current = overlay;
+        long endPos = endDate.toEpochDay();
+        long length = duration.toDays();
+        // endDateMustBeWorkday 时 endDate 本身也参与计数，相当于在 endDate 的次日之前向前推算 n + 1 个工作日
+        return LocalDate.ofEpochDay(base.resolve(endPos, snapshot -> endDateMustBeWorkday
+                ? FixaCalendar.reverseWorkdayPos(current.on(snapshot), endPos + 1, length + 1, FixaMetrics.NONE)
+                : FixaCalendar.reverseWorkdayPos(current.on(snapshot), endPos, length, FixaMetrics.NONE)));
+    }
+
+    /**
+     * Get the next workday after the given date
+     * <p>
+     * 给定一个日期，返回下一个工作日（当日不计），不存在时返回 null
+     *
+     * @param startDate start date(not include)
+     * @return the next workday after startDate, or null if there is none
+     */
+    public LocalDate nextWorkday(LocalDate startDate) {
+        Overlay current = overlay;
+        int pos = Math.toIntExact(startDate.toEpochDay());
+        long result = base.resolve(pos, snapshot -> current.on(snapshot).nextAbsent(pos + 1));
+        return result == DaySet.NOT_FOUND ? null : LocalDate.ofEpochDay(result);
+    }
+
+    /**
+     * Get the last workday before the given date
+     * <p>
+     * 给定一个日期，返回上一个工作日（当日不计），不存在时返回 null
+     *
+     * @param startDate start date(not include)
+     * @return the last workday before startDate, or null if there is none
+     */
+    public LocalDate previousWorkday(LocalDate startDate) {
+        Overlay current = overlay;
+        int pos = Math.toIntExact(startDate.toEpochDay());
+        long result = base.resolve(pos, snapshot -> current.on(snapshot).previousAbsent(pos - 1));
+        return result == DaySet.NOT_FOUND ? null : LocalDate.ofEpochDay(result);
+    }
+
+    /**
+     * 个人标记的休息日数量
+     */
+    public int getDayOffCount() {
+        return overlay.dayOffMap.getCardinality();
+    }
+
+    /**
+     * 个人标记的工作日数量
+     */
+    public int getWorkdayCount() {
+        return overlay.workdayMap.getCardinality();
+    }
+
+    public FixaCalendar getBase() {
+        return base;
+    }
+
+    /**
+     * 在个人位图的副本上修改 [firstDay, lastDay]，然后整体替换
+     */
+    private void mutate(LocalDate firstDay, LocalDate lastDay, RangeChange change) {
+        if (firstDay.isAfter(lastDay)) {
+            throw new IllegalArgumentException("FirstDay should be before lastDay");
+        }
+        int first = Math.toIntExact(firstDay.toEpochDay());
+        int last = Math.toIntExact(lastDay.toEpochDay());
+        synchronized (this) {
+            Overlay next = overlay.copy();
+            // 位图按无符号整数排列，1970 年之前的日期位于末尾，跨越 1970-01-01 时分两段修改
+            if (first < 0 && last >= 0) {
+                change.apply(Integer.toUnsignedLong(first), 1L << 32, next);
+                change.apply(0L, last + 1L, next);
+            } else {
+                change.apply(Integer.toUnsignedLong(first), Integer.toUnsignedLong(last) + 1L, next);
+            }
+            next.dayOffMap.runOptimize();
+            next.workdayMap.runOptimize();
+            overlay = next;
+        }
+    }
+
+    /**
+     * 修改个人位图中 [from, to) 内的日期，from 和 to 为无符号的位图区间
+     */
+    private interface RangeChange {
+
+        void apply(long from, long to, Overlay next);
+    }
+
+    /**
+     * 个人标记，对象发布后不再修改
+     */
+    private static final class Overlay {
+
+        // 没有任何个人标记的叠加日历共用同一个实例
+        private static final Overlay EMPTY = new Overlay(new RoaringBitmap(), new RoaringBitmap());
+
+        private final RoaringBitmap dayOffMap;
+        private final RoaringBitmap workdayMap;
+
+        private Overlay(RoaringBitmap dayOffMap, RoaringBitmap workdayMap) {
+            this.dayOffMap = dayOffMap;
+            this.workdayMap = workdayMap;
+        }
+
+        Overlay copy() {
+            return new Overlay(dayOffMap.clone(), workdayMap.clone());
+        }
+
+        /**
+         * 与基础日历的快照组合后的非工作日
+         */
+        OverlayDaySet on(FixaSnapshot snapshot) {
+            return new OverlayDaySet(snapshot.dayOffs, dayOffMap, workdayMap);
+        }
+    }
+}
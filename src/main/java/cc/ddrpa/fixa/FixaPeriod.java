@@ -0,0 +1,63 @@
+package cc.ddrpa.fixa;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Calendar periods used to group counts.
+ * <p>
+ * {@link FixaCalendar#countByPeriod(LocalDate, LocalDate, FixaPeriod)} 分组统计时使用的周期。
+ */
+public enum FixaPeriod {
+    /**
+     * ISO 周，从周一开始
+     */
+    ISO_WEEK,
+    /**
+     * 自然月
+     */
+    MONTH,
+    /**
+     * 季度，从 1 月、4 月、7 月、10 月开始
+     */
+    QUARTER,
+    /**
+     * 自然年
+     */
+    YEAR;
+
+    /**
+     * 返回给定日期所在周期的第一天
+     */
+    public LocalDate startOf(LocalDate date) {
+        switch (this) {
+            case ISO_WEEK:
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return date.withDayOfMonth(1);
+            case QUARTER:
+                return LocalDate.of(date.getYear(), (date.getMonthValue() - 1) / 3 * 3 + 1, 1);
+            default:
+                return date.withDayOfYear(1);
+        }
+    }
+
+    /**
+     * 返回给定周期的下一个周期的第一天
+     *
+     * @param periodStart 周期的第一天
+     */
+    LocalDate next(LocalDate periodStart) {
+        switch (this) {
+            case ISO_WEEK:
+                return periodStart.plusWeeks(1);
+            case MONTH:
+                return periodStart.plusMonths(1);
+            case QUARTER:
+                return periodStart.plusMonths(3);
+            default:
+                return periodStart.plusYears(1);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+import org.roaringbitmap.PeekableIntIterator;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Day counts grouped by {@link FixaPeriod}, stored column by column.
+ * <p>
+ * 按周期分组的日期数量，由 {@link FixaCalendar#countByPeriod(LocalDate, LocalDate, FixaPeriod)} 返回。
+ * 每一列是一个 int 数组，下标 i 对应第 i 个周期；首尾两个周期只统计查询区间内的日期，天数可能少于完整的周期。
+ * <p>
+ * 为了避免复制，列的 getter 直接返回内部数组，调用方不应修改。
+ */
+public final class FixaPeriodCounts {
+
+    private final FixaPeriod period;
+    private final int[] periodStarts;
+    private final int[] days;
+    private final int[] workdays;
+    private final int[] dayOffs;
+    private final int[] weekends;
+    private final int[] holidays;
+    private final int[] flexibleWorkdays;
+
+    private FixaPeriodCounts(FixaPeriod period, int size) {
+        this.period = period;
+        this.periodStarts = new int[size];
+        this.days = new int[size];
+        this.workdays = new int[size];
+        this.dayOffs = new int[size];
+        this.weekends = new int[size];
+        this.holidays = new int[size];
+        this.flexibleWorkdays = new int[size];
+    }
+
+    /**
+     * 统计 [startPos, endPos) 内各周期的日期数量。周末由周末规则直接计算，
+     * 节假日、调休工作日和两个例外位图各自只遍历一次，计算量与周期数和区间内的元素数量成正比
+     */
+    static FixaPeriodCounts count(FixaWeekendRule weekendRule, ImmutableBitmapDataProvider holidayMap,
+                                  ImmutableBitmapDataProvider flexibleWorkdayMap,
+                                  ImmutableBitmapDataProvider extraDayOffMap,
+                                  ImmutableBitmapDataProvider extraWorkdayMap,
+                                  int startPos, int endPos, FixaPeriod period) {
+        // bounds[i] 至 bounds[i + 1] 为第 i 个周期在区间内的部分
+        LocalDate first = period.startOf(LocalDate.ofEpochDay(startPos));
+        int size = 0;
+        int[] bounds = new int[16];
+        for (LocalDate periodStart = first; periodStart.toEpochDay() < endPos; periodStart = period.next(periodStart)) {
+            if (size + 1 >= bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[size++] = Math.toIntExact(periodStart.toEpochDay());
+        }
+        FixaPeriodCounts counts = new FixaPeriodCounts(period, size);
+        System.arraycopy(bounds, 0, counts.periodStarts, 0, size);
+        bounds[0] = startPos;
+        bounds[size] = endPos;
+
+        sweep(holidayMap, bounds, counts.holidays, 1);
+        sweep(flexibleWorkdayMap, bounds, counts.flexibleWorkdays, 1);
+        // day-off = weekend + extraDayOff - extraWorkday
+        sweep(extraDayOffMap, bounds, counts.dayOffs, 1);
+        sweep(extraWorkdayMap, bounds, counts.dayOffs, -1);
+        for (int i = 0; i < size; i++) {
+            counts.days[i] = bounds[i + 1] - bounds[i];
+            counts.weekends[i] = (int) weekendRule.count(bounds[i], bounds[i + 1]);
+            counts.dayOffs[i] += counts.weekends[i];
+            counts.workdays[i] = counts.days[i] - counts.dayOffs[i];
+        }
+        return counts;
+    }
+
+    /**
+     * 按升序遍历位图在 [bounds[0], bounds[bounds.length - 1]) 内的元素，将 delta 累加到元素所在周期的计数上
+     */
+    private static void sweep(ImmutableBitmapDataProvider bitmap, int[] bounds, int[] counts, int delta) {
+        int from = bounds[0];
+        int to = bounds[counts.length];
+        // 位图按无符号整数排列，1970 年之前的日期位于末尾，跨越 1970-01-01 时分两段遍历
+        if (from < 0 && to > 0) {
+            sweep(bitmap, bounds, counts, delta, from, 0);
+            sweep(bitmap, bounds, counts, delta, 0, to);
+        } else {
+            sweep(bitmap, bounds, counts, delta, from, to);
+        }
+    }
+
+    private static void sweep(ImmutableBitmapDataProvider bitmap, int[] bounds, int[] counts, int delta,
+                              int from, int to) {
+        PeekableIntIterator iterator = bitmap.getIntIterator();
+        iterator.advanceIfNeeded(from);
+        int bucket = 0;
+        while (iterator.hasNext()) {
+            int pos = iterator.peekNext();
+            // 小于 from 说明已经越过 0 进入了 1970 年之前的日期
+            if (pos < from || pos >= to) {
+                return;
+            }
+            iterator.next();
+            while (pos >= bounds[bucket + 1]) {
+                bucket++;
+            }
+            counts[bucket] += delta;
+        }
+    }
+
+    public FixaPeriod getPeriod() {
+        return period;
+    }
+
+    /**
+     * 周期的数量
+     */
+    public int size() {
+        return periodStarts.length;
+    }
+
+    /**
+     * 第 index 个周期的第一天，首个周期可能早于查询的开始日期
+     */
+    public LocalDate getPeriodStart(int index) {
+        return LocalDate.ofEpochDay(periodStarts[index]);
+    }
+
+    /**
+     * 各周期的第一天，以 epoch day 表示
+     */
+    public int[] getPeriodStarts() {
+        return periodStarts;
+    }
+
+    /**
+     * 各周期在查询区间内的天数
+     */
+    public int[] getDays() {
+        return days;
+    }
+
+    /**
+     * 各周期内的工作日数量，与对同一区间调用 {@link FixaCalendar#netWorkdays(LocalDate, LocalDate)} 的结果相同
+     */
+    public int[] getWorkdays() {
+        return workdays;
+    }
+
+    /**
+     * 各周期内的非工作日数量
+     */
+    public int[] getDayOffs() {
+        return dayOffs;
+    }
+
+    /**
+     * 各周期内由周末规则决定的周末数量，包括被调休为工作日的周末
+     */
+    public int[] getWeekends() {
+        return weekends;
+    }
+
+    /**
+     * 各周期内的节假日数量
+     */
+    public int[] getHolidays() {
+        return holidays;
+    }
+
+    /**
+     * 各周期内的调休工作日数量
+     */
+    public int[] getFlexibleWorkdays() {
+        return flexibleWorkdays;
+    }
+}
@@ -0,0 +1,110 @@
+package cc.ddrpa.fixa;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically refreshes a calendar whose data loader reports outdated data.
+ * <p>
+ * 定期检查日历的数据是否过期，过期时在后台线程中刷新。
+ * <ul>
+ *     <li>所有日历共用一个守护线程，刷新不会占用请求线程，也不会阻止 JVM 退出</li>
+ *     <li>刷新今年的数据，12 月时同时刷新明年的数据；刷新期间日历继续提供原有数据，完成后一次性替换</li>
+ *     <li>检查间隔带有 ±10% 的随机抖动，避免大量实例同时请求数据源；失败后从 1 分钟开始按指数退避重试，最长不超过检查间隔</li>
+ *     <li>只持有日历的弱引用，日历被回收后任务自动结束</li>
+ * </ul>
+ */
+final class FixaRefreshScheduler implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FixaRefreshScheduler.class);
+
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fixa-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final long MIN_RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final WeakReference<FixaCalendar> calendar;
+    private final long intervalMillis;
+    private volatile boolean stopped = false;
+
+    private FixaRefreshScheduler(FixaCalendar calendar, Duration interval) {
+        this.calendar = new WeakReference<>(calendar);
+        this.intervalMillis = interval.toMillis();
+    }
+
+    /**
+     * 为日历启动后台刷新，第一次检查在一个检查间隔之后
+     */
+    static FixaRefreshScheduler start(FixaCalendar calendar, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Refresh interval should be positive.");
+        }
+        FixaRefreshScheduler scheduler = new FixaRefreshScheduler(calendar, interval);
+        scheduler.schedule(scheduler.intervalMillis);
+        return scheduler;
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        FixaCalendar target = calendar.get();
+        if (stopped || target == null) {
+            return;
+        }
+        FixaRefreshStatus status = target.getRefreshStatus();
+        Instant now = Instant.now();
+        try {
+            if (!target.isOutdated()) {
+                target.setRefreshStatus(status.checked(now));
+            } else {
+                LocalDate today = LocalDate.now();
+                boolean refreshed = today.getMonth() == Month.DECEMBER
+                        ? target.refresh(today.getYear(), today.getYear() + 1)
+                        : target.refresh(today.getYear());
+                if (!refreshed) {
+                    throw new FixaCalendarException("Date loader failed to update", null);
+                }
+                status = status.succeeded(now);
+                target.setRefreshStatus(status);
+                logger.debug("Calendar refreshed");
+            }
+        } catch (Throwable e) {
+            // 加载器抛出的 Error 同样记录为失败并继续重试，否则自动刷新会悄无声息地停止
+            status = status.failed(now, e);
+            target.setRefreshStatus(status);
+            logger.warn("Failed to refresh calendar, {} consecutive failures", status.getConsecutiveFailures(), e);
+        }
+        long delay = intervalMillis;
+        if (status.getConsecutiveFailures() > 0) {
+            int exponent = Math.min(status.getConsecutiveFailures() - 1, 30);
+            delay = Math.min(intervalMillis, MIN_RETRY_DELAY_MILLIS << exponent);
+        }
+        schedule(delay);
+    }
+
+    private void schedule(long delayMillis) {
+        if (stopped) {
+            return;
+        }
+        long jitter = delayMillis / 10;
+        long delay = jitter > 0
+                ? delayMillis + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1)
+                : delayMillis;
+        EXECUTOR.schedule(this, delay, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,89 @@
+package cc.ddrpa.fixa;
+
+import java.time.Instant;
+
+/**
+ * Result of the background refresh of a {@link FixaCalendar}.
+ * <p>
+ * 后台自动刷新的状态，见 {@link FixaCalendarBuilder#enableAutoRefresh(java.time.Duration)}。对象不可变，每次检查后整体替换
+ */
+public final class FixaRefreshStatus {
+
+    static final FixaRefreshStatus NEVER = new FixaRefreshStatus(null, null, null, 0);
+
+    private final Instant lastCheckTime;
+    private final Instant lastRefreshTime;
+    private final Throwable lastError;
+    private final int consecutiveFailures;
+
+    private FixaRefreshStatus(Instant lastCheckTime, Instant lastRefreshTime, Throwable lastError,
+                              int consecutiveFailures) {
+        this.lastCheckTime = lastCheckTime;
+        this.lastRefreshTime = lastRefreshTime;
+        this.lastError = lastError;
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    /**
+     * 检查后数据未过期
+     */
+    FixaRefreshStatus checked(Instant now) {
+        return new FixaRefreshStatus(now, lastRefreshTime, lastError, consecutiveFailures);
+    }
+
+    /**
+     * 刷新成功
+     */
+    FixaRefreshStatus succeeded(Instant now) {
+        return new FixaRefreshStatus(now, now, null, 0);
+    }
+
+    /**
+     * 刷新失败，日历继续使用原有数据
+     */
+    FixaRefreshStatus failed(Instant now, Throwable error) {
+        return new FixaRefreshStatus(now, lastRefreshTime, error, consecutiveFailures + 1);
+    }
+
+    /**
+     * Time of the last check of {@link cc.ddrpa.fixa.loader.IFixaDateLoader#isOutdated()}
+     * <p>
+     * 最近一次检查数据是否过期的时间，尚未检查时为 null
+     */
+    public Instant getLastCheckTime() {
+        return lastCheckTime;
+    }
+
+    /**
+     * Time of the last successful refresh
+     * <p>
+     * 最近一次成功刷新的时间，尚未刷新时为 null
+     */
+    public Instant getLastRefreshTime() {
+        return lastRefreshTime;
+    }
+
+    /**
+     * Error of the last refresh, null if it succeeded
+     * <p>
+     * 最近一次刷新失败的原因，刷新成功后为 null
+     */
+    public Throwable getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 连续失败的次数，刷新成功后归零
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "FixaRefreshStatus[lastCheckTime=" + lastCheckTime
+                + ", lastRefreshTime=" + lastRefreshTime
+                + ", lastError=" + lastError
+                + ", consecutiveFailures=" + consecutiveFailures + "]";
+    }
+}
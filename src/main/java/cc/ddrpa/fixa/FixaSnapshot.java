@@ -0,0 +1,370 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * An immutable state of a {@link FixaCalendar}.
+ * <p>
+ * 日历在某一时刻的状态。快照一经发布（赋值给 {@link FixaCalendar} 的 volatile 字段）便不再修改，
+ * 读线程无需加锁即可并发访问其中的位图；写线程复制出新的快照，修改完成后整体替换。
+ * <p>
+ * 周末由 {@link FixaWeekendRule} 直接计算，位图只存储节假日、调休工作日以及它们相对周末规则的例外。
+ */
+final class FixaSnapshot {
+
+    // 持久化格式：魔数 "FIXA"、格式版本、周末规则、数据来源、四个位图，最后是以上内容的 CRC32
+    private static final int MAGIC = 0x46495841;
+    static final int FORMAT_VERSION = 2;
+
+    // 周末规则
+    final FixaWeekendRule weekendRule;
+    // 存储节日
+    final RoaringBitmap holidayMap;
+    // 存储调休产生的工作日
+    final RoaringBitmap flexibleWorkdayMap;
+    // 落在非周末上、实际休息的日期
+    final RoaringBitmap extraDayOffMap;
+    // 落在周末上、实际上班的日期
+    final RoaringBitmap extraWorkdayMap;
+    // 非工作日计算方法
+    // day-off = weekend + extraDayOff - extraWorkday
+    final DayOffSet dayOffs;
+    // 工作日索引，首次使用时创建；WorkdayIndex 的字段均为 final，即使多个线程同时创建也是安全的
+    private WorkdayIndex workdayIndex;
+
+    private FixaSnapshot(FixaWeekendRule weekendRule, RoaringBitmap holidayMap, RoaringBitmap flexibleWorkdayMap,
+                         RoaringBitmap extraDayOffMap, RoaringBitmap extraWorkdayMap) {
+        this.weekendRule = weekendRule;
+        this.holidayMap = holidayMap;
+        this.flexibleWorkdayMap = flexibleWorkdayMap;
+        this.extraDayOffMap = extraDayOffMap;
+        this.extraWorkdayMap = extraWorkdayMap;
+        this.dayOffs = new DayOffSet(weekendRule, extraDayOffMap, extraWorkdayMap);
+    }
+
+    /**
+     * 创建只包含周末规则的快照
+     *
+     * @param weekendRule 周末规则
+     */
+    static FixaSnapshot of(FixaWeekendRule weekendRule) {
+        return new FixaSnapshot(weekendRule, RoaringBitmap.bitmapOf(), RoaringBitmap.bitmapOf(),
+                RoaringBitmap.bitmapOf(), RoaringBitmap.bitmapOf());
+    }
+
+    /**
+     * 复制出一个尚未发布的快照，供写线程修改
+     */
+    FixaSnapshot copy() {
+        return new FixaSnapshot(weekendRule, holidayMap.clone(), flexibleWorkdayMap.clone(),
+                extraDayOffMap.clone(), extraWorkdayMap.clone());
+    }
+
+    /**
+     * 在发布前压缩位图
+     */
+    void optimize() {
+        holidayMap.runOptimize();
+        flexibleWorkdayMap.runOptimize();
+        extraDayOffMap.runOptimize();
+        extraWorkdayMap.runOptimize();
+    }
+
+    /**
+     * 将给定日期标记为节假日，该日期成为非工作日
+     */
+    void addHoliday(int pos) {
+        holidayMap.add(pos);
+        setDayOff(pos, true);
+    }
+
+    /**
+     * 将给定日期标记为节假日，日期需按升序排列
+     */
+    void addHolidays(int[] bits) {
+        holidayMap.add(bits);
+        for (int pos : bits) {
+            setDayOff(pos, true);
+        }
+    }
+
+    /**
+     * 将给定日期标记为调休工作日，该日期成为工作日
+     */
+    void addFlexibleWorkday(int pos) {
+        flexibleWorkdayMap.add(pos);
+        setDayOff(pos, false);
+    }
+
+    /**
+     * 将给定日期标记为调休工作日，日期需按升序排列
+     */
+    void addFlexibleWorkdays(int[] bits) {
+        flexibleWorkdayMap.add(bits);
+        for (int pos : bits) {
+            setDayOff(pos, false);
+        }
+    }
+
+    /**
+     * 取消给定日期的节假日标记；如果它同时是调休工作日则成为工作日，否则由周末规则决定
+     */
+    void removeHoliday(int pos) {
+        if (holidayMap.checkedRemove(pos)) {
+            resetDay(pos);
+        }
+    }
+
+    /**
+     * 取消给定日期的调休工作日标记；如果它同时是节假日则成为非工作日，否则由周末规则决定
+     */
+    void removeFlexibleWorkday(int pos) {
+        if (flexibleWorkdayMap.checkedRemove(pos)) {
+            resetDay(pos);
+        }
+    }
+
+    /**
+     * 用给定的标记整体替换 covered 中日期原有的节假日、调休标记，covered 之外的日期保持不变
+     *
+     * @param holidays         新的节假日，是 covered 的子集
+     * @param flexibleWorkdays 新的调休工作日，是 covered 的子集
+     * @param covered          需要替换的日期，其中没有新标记的日期恢复为由周末规则决定
+     * @param dayOffs          新标记的日期中休息的日期
+     */
+    void overlay(RoaringBitmap holidays, RoaringBitmap flexibleWorkdays, RoaringBitmap covered,
+                 RoaringBitmap dayOffs) {
+        holidayMap.andNot(covered);
+        holidayMap.or(holidays);
+        flexibleWorkdayMap.andNot(covered);
+        flexibleWorkdayMap.or(flexibleWorkdays);
+        extraDayOffMap.andNot(covered);
+        extraWorkdayMap.andNot(covered);
+        PeekableIntIterator iterator = RoaringBitmap.or(holidays, flexibleWorkdays).getIntIterator();
+        while (iterator.hasNext()) {
+            int pos = iterator.next();
+            setDayOff(pos, dayOffs.contains(pos));
+        }
+    }
+
+    /**
+     * 根据剩余的标记重新确定给定日期是否休息
+     */
+    private void resetDay(int pos) {
+        if (holidayMap.contains(pos)) {
+            setDayOff(pos, true);
+        } else if (flexibleWorkdayMap.contains(pos)) {
+            setDayOff(pos, false);
+        } else {
+            extraDayOffMap.remove(pos);
+            extraWorkdayMap.remove(pos);
+        }
+    }
+
+    /**
+     * 记录给定日期相对周末规则的例外
+     */
+    private void setDayOff(int pos, boolean dayOff) {
+        if (weekendRule.isWeekend(pos)) {
+            if (dayOff) {
+                extraWorkdayMap.remove(pos);
+            } else {
+                extraWorkdayMap.add(pos);
+            }
+        } else if (dayOff) {
+            extraDayOffMap.add(pos);
+        } else {
+            extraDayOffMap.remove(pos);
+        }
+    }
+
+    /**
+     * 返回存储了数据的区间 [lowerBound, upperBound)，即节假日、调休工作日的跨度与周末规则的生效区间的并集。
+     * 区间之外的非工作日完全由周末规则决定。没有任何数据时返回 null
+     */
+    long[] dataSpan() {
+        long lowerBound = Long.MAX_VALUE;
+        long upperBound = Long.MIN_VALUE;
+        for (RoaringBitmap bitmap : new RoaringBitmap[]{holidayMap, flexibleWorkdayMap}) {
+            if (!bitmap.isEmpty()) {
+                // 按有符号整数比较，1970 年之前的日期排在前面
+                lowerBound = Math.min(lowerBound, bitmap.firstSigned());
+                upperBound = Math.max(upperBound, bitmap.lastSigned() + 1L);
+            }
+        }
+        if (weekendRule.isBounded() && weekendRule.hasWeekend()) {
+            lowerBound = Math.min(lowerBound, weekendRule.lowerBound());
+            upperBound = Math.max(upperBound, weekendRule.upperBound());
+        }
+        return lowerBound < upperBound ? new long[]{lowerBound, upperBound} : null;
+    }
+
+    /**
+     * 将 [from, to) 内的非工作日写入位图
+     */
+    RoaringBitmap dayOffMap(int from, int to) {
+        RoaringBitmap dayOffMap = new RoaringBitmap();
+        PrimitiveIterator.OfInt iterator = dayOffs.iterator(from, to, false);
+        while (iterator.hasNext()) {
+            dayOffMap.add(iterator.nextInt());
+        }
+        dayOffMap.runOptimize();
+        return dayOffMap;
+    }
+
+    /**
+     * 将存储了数据的年份内的非工作日写入位图，见 {@link #dataSpan()}
+     */
+    RoaringBitmap dayOffMap() {
+        long[] span = dataSpan();
+        if (span == null) {
+            return new RoaringBitmap();
+        }
+        // 周末规则无界时，扩展到完整的年份
+        long from = span[0];
+        long to = span[1];
+        if (!weekendRule.isBounded()) {
+            from = LocalDate.ofEpochDay(from).withDayOfYear(1).toEpochDay();
+            to = LocalDate.ofEpochDay(to - 1).withDayOfYear(1).plusYears(1).toEpochDay();
+        }
+        return dayOffMap(Math.toIntExact(from), Math.toIntExact(to));
+    }
+
+    /**
+     * 以另一个周末规则重新计算例外位图，节假日和调休位图直接共用。
+     * <p>
+     * 同一日期既是节假日又是调休工作日时，结果取决于添加顺序，这里沿用当前快照中该日期是否为非工作日的结果
+     *
+     * @param rule 新的周末规则
+     * @return 新快照，所有位图均已压缩，可以直接发布
+     */
+    FixaSnapshot withWeekendRule(FixaWeekendRule rule) {
+        RoaringBitmap extraDayOff = new RoaringBitmap();
+        RoaringBitmap extraWorkday = new RoaringBitmap();
+        PeekableIntIterator iterator = RoaringBitmap.or(holidayMap, flexibleWorkdayMap).getIntIterator();
+        while (iterator.hasNext()) {
+            int pos = iterator.next();
+            // 只是节假日的日期休息，调休工作日是否休息取决于它是否也是节假日以及添加顺序
+            boolean dayOff = !flexibleWorkdayMap.contains(pos) || dayOffs.contains(pos);
+            if (rule.isWeekend(pos)) {
+                if (!dayOff) {
+                    extraWorkday.add(pos);
+                }
+            } else if (dayOff) {
+                extraDayOff.add(pos);
+            }
+        }
+        // 共用的位图已经压缩过，只压缩新建的位图
+        extraDayOff.runOptimize();
+        extraWorkday.runOptimize();
+        return new FixaSnapshot(rule, holidayMap, flexibleWorkdayMap, extraDayOff, extraWorkday);
+    }
+
+    /**
+     * 将位图替换为内容相同的已有实例
+     *
+     * @param interner 位图池
+     * @return 尚未发布的新快照
+     */
+    FixaSnapshot intern(BitmapInterner interner) {
+        return new FixaSnapshot(weekendRule,
+                interner.intern(holidayMap),
+                interner.intern(flexibleWorkdayMap),
+                interner.intern(extraDayOffMap),
+                interner.intern(extraWorkdayMap));
+    }
+
+    /**
+     * 将快照写入输出流，不会关闭输出流
+     *
+     * @param out    输出流
+     * @param source 数据来源，读取时用于判断快照是否过期
+     */
+    void writeTo(OutputStream out, String source) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(out), new CRC32());
+        DataOutputStream data = new DataOutputStream(checked);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeLong(weekendRule.mask());
+        data.writeInt(weekendRule.cycle());
+        data.writeInt(weekendRule.phase());
+        data.writeLong(weekendRule.lowerBound());
+        data.writeLong(weekendRule.upperBound());
+        data.writeUTF(Objects.toString(source, ""));
+        for (RoaringBitmap bitmap : new RoaringBitmap[]{holidayMap, flexibleWorkdayMap, extraDayOffMap, extraWorkdayMap}) {
+            bitmap.serialize(data);
+        }
+        data.flush();
+        // 校验和本身不参与计算
+        data.writeInt((int) checked.getChecksum().getValue());
+        data.flush();
+    }
+
+    /**
+     * 从输入流读取快照，不会关闭输入流；读取时带有缓冲，之后输入流的位置不确定
+     *
+     * @param in             输入流
+     * @param expectedSource 期望的数据来源，为 null 时不检查
+     * @return 快照；格式版本或数据来源不一致时返回 null
+     * @throws IOException 读取失败或数据损坏
+     */
+    static FixaSnapshot readFrom(InputStream in, String expectedSource) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(in), new CRC32());
+        DataInputStream data = new DataInputStream(checked);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a fixa calendar snapshot");
+        }
+        if (data.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        long mask = data.readLong();
+        int cycle = data.readInt();
+        int phase = data.readInt();
+        long lowerBound = data.readLong();
+        long upperBound = data.readLong();
+        String source = data.readUTF();
+        if (Objects.nonNull(expectedSource) && !expectedSource.equals(source)) {
+            return null;
+        }
+        RoaringBitmap[] bitmaps = new RoaringBitmap[4];
+        for (int i = 0; i < bitmaps.length; i++) {
+            bitmaps[i] = new RoaringBitmap();
+            bitmaps[i].deserialize(data);
+        }
+        int checksum = (int) checked.getChecksum().getValue();
+        if (data.readInt() != checksum) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        FixaWeekendRule weekendRule;
+        try {
+            weekendRule = FixaWeekendRule.restore(mask, cycle, phase, lowerBound, upperBound);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid weekend rule in snapshot", e);
+        }
+        return new FixaSnapshot(weekendRule, bitmaps[0], bitmaps[1], bitmaps[2], bitmaps[3]);
+    }
+
+    WorkdayIndex workdayIndex() {
+        WorkdayIndex index = workdayIndex;
+        if (index == null) {
+            index = WorkdayIndex.of(this);
+            workdayIndex = index;
+        }
+        return index;
+    }
+}
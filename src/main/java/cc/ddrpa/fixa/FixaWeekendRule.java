@@ -0,0 +1,430 @@
+package cc.ddrpa.fixa;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A weekend rule evaluated arithmetically from the epoch day.
+ * <p>
+ * 按 epoch day 直接计算的周末规则。周末不再逐日写入位图，任意日期都可以在常数时间内判定是否为周末，
+ * 任意区间内的周末数量也可以由整周数量和余下天数直接算出。
+ * <p>
+ * 规则由一周内哪些天是周末的位掩码表示（bit 0 为周一，bit 6 为周日），
+ * 除 {@link FixaWeekendEnum} 定义的单休、双休外，也可以使用 {@link #of(DayOfWeek...)} 定义任意组合，例如三休。
+ * <p>
+ * 周期不是 7 天的轮班，例如做四休三、做二休二，可以使用 {@link #ofPattern(LocalDate, int, long)} 或
+ * {@link #ofRotation(LocalDate, int...)} 以任意起始日期和周期长度定义，同样按周期直接计算，不随日期范围增加内存。
+ */
+public final class FixaWeekendRule {
+
+    private static final int DAYS_IN_WEEK = 7;
+    // 轮班周期的最大长度，受位掩码的位数限制
+    private static final int MAX_CYCLE = Long.SIZE;
+    // 1969-12-29 是周一，以该日为一周的起点
+    private static final long MONDAY_EPOCH_DAY = -3L;
+    private static final FixaWeekendRule NONE = new FixaWeekendRule(0L, DAYS_IN_WEEK, MONDAY_EPOCH_DAY,
+            Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private final long mask;
+    private final int cycle;
+    // 周期起点对周期长度取模，起点相差整数个周期的规则相同
+    private final int phase;
+    // 规则生效的区间 [lowerBound, upperBound)，区间之外没有周末
+    private final long lowerBound;
+    private final long upperBound;
+    // prefix[i] 为一个周期前 i 天中周末的数量
+    private final int[] prefix;
+
+    private FixaWeekendRule(long mask, int cycle, long anchor, long lowerBound, long upperBound) {
+        this.mask = mask;
+        this.cycle = cycle;
+        this.phase = (int) Math.floorMod(anchor, (long) cycle);
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.prefix = new int[cycle + 1];
+        for (int i = 0; i < cycle; i++) {
+            prefix[i + 1] = prefix[i] + (int) ((mask >>> i) & 1L);
+        }
+    }
+
+    /**
+     * Rule without any weekend
+     * <p>
+     * 没有周末的规则
+     */
+    public static FixaWeekendRule none() {
+        return NONE;
+    }
+
+    /**
+     * Create a rule from the given weekend type
+     * <p>
+     * 根据 {@link FixaWeekendEnum} 创建规则，{@link FixaWeekendEnum#UNDEFINED} 表示没有周末
+     *
+     * @param weekend weekend type
+     * @return the rule
+     */
+    public static FixaWeekendRule of(FixaWeekendEnum weekend) {
+        Objects.requireNonNull(weekend, "Weekend type cannot be null.");
+        int code = weekend.getCode();
+        if (weekend.isDoubleDayWeekend()) {
+            // SATURDAY_AND_SUNDAY(1) 的第一天为周六，此后依次后移一天
+            DayOfWeek firstDay = DayOfWeek.SATURDAY.plus(code - 1L);
+            return of(firstDay, firstDay.plus(1));
+        }
+        if (weekend.isSingleDayWeekend()) {
+            // SUNDAY_ONLY(11) 为周日，此后依次后移一天
+            return of(DayOfWeek.SUNDAY.plus(code - 11L));
+        }
+        return NONE;
+    }
+
+    /**
+     * Create a rule that treats the given days of week as weekend
+     * <p>
+     * 将给定的星期几作为周末
+     *
+     * @param days days of week
+     * @return the rule
+     */
+    public static FixaWeekendRule of(DayOfWeek... days) {
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= 1 << (day.getValue() - 1);
+        }
+        return ofMask(mask);
+    }
+
+    /**
+     * Create a rule from a bitmask, bit 0 stands for Monday and bit 6 for Sunday
+     * <p>
+     * 使用位掩码创建规则，bit 0 表示周一，bit 6 表示周日
+     *
+     * @param mask bitmask of weekend days
+     * @return the rule
+     */
+    public static FixaWeekendRule ofMask(int mask) {
+        if (mask < 0 || mask >= (1 << DAYS_IN_WEEK)) {
+            throw new IllegalArgumentException("Invalid weekend mask.");
+        }
+        if (mask == (1 << DAYS_IN_WEEK) - 1) {
+            throw new IllegalArgumentException("Weekend rule must leave at least one workday in a week.");
+        }
+        return mask == 0 ? NONE : new FixaWeekendRule(mask, DAYS_IN_WEEK, MONDAY_EPOCH_DAY,
+                Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a rotation rule repeating every cycleLength days from the anchor date
+     * <p>
+     * 创建从 anchor 开始、每 cycleLength 天重复一次的轮班规则，anchor 之前的日期同样按周期向前推算。
+     * offMask 的 bit i 表示周期内第 i 天（anchor 为第 0 天）休息，例如做四休三为 cycleLength = 7、offMask = 0b1110000
+     *
+     * @param anchor      first day of a cycle
+     * @param cycleLength days in a cycle, at most 64
+     * @param offMask     bitmask of days off in a cycle
+     * @return the rule
+     */
+    public static FixaWeekendRule ofPattern(LocalDate anchor, int cycleLength, long offMask) {
+        Objects.requireNonNull(anchor, "Anchor cannot be null.");
+        if (cycleLength <= 0 || cycleLength > MAX_CYCLE) {
+            throw new IllegalArgumentException("Cycle length should be between 1 and " + MAX_CYCLE + ".");
+        }
+        long full = cycleLength == MAX_CYCLE ? -1L : (1L << cycleLength) - 1;
+        if ((offMask & ~full) != 0) {
+            throw new IllegalArgumentException("Invalid weekend mask.");
+        }
+        if (offMask == full) {
+            throw new IllegalArgumentException("Weekend rule must leave at least one workday in a cycle.");
+        }
+        return offMask == 0 ? NONE : new FixaWeekendRule(offMask, cycleLength, anchor.toEpochDay(),
+                Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create a rotation rule from alternating runs of workdays and days off
+     * <p>
+     * 由交替的上班、休息天数创建轮班规则，第一段为上班，周期长度为各段之和。
+     * 例如做四休三为 {@code ofRotation(anchor, 4, 3)}，2-2-3 轮班为 {@code ofRotation(anchor, 2, 2, 3, 2, 2, 3)}
+     *
+     * @param anchor first day of the first run of workdays
+     * @param runs   alternating numbers of workdays and days off
+     * @return the rule
+     */
+    public static FixaWeekendRule ofRotation(LocalDate anchor, int... runs) {
+        if (runs.length == 0) {
+            throw new IllegalArgumentException("Rotation should contain at least one run.");
+        }
+        long offMask = 0L;
+        int cycleLength = 0;
+        for (int i = 0; i < runs.length; i++) {
+            if (runs[i] <= 0) {
+                throw new IllegalArgumentException("Length of each run should be positive.");
+            }
+            if (runs[i] > MAX_CYCLE - cycleLength) {
+                throw new IllegalArgumentException("Cycle length should be between 1 and " + MAX_CYCLE + ".");
+            }
+            for (int day = 0; day < runs[i]; day++, cycleLength++) {
+                if (i % 2 == 1) {
+                    offMask |= 1L << cycleLength;
+                }
+            }
+        }
+        return ofPattern(anchor, cycleLength, offMask);
+    }
+
+    /**
+     * 与旧版本行为一致的周末区间：从 setWeekendAfter 附近的第一个周末开始，计算 duration 天内的整周
+     */
+    static FixaWeekendRule ofWindow(FixaWeekendEnum weekend, LocalDate setWeekendAfter, Duration duration) {
+        int weeks = Math.toIntExact(duration.toDays()) / DAYS_IN_WEEK;
+        int dayOfWeek = setWeekendAfter.getDayOfWeek().getValue();
+        long startPos = setWeekendAfter.toEpochDay();
+        if (weekend.isSingleDayWeekend()) {
+            startPos = startPos - dayOfWeek - 4 + weekend.getCode();
+        } else if (weekend.isDoubleDayWeekend()) {
+            startPos = startPos - dayOfWeek - 2 + weekend.getCode();
+        } else {
+            return NONE;
+        }
+        FixaWeekendRule rule = of(weekend);
+        return new FixaWeekendRule(rule.mask, DAYS_IN_WEEK, MONDAY_EPOCH_DAY,
+                startPos, startPos + (long) weeks * DAYS_IN_WEEK);
+    }
+
+    /**
+     * 由逐个列出的周末日期还原规则，供旧版本的 {@code FixaCalendar(int[], IFixaDateLoader)} 使用。
+     * 这些日期必须是最早与最晚日期之间每周固定的几天，与旧版本的构造方法生成的周末一致
+     */
+    static FixaWeekendRule ofDays(int[] weekendPos) {
+        int[] days = Arrays.stream(weekendPos).sorted().distinct().toArray();
+        if (days.length == 0) {
+            return NONE;
+        }
+        int mask = 0;
+        for (int day : days) {
+            mask |= 1 << (int) Math.floorMod(day - MONDAY_EPOCH_DAY, (long) DAYS_IN_WEEK);
+        }
+        ofMask(mask);
+        FixaWeekendRule rule = new FixaWeekendRule(mask, DAYS_IN_WEEK, MONDAY_EPOCH_DAY,
+                days[0], days[days.length - 1] + 1L);
+        if (rule.count(rule.lowerBound, rule.upperBound) != days.length) {
+            throw new IllegalArgumentException("Weekend days should repeat weekly, use FixaWeekendRule instead.");
+        }
+        return rule;
+    }
+
+    /**
+     * 根据 {@link #mask()}、{@link #cycle()}、{@link #phase()}、{@link #lowerBound()}、{@link #upperBound()} 还原规则，
+     * 用于读取持久化的快照
+     */
+    static FixaWeekendRule restore(long mask, int cycle, int phase, long lowerBound, long upperBound) {
+        FixaWeekendRule rule = ofPattern(LocalDate.ofEpochDay(phase), cycle, mask);
+        if (lowerBound == Long.MIN_VALUE && upperBound == Long.MAX_VALUE) {
+            return rule;
+        }
+        return new FixaWeekendRule(mask, cycle, phase, lowerBound, upperBound);
+    }
+
+    /**
+     * whether given date is a weekend
+     * <p>
+     * 判定给定日期是否是周末
+     *
+     * @param date date to be checked
+     * @return true if it's a weekend
+     */
+    public boolean isWeekend(LocalDate date) {
+        return isWeekend(date.toEpochDay());
+    }
+
+    /**
+     * Returns the number of weekend days between startDate and endDate
+     * <p>
+     * 返回给定日期范围内（包括开始和结束日期）的周末天数
+     *
+     * @param startDate start date(included)
+     * @param endDate   end date(included)
+     * @return the number of weekend days
+     */
+    public long countWeekends(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("StartDate should be before endDate");
+        }
+        return count(startDate.toEpochDay(), endDate.toEpochDay() + 1);
+    }
+
+    boolean isWeekend(long pos) {
+        return pos >= lowerBound && pos < upperBound && isPeriodicWeekend(pos);
+    }
+
+    boolean isBounded() {
+        return lowerBound != Long.MIN_VALUE || upperBound != Long.MAX_VALUE;
+    }
+
+    boolean hasWeekend() {
+        return mask != 0 && lowerBound < upperBound;
+    }
+
+    long mask() {
+        return mask;
+    }
+
+    int cycle() {
+        return cycle;
+    }
+
+    int phase() {
+        return phase;
+    }
+
+    long lowerBound() {
+        return lowerBound;
+    }
+
+    long upperBound() {
+        return upperBound;
+    }
+
+    /**
+     * 返回 [from, to) 内的周末天数
+     */
+    long count(long from, long to) {
+        long start = Math.max(from, lowerBound);
+        long end = Math.min(to, upperBound);
+        if (start >= end) {
+            return 0;
+        }
+        return weekendsBefore(end) - weekendsBefore(start);
+    }
+
+    /**
+     * 返回大于等于 pos 的第一个周末，不存在时返回 {@link DaySet#NOT_FOUND}
+     */
+    long next(long pos) {
+        long candidate = Math.max(pos, lowerBound);
+        for (int i = 0; i < cycle && candidate < upperBound; i++, candidate++) {
+            if (isWeekend(candidate)) {
+                return candidate;
+            }
+        }
+        return DaySet.NOT_FOUND;
+    }
+
+    /**
+     * 返回小于等于 pos 的最后一个周末，不存在时返回 {@link DaySet#NOT_FOUND}
+     */
+    long previous(long pos) {
+        long candidate = Math.min(pos, upperBound - 1);
+        for (int i = 0; i < cycle && candidate >= lowerBound; i++, candidate--) {
+            if (isWeekend(candidate)) {
+                return candidate;
+            }
+        }
+        return DaySet.NOT_FOUND;
+    }
+
+    /**
+     * 忽略生效区间，按周期计算 [from, to) 内的周末天数
+     */
+    long periodicCount(long from, long to) {
+        return weekendsBefore(to) - weekendsBefore(from);
+    }
+
+    /**
+     * 忽略生效区间，返回大于等于 from 的工作日 d，使得 [from, d) 内恰好有 n 个工作日
+     */
+    long periodicWorkdayAfter(long from, long n) {
+        int workdaysPerCycle = cycle - prefix[cycle];
+        long cycles = n / workdaysPerCycle;
+        long pos = from + cycles * cycle;
+        long remaining = n - cycles * workdaysPerCycle;
+        while (true) {
+            if (!isPeriodicWeekend(pos)) {
+                if (remaining == 0) {
+                    return pos;
+                }
+                remaining--;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * 忽略生效区间，返回小于 to 的工作日 d，使得 [d, to) 内恰好有 n 个工作日，n 至少为 1
+     */
+    long periodicWorkdayBefore(long to, long n) {
+        int workdaysPerCycle = cycle - prefix[cycle];
+        long cycles = (n - 1) / workdaysPerCycle;
+        long pos = to - cycles * cycle;
+        long remaining = n - cycles * workdaysPerCycle;
+        while (true) {
+            pos--;
+            if (!isPeriodicWeekend(pos) && --remaining == 0) {
+                return pos;
+            }
+        }
+    }
+
+    private boolean isPeriodicWeekend(long pos) {
+        return ((mask >>> Math.floorMod(pos - phase, (long) cycle)) & 1L) != 0;
+    }
+
+    /**
+     * 以周期起点为原点，返回 pos 之前的周末天数，早于原点时为负数
+     */
+    private long weekendsBefore(long pos) {
+        long offset = pos - phase;
+        return Math.floorDiv(offset, (long) cycle) * prefix[cycle]
+                + prefix[(int) Math.floorMod(offset, (long) cycle)];
+    }
+
+    private boolean isWeekly() {
+        return cycle == DAYS_IN_WEEK && phase == Math.floorMod(MONDAY_EPOCH_DAY, (long) DAYS_IN_WEEK);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FixaWeekendRule)) {
+            return false;
+        }
+        FixaWeekendRule that = (FixaWeekendRule) o;
+        return mask == that.mask && cycle == that.cycle && phase == that.phase
+                && lowerBound == that.lowerBound && upperBound == that.upperBound;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(mask, cycle, phase, lowerBound, upperBound);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("FixaWeekendRule[");
+        if (isWeekly()) {
+            for (int i = 0; i < DAYS_IN_WEEK; i++) {
+                if (((mask >>> i) & 1L) != 0) {
+                    builder.append(DayOfWeek.of(i + 1)).append(' ');
+                }
+            }
+        } else {
+            // 每个字符表示周期内的一天，1 为休息
+            builder.append(cycle).append("-day cycle from ").append(LocalDate.ofEpochDay(phase)).append(' ');
+            for (int i = 0; i < cycle; i++) {
+                builder.append((mask >>> i) & 1L);
+            }
+            builder.append(' ');
+        }
+        if (isBounded()) {
+            builder.append("between ").append(LocalDate.ofEpochDay(lowerBound))
+                    .append(" and ").append(LocalDate.ofEpochDay(upperBound - 1));
+        }
+        return builder.toString().trim() + "]";
+    }
+}
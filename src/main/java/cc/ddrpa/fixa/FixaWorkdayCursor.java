@@ -0,0 +1,164 @@
+package cc.ddrpa.fixa;
+
+import java.time.LocalDate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A reusable cursor stepping through the workdays of a {@link FixaCalendar}.
+ * <p>
+ * 在日历上按工作日移动的游标，位置以 epoch day 表示，适合在循环中反复推算工作日。
+ * <ul>
+ *     <li>{@link #next()}、{@link #previous()} 移动到相邻的工作日，直接查找下一个（上一个）不在非工作日集合中的日期</li>
+ *     <li>{@link #forward(int)}、{@link #backward(int)} 一次移动 N 个工作日，按区间计数或工作日索引计算，计算量与 N 无关</li>
+ * </ul>
+ * 游标在创建和 {@link #moveTo(int)} 时读取日历快照，之后的移动都使用这一快照，日历更新不会影响正在进行的遍历；
+ * 需要使用新数据时调用 {@link #moveTo(int)} 重新定位。日历按年份延迟加载时，移动到尚未加载的年份会先加载该年份并改用新的快照。
+ * 游标不是线程安全的，每个线程应该使用自己的游标。
+ */
+public final class FixaWorkdayCursor {
+
+    private final FixaCalendar calendar;
+    private FixaSnapshot snapshot;
+    private int position;
+
+    FixaWorkdayCursor(FixaCalendar calendar, int epochDay) {
+        this.calendar = calendar;
+        moveTo(epochDay);
+    }
+
+    /**
+     * Move the cursor to the given epoch day and refresh the calendar snapshot
+     * <p>
+     * 将游标移动到给定的 epoch day（不要求是工作日），并重新读取日历快照
+     *
+     * @param epochDay new position
+     * @return this cursor
+     */
+    public FixaWorkdayCursor moveTo(int epochDay) {
+        this.snapshot = calendar.read(epochDay);
+        this.position = epochDay;
+        return this;
+    }
+
+    /**
+     * Move the cursor to the given date and refresh the calendar snapshot
+     * <p>
+     * 将游标移动到给定日期，并重新读取日历快照
+     *
+     * @param date new position
+     * @return this cursor
+     */
+    public FixaWorkdayCursor moveTo(LocalDate date) {
+        return moveTo(Math.toIntExact(date.toEpochDay()));
+    }
+
+    /**
+     * Move to the next workday
+     * <p>
+     * 移动到下一个工作日（当前位置不计），不存在时抛出异常且位置不变
+     *
+     * @return new position as epoch day
+     */
+    public int next() {
+        long result = move(current -> current.dayOffs.nextAbsent(position + 1));
+        if (result == DaySet.NOT_FOUND) {
+            throw new IllegalStateException("There is no workday after " + LocalDate.ofEpochDay(position));
+        }
+        position = (int) result;
+        return position;
+    }
+
+    /**
+     * Move to the previous workday
+     * <p>
+     * 移动到上一个工作日（当前位置不计），不存在时抛出异常且位置不变
+     *
+     * @return new position as epoch day
+     */
+    public int previous() {
+        long result = move(current -> current.dayOffs.previousAbsent(position - 1));
+        if (result == DaySet.NOT_FOUND) {
+            throw new IllegalStateException("There is no workday before " + LocalDate.ofEpochDay(position));
+        }
+        position = (int) result;
+        return position;
+    }
+
+    /**
+     * Move forward by the given number of workdays
+     * <p>
+     * 移动到当前位置之后的第 workdays 个工作日，与 {@link FixaCalendar#workday(LocalDate, java.time.Duration)} 相同，
+     * workdays 为 0 时位置不变
+     *
+     * @param workdays number of workdays to move, negative value means moving backward
+     * @return new position as epoch day
+     */
+    public int forward(int workdays) {
+        if (workdays < 0) {
+            return backward(-workdays);
+        }
+        position = Math.toIntExact(move(current -> calendar.workdayPos(current, position, workdays)));
+        return position;
+    }
+
+    /**
+     * Move backward by the given number of workdays
+     * <p>
+     * 移动到当前位置之前的第 workdays 个工作日，workdays 为 0 时位置不变
+     *
+     * @param workdays number of workdays to move, negative value means moving forward
+     * @return new position as epoch day
+     */
+    public int backward(int workdays) {
+        if (workdays < 0) {
+            return forward(-workdays);
+        }
+        position = Math.toIntExact(move(current -> calendar.reverseWorkdayPos(current, position, workdays)));
+        return position;
+    }
+
+    /**
+     * Current position as epoch day
+     * <p>
+     * 当前位置
+     */
+    public int epochDay() {
+        return position;
+    }
+
+    /**
+     * Current position as date
+     * <p>
+     * 当前位置对应的日期
+     */
+    public LocalDate date() {
+        return LocalDate.ofEpochDay(position);
+    }
+
+    /**
+     * whether current position is a workday
+     * <p>
+     * 当前位置是否是工作日
+     */
+    public boolean isWorkday() {
+        return !snapshot.dayOffs.contains(position);
+    }
+
+    /**
+     * 在游标的快照上计算新位置；结果与当前位置之间有尚未加载的年份时，加载后改用新的快照重新计算
+     */
+    private long move(ToLongFunction<FixaSnapshot> step) {
+        long result = step.applyAsLong(snapshot);
+        while (result != DaySet.NOT_FOUND
+                && !calendar.isLoaded(Math.min(position, result), Math.max(position, result) + 1)) {
+            snapshot = calendar.read(Math.min(position, result), Math.max(position, result) + 1);
+            result = step.applyAsLong(snapshot);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "FixaWorkdayCursor[" + date() + "]";
+    }
+}
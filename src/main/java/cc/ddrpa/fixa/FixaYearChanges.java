@@ -0,0 +1,113 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Changes of holidays and flexible workdays within a year.
+ * <p>
+ * 某一年内节假日和调休工作日的变化，由 {@link FixaCalendar#updateYear(int)} 和
+ * {@link FixaCalendar#replaceYear(int, FixaCalendar)} 返回。对象不可变。
+ */
+public final class FixaYearChanges {
+
+    private final int year;
+    private final List<LocalDate> addedHolidays;
+    private final List<LocalDate> removedHolidays;
+    private final List<LocalDate> addedFlexibleWorkdays;
+    private final List<LocalDate> removedFlexibleWorkdays;
+
+    private FixaYearChanges(int year, RoaringBitmap addedHolidays, RoaringBitmap removedHolidays,
+                            RoaringBitmap addedFlexibleWorkdays, RoaringBitmap removedFlexibleWorkdays) {
+        this.year = year;
+        this.addedHolidays = toDates(addedHolidays);
+        this.removedHolidays = toDates(removedHolidays);
+        this.addedFlexibleWorkdays = toDates(addedFlexibleWorkdays);
+        this.removedFlexibleWorkdays = toDates(removedFlexibleWorkdays);
+    }
+
+    /**
+     * 比较两个快照在给定年份内的节假日和调休工作日
+     */
+    static FixaYearChanges diff(int year, FixaSnapshot before, FixaSnapshot after) {
+        RoaringBitmap range = yearRange(year);
+        RoaringBitmap oldHolidays = RoaringBitmap.and(before.holidayMap, range);
+        RoaringBitmap newHolidays = RoaringBitmap.and(after.holidayMap, range);
+        RoaringBitmap oldFlexibleWorkdays = RoaringBitmap.and(before.flexibleWorkdayMap, range);
+        RoaringBitmap newFlexibleWorkdays = RoaringBitmap.and(after.flexibleWorkdayMap, range);
+        return new FixaYearChanges(year,
+                RoaringBitmap.andNot(newHolidays, oldHolidays),
+                RoaringBitmap.andNot(oldHolidays, newHolidays),
+                RoaringBitmap.andNot(newFlexibleWorkdays, oldFlexibleWorkdays),
+                RoaringBitmap.andNot(oldFlexibleWorkdays, newFlexibleWorkdays));
+    }
+
+    /**
+     * 给定年份的 1 月 1 日至 12 月 31 日
+     */
+    static RoaringBitmap yearRange(int year) {
+        int from = Math.toIntExact(LocalDate.ofYearDay(year, 1).toEpochDay());
+        int to = Math.toIntExact(LocalDate.ofYearDay(year + 1, 1).toEpochDay());
+        // 位图按无符号整数排列，1970 年之前的日期位于末尾，任何一年都不会跨越 0
+        RoaringBitmap range = new RoaringBitmap();
+        range.add(Integer.toUnsignedLong(from), to == 0 ? 1L << 32 : Integer.toUnsignedLong(to));
+        return range;
+    }
+
+    private static List<LocalDate> toDates(RoaringBitmap bitmap) {
+        return IntStream.of(bitmap.toArray()).mapToObj(LocalDate::ofEpochDay).collect(Collectors.toUnmodifiableList());
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    /**
+     * 新增的节假日
+     */
+    public List<LocalDate> getAddedHolidays() {
+        return addedHolidays;
+    }
+
+    /**
+     * 不再是节假日的日期
+     */
+    public List<LocalDate> getRemovedHolidays() {
+        return removedHolidays;
+    }
+
+    /**
+     * 新增的调休工作日
+     */
+    public List<LocalDate> getAddedFlexibleWorkdays() {
+        return addedFlexibleWorkdays;
+    }
+
+    /**
+     * 不再是调休工作日的日期
+     */
+    public List<LocalDate> getRemovedFlexibleWorkdays() {
+        return removedFlexibleWorkdays;
+    }
+
+    /**
+     * 是否没有任何变化
+     */
+    public boolean isEmpty() {
+        return addedHolidays.isEmpty() && removedHolidays.isEmpty()
+                && addedFlexibleWorkdays.isEmpty() && removedFlexibleWorkdays.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "FixaYearChanges[year=" + year
+                + ", addedHolidays=" + addedHolidays
+                + ", removedHolidays=" + removedHolidays
+                + ", addedFlexibleWorkdays=" + addedFlexibleWorkdays
+                + ", removedFlexibleWorkdays=" + removedFlexibleWorkdays + "]";
+    }
+}
@@ -0,0 +1,142 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * 在基础日历的非工作日之上叠加个人的休息日和工作日
+ * <p>
+ * day-off = base + dayOff - workday
+ * <p>
+ * 个人的两个位图与基础日历的数据相互独立，基础日历更新后不需要重新计算。区间计数时在基础日历的计数上，
+ * 逐个检查区间内个人标记的日期是否改变了基础日历的结果，计算量与区间内个人标记的数量成正比
+ */
+final class OverlayDaySet implements DaySet {
+
+    private final DaySet base;
+    private final RoaringBitmap dayOffMap;
+    private final RoaringBitmap workdayMap;
+
+    /**
+     * @param base       基础日历的非工作日
+     * @param dayOffMap  个人的休息日，与 workdayMap 不相交
+     * @param workdayMap 个人的工作日
+     */
+    OverlayDaySet(DaySet base, RoaringBitmap dayOffMap, RoaringBitmap workdayMap) {
+        this.base = base;
+        this.dayOffMap = dayOffMap;
+        this.workdayMap = workdayMap;
+    }
+
+    @Override
+    public boolean contains(int pos) {
+        if (dayOffMap.contains(pos)) {
+            return true;
+        }
+        return !workdayMap.contains(pos) && base.contains(pos);
+    }
+
+    @Override
+    public long count(long from, long to) {
+        return from < to ? base.count(from, to) + delta(from, to) : 0L;
+    }
+
+    /**
+     * 个人标记使 [from, to) 内的非工作日增加的数量：基础日历中是工作日的个人休息日，减去基础日历中是非工作日的个人工作日
+     */
+    long delta(long from, long to) {
+        long start = Math.max(from, Integer.MIN_VALUE);
+        long end = Math.min(to, Integer.MAX_VALUE + 1L);
+        return count(dayOffMap, false, start, end) - count(workdayMap, true, start, end);
+    }
+
+    /**
+     * 返回位图在 [from, to) 内、基础日历中是否为非工作日与 dayOff 相同的元素数量
+     */
+    private long count(RoaringBitmap bitmap, boolean dayOff, long from, long to) {
+        if (from >= to || bitmap.isEmpty()) {
+            return 0L;
+        }
+        // 按有符号整数的顺序遍历，区间可以跨越 1970-01-01
+        PeekableIntIterator iterator = bitmap.getSignedIntIterator();
+        iterator.advanceIfNeeded((int) from);
+        long count = 0L;
+        while (iterator.hasNext() && iterator.peekNext() < to) {
+            if (base.contains(iterator.next()) == dayOff) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long next(int pos) {
+        long candidate = base.next(pos);
+        // 跳过个人的工作日
+        while (candidate != NOT_FOUND && workdayMap.contains((int) candidate)) {
+            candidate = candidate < Integer.MAX_VALUE ? base.next((int) candidate + 1) : NOT_FOUND;
+        }
+        long dayOff = SignedBitmaps.next(dayOffMap, pos);
+        if (candidate == NOT_FOUND) {
+            return dayOff;
+        }
+        return dayOff == NOT_FOUND ? candidate : Math.min(candidate, dayOff);
+    }
+
+    @Override
+    public long nextAbsent(int pos) {
+        long candidate = pos;
+        while (candidate != NOT_FOUND) {
+            int current = (int) candidate;
+            if (dayOffMap.contains(current)) {
+                // 一次跳过连续的个人休息日
+                candidate = SignedBitmaps.nextAbsent(dayOffMap, current);
+                continue;
+            }
+            long absent = base.nextAbsent(current);
+            long workday = SignedBitmaps.next(workdayMap, current);
+            if (workday != NOT_FOUND && (absent == NOT_FOUND || workday <= absent)) {
+                return workday;
+            }
+            if (absent == NOT_FOUND || !dayOffMap.contains((int) absent)) {
+                return absent;
+            }
+            candidate = absent;
+        }
+        return NOT_FOUND;
+    }
+
+    @Override
+    public long previous(int pos) {
+        long candidate = base.previous(pos);
+        // 跳过个人的工作日
+        while (candidate != NOT_FOUND && workdayMap.contains((int) candidate)) {
+            candidate = candidate > Integer.MIN_VALUE ? base.previous((int) candidate - 1) : NOT_FOUND;
+        }
+        // NOT_FOUND 小于任何日期
+        return Math.max(candidate, SignedBitmaps.previous(dayOffMap, pos));
+    }
+
+    @Override
+    public long previousAbsent(int pos) {
+        long candidate = pos;
+        while (candidate != NOT_FOUND) {
+            int current = (int) candidate;
+            if (dayOffMap.contains(current)) {
+                // 一次跳过连续的个人休息日
+                candidate = SignedBitmaps.previousAbsent(dayOffMap, current);
+                continue;
+            }
+            long absent = base.previousAbsent(current);
+            long workday = SignedBitmaps.previous(workdayMap, current);
+            if (workday != NOT_FOUND && workday >= absent) {
+                return workday;
+            }
+            if (absent == NOT_FOUND || !dayOffMap.contains((int) absent)) {
+                return absent;
+            }
+            candidate = absent;
+        }
+        return NOT_FOUND;
+    }
+}
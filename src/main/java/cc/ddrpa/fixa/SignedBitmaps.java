@@ -0,0 +1,99 @@
+package cc.ddrpa.fixa;
+
+import org.roaringbitmap.ImmutableBitmapDataProvider;
+
+/**
+ * 按有符号整数的顺序查询位图
+ * <p>
+ * 位图按无符号整数排列，1970 年之前的日期（负数的 epoch day）位于所有非负数之后。
+ * 这里的查询把位图视为有符号整数的集合：区间可以跨越 1970-01-01，查找的结果按有符号整数比较，
+ * 找不到时返回 {@link DaySet#NOT_FOUND}。
+ */
+final class SignedBitmaps {
+
+    // 负数在位图中的起点，即 Integer.MIN_VALUE 作为无符号整数的值
+    private static final long NEGATIVE_START = 1L << 31;
+    private static final long UNSIGNED_END = 1L << 32;
+
+    private SignedBitmaps() {
+    }
+
+    /**
+     * 返回 [from, to) 内的元素数量
+     */
+    static long count(ImmutableBitmapDataProvider bitmap, long from, long to) {
+        long start = Math.max(from, Integer.MIN_VALUE);
+        long end = Math.min(to, Integer.MAX_VALUE + 1L);
+        if (start >= end) {
+            return 0L;
+        }
+        if (start >= 0) {
+            return bitmap.rangeCardinality(start, end);
+        }
+        if (end <= 0) {
+            return bitmap.rangeCardinality(start + UNSIGNED_END, end + UNSIGNED_END);
+        }
+        return bitmap.rangeCardinality(start + UNSIGNED_END, UNSIGNED_END) + bitmap.rangeCardinality(0L, end);
+    }
+
+    /**
+     * 返回大于等于 pos 的第一个元素
+     */
+    static long next(ImmutableBitmapDataProvider bitmap, int pos) {
+        long value = bitmap.nextValue(pos);
+        if (pos < 0) {
+            if (value >= 0) {
+                return (int) value;
+            }
+            // 负数中没有，继续在非负数中查找
+            value = bitmap.nextValue(0);
+        }
+        return value < 0 || value >= NEGATIVE_START ? DaySet.NOT_FOUND : value;
+    }
+
+    /**
+     * 返回大于等于 pos 的第一个不在位图中的值
+     */
+    static long nextAbsent(ImmutableBitmapDataProvider bitmap, int pos) {
+        long value = bitmap.nextAbsentValue(pos);
+        if (pos < 0) {
+            if (value >= 0) {
+                return (int) value;
+            }
+            value = bitmap.nextAbsentValue(0);
+        }
+        return value < 0 || value >= NEGATIVE_START ? DaySet.NOT_FOUND : value;
+    }
+
+    /**
+     * 返回小于等于 pos 的最后一个元素
+     */
+    static long previous(ImmutableBitmapDataProvider bitmap, int pos) {
+        long value = bitmap.previousValue(pos);
+        if (pos >= 0) {
+            if (value >= 0) {
+                return value;
+            }
+            // 非负数中没有，继续在负数中查找
+            value = bitmap.previousValue(-1);
+        }
+        return value < NEGATIVE_START ? DaySet.NOT_FOUND : (int) value;
+    }
+
+    /**
+     * 返回小于等于 pos 的最后一个不在位图中的值
+     */
+    static long previousAbsent(ImmutableBitmapDataProvider bitmap, int pos) {
+        long value;
+        if (pos >= 0) {
+            // [0, pos] 全部在位图中时直接到负数中查找，RoaringBitmap 在这种情况下会触发断言
+            if (bitmap.rangeCardinality(0L, pos + 1L) <= pos) {
+                return bitmap.previousAbsentValue(pos);
+            }
+            value = bitmap.previousAbsentValue(-1);
+        } else {
+            value = bitmap.previousAbsentValue(pos);
+        }
+        return value < NEGATIVE_START ? DaySet.NOT_FOUND : (int) value;
+    }
+}
@@ -0,0 +1,101 @@
+package cc.ddrpa.fixa;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch evaluation of netWorkdays / workday over epoch-day arrays.
+ * <p>
+ * 批量计算 netWorkdays / workday。所有行共用同一个快照；行数较多时使用快照的工作日索引，
+ * 每行只需查表，并按 {@link #LEAF_SIZE} 拆分后交给 {@link ForkJoinPool#commonPool()} 并行计算。
+ */
+final class WorkdayBatch extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    // 单个任务处理的最大行数，更少的行直接在调用线程中计算
+    static final int LEAF_SIZE = 1 << 14;
+
+    private final boolean netWorkdays;
+    private final DaySet dayOffs;
+    // 为 null 时按区间计数计算
+    private final WorkdayIndex index;
+    private final int[] first;
+    private final int[] second;
+    private final int[] results;
+    private final int from;
+    private final int to;
+
+    private WorkdayBatch(boolean netWorkdays, DaySet dayOffs, WorkdayIndex index,
+                         int[] first, int[] second, int[] results, int from, int to) {
+        this.netWorkdays = netWorkdays;
+        this.dayOffs = dayOffs;
+        this.index = index;
+        this.first = first;
+        this.second = second;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * results[i] 为 [startEpochDays[i], endEpochDays[i]] 内的工作日数量
+     */
+    static void netWorkdays(DaySet dayOffs, WorkdayIndex index,
+                            int[] startEpochDays, int[] endEpochDays, int[] results) {
+        run(new WorkdayBatch(true, dayOffs, index, startEpochDays, endEpochDays, results, 0, results.length));
+    }
+
+    /**
+     * results[i] 为 startEpochDays[i] 之后的第 durations[i] 个工作日
+     */
+    static void workday(DaySet dayOffs, WorkdayIndex index,
+                        int[] startEpochDays, int[] durations, int[] results) {
+        run(new WorkdayBatch(false, dayOffs, index, startEpochDays, durations, results, 0, results.length));
+    }
+
+    private static void run(WorkdayBatch batch) {
+        if (batch.to - batch.from <= LEAF_SIZE) {
+            batch.sweep();
+        } else {
+            ForkJoinPool.commonPool().invoke(batch);
+        }
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= LEAF_SIZE) {
+            sweep();
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new WorkdayBatch(netWorkdays, dayOffs, index, first, second, results, from, middle),
+                new WorkdayBatch(netWorkdays, dayOffs, index, first, second, results, middle, to));
+    }
+
+    private void sweep() {
+        if (netWorkdays) {
+            for (int i = from; i < to; i++) {
+                long startPos = first[i];
+                long endPos = second[i] + 1L;
+                if (startPos >= endPos) {
+                    throw new IllegalArgumentException("StartDate should be before endDate");
+                }
+                results[i] = Math.toIntExact(index != null
+                        ? index.rank(endPos) - index.rank(startPos)
+                        : endPos - startPos - dayOffs.count(startPos, endPos));
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                long startPos = first[i];
+                int length = second[i];
+                if (length < 0) {
+                    throw new IllegalArgumentException("Negative duration is not supported right now.");
+                }
+                results[i] = Math.toIntExact(index != null && length > 0
+                        ? index.select(index.rank(startPos + 1) + length - 1)
+                        : FixaCalendar.workdayPos(dayOffs, startPos, length, FixaMetrics.NONE));
+            }
+        }
+    }
+}
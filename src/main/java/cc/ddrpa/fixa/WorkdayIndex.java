@@ -0,0 +1,107 @@
+package cc.ddrpa.fixa;
+
+/**
+ * Precomputed rank/select index over the workdays of a calendar.
+ * <p>
+ * 预先计算的工作日排名（rank）/选择（select）索引
+ * <p>
+ * 索引以查表的方式覆盖存储了节假日、调休数据的区间（见 {@link FixaSnapshot#dataSpan()}），
+ * 区间之外的非工作日完全由周末规则决定，可以直接用算术求出。
+ * <ul>
+ *     <li>{@link #rank(long)} 返回给定日期之前（不含）的工作日序号，不同日期的序号相减即为区间内的工作日数量</li>
+ *     <li>{@link #select(long)} 返回序号为 k 的工作日</li>
+ * </ul>
+ * 索引一经创建即不可变，与创建它的快照一同替换。
+ */
+final class WorkdayIndex {
+
+    // 索引覆盖的区间 [lowerBound, upperBound)
+    private final long lowerBound;
+    private final long upperBound;
+    // rankTable[i] 为 [lowerBound, lowerBound + i) 内的工作日数量
+    private final int[] rankTable;
+    // selectTable[k] 为区间内第 k 个工作日（从 0 开始）
+    private final int[] selectTable;
+    // 区间之外的周末规则
+    private final FixaWeekendRule outerRule;
+
+    private WorkdayIndex(long lowerBound, long upperBound, int[] rankTable, int[] selectTable,
+                         FixaWeekendRule outerRule) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.rankTable = rankTable;
+        this.selectTable = selectTable;
+        this.outerRule = outerRule;
+    }
+
+    /**
+     * Build an index from the given snapshot
+     * <p>
+     * 根据快照创建索引
+     *
+     * @param snapshot calendar snapshot
+     * @return the index
+     */
+    static WorkdayIndex of(FixaSnapshot snapshot) {
+        // 有界的周末规则在其生效区间之外没有周末，而生效区间已包含在索引区间内
+        FixaWeekendRule outerRule = snapshot.weekendRule.isBounded()
+                ? FixaWeekendRule.none()
+                : snapshot.weekendRule;
+        long[] span = snapshot.dataSpan();
+        if (span == null) {
+            return new WorkdayIndex(0, 0, new int[]{0}, new int[0], outerRule);
+        }
+        int lowerBound = Math.toIntExact(span[0]);
+        int upperBound = Math.toIntExact(span[1]);
+        int length = upperBound - lowerBound;
+        int[] rankTable = new int[length + 1];
+        int[] selectTable = new int[length - (int) snapshot.dayOffs.count(lowerBound, upperBound)];
+        int workdays = 0;
+        for (int i = 0; i < length; i++) {
+            int pos = lowerBound + i;
+            rankTable[i] = workdays;
+            if (!snapshot.dayOffs.contains(pos)) {
+                selectTable[workdays++] = pos;
+            }
+        }
+        rankTable[length] = workdays;
+        return new WorkdayIndex(lowerBound, upperBound, rankTable, selectTable, outerRule);
+    }
+
+    /**
+     * Returns the number of workdays before given position, relative to the start of the index
+     * <p>
+     * 返回给定日期之前（不含）的工作日序号，序号以索引起始位置为 0，在此之前的日期序号为负数
+     *
+     * @param pos epoch day
+     * @return rank of the position
+     */
+    long rank(long pos) {
+        if (pos <= lowerBound) {
+            return -(lowerBound - pos - outerRule.periodicCount(pos, lowerBound));
+        }
+        if (pos >= upperBound) {
+            return rankTable[rankTable.length - 1]
+                    + (pos - upperBound - outerRule.periodicCount(upperBound, pos));
+        }
+        return rankTable[(int) (pos - lowerBound)];
+    }
+
+    /**
+     * Returns the workday whose rank is k
+     * <p>
+     * 返回序号为 k 的工作日，即满足 {@code rank(d) == k} 的工作日 d
+     *
+     * @param k rank of the workday
+     * @return epoch day
+     */
+    long select(long k) {
+        if (k < 0) {
+            return outerRule.periodicWorkdayBefore(lowerBound, -k);
+        }
+        if (k >= selectTable.length) {
+            return outerRule.periodicWorkdayAfter(upperBound, k - selectTable.length);
+        }
+        return selectTable[(int) k];
+    }
+}
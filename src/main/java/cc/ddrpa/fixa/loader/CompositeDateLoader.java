@@ -0,0 +1,193 @@
+package cc.ddrpa.fixa.loader;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * 组合多个数据源的加载器，例如全国节假日、省级补充规定和公司自定义安排
+ * <p>
+ * 所有子加载器同时开始加载，各自写入由 {@link FixaCalendar#createLayer()} 创建的图层，全部完成后通过
+ * {@link FixaCalendar#mergeLayers(List)} 一次性合并。子加载器按优先级从低到高排列，
+ * 同一日期被多个数据源标记时以靠后的数据源为准。
+ * <p>
+ * {@link #update(int, FixaCalendar)} 和 {@link #loadYear(int, FixaCalendar)} 同样并行地更新所有图层，合并后整年替换该年份的数据；
+ * {@link #isOutdated()} 在任一子加载器过期时返回 true。
+ * 任一子加载器失败时，等待其余子加载器结束后抛出异常，日历保持原有数据。
+ */
+public class CompositeDateLoader implements IFixaDateLoader {
+
+    // 为每个子加载器启动一个守护线程，加载通常是阻塞的网络或文件读写，不适合放在公共线程池中
+    private static final Executor THREAD_PER_LOADER = runnable -> {
+        Thread thread = new Thread(runnable, "fixa-composite-loader");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private final List<IFixaDateLoader> loaders;
+    private final Executor executor;
+    // 各日历实例中每个子加载器对应的图层，load 时创建。同一个组合加载器可以注册到多个日历，
+    // 以弱引用持有日历实例，不会阻止日历被回收
+    private final Map<FixaCalendar, List<FixaCalendar>> layers = new WeakHashMap<>();
+
+    /**
+     * 创建组合加载器
+     *
+     * @param loaders 子加载器，按优先级从低到高排列
+     */
+    public CompositeDateLoader(IFixaDateLoader... loaders) {
+        this(List.of(loaders));
+    }
+
+    /**
+     * 创建组合加载器
+     *
+     * @param loaders 子加载器，按优先级从低到高排列
+     */
+    public CompositeDateLoader(List<IFixaDateLoader> loaders) {
+        this(loaders, THREAD_PER_LOADER);
+    }
+
+    /**
+     * 创建组合加载器，在给定的线程池中运行子加载器
+     *
+     * @param loaders  子加载器，按优先级从低到高排列
+     * @param executor 运行子加载器的线程池，第一个子加载器始终在调用线程中运行
+     */
+    public CompositeDateLoader(List<IFixaDateLoader> loaders, Executor executor) {
+        if (loaders.isEmpty()) {
+            throw new IllegalArgumentException("At least one loader is required.");
+        }
+        this.loaders = List.copyOf(loaders);
+        this.executor = Objects.requireNonNull(executor, "Executor cannot be null.");
+    }
+
+    @Override
+    public boolean load(FixaCalendar calendarInstance) {
+        List<FixaCalendar> created = createLayers(calendarInstance);
+        boolean result = fanOut(created, IFixaDateLoader::load);
+        synchronized (layers) {
+            layers.put(calendarInstance, created);
+        }
+        calendarInstance.mergeLayers(created);
+        return result;
+    }
+
+    @Override
+    public boolean update(int year, FixaCalendar calendarInstance) {
+        List<FixaCalendar> current;
+        synchronized (layers) {
+            current = layers.get(calendarInstance);
+        }
+        if (current == null) {
+            return load(calendarInstance);
+        }
+        boolean result = fanOut(current, (loader, layer) -> loader.update(year, layer));
+        replaceYear(year, current, calendarInstance);
+        return result;
+    }
+
+    @Override
+    public boolean loadYear(int year, FixaCalendar calendarInstance) {
+        List<FixaCalendar> current;
+        synchronized (layers) {
+            current = layers.computeIfAbsent(calendarInstance, this::createLayers);
+        }
+        boolean result = fanOut(current, (loader, layer) -> loader.loadYear(year, layer));
+        replaceYear(year, current, calendarInstance);
+        return result;
+    }
+
+    @Override
+    public boolean isOutdated() {
+        return loaders.stream().anyMatch(IFixaDateLoader::isOutdated);
+    }
+
+    /**
+     * 所有子加载器的数据源版本，任一子加载器无法判断时返回 null
+     */
+    @Override
+    public String source() {
+        List<String> sources = new ArrayList<>(loaders.size());
+        for (IFixaDateLoader loader : loaders) {
+            String source = loader.source();
+            if (source == null) {
+                return null;
+            }
+            sources.add(source);
+        }
+        return sources.stream().collect(Collectors.joining("|", "composite[", "]"));
+    }
+
+    public List<IFixaDateLoader> getLoaders() {
+        return loaders;
+    }
+
+    private List<FixaCalendar> createLayers(FixaCalendar calendarInstance) {
+        List<FixaCalendar> created = new ArrayList<>(loaders.size());
+        for (int i = 0; i < loaders.size(); i++) {
+            created.add(calendarInstance.createLayer());
+        }
+        return created;
+    }
+
+    /**
+     * 合并所有图层后整年替换，子加载器撤销的日期也会从日历中移除
+     */
+    private static void replaceYear(int year, List<FixaCalendar> current, FixaCalendar calendarInstance) {
+        FixaCalendar merged = calendarInstance.createLayer();
+        merged.mergeLayers(current);
+        calendarInstance.replaceYear(year, merged);
+    }
+
+    /**
+     * 在各自的图层上同时运行所有子加载器，全部结束后返回
+     */
+    private boolean fanOut(List<FixaCalendar> targets, BiPredicate<IFixaDateLoader, FixaCalendar> action) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(loaders.size());
+        for (int i = 1; i < loaders.size(); i++) {
+            IFixaDateLoader loader = loaders.get(i);
+            FixaCalendar target = targets.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> action.test(loader, target), executor));
+        }
+        boolean result = true;
+        Throwable failure = null;
+        try {
+            result = action.test(loaders.get(0), targets.get(0));
+        } catch (Throwable e) {
+            // 包括 Error，同样等待其余子加载器结束后再抛出
+            failure = e;
+        }
+        for (CompletableFuture<Boolean> future : futures) {
+            try {
+                result &= future.join();
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new FixaCalendarException("Failed to load calendar", failure);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,276 @@
+package cc.ddrpa.fixa.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 流式读取 <a href="https://github.com/NateScarlet/holiday-cn">NateScarlet/holiday-cn</a> 格式的 JSON 文件
+ * <p>
+ * 文件形如 {@code {"year": 2024, "papers": [...], "days": [{"name": "元旦", "date": "2024-01-01", "isOffDay": true}, ...]}}。
+ * 逐个字符读取，只提取 days 数组中每一项的 name、date 和 isOffDay，其余的键和值直接跳过，不构建任何对象。
+ */
+final class HolidayJsonScanner {
+
+    /**
+     * 接收扫描到的日期
+     */
+    interface DayVisitor {
+
+        /**
+         * @param epochDay 日期的 epoch day
+         * @param offDay   true 表示休息，false 表示调休上班
+         * @param name     节日名称，可能为 null
+         */
+        void visit(long epochDay, boolean offDay, String name);
+    }
+
+    private final Reader reader;
+    private final StringBuilder buffer = new StringBuilder(32);
+    // 预读的一个字符，-2 表示没有
+    private int peeked = -2;
+
+    private HolidayJsonScanner(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, 1 << 14);
+    }
+
+    /**
+     * 扫描 days 数组中的所有日期，缺少 date 或 isOffDay 的项会被忽略
+     *
+     * @param reader  JSON 文件内容
+     * @param visitor 日期处理方法
+     * @throws IOException 读取失败或 JSON 格式错误
+     */
+    static void scan(Reader reader, DayVisitor visitor) throws IOException {
+        HolidayJsonScanner scanner = new HolidayJsonScanner(reader);
+        scanner.expect('{');
+        if (scanner.consume('}')) {
+            return;
+        }
+        do {
+            String key = scanner.readKey();
+            if ("days".equals(key)) {
+                scanner.scanDays(visitor);
+            } else {
+                scanner.skipValue();
+            }
+        } while (scanner.consume(','));
+        scanner.expect('}');
+    }
+
+    private void scanDays(DayVisitor visitor) throws IOException {
+        expect('[');
+        if (consume(']')) {
+            return;
+        }
+        do {
+            expect('{');
+            String date = null;
+            String name = null;
+            Boolean offDay = null;
+            if (!consume('}')) {
+                do {
+                    String key = readKey();
+                    if ("date".equals(key)) {
+                        date = readStringValue();
+                    } else if ("name".equals(key)) {
+                        name = readStringValue();
+                    } else if ("isOffDay".equals(key)) {
+                        offDay = readBooleanValue();
+                    } else {
+                        skipValue();
+                    }
+                } while (consume(','));
+                expect('}');
+            }
+            if (date != null && offDay != null) {
+                try {
+                    visitor.visit(LocalDate.parse(date).toEpochDay(), offDay, name);
+                } catch (DateTimeParseException e) {
+                    throw new IOException("Invalid date " + date, e);
+                }
+            }
+        } while (consume(','));
+        expect(']');
+    }
+
+    private String readKey() throws IOException {
+        String key = readStringValue();
+        expect(':');
+        return key;
+    }
+
+    private String readStringValue() throws IOException {
+        expect('"');
+        buffer.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return buffer.toString();
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        c = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw new IOException("Invalid unicode escape");
+                            }
+                            c = (c << 4) | digit;
+                        }
+                        break;
+                    default:
+                        // \" \\ \/ 原样保留
+                        break;
+                }
+            }
+            buffer.append((char) c);
+        }
+    }
+
+    private boolean readBooleanValue() throws IOException {
+        int c = nextToken();
+        if (c == 't') {
+            readLiteral("true");
+            return true;
+        } else if (c == 'f') {
+            readLiteral("false");
+            return false;
+        }
+        throw unexpected(c);
+    }
+
+    /**
+     * 跳过一个任意类型的值，嵌套的对象和数组按括号计数跳过
+     */
+    private void skipValue() throws IOException {
+        int c = nextToken();
+        switch (c) {
+            case '"':
+                readStringValue();
+                return;
+            case '{':
+            case '[':
+                skipContainer();
+                return;
+            case 't':
+                readLiteral("true");
+                return;
+            case 'f':
+                readLiteral("false");
+                return;
+            case 'n':
+                readLiteral("null");
+                return;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    read();
+                    while (isNumberPart(peek())) {
+                        read();
+                    }
+                    return;
+                }
+                throw unexpected(c);
+        }
+    }
+
+    private void skipContainer() throws IOException {
+        int depth = 0;
+        do {
+            int c = nextToken();
+            if (c == '"') {
+                readStringValue();
+                continue;
+            }
+            read();
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            int c = read();
+            if (c != literal.charAt(i)) {
+                throw unexpected(c);
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = nextToken();
+        if (c != expected) {
+            throw unexpected(c);
+        }
+        read();
+    }
+
+    /**
+     * 下一个非空白字符是 expected 时读取它并返回 true
+     */
+    private boolean consume(char expected) throws IOException {
+        if (nextToken() == expected) {
+            read();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 跳过空白，返回下一个字符但不读取
+     */
+    private int nextToken() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\uFEFF') {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c < 0) {
+            throw new IOException("Unexpected end of JSON");
+        }
+        peeked = -2;
+        return c;
+    }
+
+    private static boolean isNumberPart(int c) {
+        return (c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+    }
+
+    private static IOException unexpected(int c) {
+        return new IOException(c < 0 ? "Unexpected end of JSON" : "Unexpected character '" + (char) c + "' in JSON");
+    }
+}
@@ -0,0 +1,261 @@
+package cc.ddrpa.fixa.loader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+
+/**
+ * 远程文件的本地缓存，供 {@link ICSDateLoader}、{@link NateScarletDateLoader} 共用
+ * <p>
+ * 下载时使用上次记录的 ETag 和 Last-Modified 发送条件请求，并把它们与内容摘要一同保存在 {@code <缓存文件>.meta} 中；
+ * 响应体先写入临时文件，完成后通过重命名替换缓存文件，其他进程不会读到写了一半的文件。
+ */
+final class HttpCacheFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpCacheFile.class);
+
+    // 所有加载器共用一个 HttpClient，复用连接池和线程
+    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
+            .connectTimeout(Duration.of(10, SECONDS))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    // 与缓存文件一同保存的响应头和内容摘要
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+    private static final String CONTENT_HASH = "sha256";
+
+    private final URI uri;
+    private final String accept;
+    private final File cacheFile;
+    private final File validatorFile;
+
+    /**
+     * @param uri       远程文件的 URL
+     * @param accept    请求的 Accept 头
+     * @param cacheFile 本地缓存文件
+     */
+    HttpCacheFile(URI uri, String accept, File cacheFile) {
+        this.uri = uri;
+        this.accept = accept;
+        this.cacheFile = cacheFile;
+        this.validatorFile = new File(cacheFile.getPath() + ".meta");
+    }
+
+    URI uri() {
+        return uri;
+    }
+
+    File file() {
+        return cacheFile;
+    }
+
+    boolean exists() {
+        return cacheFile.exists();
+    }
+
+    /**
+     * 缓存文件不存在，或修改时间早于有效期时返回 true；12 月和 1 月使用较短的有效期，以便及时获取新年节假日
+     */
+    boolean isOutdated(int validDays, int validDaysInDecJan) {
+        if (!cacheFile.exists()) {
+            return true;
+        }
+        LocalDateTime lastUpdateTime = LocalDateTime.ofEpochSecond(cacheFile.lastModified() / 1000L, 0,
+                ZoneOffset.ofHours(8));
+        LocalDateTime now = LocalDateTime.now();
+        if (now.getMonth().getValue() == 1 || now.getMonth().getValue() == 12) {
+            return now.minusDays(validDaysInDecJan).isAfter(lastUpdateTime);
+        }
+        return now.minusDays(validDays).isAfter(lastUpdateTime);
+    }
+
+    /**
+     * 最近一次下载记录的内容摘要，没有记录时返回 null
+     */
+    String contentHash() {
+        return readValidators().getProperty(CONTENT_HASH);
+    }
+
+    /**
+     * 以 URL 和文件内容的 SHA-256 作为数据源版本；没有记录内容摘要时使用缓存文件的修改时间和大小，
+     * 缓存文件不存在时返回 null
+     */
+    String source() {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        String hash = contentHash();
+        if (Objects.nonNull(hash)) {
+            return uri + "#" + hash;
+        }
+        return uri + "#" + cacheFile.lastModified() + ":" + cacheFile.length();
+    }
+
+    /**
+     * 下载并替换缓存文件。服务端返回 304 或内容摘要不变时只刷新缓存文件的修改时间
+     *
+     * @throws FileNotFoundException 服务端返回 404，原有缓存文件保持不变
+     * @throws IOException          下载失败，原有缓存文件保持不变
+     * @throws InterruptedException 下载被中断
+     */
+    void download() throws IOException, InterruptedException {
+        Properties validators = readValidators();
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .GET()
+                .header("Accept", accept)
+                .header("Accept-Language", "en-US,en;q=0.5")
+                .header("User-Agent",
+                        "Mozilla/5.0 (compatible; FixaCalendar/1.0)")
+                .header("Accept-Encoding", "gzip, deflate")
+                .timeout(Duration.of(10, SECONDS));
+        if (cacheFile.exists()) {
+            String etag = validators.getProperty(ETAG);
+            if (Objects.nonNull(etag)) {
+                builder.header("If-None-Match", etag);
+            }
+            String lastModified = validators.getProperty(LAST_MODIFIED);
+            if (Objects.nonNull(lastModified)) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+        }
+        HttpResponse<InputStream> response = HTTP_CLIENT.send(builder.build(), BodyHandlers.ofInputStream());
+        int statusCode = response.statusCode();
+        if (statusCode == 304 && cacheFile.exists()) {
+            response.body().close();
+            logger.debug("{} is not modified", uri);
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return;
+        }
+        if (statusCode == 404) {
+            response.body().close();
+            throw new FileNotFoundException("Not found: " + uri);
+        }
+        if (statusCode < 200 || statusCode >= 300) {
+            response.body().close();
+            throw new IOException("Unexpected status code " + statusCode + " from " + uri);
+        }
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        Path tempFile = Files.createTempFile(directory.toPath(), cacheFile.getName(), ".tmp");
+        MessageDigest digest = sha256();
+        try {
+            try (InputStream is = new DigestInputStream(decode(response.body(), encoding), digest);
+                 OutputStream os = Files.newOutputStream(tempFile)) {
+                is.transferTo(os);
+            }
+            String hash = toHex(digest.digest());
+            if (cacheFile.exists() && hash.equals(validators.getProperty(CONTENT_HASH))) {
+                logger.debug("{} is not modified", uri);
+                Files.delete(tempFile);
+                cacheFile.setLastModified(System.currentTimeMillis());
+            } else {
+                Files.move(tempFile, cacheFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            validators.setProperty(CONTENT_HASH, hash);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        setOrRemove(validators, ETAG, response.headers().firstValue("ETag").orElse(null));
+        setOrRemove(validators, LAST_MODIFIED, response.headers().firstValue("Last-Modified").orElse(null));
+        writeValidators(validators);
+    }
+
+    /**
+     * 打开缓存文件，读取时计算内容摘要
+     */
+    DigestInputStream open() throws IOException {
+        return new DigestInputStream(new FileInputStream(cacheFile), sha256());
+    }
+
+    private static InputStream decode(InputStream is, String encoding) throws IOException {
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(is);
+        } else if ("deflate".equalsIgnoreCase(encoding)) {
+            return new InflaterInputStream(is);
+        }
+        return is;
+    }
+
+    /**
+     * 读取与缓存文件一同保存的 ETag、Last-Modified 和内容摘要
+     */
+    private Properties readValidators() {
+        Properties validators = new Properties();
+        if (validatorFile.exists()) {
+            try (InputStream is = new FileInputStream(validatorFile)) {
+                validators.load(is);
+            } catch (IOException e) {
+                logger.warn("Failed to read {}", validatorFile, e);
+            }
+        }
+        return validators;
+    }
+
+    private void writeValidators(Properties validators) throws IOException {
+        File directory = validatorFile.getAbsoluteFile().getParentFile();
+        Path tempFile = Files.createTempFile(directory.toPath(), validatorFile.getName(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tempFile)) {
+                validators.store(os, uri.toString());
+            }
+            Files.move(tempFile, validatorFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void setOrRemove(Properties properties, String key, String value) {
+        if (Objects.isNull(value)) {
+            properties.remove(key);
+        } else {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // 所有 Java 平台都必须支持 SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16))
+                    .append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
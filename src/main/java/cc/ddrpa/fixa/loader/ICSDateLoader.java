@@ -1,31 +1,23 @@
 package cc.ddrpa.fixa.loader;
 
-import biweekly.Biweekly;
-import biweekly.component.VEvent;
 import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarEditor;
 import cc.ddrpa.fixa.FixaCalendarException;
+import cc.ddrpa.fixa.FixaMetricsListener;
+import cc.ddrpa.fixa.FixaYearChanges;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.List;
-import java.util.ListIterator;
-import java.util.Objects;
+import java.util.Arrays;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.InflaterInputStream;
-
-import static java.time.temporal.ChronoUnit.SECONDS;
 
 /**
  * ICS 日历文件加载器，支持从 URL 或本地文件加载 ICS 格式的日历数据
@@ -34,12 +26,15 @@ public class ICSDateLoader implements IFixaDateLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(ICSDateLoader.class);
 
+    private static final String LOADER_NAME = "ICSDateLoader";
     private static final int SECONDS_IN_DAY = 24 * 60 * 60;
 
     private final URI calendarURI;
-    private final File cacheFile;
+    private final HttpCacheFile cache;
     private final int cacheValidDays;
     private final int cacheValidDaysInDecJan;
+    // 各日历实例 load 时处理的文件内容摘要，以及此后各年度 update 时处理的文件内容摘要
+    private final ProcessedHashes processedHashes = new ProcessedHashes();
 
     /**
      * 创建 ICS 日历加载器
@@ -51,7 +46,7 @@ public class ICSDateLoader implements IFixaDateLoader {
      */
     public ICSDateLoader(URI calendarURI, String cacheFileName, int cacheValidDays, int cacheValidDaysInDecJan) {
         this.calendarURI = calendarURI;
-        this.cacheFile = new File(cacheFileName);
+        this.cache = new HttpCacheFile(calendarURI, "text/calendar; charset=UTF-8", new File(cacheFileName));
         this.cacheValidDays = cacheValidDays;
         this.cacheValidDaysInDecJan = cacheValidDaysInDecJan;
     }
@@ -68,122 +63,114 @@ public class ICSDateLoader implements IFixaDateLoader {
 
     @Override
     public boolean load(FixaCalendar calendarInstance) {
-        if (!cacheFile.exists()) {
-            try {
-                downloadFile();
-            } catch (IOException | InterruptedException e) {
-                throw new FixaCalendarException("Failed to download ics file", e);
-            }
-        }
-        try (FileInputStream fis = new FileInputStream(cacheFile)) {
+        downloadIfMissing(calendarInstance);
+        MessageDigest digest;
+        try (DigestInputStream is = cache.open()) {
             // 不按日期过滤
-            process((ts) -> false, (ts, te) -> false, calendarInstance, fis);
+            process((startDay, endDay) -> false, calendarInstance, is);
+            digest = is.getMessageDigest();
         } catch (IOException e) {
             throw new FixaCalendarException("Failed to read ics file", e);
         }
+        // 数据发布后才记录，加载失败时下次仍会重新解析
+        String hash = HttpCacheFile.toHex(digest.digest());
+        calendarInstance.afterPublish(() -> processedHashes.loaded(calendarInstance, hash));
         return true;
     }
 
     @Override
     public boolean update(int year, FixaCalendar calendarInstance) {
+        long start = System.nanoTime();
         updateFile();
-        // 计算指定年度的 EpochSecond 上下限
-        // 开始时间是指定年份的 1 月 1 日 0 时 0 分 0 秒
-        long startEpoch = LocalDate.ofYearDay(year, 1)
-                .atStartOfDay(ZoneOffset.ofHours(8))
-                .toInstant()
-                .toEpochMilli() / 1000L;
-        // 结束时间是指定年份的 12 月 31 日 23 时 59 分 59 秒
-        long endEpoch = LocalDate.ofYearDay(year + 1, 1)
-                .atStartOfDay(ZoneOffset.ofHours(8))
-                .toInstant()
-                .toEpochMilli() / 1000L - 1L;
-        // 过滤掉不在指定年度内的单日日历事件
-        Function<Long, Boolean> singleDayEventFilter = (ts) -> ts < startEpoch || ts > endEpoch;
-        // 过滤掉与指定年度无交集的多日日历事件
-        BiFunction<Long, Long, Boolean> multiDayEventFilter = (ts, te) -> te < startEpoch
-                || ts > endEpoch;
-        try (FileInputStream fis = new FileInputStream(cacheFile)) {
-            process(singleDayEventFilter, multiDayEventFilter, calendarInstance, fis);
+        calendarInstance.getMetricsListener().onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_DOWNLOAD,
+                System.nanoTime() - start, 0);
+        // 文件内容与该日历上次处理该年度时相同，无需重新解析
+        String hash = cache.contentHash();
+        if (processedHashes.isProcessed(calendarInstance, year, hash)) {
+            logger.debug("Calendar {} is not modified, skip updating year {}", calendarURI, year);
+            return true;
+        }
+        // 先将该年度的事件写入单独的图层，再整年替换，数据源中撤销的节假日、调休也会被移除
+        FixaCalendar layer = calendarInstance.createLayer();
+        try (FileInputStream fis = new FileInputStream(cache.file())) {
+            process(yearFilter(year), layer, fis);
         } catch (IOException e) {
             throw new FixaCalendarException("Failed to read ics file", e);
         }
+        FixaYearChanges changes = calendarInstance.replaceYear(year, layer);
+        logger.debug("Updated year {} from {}: {}", year, calendarURI, changes);
+        // 同一次刷新中的其他年份失败时该年份的修改被丢弃，因此在数据发布后才记录
+        calendarInstance.afterPublish(() -> processedHashes.processed(calendarInstance, year, hash));
+        return true;
+    }
+
+    /**
+     * 只将指定年份的事件添加到日历中。缓存文件不存在时先下载，已有缓存时不检查是否过期，与 {@link #load(FixaCalendar)} 相同
+     */
+    @Override
+    public boolean loadYear(int year, FixaCalendar calendarInstance) {
+        downloadIfMissing(calendarInstance);
+        String hash = cache.contentHash();
+        try (FileInputStream fis = new FileInputStream(cache.file())) {
+            process(yearFilter(year), calendarInstance, fis);
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to read ics file", e);
+        }
+        // 数据发布后，该日历更新该年份时文件内容未变化则无需重新解析
+        calendarInstance.afterPublish(() -> processedHashes.processed(calendarInstance, year, hash));
         return true;
     }
 
     @Override
     public boolean isOutdated() {
-        if (!cacheFile.exists()) {
-            return true;
+        return cache.isOutdated(cacheValidDays, cacheValidDaysInDecJan);
+    }
+
+    /**
+     * 以日历 URL 和文件内容的 SHA-256 作为数据源版本；没有记录内容摘要时使用缓存文件的修改时间和大小，
+     * 缓存文件不存在时返回 null
+     */
+    @Override
+    public String source() {
+        return cache.source();
+    }
+
+    private void downloadIfMissing(FixaCalendar calendarInstance) {
+        if (cache.exists()) {
+            return;
         }
-        LocalDateTime lastUpdateTime = LocalDateTime.ofEpochSecond(cacheFile.lastModified() / 1000L, 0,
-                ZoneOffset.ofHours(8));
-        LocalDateTime now = LocalDateTime.now();
-        // 如果当前是 12 月或 1 月，使用较短的缓存有效期
-        if (now.getMonth().getValue() == 1 || now.getMonth().getValue() == 12) {
-            return now.minusDays(cacheValidDaysInDecJan).isAfter(lastUpdateTime);
+        long start = System.nanoTime();
+        try {
+            downloadFile();
+        } catch (IOException | InterruptedException e) {
+            throw new FixaCalendarException("Failed to download ics file", e);
         }
-        return now.minusDays(cacheValidDays).isAfter(lastUpdateTime);
+        calendarInstance.getMetricsListener().onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_DOWNLOAD,
+                System.nanoTime() - start, 0);
     }
 
     /**
-     * 通过替换文件的方式更新日历数据，如果更新失败，则恢复旧文件，更新成功后删除旧文件
+     * 下载并替换缓存文件，下载失败时保留原有文件
      */
     protected synchronized void updateFile() {
-        File backupFile = new File(cacheFile.getName() + ".bak");
-        // 将旧文件重命名
-        if (cacheFile.exists()) {
-            cacheFile.renameTo(backupFile);
-        }
         try {
             downloadFile();
         } catch (IOException | InterruptedException e) {
-            // 恢复旧文件
-            if (backupFile.exists()) {
-                backupFile.renameTo(cacheFile);
-            }
             throw new FixaCalendarException("Failed to download file", e);
         }
-        backupFile.delete();
     }
 
     /**
      * 下载日历数据
+     * <p>
+     * 使用上次下载时记录的 ETag 和 Last-Modified 发送条件请求，服务端返回 304 或内容摘要不变时只刷新缓存文件的修改时间。
+     * 响应体解压后直接写入临时文件，完成后通过重命名替换缓存文件，其他进程不会读到写了一半的文件
      *
      * @throws IOException
      * @throws InterruptedException
      */
     protected void downloadFile() throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(calendarURI)
-                .GET()
-                .header("Accept", "text/calendar; charset=UTF-8")
-                .header("Accept-Language", "en-US,en;q=0.5")
-                .header("User-Agent",
-                        "Mozilla/5.0 (compatible; FixaCalendar/1.0)")
-                .header("Accept-Encoding", "gzip, deflate")
-                .timeout(Duration.of(10, SECONDS))
-                .build();
-        HttpResponse<InputStream> response = HttpClient.newHttpClient()
-                .send(request, BodyHandlers.ofInputStream());
-        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
-        try (FileOutputStream fos = new FileOutputStream(cacheFile);
-             InputStream is = response.body()) {
-            if ("gzip".equalsIgnoreCase(encoding)) {
-                try (GZIPInputStream gis = new GZIPInputStream(is)) {
-                    fos.write(gis.readAllBytes());
-                    fos.flush();
-                }
-            } else if ("deflate".equalsIgnoreCase(encoding)) {
-                try (InflaterInputStream iis = new InflaterInputStream(is)) {
-                    fos.write(iis.readAllBytes());
-                    fos.flush();
-                }
-            } else {
-                fos.write(is.readAllBytes());
-                fos.flush();
-            }
-        }
+        cache.download();
     }
 
     /**
@@ -201,58 +188,126 @@ public class ICSDateLoader implements IFixaDateLoader {
             FixaCalendar calendarInstance,
             InputStream inputStream
     ) throws IOException {
-        List<VEvent> eventList = Biweekly.parse(inputStream).first().getComponents(VEvent.class);
-        // 以倒序遍历，这样更近的日期会先读取，因为更新动作一般只关注明年或今年的数据
-        ListIterator<VEvent> iterator = eventList.listIterator(eventList.size());
-        while (iterator.hasPrevious()) {
-            VEvent event = iterator.previous();
-            // 将日历事件的起始时间转换为秒数时间戳，即该日的 0 时 0 分 0 秒
-            long timeStart = event.getDateStart().getValue().getTime() / 1000L;
-            long timeEnd = -1;
-            boolean isSingleDayEvent;
-            if (Objects.isNull(event.getDateEnd())) {
-                // 单日事件没有 dateEnd
-                if (singleDayEventFilter.apply(timeStart)) {
-                    continue;
-                }
-                isSingleDayEvent = true;
+        // 过滤器以东八区当日 0 时 0 分 0 秒的秒数时间戳为参数
+        process((startDay, endDay) -> endDay == Long.MIN_VALUE
+                        ? singleDayEventFilter.apply(toEpochSecond(startDay))
+                        : multiDayEventFilter.apply(toEpochSecond(startDay), toEpochSecond(endDay)),
+                calendarInstance, inputStream);
+    }
+
+    /**
+     * 流式扫描日历事件，只保留通过过滤的节假日和调休事件，再添加到日历实例
+     *
+     * @param filter           返回 true 的事件会被跳过
+     * @param calendarInstance 日历实例
+     * @param inputStream      ICS 文件输入流
+     * @throws IOException
+     */
+    private void process(EventFilter filter, FixaCalendar calendarInstance, InputStream inputStream)
+            throws IOException {
+        FixaMetricsListener metrics = calendarInstance.getMetricsListener();
+        long start = System.nanoTime();
+        EventBuffer events = new EventBuffer(filter);
+        try {
+            ICSEventScanner.scan(new InputStreamReader(inputStream, StandardCharsets.UTF_8), events);
+        } catch (IllegalArgumentException e) {
+            // 日期格式错误，与其他加载失败一样报告为 FixaCalendarException
+            throw new FixaCalendarException("Failed to read ics file " + calendarURI, e);
+        }
+        long parsed = System.nanoTime();
+        metrics.onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_PARSE, parsed - start, events.size);
+        // 以倒序添加，这样更近的日期会先写入，同一日期上文件中靠前的事件优先
+        FixaCalendarEditor editor = calendarInstance.edit();
+        for (int i = events.size - 1; i >= 0; i--) {
+            LocalDate eventDataStart = LocalDate.ofEpochDay(events.startDays[i]);
+            long endDay = events.endDays[i];
+            LocalDate eventDataEnd = endDay == Long.MIN_VALUE ? eventDataStart : LocalDate.ofEpochDay(endDay);
+            if (events.holidays[i]) {
+                editor.addHolidays(eventDataStart, eventDataEnd);
             } else {
-                // 持续多日的日历事件，会有 dateEnd
-                timeEnd = event.getDateEnd().getValue().getTime() / 1000L - SECONDS_IN_DAY;
-                if (multiDayEventFilter.apply(timeStart, timeEnd)) {
-                    continue;
-                }
-                isSingleDayEvent = false;
+                editor.addFlexibleWorkdays(eventDataStart, eventDataEnd);
+            }
+        }
+        editor.commit();
+        metrics.onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_APPLY, System.nanoTime() - parsed, events.size);
+    }
+
+    /**
+     * 过滤掉不在指定年份内的单日日历事件，以及与指定年份无交集的多日日历事件
+     */
+    private static EventFilter yearFilter(int year) {
+        // 指定年份的 1 月 1 日至 12 月 31 日
+        long firstDay = LocalDate.ofYearDay(year, 1).toEpochDay();
+        long lastDay = LocalDate.ofYearDay(year + 1, 1).toEpochDay() - 1;
+        return (startDay, endDay) -> endDay == Long.MIN_VALUE
+                ? startDay < firstDay || startDay > lastDay
+                : endDay < firstDay || startDay > lastDay;
+    }
+
+    private static long toEpochSecond(long epochDay) {
+        return epochDay * SECONDS_IN_DAY - ZoneOffset.ofHours(8).getTotalSeconds();
+    }
+
+    /**
+     * 按日期过滤日历事件
+     */
+    private interface EventFilter {
+
+        /**
+         * @param startDay 事件开始日期的 epoch day
+         * @param endDay   事件结束日期（包含）的 epoch day，单日事件为 {@link Long#MIN_VALUE}
+         * @return true 表示跳过该事件
+         */
+        boolean skip(long startDay, long endDay);
+    }
+
+    /**
+     * 暂存通过过滤的节假日和调休事件
+     */
+    private static class EventBuffer implements ICSEventScanner.EventVisitor {
+
+        private final EventFilter filter;
+        private long[] startDays = new long[64];
+        private long[] endDays = new long[64];
+        private boolean[] holidays = new boolean[64];
+        private int size = 0;
+
+        EventBuffer(EventFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public void visit(long startDay, long endDay, CharSequence summary) {
+            if (filter.skip(startDay, endDay)) {
+                return;
             }
-            // 获取日历事件名称
-            String summary = event.getSummary().getValue();
             boolean isHolidayEvent;
             // 判断日历事件是否是节假日或调休
-            if (summary.contains("休")) {
+            if (contains(summary, '休')) {
                 isHolidayEvent = true;
-            } else if (summary.contains("班")) {
+            } else if (contains(summary, '班')) {
                 isHolidayEvent = false;
             } else {
-                continue;
+                return;
             }
-            LocalDate eventDataStart = LocalDateTime.ofEpochSecond(timeStart, 0,
-                            ZoneOffset.ofHours(8))
-                    .toLocalDate();
-            if (isSingleDayEvent) {
-                if (isHolidayEvent) {
-                    calendarInstance.addHoliday(eventDataStart);
-                } else {
-                    calendarInstance.addFlexibleWorkday(eventDataStart);
-                }
-            } else {
-                LocalDate eventDataEnd = LocalDateTime.ofEpochSecond(timeEnd, 0,
-                        ZoneOffset.ofHours(8)).toLocalDate();
-                if (isHolidayEvent) {
-                    calendarInstance.addHolidays(eventDataStart, eventDataEnd);
-                } else {
-                    calendarInstance.addFlexibleWorkdays(eventDataStart, eventDataEnd);
+            if (size == startDays.length) {
+                startDays = Arrays.copyOf(startDays, size * 2);
+                endDays = Arrays.copyOf(endDays, size * 2);
+                holidays = Arrays.copyOf(holidays, size * 2);
+            }
+            startDays[size] = startDay;
+            endDays[size] = endDay;
+            holidays[size] = isHolidayEvent;
+            size++;
+        }
+
+        private static boolean contains(CharSequence summary, char c) {
+            for (int i = 0; i < summary.length(); i++) {
+                if (summary.charAt(i) == c) {
+                    return true;
                 }
             }
+            return false;
         }
     }
 }
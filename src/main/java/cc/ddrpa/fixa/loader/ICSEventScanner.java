@@ -0,0 +1,217 @@
+package cc.ddrpa.fixa.loader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * 流式读取 ICS 文件中的 VEVENT
+ * <p>
+ * 逐行读取并展开折行，只提取 DTSTART、DTEND 和 SUMMARY 三个属性，其余属性和组件直接跳过，不构建任何对象。
+ * 日期直接从行缓冲区解析为 epoch day，SUMMARY 复制到复用的缓冲区中，事件结束时一并交给 {@link EventVisitor}，
+ * 由调用方按日期决定是否保留，被跳过的事件不会创建任何字符串。
+ * <p>
+ * 带时间的日期按其时区（UTC 或 TZID，缺省为东八区）换算为东八区的日期，与 {@link ICSDateLoader} 的约定一致。
+ */
+final class ICSEventScanner {
+
+    private static final ZoneOffset DEFAULT_OFFSET = ZoneOffset.ofHours(8);
+
+    /**
+     * 接收扫描到的事件
+     */
+    interface EventVisitor {
+
+        /**
+         * @param startDay 事件开始日期的 epoch day
+         * @param endDay   事件结束日期（包含）的 epoch day，没有 DTEND 时为 {@link Long#MIN_VALUE}
+         * @param summary  事件名称，缓冲区会被下一个事件复用，只在本次调用期间有效
+         */
+        void visit(long startDay, long endDay, CharSequence summary);
+    }
+
+    private ICSEventScanner() {
+    }
+
+    /**
+     * 扫描给定输入中的所有 VEVENT，缺少 DTSTART 或 SUMMARY 的事件会被忽略
+     *
+     * @param reader  ICS 文件内容
+     * @param visitor 事件处理方法
+     * @throws IOException 读取失败
+     */
+    static void scan(Reader reader, EventVisitor visitor) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader
+                ? (BufferedReader) reader
+                : new BufferedReader(reader, 1 << 16);
+        StringBuilder unfolded = new StringBuilder(128);
+        StringBuilder summary = new StringBuilder(64);
+        boolean inEvent = false;
+        // VEVENT 中可能嵌套 VALARM 等组件，其中的同名属性不属于事件本身
+        int nestedDepth = 0;
+        long startDay = 0;
+        long endDay = Long.MIN_VALUE;
+        boolean hasStart = false;
+        boolean hasSummary = false;
+        String line = lines.readLine();
+        while (line != null) {
+            // 以空格或制表符开头的行是上一行的延续
+            unfolded.setLength(0);
+            unfolded.append(line);
+            line = lines.readLine();
+            while (line != null && !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+                unfolded.append(line, 1, line.length());
+                line = lines.readLine();
+            }
+            if (!inEvent) {
+                if (startsWith(unfolded, "BEGIN:VEVENT")) {
+                    inEvent = true;
+                    nestedDepth = 0;
+                    endDay = Long.MIN_VALUE;
+                    hasStart = false;
+                    hasSummary = false;
+                }
+                continue;
+            }
+            if (startsWith(unfolded, "BEGIN:")) {
+                nestedDepth++;
+            } else if (startsWith(unfolded, "END:")) {
+                if (nestedDepth > 0) {
+                    nestedDepth--;
+                    continue;
+                }
+                inEvent = false;
+                if (hasStart && hasSummary) {
+                    visitor.visit(startDay, endDay, summary);
+                }
+            } else if (nestedDepth == 0) {
+                if (isProperty(unfolded, "DTSTART")) {
+                    startDay = toEpochDay(unfolded);
+                    hasStart = true;
+                } else if (isProperty(unfolded, "DTEND")) {
+                    // DTEND 不包含在事件内
+                    endDay = toEpochDay(unfolded) - 1;
+                } else if (isProperty(unfolded, "SUMMARY")) {
+                    summary.setLength(0);
+                    summary.append(unfolded, valueIndex(unfolded), unfolded.length());
+                    hasSummary = true;
+                }
+            }
+        }
+    }
+
+    private static boolean startsWith(CharSequence line, String prefix) {
+        return startsWith(line, 0, prefix);
+    }
+
+    private static boolean startsWith(CharSequence line, int offset, String prefix) {
+        if (line.length() - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toUpperCase(line.charAt(offset + i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 属性名后紧跟参数（;）或值（:）
+     */
+    private static boolean isProperty(CharSequence line, String name) {
+        if (!startsWith(line, name) || line.length() == name.length()) {
+            return false;
+        }
+        char next = line.charAt(name.length());
+        return next == ':' || next == ';';
+    }
+
+    /**
+     * 返回属性值的起始位置，参数中以引号括起的冒号不是分隔符
+     */
+    private static int valueIndex(CharSequence line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ':' && !quoted) {
+                return i + 1;
+            }
+        }
+        return line.length();
+    }
+
+    /**
+     * 将 DTSTART、DTEND 属性转换为东八区的 epoch day，支持 DATE 和 DATE-TIME 两种格式
+     */
+    static long toEpochDay(CharSequence property) {
+        int index = valueIndex(property);
+        // 去掉值前后的空白
+        int start = index;
+        int end = property.length();
+        while (start < end && property.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && property.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start < 8) {
+            throw new IllegalArgumentException("Invalid date: " + property);
+        }
+        try {
+            int year = Integer.parseInt(property, start, start + 4, 10);
+            int month = Integer.parseInt(property, start + 4, start + 6, 10);
+            int day = Integer.parseInt(property, start + 6, start + 8, 10);
+            if (end - start < 15 || property.charAt(start + 8) != 'T') {
+                return LocalDate.of(year, month, day).toEpochDay();
+            }
+            LocalDateTime dateTime = LocalDateTime.of(year, month, day,
+                    Integer.parseInt(property, start + 9, start + 11, 10),
+                    Integer.parseInt(property, start + 11, start + 13, 10),
+                    Integer.parseInt(property, start + 13, start + 15, 10));
+            ZoneId zone;
+            if (property.charAt(end - 1) == 'Z') {
+                zone = ZoneOffset.UTC;
+            } else {
+                zone = timeZone(property, index);
+            }
+            return dateTime.atZone(zone)
+                    .withZoneSameInstant(DEFAULT_OFFSET)
+                    .toLocalDate()
+                    .toEpochDay();
+        } catch (NumberFormatException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid date: " + property, e);
+        }
+    }
+
+    /**
+     * 读取 TZID 参数，无法识别时使用东八区
+     */
+    private static ZoneId timeZone(CharSequence property, int valueIndex) {
+        int start = 0;
+        while (start < valueIndex && !startsWith(property, start, ";TZID=")) {
+            start++;
+        }
+        if (start >= valueIndex) {
+            return DEFAULT_OFFSET;
+        }
+        start += ";TZID=".length();
+        int end = start;
+        while (end < valueIndex - 1 && property.charAt(end) != ';') {
+            end++;
+        }
+        String tzid = property.subSequence(start, end).toString().replace("\"", "");
+        try {
+            return ZoneId.of(tzid);
+        } catch (DateTimeException e) {
+            return DEFAULT_OFFSET;
+        }
+    }
+}
@@ -22,6 +22,16 @@ public interface IFixaDateLoader {
      */
     boolean update(int year, FixaCalendar calendarInstance);
 
+    /**
+     * 加载指定年份的节假日信息，启用 {@link cc.ddrpa.fixa.FixaCalendarBuilder#enableLazyLoading()} 后，
+     * 日历在第一次查询到某一年时调用该方法，每个年份只调用一次；默认实现调用 {@link #update(int, FixaCalendar)}
+     *
+     * @param year
+     * @return
+     */
+    default boolean loadYear(int year, FixaCalendar calendarInstance) {
+        return update(year, calendarInstance);
+    }
 
     /**
      * 判断数据是否过时
@@ -29,4 +39,14 @@ public interface IFixaDateLoader {
      * @return
      */
     boolean isOutdated();
+
+    /**
+     * 描述当前数据源的版本，数据源变化后返回值也应随之变化，
+     * {@link SnapshotDateLoader} 使用该值判断快照是否过期；返回 null 表示无法判断，快照始终可用
+     *
+     * @return
+     */
+    default String source() {
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+package cc.ddrpa.fixa.loader;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarEditor;
+import cc.ddrpa.fixa.FixaCalendarException;
+import cc.ddrpa.fixa.FixaMetricsListener;
+import cc.ddrpa.fixa.FixaYearChanges;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * <a href="https://github.com/NateScarlet/holiday-cn">NateScarlet/holiday-cn</a> 数据加载器
+ * <p>
+ * 该数据源按年份提供 JSON 文件（例如 {@code 2024.json}），每个文件只包含当年的节假日和调休，比包含数十年数据的 ICS 文件小得多。
+ * <ul>
+ *     <li>{@link #load(FixaCalendar)} 只加载构造时指定的年份，{@link #update(int, FixaCalendar)} 只下载、解析指定年份的文件，
+ *     并以整年替换的方式更新，文件中相邻年份的日期与 load 时一样直接添加，数据源尚未发布该年份时返回 false 并保持原有数据；{@link #loadYear(int, FixaCalendar)} 只下载尚未缓存的年份，数据源中没有该年份时不添加任何数据</li>
+ *     <li>每个年份使用单独的缓存文件，缓存和 {@link #isOutdated()} 的规则与 {@link ICSDateLoader} 相同</li>
+ *     <li>流式解析 JSON，不依赖第三方 JSON 库</li>
+ * </ul>
+ */
+public class NateScarletDateLoader implements IFixaDateLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(NateScarletDateLoader.class);
+
+    /**
+     * 默认的数据源地址，年份文件位于其下
+     */
+    public static final URI DEFAULT_BASE_URI = URI.create("https://fastly.jsdelivr.net/gh/NateScarlet/holiday-cn@master/");
+
+    private static final String LOADER_NAME = "NateScarletDateLoader";
+
+    private final URI baseURI;
+    private final File cacheDirectory;
+    private final int cacheValidDays;
+    private final int cacheValidDaysInDecJan;
+    // 已加载或更新过的年份，isOutdated 检查这些年份的缓存文件
+    private final Set<Integer> years = new ConcurrentSkipListSet<>();
+    private final Map<Integer, HttpCacheFile> caches = new ConcurrentHashMap<>();
+    // 各日历实例最近一次处理各年份文件时的内容摘要
+    private final ProcessedHashes processedHashes = new ProcessedHashes();
+
+    /**
+     * 创建加载器
+     *
+     * @param baseURI                数据源地址，年份文件为 {@code <baseURI>/<year>.json}
+     * @param cacheDirectory         缓存文件所在的目录
+     * @param cacheValidDays         缓存有效期（天数）
+     * @param cacheValidDaysInDecJan 12 月和 1 月的缓存有效期（天数），通常设置较短以便及时获取新年节假日
+     * @param years                  load 时加载的年份，为空时加载今年
+     */
+    public NateScarletDateLoader(URI baseURI, String cacheDirectory, int cacheValidDays, int cacheValidDaysInDecJan,
+                                 int... years) {
+        String base = baseURI.toString();
+        this.baseURI = URI.create(base.endsWith("/") ? base : base + "/");
+        this.cacheDirectory = new File(cacheDirectory);
+        this.cacheValidDays = cacheValidDays;
+        this.cacheValidDaysInDecJan = cacheValidDaysInDecJan;
+        if (years.length == 0) {
+            this.years.add(LocalDate.now().getYear());
+        }
+        for (int year : years) {
+            this.years.add(year);
+        }
+    }
+
+    /**
+     * 使用默认数据源地址和缓存策略创建加载器
+     *
+     * @param cacheDirectory 缓存文件所在的目录
+     * @param years          load 时加载的年份，为空时加载今年
+     */
+    public NateScarletDateLoader(String cacheDirectory, int... years) {
+        this(DEFAULT_BASE_URI, cacheDirectory, 300, 2, years);
+    }
+
+    @Override
+    public boolean load(FixaCalendar calendarInstance) {
+        FixaCalendarEditor editor = calendarInstance.edit();
+        int[] events = new int[1];
+        Map<Integer, String> hashes = new HashMap<>();
+        for (int year : years) {
+            HttpCacheFile cache = cache(year);
+            if (!cache.exists()) {
+                download(cache, calendarInstance);
+            }
+            hashes.put(year, process(year, cache, editor, editor, events, calendarInstance));
+        }
+        commit(editor, events[0], calendarInstance);
+        // 所有年份的数据发布后才记录
+        calendarInstance.afterPublish(() -> hashes.forEach((year, hash) ->
+                processedHashes.processed(calendarInstance, year, hash)));
+        return true;
+    }
+
+    @Override
+    public boolean update(int year, FixaCalendar calendarInstance) {
+        HttpCacheFile cache = cache(year);
+        // 数据源尚未发布该年份时保持原有数据，不影响同一次刷新中的其他年份
+        if (!downloadIfPublished(year, cache, calendarInstance)) {
+            return false;
+        }
+        // 文件内容与该日历上次处理该年度时相同，无需重新解析
+        String hash = cache.contentHash();
+        if (processedHashes.isProcessed(calendarInstance, year, hash)) {
+            logger.debug("Calendar {} is not modified, skip updating year {}", cache.uri(), year);
+            return true;
+        }
+        // 当年的日期先写入单独的图层，再整年替换，数据源中撤销的节假日、调休也会被移除；
+        // 文件中相邻年份的日期（例如元旦前的调休）与 load 时一样直接添加，不影响相邻年份的其他数据
+        FixaCalendar layer = calendarInstance.createLayer();
+        FixaCalendarEditor editor = layer.edit();
+        FixaCalendarEditor outOfYear = calendarInstance.edit();
+        int[] events = new int[1];
+        String processed = process(year, cache, editor, outOfYear, events, calendarInstance);
+        commit(editor, events[0], calendarInstance);
+        FixaYearChanges changes = calendarInstance.replaceYear(year, layer);
+        outOfYear.commit();
+        logger.debug("Updated year {} from {}: {}", year, cache.uri(), changes);
+        years.add(year);
+        // 同一次刷新中的其他年份失败时该年份的修改被丢弃，因此在数据发布后才记录
+        calendarInstance.afterPublish(() -> processedHashes.processed(calendarInstance, year, processed));
+        return true;
+    }
+
+    @Override
+    public boolean loadYear(int year, FixaCalendar calendarInstance) {
+        HttpCacheFile cache = cache(year);
+        if (!cache.exists() && !downloadIfPublished(year, cache, calendarInstance)) {
+            return false;
+        }
+        FixaCalendarEditor editor = calendarInstance.edit();
+        int[] events = new int[1];
+        String processed = process(year, cache, editor, editor, events, calendarInstance);
+        commit(editor, events[0], calendarInstance);
+        years.add(year);
+        calendarInstance.afterPublish(() -> processedHashes.processed(calendarInstance, year, processed));
+        return true;
+    }
+
+    @Override
+    public boolean isOutdated() {
+        for (int year : years) {
+            if (cache(year).isOutdated(cacheValidDays, cacheValidDaysInDecJan)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以各年份文件的 URL 和内容摘要作为数据源版本，任一年份的缓存文件不存在时返回 null
+     */
+    @Override
+    public String source() {
+        List<String> sources = new ArrayList<>(years.size());
+        for (int year : years) {
+            String source = cache(year).source();
+            if (source == null) {
+                return null;
+            }
+            sources.add(source);
+        }
+        return String.join("|", sources);
+    }
+
+    private HttpCacheFile cache(int year) {
+        return caches.computeIfAbsent(year, y -> new HttpCacheFile(baseURI.resolve(y + ".json"),
+                "application/json", new File(cacheDirectory, "holiday-cn-" + y + ".json")));
+    }
+
+    /**
+     * 下载并替换缓存文件，下载失败时保留原有文件
+     */
+    private void download(HttpCacheFile cache, FixaCalendar calendarInstance) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(cacheDirectory.toPath());
+            synchronized (cache) {
+                cache.download();
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new FixaCalendarException("Failed to download file", e);
+        }
+        calendarInstance.getMetricsListener().onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_DOWNLOAD,
+                System.nanoTime() - start, 0);
+    }
+
+    /**
+     * 下载并替换缓存文件；数据源尚未发布该年份的文件时返回 false，其他下载失败时抛出异常
+     */
+    private boolean downloadIfPublished(int year, HttpCacheFile cache, FixaCalendar calendarInstance) {
+        try {
+            download(cache, calendarInstance);
+            return true;
+        } catch (FixaCalendarException e) {
+            if (e.getCause() instanceof FileNotFoundException) {
+                logger.info("Calendar {} not found, year {} has no holidays", cache.uri(), year);
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 解析一个年份的缓存文件，将其中的节假日和调休记录到编辑器中
+     *
+     * @param editor    记录当年日期的编辑器
+     * @param outOfYear 记录文件中其他年份日期的编辑器
+     * @param events    累加记录的日期数量
+     * @return 文件内容摘要，由调用方在数据发布后记录
+     */
+    private String process(int year, HttpCacheFile cache, FixaCalendarEditor editor, FixaCalendarEditor outOfYear,
+                           int[] events, FixaCalendar calendarInstance) {
+        long start = System.nanoTime();
+        long firstDay = LocalDate.ofYearDay(year, 1).toEpochDay();
+        long lastDay = LocalDate.ofYearDay(year + 1, 1).toEpochDay() - 1;
+        int before = events[0];
+        String hash;
+        try (DigestInputStream is = cache.open()) {
+            HolidayJsonScanner.scan(new InputStreamReader(is, StandardCharsets.UTF_8), (epochDay, offDay, name) -> {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                FixaCalendarEditor target = epochDay < firstDay || epochDay > lastDay ? outOfYear : editor;
+                if (offDay) {
+                    target.addHoliday(date);
+                } else {
+                    target.addFlexibleWorkday(date);
+                }
+                events[0]++;
+            });
+            // 读完文件末尾的空白，摘要才能与下载时计算的一致
+            is.transferTo(OutputStream.nullOutputStream());
+            hash = HttpCacheFile.toHex(is.getMessageDigest().digest());
+        } catch (IOException e) {
+            throw new FixaCalendarException("Failed to read holiday-cn file of " + year, e);
+        }
+        calendarInstance.getMetricsListener().onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_PARSE,
+                System.nanoTime() - start, events[0] - before);
+        return hash;
+    }
+
+    private static void commit(FixaCalendarEditor editor, int events, FixaCalendar calendarInstance) {
+        long start = System.nanoTime();
+        editor.commit();
+        calendarInstance.getMetricsListener().onLoaderPhase(LOADER_NAME, FixaMetricsListener.PHASE_APPLY,
+                System.nanoTime() - start, events);
+    }
+}
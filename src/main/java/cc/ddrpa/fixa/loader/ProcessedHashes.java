@@ -0,0 +1,51 @@
+package cc.ddrpa.fixa.loader;
+
+import cc.ddrpa.fixa.FixaCalendar;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * 各日历实例处理过的文件内容摘要，供 {@link ICSDateLoader}、{@link NateScarletDateLoader} 共用
+ * <p>
+ * 同一个加载器可以注册到多个日历，一个日历处理过的文件内容对另一个日历仍然是新的，因此按日历实例分别记录。
+ * 以弱引用持有日历实例，不会阻止日历被回收。
+ */
+final class ProcessedHashes {
+
+    private final Map<FixaCalendar, Hashes> calendars = new WeakHashMap<>();
+
+    /**
+     * 记录日历实例 load 时处理的文件内容摘要，此前各年度的记录作废
+     */
+    synchronized void loaded(FixaCalendar calendarInstance, String hash) {
+        Hashes hashes = new Hashes();
+        hashes.loaded = hash;
+        calendars.put(calendarInstance, hashes);
+    }
+
+    /**
+     * 记录日历实例更新或加载某一年度时处理的文件内容摘要
+     */
+    synchronized void processed(FixaCalendar calendarInstance, int year, String hash) {
+        if (Objects.nonNull(hash)) {
+            calendars.computeIfAbsent(calendarInstance, k -> new Hashes()).years.put(year, hash);
+        }
+    }
+
+    /**
+     * 日历实例上次处理该年度时的文件内容与 hash 相同；没有单独更新过该年度时与 load 时的文件内容比较
+     */
+    synchronized boolean isProcessed(FixaCalendar calendarInstance, int year, String hash) {
+        Hashes hashes = calendars.get(calendarInstance);
+        return Objects.nonNull(hash) && Objects.nonNull(hashes)
+                && hash.equals(hashes.years.getOrDefault(year, hashes.loaded));
+    }
+
+    private static class Hashes {
+        private String loaded;
+        private final Map<Integer, String> years = new HashMap<>();
+    }
+}
@@ -0,0 +1,115 @@
+package cc.ddrpa.fixa.loader;
+
+import cc.ddrpa.fixa.FixaCalendar;
+import cc.ddrpa.fixa.FixaCalendarException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 优先从二进制快照加载的加载器
+ * <p>
+ * 启动时直接反序列化快照文件中的位图，只有快照不存在、已损坏或过期（周末规则或 {@link IFixaDateLoader#source()} 与快照不一致）时，
+ * 才会使用被包装的加载器从数据源加载，并在加载完成后重新写入快照。{@link #update(int, FixaCalendar)} 完成后同样会重新写入快照。
+ */
+public class SnapshotDateLoader implements IFixaDateLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotDateLoader.class);
+
+    private final IFixaDateLoader delegate;
+    private final Path snapshotFile;
+
+    /**
+     * 创建快照加载器
+     *
+     * @param delegate         快照不可用时使用的加载器，例如 {@link ICSDateLoader}
+     * @param snapshotFileName 快照文件名
+     */
+    public SnapshotDateLoader(IFixaDateLoader delegate, String snapshotFileName) {
+        this.delegate = delegate;
+        this.snapshotFile = Paths.get(snapshotFileName);
+    }
+
+    @Override
+    public boolean load(FixaCalendar calendarInstance) {
+        if (loadSnapshot(calendarInstance)) {
+            return true;
+        }
+        boolean result = delegate.load(calendarInstance);
+        saveSnapshot(calendarInstance);
+        return result;
+    }
+
+    @Override
+    public boolean update(int year, FixaCalendar calendarInstance) {
+        boolean result = delegate.update(year, calendarInstance);
+        saveSnapshot(calendarInstance);
+        return result;
+    }
+
+    /**
+     * 快照保存的是完整的日历，按年份加载时直接使用被包装的加载器，不读写快照
+     */
+    @Override
+    public boolean loadYear(int year, FixaCalendar calendarInstance) {
+        return delegate.loadYear(year, calendarInstance);
+    }
+
+    @Override
+    public boolean isOutdated() {
+        return delegate.isOutdated();
+    }
+
+    @Override
+    public String source() {
+        return delegate.source();
+    }
+
+    private boolean loadSnapshot(FixaCalendar calendarInstance) {
+        try (InputStream is = Files.newInputStream(snapshotFile)) {
+            if (calendarInstance.loadSnapshot(is, delegate.source())) {
+                return true;
+            }
+            logger.info("Snapshot {} is stale, loading from source", snapshotFile);
+        } catch (NoSuchFileException e) {
+            logger.info("Snapshot {} not found, loading from source", snapshotFile);
+        } catch (IOException | FixaCalendarException e) {
+            logger.warn("Failed to read snapshot {}, loading from source", snapshotFile, e);
+        }
+        return false;
+    }
+
+    /**
+     * 先写入临时文件再重命名，其他进程不会读到写了一半的快照；写入失败不影响日历的使用。
+     * 临时文件名是随机的，多个进程同时写入同一个快照时互不干扰
+     */
+    private void saveSnapshot(FixaCalendar calendarInstance) {
+        Path tempFile = null;
+        try {
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            tempFile = Files.createTempFile(directory, snapshotFile.getFileName().toString(), ".tmp");
+            try (OutputStream os = Files.newOutputStream(tempFile)) {
+                calendarInstance.saveSnapshot(os, delegate.source());
+            }
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | FixaCalendarException e) {
+            logger.warn("Failed to write snapshot {}", snapshotFile, e);
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // 临时文件名是随机的，残留的文件不会影响下次写入
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 后台自动刷新
+ */
+class AutoRefreshTests {
+
+    private static final LocalDate THAT_DAY = LocalDate.now().withDayOfYear(1);
+
+    @Test
+    void refreshOutdatedDataTest() throws InterruptedException {
+        TestLoader loader = new TestLoader((year, editor) -> editor.addHoliday(LocalDate.ofYearDay(year, 1)));
+        loader.loadYears = new int[0];
+        loader.outdated.set(true);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(loader)
+                .enableAutoRefresh(Duration.ofMillis(20))
+                .build();
+        assertNull(calendar.getRefreshStatus().getLastRefreshTime());
+        // 状态在发布快照之后更新
+        waitFor(() -> calendar.getRefreshStatus().getLastRefreshTime() != null);
+        assertTrue(calendar.isHoliday(THAT_DAY));
+        assertNull(calendar.getRefreshStatus().getLastError());
+        // 数据未过期时只检查不刷新
+        waitFor(() -> calendar.getRefreshStatus().getLastCheckTime()
+                .isAfter(calendar.getRefreshStatus().getLastRefreshTime()));
+        int refreshedAt = loader.updates.size();
+        Thread.sleep(100);
+        assertEquals(refreshedAt, loader.updates.size());
+        calendar.stopAutoRefresh();
+    }
+
+    @Test
+    void failedRefreshKeepsDataTest() throws InterruptedException {
+        TestLoader loader = new TestLoader((year, editor) -> editor.addHoliday(THAT_DAY));
+        loader.loadYears = new int[0];
+        loader.outdated.set(true);
+        loader.failures.set(Integer.MAX_VALUE);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(loader)
+                .enableAutoRefresh(Duration.ofMillis(20))
+                .build();
+        waitFor(() -> calendar.getRefreshStatus().getConsecutiveFailures() >= 2);
+        FixaRefreshStatus status = calendar.getRefreshStatus();
+        assertInstanceOf(FixaCalendarException.class, status.getLastError());
+        assertNull(status.getLastRefreshTime());
+        assertFalse(calendar.isHoliday(THAT_DAY));
+        // 停止后不再尝试
+        calendar.stopAutoRefresh();
+        Thread.sleep(100);
+        int stoppedAt = loader.updates.size();
+        Thread.sleep(200);
+        assertEquals(stoppedAt, loader.updates.size());
+    }
+
+    @Test
+    void errorKeepsRefreshingTest() throws InterruptedException {
+        TestLoader loader = new TestLoader() {
+            @Override
+            public boolean update(int year, FixaCalendar calendarInstance) {
+                throw new NoClassDefFoundError("cc/ddrpa/fixa/Missing");
+            }
+        };
+        loader.outdated.set(true);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(loader)
+                .enableAutoRefresh(Duration.ofMillis(20))
+                .build();
+        // Error 不会终止后台刷新
+        waitFor(() -> calendar.getRefreshStatus().getConsecutiveFailures() >= 2);
+        assertInstanceOf(NoClassDefFoundError.class, calendar.getRefreshStatus().getLastError());
+        calendar.stopAutoRefresh();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量计算的结果与逐个调用一致
+ */
+class BatchTests {
+
+    // 覆盖节假日数据所在区间内外的日期
+    private static final int ORIGIN = Math.toIntExact(LocalDate.of(2023, 6, 1).toEpochDay());
+    private static final int SPAN = 3 * 365;
+
+    @Test
+    void smallBatchTest() {
+        verify(calendar(false), 100);
+    }
+
+    @Test
+    void largeBatchTest() {
+        // 超过单个任务的行数，会拆分后并行计算
+        verify(calendar(false), WorkdayBatch.LEAF_SIZE * 4 + 7);
+        verify(calendar(true), WorkdayBatch.LEAF_SIZE * 4 + 7);
+    }
+
+    @Test
+    void invalidRowTest() {
+        FixaCalendar calendar = calendar(false);
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.netWorkdays(new int[]{2, 1}, new int[]{3, 0}, new int[2]));
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.workday(new int[]{1}, new int[]{-1}, new int[1]));
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.workday(new int[]{1}, new int[]{1}, new int[2]));
+    }
+
+    private static FixaCalendar calendar(boolean workdayIndexEnabled) {
+        FixaCalendarBuilder builder = new FixaCalendarBuilder();
+        if (workdayIndexEnabled) {
+            builder.enableWorkdayIndex();
+        }
+        FixaCalendar calendar = builder.build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        return calendar;
+    }
+
+    private static void verify(FixaCalendar calendar, int rows) {
+        Random random = new Random(rows);
+        int[] starts = new int[rows];
+        int[] ends = new int[rows];
+        int[] durations = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            starts[i] = ORIGIN + random.nextInt(SPAN);
+            ends[i] = starts[i] + random.nextInt(400);
+            durations[i] = random.nextInt(300);
+        }
+        int[] netWorkdays = new int[rows];
+        int[] workdays = new int[rows];
+        calendar.netWorkdays(starts, ends, netWorkdays);
+        calendar.workday(starts, durations, workdays);
+        for (int i = 0; i < rows; i++) {
+            LocalDate start = LocalDate.ofEpochDay(starts[i]);
+            assertEquals(calendar.netWorkdays(start, LocalDate.ofEpochDay(ends[i])), netWorkdays[i]);
+            assertEquals(calendar.workday(start, Duration.ofDays(durations[i])).toEpochDay(), workdays[i]);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 1970 年之前（epoch day 为负数）以及跨越 1970-01-01 的区间
+ */
+class BeforeEpochTests {
+
+    private static final LocalDate[][] RANGES = {
+            {LocalDate.of(1960, 1, 1), LocalDate.of(1960, 3, 31)},
+            {LocalDate.of(1969, 12, 1), LocalDate.of(1970, 1, 31)},
+            {LocalDate.of(1959, 12, 20), LocalDate.of(1970, 2, 1)},
+    };
+
+    private static FixaCalendar calendar(FixaCalendarBuilder builder) {
+        FixaCalendar calendar = builder.build();
+        calendar.addHolidays(LocalDate.of(1960, 2, 10), LocalDate.of(1960, 2, 12));
+        calendar.addHolidays(LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 2));
+        // 周日、周六调休上班
+        calendar.addFlexibleWorkday(LocalDate.of(1960, 2, 14));
+        calendar.addFlexibleWorkday(LocalDate.of(1969, 12, 27));
+        return calendar;
+    }
+
+    private static FixaCalendar[] calendars() {
+        return new FixaCalendar[]{
+                calendar(new FixaCalendarBuilder()),
+                calendar(new FixaCalendarBuilder().enableWorkdayIndex()),
+                calendar(new FixaCalendarBuilder().setWeekendRule(FixaWeekendRule.none())),
+        };
+    }
+
+    @Test
+    void rangeTest() {
+        for (FixaCalendar calendar : calendars()) {
+            for (LocalDate[] range : RANGES) {
+                List<Integer> workdays = new ArrayList<>();
+                List<Integer> dayOffs = new ArrayList<>();
+                List<Integer> holidays = new ArrayList<>();
+                for (LocalDate date = range[0]; !date.isAfter(range[1]); date = date.plusDays(1)) {
+                    int epochDay = Math.toIntExact(date.toEpochDay());
+                    (calendar.isWorkday(date) ? workdays : dayOffs).add(epochDay);
+                    if (calendar.isHoliday(date)) {
+                        holidays.add(epochDay);
+                    }
+                }
+                String message = calendar.getWeekendRule() + " " + range[0] + " " + range[1];
+                assertEquals(workdays.size(), calendar.netWorkdays(range[0], range[1]), message);
+                assertArrayEquals(toArray(workdays), calendar.workdayEpochDays(range[0], range[1]), message);
+                assertArrayEquals(toArray(dayOffs), calendar.dayOffEpochDays(range[0], range[1]), message);
+                assertArrayEquals(toArray(holidays), calendar.holidayEpochDays(range[0], range[1]), message);
+                assertArrayEquals(toArray(workdays),
+                        calendar.workdayEpochDayStream(range[0], range[1]).toArray(), message);
+                List<Integer> visited = new ArrayList<>();
+                for (LocalDate date : calendar.workdays(range[0], range[1])) {
+                    visited.add(Math.toIntExact(date.toEpochDay()));
+                }
+                assertEquals(workdays, visited, message);
+            }
+        }
+    }
+
+    @Test
+    void navigationTest() {
+        for (FixaCalendar calendar : calendars()) {
+            int from = Math.toIntExact(LocalDate.of(1969, 11, 1).toEpochDay());
+            int to = Math.toIntExact(LocalDate.of(1970, 2, 1).toEpochDay());
+            for (int day = from; day < to; day++) {
+                String message = calendar.getWeekendRule() + " " + LocalDate.ofEpochDay(day);
+                assertEquals(scan(calendar, day, 1, true), calendar.nextWorkday(day), message);
+                assertEquals(scan(calendar, day, -1, true), calendar.previousWorkday(day), message);
+                assertEquals(scan(calendar, day, 1, false), calendar.nextDayOff(day), message);
+                assertEquals(scan(calendar, day, -1, false), calendar.previousDayOff(day), message);
+            }
+        }
+        // 1969-12-31 是真实的日期，而不是「不存在」
+        FixaCalendar calendar = calendars()[0];
+        assertEquals(LocalDate.of(1969, 12, 31), calendar.previousDayOff(LocalDate.of(1970, 1, 1)));
+        assertEquals(LocalDate.of(1969, 12, 31), calendar.nextDayOff(LocalDate.of(1969, 12, 30)));
+        FixaWorkdayCursor cursor = calendar.cursor(LocalDate.of(1970, 1, 5));
+        assertEquals(LocalDate.of(1969, 12, 30), LocalDate.ofEpochDay(cursor.previous()));
+        assertEquals(LocalDate.of(1969, 12, 29), LocalDate.ofEpochDay(cursor.previous()));
+        assertEquals(LocalDate.of(1969, 12, 27), LocalDate.ofEpochDay(cursor.previous()));
+        assertEquals(LocalDate.of(1970, 1, 5), LocalDate.ofEpochDay(cursor.forward(3)));
+    }
+
+    @Test
+    void notFoundTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder().setWeekendRule(FixaWeekendRule.none()).build();
+        calendar.addHoliday(LocalDate.of(1960, 1, 1));
+        assertEquals(LocalDate.of(1960, 1, 1), calendar.previousDayOff(LocalDate.of(1970, 1, 1)));
+        assertNull(calendar.nextDayOff(LocalDate.of(1960, 1, 1)));
+        assertNull(calendar.previousDayOff(LocalDate.of(1960, 1, 1)));
+        assertEquals(FixaCalendar.NO_EPOCH_DAY, calendar.nextDayOff(0));
+        assertEquals(FixaCalendar.NO_EPOCH_DAY, calendar.previousDayOff(-3653));
+    }
+
+    /**
+     * 逐日查找 day 之后（step 为 1）或之前（step 为 -1）的第一个工作日或非工作日，超出 1950 至 1990 年时视为不存在
+     */
+    private static int scan(FixaCalendar calendar, int day, int step, boolean workday) {
+        int lowerBound = Math.toIntExact(LocalDate.of(1950, 1, 1).toEpochDay());
+        int upperBound = Math.toIntExact(LocalDate.of(1990, 1, 1).toEpochDay());
+        for (int candidate = day + step; candidate >= lowerBound && candidate < upperBound; candidate += step) {
+            if (calendar.isWorkday(candidate) == workday) {
+                return candidate;
+            }
+        }
+        return FixaCalendar.NO_EPOCH_DAY;
+    }
+
+    private static int[] toArray(List<Integer> epochDays) {
+        return epochDays.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
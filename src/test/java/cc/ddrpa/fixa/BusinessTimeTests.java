@@ -0,0 +1,94 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按工作时段计算工作时长和截止时间
+ */
+class BusinessTimeTests {
+
+    private static final FixaBusinessHours HOURS = FixaBusinessHours.of(
+            LocalTime.of(9, 0), LocalTime.of(12, 0),
+            LocalTime.of(13, 0), LocalTime.of(18, 0));
+    private static final FixaCalendar CALENDAR = new FixaCalendarBuilder().build();
+    private static final FixaBusinessCalendar BUSINESS = new FixaBusinessCalendar(CALENDAR, HOURS, ZoneOffset.ofHours(8));
+
+    static {
+        CALENDAR.addHolidays(DATA_HOLIDAYS);
+        CALENDAR.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+    }
+
+    @Test
+    void addBusinessTimeTest() {
+        assertEquals(Duration.ofHours(8), HOURS.getDailyDuration());
+        // 周五 17:00 开始的一小时在当天 18:00 用完
+        assertEquals(LocalDateTime.of(2024, 4, 12, 18, 0),
+                BUSINESS.addBusinessTime(LocalDateTime.of(2024, 4, 12, 17, 0), Duration.ofHours(1)));
+        // 午休不计入
+        assertEquals(LocalDateTime.of(2024, 4, 12, 14, 0),
+                BUSINESS.addBusinessTime(LocalDateTime.of(2024, 4, 12, 11, 0), Duration.ofHours(2)));
+        // 跳过周末，周六为调休工作日时计入
+        assertEquals(LocalDateTime.of(2024, 4, 15, 10, 0),
+                BUSINESS.addBusinessTime(LocalDateTime.of(2024, 4, 12, 17, 0), Duration.ofHours(2)));
+        assertEquals(LocalDateTime.of(2024, 4, 20, 10, 0),
+                BUSINESS.addBusinessTime(LocalDateTime.of(2024, 4, 19, 17, 0), Duration.ofHours(2)));
+        // 节假日期间开始，从下一个工作日的第一个时段开始计算
+        assertEquals(LocalDateTime.of(2024, 4, 26, 17, 0),
+                BUSINESS.addBusinessTime(LocalDateTime.of(2024, 4, 23, 10, 0), Duration.ofHours(7)));
+        assertEquals(LocalDateTime.of(2024, 4, 22, 10, 0), BUSINESS.addBusinessTime(
+                LocalDateTime.of(2024, 4, 22, 10, 0), Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> BUSINESS.addBusinessTime(
+                LocalDateTime.of(2024, 4, 22, 10, 0), Duration.ofHours(-1)));
+    }
+
+    @Test
+    void businessDurationTest() {
+        assertEquals(Duration.ofHours(2), BUSINESS.businessDuration(
+                LocalDateTime.of(2024, 4, 12, 11, 0), LocalDateTime.of(2024, 4, 12, 14, 0)));
+        assertEquals(Duration.ZERO, BUSINESS.businessDuration(
+                LocalDateTime.of(2024, 4, 22, 9, 0), LocalDateTime.of(2024, 4, 25, 18, 0)));
+        assertEquals(Duration.ofHours(2), BUSINESS.businessDuration(
+                LocalDateTime.of(2024, 4, 12, 17, 0), LocalDateTime.of(2024, 4, 15, 10, 0)));
+        // Instant 按给定时区换算
+        Instant start = LocalDateTime.of(2024, 4, 12, 17, 0).toInstant(ZoneOffset.ofHours(8));
+        Instant end = BUSINESS.addBusinessTime(start, Duration.ofHours(16));
+        assertEquals(LocalDateTime.of(2024, 4, 16, 17, 0).toInstant(ZoneOffset.ofHours(8)), end);
+        assertEquals(Duration.ofHours(16), BUSINESS.businessDuration(start, end));
+    }
+
+    @Test
+    void sameAsMinuteByMinuteTest() {
+        Random random = new Random(42);
+        LocalDateTime origin = LocalDateTime.of(2024, 3, 20, 0, 0);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = origin.plusMinutes(random.nextInt(60 * 24 * 40));
+            long minutes = random.nextInt(60 * 8 * 15) + 1;
+            LocalDateTime expected = start;
+            for (long left = minutes; left > 0; expected = expected.plusMinutes(1)) {
+                if (isBusinessMinute(expected)) {
+                    left--;
+                }
+            }
+            // 逐分钟推进后停在最后一个工作分钟的末尾，即最早的截止时刻
+            LocalDateTime actual = BUSINESS.addBusinessTime(start, Duration.ofMinutes(minutes));
+            assertEquals(expected, actual, start + " + " + minutes);
+            assertEquals(Duration.ofMinutes(minutes), BUSINESS.businessDuration(start, actual));
+        }
+    }
+
+    private static boolean isBusinessMinute(LocalDateTime time) {
+        return CALENDAR.isWorkday(time.toLocalDate()) && HOURS.elapsed(time.toLocalTime().toNanoOfDay() + 1)
+                > HOURS.elapsed(time.toLocalTime().toNanoOfDay());
+    }
+}
@@ -0,0 +1,171 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import cc.ddrpa.fixa.loader.CompositeDateLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 组合多个数据源的加载器
+ */
+class CompositeLoaderTests {
+
+    @Test
+    void precedenceTest() {
+        // 全国：4 月 22 日至 25 日放假，4 月 20 日（周六）调休上班
+        TestLoader national = new TestLoader((year, editor) -> editor
+                .addHolidays(LocalDate.of(2024, 4, 22), LocalDate.of(2024, 4, 25))
+                .addFlexibleWorkday(LocalDate.of(2024, 4, 20)));
+        // 省级：额外放假 4 月 26 日
+        TestLoader provincial = new TestLoader((year, editor) -> editor
+                .addHoliday(LocalDate.of(2024, 4, 26)));
+        // 公司：4 月 25 日照常上班，4 月 20 日不调休
+        TestLoader company = new TestLoader((year, editor) -> editor
+                .addFlexibleWorkday(LocalDate.of(2024, 4, 25))
+                .addHoliday(LocalDate.of(2024, 4, 20)));
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new CompositeDateLoader(national, provincial, company))
+                .build();
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 4, 22)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 4, 26)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2024, 4, 25)));
+        assertFalse(calendar.isHoliday(LocalDate.of(2024, 4, 25)));
+        assertTrue(calendar.isFlexibleWorkday(LocalDate.of(2024, 4, 25)));
+        assertTrue(calendar.isDayOff(LocalDate.of(2024, 4, 20)));
+        assertFalse(calendar.isFlexibleWorkday(LocalDate.of(2024, 4, 20)));
+        assertEquals(List.of(LocalDate.of(2024, 4, 20), LocalDate.of(2024, 4, 21), LocalDate.of(2024, 4, 22),
+                        LocalDate.of(2024, 4, 23), LocalDate.of(2024, 4, 24), LocalDate.of(2024, 4, 26),
+                        LocalDate.of(2024, 4, 27), LocalDate.of(2024, 4, 28)),
+                calendar.dayOffs(LocalDate.of(2024, 4, 20), LocalDate.of(2024, 4, 28)));
+        // 更新后该年份以数据源为准，其他年份手动添加的数据不受影响
+        calendar.addHoliday(LocalDate.of(2025, 5, 6));
+        calendar.addHoliday(LocalDate.of(2024, 4, 25));
+        assertTrue(calendar.update(2024));
+        assertTrue(calendar.isHoliday(LocalDate.of(2025, 5, 6)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2024, 4, 25)));
+    }
+
+    @Test
+    void concurrentLoadingTest() {
+        // 只有所有子加载器同时运行才能通过屏障
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        BiConsumer<Integer, FixaCalendarEditor> await = (year, editor) -> {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new FixaCalendarException("Loaders are not running at the same time", e);
+            }
+        };
+        TestLoader first = new TestLoader(await.andThen((year, editor) ->
+                editor.addHoliday(LocalDate.of(year, 1, 2))));
+        TestLoader second = new TestLoader(await);
+        TestLoader third = new TestLoader(await.andThen((year, editor) ->
+                editor.addHoliday(LocalDate.of(year, 1, 3))));
+        CompositeDateLoader loader = new CompositeDateLoader(first, second, third);
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 1, 2)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 1, 3)));
+        // 更新同样分发给所有子加载器
+        assertTrue(calendar.update(2025));
+        assertTrue(calendar.isHoliday(LocalDate.of(2025, 1, 2)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2025, 1, 3)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 1, 3)));
+        assertEquals(1, second.loads.get());
+        assertEquals(List.of(2025), second.updates);
+        // 任一子加载器过期即需要刷新
+        assertFalse(loader.isOutdated());
+        second.outdated.set(true);
+        assertTrue(loader.isOutdated());
+        assertNull(loader.source());
+    }
+
+    @Test
+    void failedChildKeepsDataTest() {
+        TestLoader stable = new TestLoader((year, editor) -> editor.addHoliday(LocalDate.of(year, 1, 2)));
+        TestLoader flaky = new TestLoader((year, editor) -> editor.addHoliday(LocalDate.of(year, 1, 3)));
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new CompositeDateLoader(stable, flaky))
+                .build();
+        flaky.failures.set(1);
+        assertThrows(FixaCalendarException.class, () -> calendar.update(2025));
+        assertFalse(calendar.isHoliday(LocalDate.of(2025, 1, 2)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 1, 3)));
+    }
+
+    /**
+     * 子加载器抛出 Error 时，同样等待其余子加载器结束后再抛出
+     */
+    @Test
+    void errorWaitsForOtherChildrenTest() {
+        AtomicBoolean finished = new AtomicBoolean(false);
+        TestLoader broken = new TestLoader() {
+            @Override
+            public boolean update(int year, FixaCalendar calendarInstance) {
+                throw new NoClassDefFoundError("cc/ddrpa/fixa/Missing");
+            }
+        };
+        TestLoader slow = new TestLoader() {
+            @Override
+            public boolean update(int year, FixaCalendar calendarInstance) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.set(true);
+                return super.update(year, calendarInstance);
+            }
+        };
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new CompositeDateLoader(broken, slow))
+                .build();
+        assertThrows(NoClassDefFoundError.class, () -> calendar.update(2025));
+        assertTrue(finished.get());
+    }
+
+    /**
+     * 一个组合加载器注册到多个日历时，每个日历使用各自的图层
+     */
+    @Test
+    void sharedLoaderTest() {
+        List<FixaCalendar> targets = new CopyOnWriteArrayList<>();
+        TestLoader child = new TestLoader((year, editor) -> editor.addHoliday(LocalDate.of(year, 1, 2))) {
+            @Override
+            public boolean load(FixaCalendar calendarInstance) {
+                targets.add(calendarInstance);
+                return super.load(calendarInstance);
+            }
+
+            @Override
+            public boolean update(int year, FixaCalendar calendarInstance) {
+                targets.add(calendarInstance);
+                return super.update(year, calendarInstance);
+            }
+        };
+        CompositeDateLoader loader = new CompositeDateLoader(child);
+        FixaCalendar first = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        FixaCalendar second = new FixaCalendarBuilder()
+                .setWeekendRule(FixaWeekendRule.none())
+                .registerDateLoader(loader)
+                .build();
+        assertNotSame(targets.get(0), targets.get(1));
+        assertTrue(first.update(2025));
+        assertTrue(second.update(2025));
+        assertSame(targets.get(0), targets.get(2));
+        assertSame(targets.get(1), targets.get(3));
+        assertTrue(first.isHoliday(LocalDate.of(2025, 1, 2)));
+        assertTrue(second.isHoliday(LocalDate.of(2025, 1, 2)));
+        // 图层沿用各自日历的周末规则
+        assertTrue(second.isWorkday(LocalDate.of(2025, 1, 4)));
+        assertTrue(first.isDayOff(LocalDate.of(2025, 1, 4)));
+    }
+}
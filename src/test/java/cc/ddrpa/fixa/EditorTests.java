@@ -0,0 +1,82 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量修改与逐个修改的结果一致，并且只在提交时发布
+ */
+class EditorTests {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+    // 周六
+    private static final LocalDate SATURDAY = LocalDate.of(2024, 4, 6);
+    // 周一
+    private static final LocalDate MONDAY = LocalDate.of(2024, 4, 1);
+
+    @Test
+    void sameAsSequentialEditsTest() {
+        FixaCalendar sequential = new FixaCalendarBuilder().build();
+        sequential.addHolidays(DATA_HOLIDAYS);
+        sequential.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        sequential.addFlexibleWorkday(MONDAY);
+        sequential.addHoliday(MONDAY);
+        sequential.addHoliday(SATURDAY);
+        sequential.addFlexibleWorkday(SATURDAY);
+
+        FixaCalendar batched = new FixaCalendarBuilder().build();
+        FixaCalendarEditor editor = batched.edit()
+                .addHolidays(DATA_HOLIDAYS)
+                .addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS)
+                .addFlexibleWorkday(MONDAY)
+                .addHoliday(MONDAY)
+                .addHoliday(SATURDAY)
+                .addFlexibleWorkday(SATURDAY);
+        List<LocalDate> before = batched.holidays(START_DATE, END_DATE);
+        // 提交前不可见
+        assertTrue(before.isEmpty());
+        editor.commit();
+        assertTrue(before.isEmpty());
+        assertEquals(sequential.holidays(START_DATE, END_DATE), batched.holidays(START_DATE, END_DATE));
+        assertEquals(sequential.flexibleWorkdays(START_DATE, END_DATE), batched.flexibleWorkdays(START_DATE, END_DATE));
+        assertArrayEquals(sequential.dayOffEpochDays(START_DATE, END_DATE), batched.dayOffEpochDays(START_DATE, END_DATE));
+        assertTrue(batched.isDayOff(MONDAY));
+        assertTrue(batched.isWorkday(SATURDAY));
+    }
+
+    @Test
+    void removeTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        calendar.edit()
+                .addHolidays(MONDAY, MONDAY.plusDays(6))
+                .addFlexibleWorkday(SATURDAY)
+                .commit();
+        assertTrue(calendar.isDayOff(MONDAY));
+        assertTrue(calendar.isWorkday(SATURDAY));
+
+        // 取消节假日后恢复为周末规则的结果，同时是调休工作日的日期成为工作日
+        calendar.edit()
+                .removeHolidays(MONDAY, MONDAY.plusDays(4))
+                .removeHoliday(SATURDAY)
+                .commit();
+        assertTrue(calendar.isWorkday(MONDAY));
+        assertFalse(calendar.isHoliday(MONDAY));
+        assertTrue(calendar.isWorkday(SATURDAY));
+        assertTrue(calendar.isDayOff(SATURDAY.plusDays(1)));
+
+        // 取消调休工作日后，周末恢复为非工作日
+        calendar.edit().removeFlexibleWorkday(SATURDAY).commit();
+        assertTrue(calendar.isDayOff(SATURDAY));
+        assertEquals(List.of(SATURDAY.plusDays(1)), calendar.holidays(START_DATE, END_DATE));
+        assertTrue(calendar.flexibleWorkdays(START_DATE, END_DATE).isEmpty());
+        assertEquals(calendar.netWorkdays(START_DATE, END_DATE),
+                new FixaCalendarBuilder().build().netWorkdays(START_DATE, END_DATE));
+    }
+}
@@ -0,0 +1,196 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.loader.ICSDateLoader;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地 HTTP 服务测试条件请求与内容摘要
+ */
+class ICSDownloadTests {
+
+    private static final LocalDate NEW_YEAR = LocalDate.of(2024, 1, 1);
+    private static final LocalDate LABOUR_DAY = LocalDate.of(2024, 5, 1);
+
+    private HttpServer server;
+    private volatile String body;
+    private volatile String etag;
+    // 记录每次请求的 If-None-Match 和响应状态码
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+    private final List<Integer> statusCodes = new CopyOnWriteArrayList<>();
+
+    private static String ics(LocalDate... holidays) {
+        StringBuilder builder = new StringBuilder("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n");
+        for (LocalDate holiday : holidays) {
+            builder.append("BEGIN:VEVENT\r\n")
+                    .append("DTSTART;VALUE=DATE:").append(holiday.toString().replace("-", "")).append("\r\n")
+                    .append("SUMMARY:节日（休）\r\n")
+                    .append("END:VEVENT\r\n");
+        }
+        return builder.append("END:VCALENDAR\r\n").toString();
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/holidays.ics", exchange -> {
+            String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+            conditions.add(String.valueOf(condition));
+            if (etag.equals(condition)) {
+                statusCodes.add(304);
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            statusCodes.add(200);
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                compressed.writeTo(os);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void conditionalDownloadTest(@TempDir Path dir) throws IOException {
+        body = ics(NEW_YEAR);
+        etag = "\"v1\"";
+        Path cacheFile = dir.resolve("holiday-calendar.ics");
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new ICSDateLoader(
+                        URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/holidays.ics"),
+                        cacheFile.toString()))
+                .build();
+        assertTrue(calendar.isHoliday(NEW_YEAR));
+        assertEquals(ics(NEW_YEAR), Files.readString(cacheFile));
+        assertEquals(List.of("null"), conditions);
+
+        // 内容未变化时不会重新解析，手动添加的调休不会被节假日覆盖
+        calendar.addFlexibleWorkday(NEW_YEAR);
+        assertTrue(calendar.update(2024));
+        assertEquals(List.of(200, 304), statusCodes);
+        assertEquals("\"v1\"", conditions.get(1));
+        assertTrue(calendar.isWorkday(NEW_YEAR));
+
+        // 服务端不支持条件请求时，通过内容摘要判断
+        etag = "\"v2\"";
+        assertTrue(calendar.update(2024));
+        assertEquals(List.of(200, 304, 200), statusCodes);
+        assertTrue(calendar.isWorkday(NEW_YEAR));
+
+        // 内容变化后重新解析
+        body = ics(NEW_YEAR, LABOUR_DAY);
+        etag = "\"v3\"";
+        assertTrue(calendar.update(2024));
+        assertTrue(calendar.isHoliday(LABOUR_DAY));
+        assertTrue(calendar.isDayOff(NEW_YEAR));
+        assertEquals(ics(NEW_YEAR, LABOUR_DAY), Files.readString(cacheFile));
+    }
+
+    /**
+     * 多个日历共用一个加载器时，一个日历处理过新内容后，其他日历更新时仍会处理
+     */
+    @Test
+    void sharedLoaderTest(@TempDir Path dir) {
+        body = ics(NEW_YEAR);
+        etag = "\"v1\"";
+        ICSDateLoader loader = new ICSDateLoader(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/holidays.ics"),
+                dir.resolve("holiday-calendar.ics").toString());
+        FixaCalendar first = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        FixaCalendar second = new FixaCalendarBuilder().registerDateLoader(loader).build();
+
+        body = ics(NEW_YEAR, LABOUR_DAY);
+        etag = "\"v2\"";
+        assertTrue(first.update(2024));
+        assertTrue(first.isHoliday(LABOUR_DAY));
+        assertTrue(second.update(2024));
+        assertTrue(second.isHoliday(LABOUR_DAY));
+
+        // 各自的记录互不影响，内容未变化时都不会重新解析
+        first.addFlexibleWorkday(LABOUR_DAY);
+        second.addFlexibleWorkday(LABOUR_DAY);
+        assertTrue(first.update(2024));
+        assertTrue(second.update(2024));
+        assertTrue(first.isWorkday(LABOUR_DAY));
+        assertTrue(second.isWorkday(LABOUR_DAY));
+    }
+
+    /**
+     * 同时刷新多个年份时后一个年份失败，前一个年份的修改被丢弃，重试时仍会重新解析
+     */
+    @Test
+    void failedRefreshIsRetriedTest(@TempDir Path dir) {
+        body = ics(NEW_YEAR);
+        etag = "\"v1\"";
+        AtomicInteger updates = new AtomicInteger();
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new ICSDateLoader(
+                        URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/holidays.ics"),
+                        dir.resolve("holiday-calendar.ics").toString()) {
+                    @Override
+                    protected synchronized void updateFile() {
+                        // 第二次下载失败
+                        if (updates.incrementAndGet() == 2) {
+                            throw new FixaCalendarException("Failed to download file", null);
+                        }
+                        super.updateFile();
+                    }
+                })
+                .build();
+        body = ics(NEW_YEAR, LABOUR_DAY);
+        etag = "\"v2\"";
+        assertThrows(FixaCalendarException.class, () -> calendar.refresh(2024, 2025));
+        assertFalse(calendar.isHoliday(LABOUR_DAY));
+        // 文件内容未变化，但上次的修改没有生效
+        assertTrue(calendar.update(2024));
+        assertEquals(List.of(200, 200, 304), statusCodes);
+        assertTrue(calendar.isHoliday(LABOUR_DAY));
+    }
+
+    @Test
+    void failedDownloadKeepsCacheTest(@TempDir Path dir) throws IOException {
+        body = ics(NEW_YEAR);
+        etag = "\"v1\"";
+        Path cacheFile = dir.resolve("holiday-calendar.ics");
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new ICSDateLoader(
+                        URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/holidays.ics"),
+                        cacheFile.toString()))
+                .build();
+        server.stop(0);
+        assertThrows(FixaCalendarException.class, () -> calendar.update(2024));
+        assertEquals(ics(NEW_YEAR), Files.readString(cacheFile));
+        assertTrue(calendar.isHoliday(NEW_YEAR));
+    }
+}
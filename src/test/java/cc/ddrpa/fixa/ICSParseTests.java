@@ -0,0 +1,130 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.loader.ICSDateLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地的 ICS 文件测试事件的解析，不访问网络
+ */
+class ICSParseTests {
+
+    private static final String ICS = String.join("\r\n",
+            "BEGIN:VCALENDAR",
+            "VERSION:2.0",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20240101",
+            "SUMMARY:元旦（休）",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20240210",
+            "DTEND;VALUE=DATE:20240218",
+            // 折行
+            "SUMMARY:春节",
+            " （休）",
+            // 嵌套组件中的属性不属于事件本身
+            "BEGIN:VALARM",
+            "TRIGGER:-PT15M",
+            "SUMMARY:提醒",
+            "END:VALARM",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20240204",
+            "SUMMARY:春节补班（班）",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            // UTC 时间，东八区为 2024-04-07
+            "DTSTART:20240406T160000Z",
+            "SUMMARY:清明节补班（班）",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            "DTSTART;TZID=\"Asia/Shanghai\":20240915T000000",
+            "DTEND;TZID=\"Asia/Shanghai\":20240918T000000",
+            "SUMMARY:中秋节（休）",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20240501",
+            "SUMMARY:劳动节",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20250101",
+            "SUMMARY:元旦（休）",
+            "END:VEVENT",
+            "END:VCALENDAR",
+            "");
+
+    private static final List<LocalDate> DATA_HOLIDAYS = List.of(
+            LocalDate.of(2024, 1, 1),
+            LocalDate.of(2024, 2, 10),
+            LocalDate.of(2024, 2, 11),
+            LocalDate.of(2024, 2, 12),
+            LocalDate.of(2024, 2, 13),
+            LocalDate.of(2024, 2, 14),
+            LocalDate.of(2024, 2, 15),
+            LocalDate.of(2024, 2, 16),
+            LocalDate.of(2024, 2, 17),
+            LocalDate.of(2024, 9, 15),
+            LocalDate.of(2024, 9, 16),
+            LocalDate.of(2024, 9, 17),
+            LocalDate.of(2025, 1, 1));
+
+    private static final List<LocalDate> DATA_FLEXIBLE_WORKDAYS = List.of(
+            LocalDate.of(2024, 2, 4),
+            LocalDate.of(2024, 4, 7));
+
+    private static final LocalDate START_DATE = LocalDate.of(2023, 1, 1);
+    private static final LocalDate END_DATE = LocalDate.of(2025, 12, 31);
+
+    @Test
+    void loadTest(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("holiday-calendar.ics");
+        Files.writeString(cacheFile, ICS);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new ICSDateLoader(URI.create("http://localhost/holidays.ics"), cacheFile.toString()))
+                .build();
+        assertEquals(DATA_HOLIDAYS, calendar.holidays(START_DATE, END_DATE));
+        assertEquals(DATA_FLEXIBLE_WORKDAYS, calendar.flexibleWorkdays(START_DATE, END_DATE));
+        assertTrue(calendar.isWorkday(LocalDate.of(2024, 5, 1)));
+    }
+
+    @Test
+    void yearFilterTest() throws IOException {
+        long startOf2025 = LocalDate.of(2025, 1, 1).atStartOfDay(ZoneOffset.ofHours(8)).toEpochSecond();
+        long endOf2025 = LocalDate.of(2026, 1, 1).atStartOfDay(ZoneOffset.ofHours(8)).toEpochSecond() - 1;
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        new ICSDateLoader(URI.create("http://localhost/holidays.ics"), "unused.ics") {
+            {
+                process(ts -> ts < startOf2025 || ts > endOf2025,
+                        (ts, te) -> te < startOf2025 || ts > endOf2025,
+                        calendar,
+                        new ByteArrayInputStream(ICS.getBytes(StandardCharsets.UTF_8)));
+            }
+        };
+        assertEquals(List.of(LocalDate.of(2025, 1, 1)), calendar.holidays(START_DATE, END_DATE));
+        assertTrue(calendar.flexibleWorkdays(START_DATE, END_DATE).isEmpty());
+    }
+
+    @Test
+    void malformedDateTest(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("holiday-calendar.ics");
+        Files.writeString(cacheFile, ICS.replace("20240501", "2024-5-1"));
+        URI calendarURI = URI.create("http://localhost/holidays.ics");
+        FixaCalendarException e = assertThrows(FixaCalendarException.class, () -> new FixaCalendarBuilder()
+                .registerDateLoader(new ICSDateLoader(calendarURI, cacheFile.toString()))
+                .build());
+        assertTrue(e.getMessage().contains(calendarURI.toString()));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+}
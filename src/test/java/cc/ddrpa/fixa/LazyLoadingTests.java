@@ -0,0 +1,186 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按年份延迟加载节假日数据
+ */
+class LazyLoadingTests {
+
+    /**
+     * 2020 年至 2030 年每年 10 月 1 日至 7 日为节假日，10 月 12 日为调休工作日
+     */
+    private static TestLoader yearLoader() {
+        TestLoader loader = new TestLoader((year, editor) -> {
+            if (year >= 2020 && year <= 2030) {
+                editor.addHolidays(LocalDate.of(year, 10, 1), LocalDate.of(year, 10, 7))
+                        .addFlexibleWorkday(LocalDate.of(year, 10, 12));
+            }
+        });
+        loader.loadYears = IntStream.rangeClosed(2020, 2030).toArray();
+        return loader;
+    }
+
+    @Test
+    void loadOnFirstQueryTest() {
+        TestLoader loader = yearLoader();
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(loader)
+                .enableLazyLoading()
+                .build();
+        // 构造时不加载任何数据
+        assertEquals(0, loader.loads.get());
+        assertTrue(loader.yearLoads.isEmpty());
+
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        assertEquals(Map.of(2024, 1), Map.copyOf(loader.yearLoads));
+        // 同一年份只加载一次
+        assertTrue(calendar.isDayOff(LocalDate.of(2024, 10, 7)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2024, 10, 12)));
+        assertEquals(Map.of(2024, 1), Map.copyOf(loader.yearLoads));
+
+        // 区间查询加载区间涉及的所有年份
+        assertEquals(List.of(LocalDate.of(2025, 10, 7), LocalDate.of(2026, 10, 1)),
+                calendar.holidays(LocalDate.of(2025, 10, 7), LocalDate.of(2026, 10, 1)));
+        assertEquals(Map.of(2024, 1, 2025, 1, 2026, 1), Map.copyOf(loader.yearLoads));
+        assertEquals(0, loader.loads.get());
+    }
+
+    @Test
+    void crossYearQueryTest() {
+        TestLoader loader = yearLoader();
+        FixaCalendar lazy = new FixaCalendarBuilder().registerDateLoader(loader).enableLazyLoading().build();
+        FixaCalendar eager = new FixaCalendarBuilder().registerDateLoader(yearLoader()).build();
+        LocalDate start = LocalDate.of(2024, 12, 20);
+        // 推算结果落在下一年时，先加载下一年再重新推算
+        assertEquals(eager.workday(start, Duration.ofDays(10)), lazy.workday(start, Duration.ofDays(10)));
+        assertEquals(Map.of(2024, 1, 2025, 1), Map.copyOf(loader.yearLoads));
+        assertEquals(eager.reverseWorkday(LocalDate.of(2027, 1, 4), Duration.ofDays(5), true),
+                lazy.reverseWorkday(LocalDate.of(2027, 1, 4), Duration.ofDays(5), true));
+        assertEquals(eager.nextWorkday(LocalDate.of(2027, 9, 30)), lazy.nextWorkday(LocalDate.of(2027, 9, 30)));
+
+        FixaWorkdayCursor cursor = lazy.cursor(LocalDate.of(2028, 9, 28));
+        assertEquals(eager.workday(LocalDate.of(2028, 9, 28), Duration.ofDays(2)), LocalDate.ofEpochDay(cursor.forward(2)));
+
+        int[] starts = {(int) LocalDate.of(2029, 9, 30).toEpochDay()};
+        int[] durations = {400};
+        int[] lazyResults = new int[1];
+        int[] eagerResults = new int[1];
+        lazy.workday(starts, durations, lazyResults);
+        eager.workday(starts, durations, eagerResults);
+        assertArrayEquals(eagerResults, lazyResults);
+        assertTrue(loader.yearLoads.containsKey(2030));
+        assertTrue(loader.yearLoads.values().stream().allMatch(count -> count == 1));
+    }
+
+    @Test
+    void updateMarksYearLoadedTest() {
+        TestLoader loader = yearLoader();
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).enableLazyLoading().build();
+        calendar.update(2024);
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        assertFalse(loader.yearLoads.containsKey(2024));
+    }
+
+    @Test
+    void failedLoadTest() {
+        TestLoader loader = yearLoader();
+        loader.failures.set(1);
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).enableLazyLoading().build();
+        assertThrows(FixaCalendarException.class, () -> calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        // 加载失败的年份在下次查询时重试
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        // 失败的那次同样计入
+        assertEquals(Map.of(2024, 2), Map.copyOf(loader.yearLoads));
+    }
+
+    /**
+     * 区间涉及的所有年份在一个快照中加载，只发布一次
+     */
+    @Test
+    void singlePublicationTest() {
+        AtomicInteger publications = new AtomicInteger();
+        TestLoader loader = yearLoader();
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(loader)
+                .enableLazyLoading()
+                .addMetricsListener(new FixaMetricsListener() {
+                    @Override
+                    public void onSnapshotPublished(List<FixaBitmapUsage> bitmaps) {
+                        publications.incrementAndGet();
+                    }
+                })
+                .build();
+        int before = publications.get();
+        assertEquals(21, calendar.holidays(LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 31)).size());
+        assertEquals(Map.of(2022, 1, 2023, 1, 2024, 1), Map.copyOf(loader.yearLoads));
+        assertEquals(before + 1, publications.get());
+    }
+
+    /**
+     * 加载器在加载过程中查询尚未加载的年份时直接失败，而不是反复重试
+     */
+    @Test
+    void queryWhileLoadingTest() {
+        TestLoader loader = new TestLoader(yearLoader().data) {
+            @Override
+            public boolean loadYear(int year, FixaCalendar calendarInstance) {
+                if (year == 2024) {
+                    // 推算结果落在尚未加载的 2025 年
+                    calendarInstance.workday(LocalDate.of(2024, 12, 30), Duration.ofDays(5));
+                }
+                return super.loadYear(year, calendarInstance);
+            }
+        };
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).enableLazyLoading().build();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(IllegalStateException.class, () -> calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+            // 其他年份不受影响
+            assertTrue(calendar.isHoliday(LocalDate.of(2025, 10, 1)));
+        });
+    }
+
+    @Test
+    void concurrentLoadTest() throws Exception {
+        TestLoader loader = yearLoader();
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).enableLazyLoading().build();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                int offset = i;
+                futures[i] = executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    for (int year = 2020; year < 2030; year++) {
+                        assertTrue(calendar.isHoliday(LocalDate.of(year, 10, 1 + offset % 7)));
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(10, loader.yearLoads.size());
+        assertTrue(loader.yearLoads.values().stream().allMatch(count -> count == 1));
+    }
+}
@@ -0,0 +1,105 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内存映射的只读日历
+ */
+class MappedCalendarTests {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 12, 31);
+
+    private static FixaCalendar source() {
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        calendar.addHolidays(TestCases.DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(TestCases.DATA_FLEXIBLE_WORKDAYS);
+        return calendar;
+    }
+
+    @Test
+    void sameAsSourceTest(@TempDir Path dir) {
+        FixaCalendar source = source();
+        Path file = dir.resolve("calendar.fixm");
+        FixaMappedCalendar.write(source, file);
+        try (FixaMappedCalendar mapped = FixaMappedCalendar.open(file)) {
+            assertEquals(source.getWeekendRule(), mapped.getWeekendRule());
+            for (LocalDate date = START; !date.isAfter(END); date = date.plusDays(1)) {
+                assertEquals(source.isWorkday(date), mapped.isWorkday(date), date::toString);
+                assertEquals(source.isHoliday(date), mapped.isHoliday(date), date::toString);
+                assertEquals(source.isFlexibleWorkday(date), mapped.isFlexibleWorkday(date), date::toString);
+                assertEquals(source.isWeekend(date), mapped.isWeekend(date), date::toString);
+                assertEquals(source.workday(date, Duration.ofDays(7)), mapped.workday(date, Duration.ofDays(7)));
+                assertEquals(source.reverseWorkday(date, Duration.ofDays(3), true),
+                        mapped.reverseWorkday(date, Duration.ofDays(3), true), date::toString);
+                assertEquals(source.reverseWorkday(date, Duration.ofDays(3), false),
+                        mapped.reverseWorkday(date, Duration.ofDays(3), false), date::toString);
+            }
+            assertEquals(source.netWorkdays(START, END), mapped.netWorkdays(START, END));
+            assertEquals(source.dayOffs(START, END), mapped.dayOffs(START, END));
+            assertEquals(source.holidays(START, END), mapped.holidays(START, END));
+            assertEquals(source.flexibleWorkdays(START, END), mapped.flexibleWorkdays(START, END));
+            // 映射的位图与堆上的位图内容相同
+            assertEquals(source.rawDayOffMapClone(), mapped.rawDayOffMap().toRoaringBitmap());
+            assertTrue(mapped.rawHolidayMap().contains((int) LocalDate.of(2024, 5, 1).toEpochDay()));
+            // 文件之外的年份由周末规则决定
+            assertTrue(mapped.isDayOff(LocalDate.of(2030, 1, 5)));
+        }
+    }
+
+    @Test
+    void reloadTest(@TempDir Path dir) {
+        Path file = dir.resolve("calendar.fixm");
+        FixaMappedCalendar.write(new FixaCalendarBuilder().build(), file);
+        FixaMappedCalendar mapped = FixaMappedCalendar.open(file);
+        assertFalse(mapped.reload());
+        assertFalse(mapped.isHoliday(LocalDate.of(2024, 5, 1)));
+
+        FixaMappedCalendar.write(source(), file);
+        assertTrue(mapped.reload());
+        assertTrue(mapped.isHoliday(LocalDate.of(2024, 5, 1)));
+        assertFalse(mapped.reload());
+    }
+
+    @Test
+    void watchTest(@TempDir Path dir) throws InterruptedException {
+        Path file = dir.resolve("calendar.fixm");
+        FixaMappedCalendar.write(new FixaCalendarBuilder().build(), file);
+        try (FixaMappedCalendar mapped = FixaMappedCalendar.open(file, Duration.ofMillis(20))) {
+            FixaMappedCalendar.write(source(), file);
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (!mapped.isHoliday(LocalDate.of(2024, 5, 1)) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(mapped.isHoliday(LocalDate.of(2024, 5, 1)));
+        }
+    }
+
+    @Test
+    void invalidFileTest(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("calendar.fixm");
+        FixaMappedCalendar.write(source(), file);
+        FixaMappedCalendar mapped = FixaMappedCalendar.open(file);
+        byte[] content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 1;
+        Path corrupted = dir.resolve("corrupted.fixm");
+        Files.write(corrupted, content);
+        assertThrows(FixaCalendarException.class, () -> FixaMappedCalendar.open(corrupted));
+        assertThrows(FixaCalendarException.class, () -> FixaMappedCalendar.open(dir.resolve("missing.fixm")));
+
+        // 替换后的文件无法读取时保留原有映射
+        Files.move(corrupted, file, StandardCopyOption.REPLACE_EXISTING);
+        assertThrows(FixaCalendarException.class, mapped::reload);
+        assertTrue(mapped.isHoliday(LocalDate.of(2024, 5, 1)));
+    }
+}
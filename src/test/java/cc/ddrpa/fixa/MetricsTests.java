@@ -0,0 +1,140 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.loader.ICSDateLoader;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询、加载器和位图指标
+ */
+class MetricsTests {
+
+    private static final LocalDate THAT_DAY = LocalDate.of(2024, 4, 19);
+    private static final String ICS = String.join("\r\n",
+            "BEGIN:VCALENDAR",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20240501",
+            "DTEND;VALUE=DATE:20240506",
+            "SUMMARY:劳动节（休）",
+            "END:VEVENT",
+            "BEGIN:VEVENT",
+            "DTSTART;VALUE=DATE:20240511",
+            "SUMMARY:劳动节补班（班）",
+            "END:VEVENT",
+            "END:VCALENDAR",
+            "");
+
+    @Test
+    void queryMetricsTest() {
+        RecordingListener listener = new RecordingListener();
+        FixaCalendar calendar = new FixaCalendarBuilder().addMetricsListener(listener).build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        // 构造时加载一次，此后每次修改发布一份新的快照
+        assertEquals(3, listener.published.size());
+        assertEquals(DATA_HOLIDAYS.size(), listener.published.get(1).get(0).getCardinality());
+
+        calendar.isWorkday(THAT_DAY);
+        calendar.isWorkday(THAT_DAY);
+        calendar.netWorkdays(THAT_DAY, THAT_DAY.plusDays(30));
+        calendar.workday(THAT_DAY, Duration.ofDays(10));
+        calendar.dayOffEpochDays(THAT_DAY, THAT_DAY.plusDays(30));
+        assertEquals(Map.of("isWorkday", 2, "netWorkdays", 1, "workday", 1, "dayOffEpochDays", 1), listener.queries);
+        // 4 月 22 日起的节假日和 5 月的节假日使推算需要多次统计区间
+        assertTrue(listener.rangeCounts.get("workday") > 1);
+    }
+
+    @Test
+    void loaderMetricsTest(@TempDir Path dir) throws IOException {
+        Path cacheFile = dir.resolve("holiday-calendar.ics");
+        Files.writeString(cacheFile, ICS);
+        RecordingListener listener = new RecordingListener();
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .addMetricsListener(listener)
+                .registerDateLoader(new ICSDateLoader(URI.create("http://localhost/holidays.ics"), cacheFile.toString()))
+                .build();
+        // 缓存文件已存在，不需要下载
+        assertEquals(List.of("parse:2", "apply:2"), listener.phases);
+        // 加载期间的修改随加载结果一并发布
+        assertEquals(1, listener.published.size());
+        Map<String, Long> cardinality = calendar.getBitmapUsage().stream()
+                .collect(Collectors.toMap(FixaBitmapUsage::getName, FixaBitmapUsage::getCardinality));
+        assertEquals(Map.of("holidayMap", 5L, "flexibleWorkdayMap", 1L, "extraDayOffMap", 3L, "extraWorkdayMap", 1L),
+                cardinality);
+        assertTrue(calendar.getBitmapUsage().stream().allMatch(usage -> usage.getSerializedSizeInBytes() > 0));
+    }
+
+    @Test
+    void flightRecorderTest(@TempDir Path dir) throws IOException {
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .addMetricsListener(new FixaFlightRecorderListener())
+                .build();
+        Path file = dir.resolve("fixa.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("cc.ddrpa.fixa.Query");
+            recording.enable("cc.ddrpa.fixa.SnapshotPublished");
+            recording.start();
+            calendar.isDayOff(THAT_DAY);
+            calendar.addHoliday(THAT_DAY);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(List.of("isDayOff"), events.stream()
+                .filter(event -> event.getEventType().getName().equals("cc.ddrpa.fixa.Query"))
+                .map(event -> event.getString("method"))
+                .collect(Collectors.toList()));
+        assertEquals(4, events.stream()
+                .filter(event -> event.getEventType().getName().equals("cc.ddrpa.fixa.SnapshotPublished"))
+                .count());
+    }
+
+    private static class RecordingListener implements FixaMetricsListener {
+
+        private final Map<String, Integer> queries = new HashMap<>();
+        private final Map<String, Integer> rangeCounts = new HashMap<>();
+        private final List<String> phases = new ArrayList<>();
+        private final List<List<FixaBitmapUsage>> published = new ArrayList<>();
+
+        @Override
+        public void onQuery(String method, long elapsedNanos) {
+            assertTrue(elapsedNanos >= 0);
+            queries.merge(method, 1, Integer::sum);
+        }
+
+        @Override
+        public void onRangeCount(String method, int iterations) {
+            rangeCounts.merge(method, iterations, Integer::sum);
+        }
+
+        @Override
+        public void onLoaderPhase(String loader, String phase, long elapsedNanos, int events) {
+            assertEquals("ICSDateLoader", loader);
+            phases.add(phase + ":" + events);
+        }
+
+        @Override
+        public void onSnapshotPublished(List<FixaBitmapUsage> bitmaps) {
+            published.add(bitmaps);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.loader.NateScarletDateLoader;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地 HTTP 服务测试 NateScarlet/holiday-cn 加载器
+ */
+class NateScarletLoaderTests {
+
+    // 与 holiday-cn 的文件格式一致，包含转义字符和需要跳过的嵌套值
+    private static final String DATA_2024 = "{\n" +
+            "  \"$schema\": \"https://raw.githubusercontent.com/NateScarlet/holiday-cn/master/schema.json\",\n" +
+            "  \"year\": 2024,\n" +
+            "  \"papers\": [\"http://www.gov.cn/zhengce/content/202310/content_6911527.htm\"],\n" +
+            "  \"days\": [\n" +
+            "    {\"name\": \"\\u5143\\u65e6\", \"date\": \"2024-01-01\", \"isOffDay\": true},\n" +
+            "    {\"name\": \"春节\", \"date\": \"2024-02-04\", \"isOffDay\": false},\n" +
+            "    {\"name\": \"春节\", \"date\": \"2024-02-10\", \"isOffDay\": true, \"extra\": {\"a\": [1, 2.5e3, null]}},\n" +
+            "    {\"name\": \"\\\"劳动节\\\"\", \"date\": \"2024-05-01\", \"isOffDay\": true}\n" +
+            "  ]\n" +
+            "}\n";
+    private static final String DATA_2025 = "{\"year\":2025,\"papers\":[],\"days\":[" +
+            "{\"name\":\"元旦\",\"date\":\"2025-01-01\",\"isOffDay\":true}," +
+            "{\"name\":\"春节\",\"date\":\"2025-01-26\",\"isOffDay\":false}]}";
+
+    private HttpServer server;
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/holiday-cn/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.add(path);
+            String body = files.get(path.substring(path.lastIndexOf('/') + 1));
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private URI baseURI() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/holiday-cn");
+    }
+
+    @Test
+    void loadAndUpdateTest(@TempDir Path dir) throws IOException {
+        files.put("2024.json", DATA_2024);
+        files.put("2025.json", DATA_2025);
+        NateScarletDateLoader loader = new NateScarletDateLoader(baseURI(), dir.resolve("cache").toString(), 300, 2, 2024);
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        // load 只下载构造时指定的年份
+        assertEquals(List.of("/holiday-cn/2024.json"), requests);
+        assertEquals(List.of(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 2, 10), LocalDate.of(2024, 5, 1)),
+                calendar.holidays(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        assertTrue(calendar.isFlexibleWorkday(LocalDate.of(2024, 2, 4)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2024, 2, 4)));
+        assertTrue(Files.exists(dir.resolve("cache").resolve("holiday-cn-2024.json")));
+        assertFalse(loader.isOutdated());
+        assertNotNull(loader.source());
+
+        // update 只下载、解析指定年份
+        assertTrue(calendar.update(2025));
+        assertEquals(List.of("/holiday-cn/2024.json", "/holiday-cn/2025.json"), requests);
+        assertTrue(calendar.isHoliday(LocalDate.of(2025, 1, 1)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2025, 1, 26)));
+
+        // 内容未变化时不重新解析，手动添加的调休不会被覆盖
+        calendar.addFlexibleWorkday(LocalDate.of(2025, 1, 1));
+        assertTrue(calendar.update(2025));
+        assertTrue(calendar.isWorkday(LocalDate.of(2025, 1, 1)));
+
+        // 数据源撤销了 1 月 26 日的调休，更新后同时移除手动添加的标记
+        files.put("2025.json", "{\"year\":2025,\"days\":[{\"date\":\"2025-01-01\",\"isOffDay\":true}]}");
+        FixaYearChanges changes = calendar.updateYear(2025);
+        assertEquals(List.of(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 26)), changes.getRemovedFlexibleWorkdays());
+        assertTrue(changes.getAddedHolidays().isEmpty());
+        assertTrue(calendar.isDayOff(LocalDate.of(2025, 1, 1)));
+        assertTrue(calendar.isDayOff(LocalDate.of(2025, 1, 26)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 5, 1)));
+
+        // 已有缓存时 load 不再下载
+        requests.clear();
+        FixaCalendar restarted = new FixaCalendarBuilder()
+                .registerDateLoader(new NateScarletDateLoader(baseURI(), dir.resolve("cache").toString(), 300, 2, 2024, 2025))
+                .enableWorkdayIndex()
+                .build();
+        assertTrue(requests.isEmpty());
+        assertTrue(restarted.isHoliday(LocalDate.of(2024, 5, 1)));
+        assertTrue(restarted.isHoliday(LocalDate.of(2025, 1, 1)));
+    }
+
+    /**
+     * 文件中相邻年份的日期在 load 和 update 时同样生效；多个日历共用一个加载器时各自处理新内容
+     */
+    @Test
+    void sharedLoaderTest(@TempDir Path dir) {
+        files.put("2025.json", DATA_2025);
+        NateScarletDateLoader loader = new NateScarletDateLoader(baseURI(), dir.toString(), 300, 2, 2025);
+        FixaCalendar first = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        FixaCalendar second = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        first.addHoliday(LocalDate.of(2024, 12, 30));
+
+        // 新版本的文件包含元旦前的调休
+        files.put("2025.json", "{\"year\":2025,\"days\":[" +
+                "{\"date\":\"2024-12-28\",\"isOffDay\":false}," +
+                "{\"date\":\"2024-12-31\",\"isOffDay\":true}," +
+                "{\"date\":\"2025-01-01\",\"isOffDay\":true}]}");
+        for (FixaCalendar calendar : new FixaCalendar[]{first, second}) {
+            assertTrue(calendar.update(2025));
+            assertTrue(calendar.isFlexibleWorkday(LocalDate.of(2024, 12, 28)));
+            assertTrue(calendar.isHoliday(LocalDate.of(2024, 12, 31)));
+            assertTrue(calendar.isHoliday(LocalDate.of(2025, 1, 1)));
+            assertFalse(calendar.isFlexibleWorkday(LocalDate.of(2025, 1, 26)));
+        }
+        // 相邻年份的其他数据不受影响
+        assertTrue(first.isHoliday(LocalDate.of(2024, 12, 30)));
+        FixaCalendar loaded = new FixaCalendarBuilder()
+                .registerDateLoader(new NateScarletDateLoader(baseURI(), dir.toString(), 300, 2, 2025))
+                .build();
+        assertTrue(loaded.isFlexibleWorkday(LocalDate.of(2024, 12, 28)));
+        assertTrue(loaded.isHoliday(LocalDate.of(2024, 12, 31)));
+    }
+
+    /**
+     * 同时刷新多个年份时后一个年份失败，前一个年份的修改被丢弃，重试时仍会重新解析
+     */
+    @Test
+    void failedRefreshIsRetriedTest(@TempDir Path dir) {
+        files.put("2024.json", DATA_2024);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new NateScarletDateLoader(baseURI(), dir.toString(), 300, 2, 2024))
+                .build();
+        files.put("2024.json", "{\"year\":2024,\"days\":[{\"date\":\"2024-10-01\",\"isOffDay\":true}]}");
+        files.put("2025.json", "{\"year\": 2025, \"days\": [{\"date\": \"2025-01-01\", \"isOffDay\": tru}]}");
+        assertThrows(FixaCalendarException.class, () -> calendar.refresh(2024, 2025));
+        assertFalse(calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        // 文件内容未变化，但上次的修改没有生效
+        assertTrue(calendar.update(2024));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        assertFalse(calendar.isHoliday(LocalDate.of(2024, 5, 1)));
+    }
+
+    /**
+     * 12 月刷新今明两年时，数据源尚未发布明年的文件，今年的数据照常更新
+     */
+    @Test
+    void nextYearNotPublishedTest(@TempDir Path dir) {
+        files.put("2024.json", DATA_2024);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new NateScarletDateLoader(baseURI(), dir.toString(), 300, 2, 2024))
+                .build();
+        files.put("2024.json", "{\"year\":2024,\"days\":[{\"date\":\"2024-10-01\",\"isOffDay\":true}]}");
+        assertFalse(calendar.refresh(2024, 2025));
+        assertTrue(requests.contains("/holiday-cn/2025.json"));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 10, 1)));
+        assertFalse(calendar.isHoliday(LocalDate.of(2024, 5, 1)));
+        assertFalse(calendar.update(2025));
+        // 发布后正常更新
+        files.put("2025.json", DATA_2025);
+        assertTrue(calendar.update(2025));
+        assertTrue(calendar.isHoliday(LocalDate.of(2025, 1, 1)));
+    }
+
+    @Test
+    void lazyLoadingTest(@TempDir Path dir) {
+        files.put("2024.json", DATA_2024);
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new NateScarletDateLoader(baseURI(), dir.toString(), 300, 2, 2024))
+                .enableLazyLoading()
+                .build();
+        assertTrue(requests.isEmpty());
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 5, 1)));
+        // 数据源中没有的年份不添加任何数据，也不会反复请求
+        assertFalse(calendar.isHoliday(LocalDate.of(2025, 1, 1)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2025, 1, 2)));
+        assertEquals(List.of("/holiday-cn/2024.json", "/holiday-cn/2025.json"), requests);
+    }
+
+    @Test
+    void failedDownloadTest(@TempDir Path dir) {
+        files.put("2024.json", DATA_2024);
+        files.put("2025.json", "{\"year\": 2025, \"days\": [{\"date\": \"2025-01-01\", \"isOffDay\": tru}]}");
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new NateScarletDateLoader(baseURI(), dir.toString(), 300, 2, 2024))
+                .build();
+        // 格式错误和尚未发布的年份都不影响已有数据
+        assertThrows(FixaCalendarException.class, () -> calendar.update(2025));
+        assertFalse(calendar.update(2026));
+        assertFalse(calendar.isHoliday(LocalDate.of(2025, 1, 1)));
+        assertTrue(calendar.isHoliday(LocalDate.of(2024, 1, 1)));
+    }
+}
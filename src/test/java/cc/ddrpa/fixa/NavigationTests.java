@@ -0,0 +1,111 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相邻工作日、非工作日的查找和工作日游标
+ */
+class NavigationTests {
+
+    private static final FixaCalendar CALENDAR = new FixaCalendarBuilder().build();
+    private static final FixaCalendar INDEXED_CALENDAR = new FixaCalendarBuilder().enableWorkdayIndex().build();
+    // 周末规则从 2023-12-30 开始生效，持续 52 周
+    private static final FixaCalendar BOUNDED_CALENDAR = new FixaCalendarBuilder()
+            .setWeekendRule(FixaWeekendRule.ofWindow(FixaWeekendEnum.SATURDAY_AND_SUNDAY,
+                    LocalDate.of(2024, 1, 1), Duration.ofDays(366)))
+            .build();
+
+    static {
+        for (FixaCalendar calendar : new FixaCalendar[]{CALENDAR, INDEXED_CALENDAR, BOUNDED_CALENDAR}) {
+            calendar.addHolidays(DATA_HOLIDAYS);
+            calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        }
+    }
+
+    @Test
+    void adjacentDayTest() {
+        // 2024-04-22 至 04-25 为节假日，04-19、04-20 为调休工作日
+        assertEquals(LocalDate.of(2024, 4, 26), CALENDAR.nextWorkday(LocalDate.of(2024, 4, 21)));
+        assertEquals(LocalDate.of(2024, 4, 20), CALENDAR.previousWorkday(LocalDate.of(2024, 4, 26)));
+        assertEquals(LocalDate.of(2024, 4, 25), CALENDAR.previousDayOff(LocalDate.of(2024, 4, 26)));
+        assertEquals(LocalDate.of(2024, 4, 21), CALENDAR.nextDayOff(LocalDate.of(2024, 4, 19)));
+        // 调休的周末不是非工作日
+        assertEquals(LocalDate.of(2024, 4, 14), CALENDAR.previousDayOff(LocalDate.of(2024, 4, 21)));
+        int epochDay = (int) LocalDate.of(2024, 4, 23).toEpochDay();
+        assertTrue(CALENDAR.isHoliday(epochDay));
+        assertTrue(CALENDAR.isDayOff(epochDay));
+        assertFalse(CALENDAR.isWorkday(epochDay));
+        assertTrue(CALENDAR.isFlexibleWorkday(epochDay - 3));
+        assertTrue(CALENDAR.isWeekend(epochDay - 3));
+        assertTrue(CALENDAR.isWorkday(epochDay - 3));
+        // 周末规则生效之前没有非工作日
+        assertNull(BOUNDED_CALENDAR.previousDayOff(LocalDate.of(2023, 12, 30)));
+    }
+
+    @Test
+    void sameAsDayByDayTest() {
+        int from = (int) LocalDate.of(2023, 6, 1).toEpochDay();
+        int to = (int) LocalDate.of(2025, 6, 1).toEpochDay();
+        for (FixaCalendar calendar : new FixaCalendar[]{CALENDAR, INDEXED_CALENDAR, BOUNDED_CALENDAR}) {
+            for (int day = from; day < to; day++) {
+                assertEquals(scan(calendar, day, 1, true), calendar.nextWorkday(day), calendar + " " + day);
+                assertEquals(scan(calendar, day, -1, true), calendar.previousWorkday(day), calendar + " " + day);
+                assertEquals(scan(calendar, day, -1, false), calendar.previousDayOff(day), calendar + " " + day);
+                assertEquals(calendar.isWorkday(LocalDate.ofEpochDay(day)), calendar.isWorkday(day));
+            }
+        }
+    }
+
+    @Test
+    void cursorTest() {
+        Random random = new Random(42);
+        int origin = (int) LocalDate.of(2024, 1, 1).toEpochDay();
+        for (FixaCalendar calendar : new FixaCalendar[]{CALENDAR, INDEXED_CALENDAR, BOUNDED_CALENDAR}) {
+            FixaWorkdayCursor cursor = calendar.cursor(origin);
+            for (int i = 0; i < 500; i++) {
+                int before = cursor.epochDay();
+                int steps = random.nextInt(21) - 10;
+                int expected = before;
+                for (int left = Math.abs(steps); left > 0; left--) {
+                    expected = scan(calendar, expected, Integer.signum(steps), true);
+                }
+                assertEquals(expected, cursor.forward(steps), calendar + " " + before + " " + steps);
+                // 步进一天与相邻查找一致，且可以原路返回
+                int next = cursor.next();
+                assertEquals(calendar.nextWorkday(expected), next);
+                assertEquals(calendar.previousWorkday(next), cursor.previous());
+                int here = cursor.epochDay();
+                cursor.backward(3);
+                assertEquals(here, cursor.forward(3));
+            }
+        }
+        FixaWorkdayCursor cursor = CALENDAR.cursor(LocalDate.of(2024, 4, 19));
+        assertEquals(LocalDate.of(2024, 4, 26), LocalDate.ofEpochDay(cursor.forward(2)));
+        assertEquals(CALENDAR.workday(LocalDate.of(2024, 4, 19), Duration.ofDays(2)), cursor.date());
+        assertEquals(LocalDate.of(2024, 4, 20), LocalDate.ofEpochDay(cursor.backward(1)));
+        assertEquals(LocalDate.of(2024, 4, 14), cursor.moveTo(LocalDate.of(2024, 4, 14)).date());
+        assertFalse(cursor.isWorkday());
+    }
+
+    /**
+     * 逐日查找 day 之后（step 为 1）或之前（step 为 -1）的第一个工作日或非工作日，向前查找到 1970 年之前仍找不到时返回 {@link FixaCalendar#NO_EPOCH_DAY}
+     */
+    private static int scan(FixaCalendar calendar, int day, int step, boolean workday) {
+        int candidate = day + step;
+        while (calendar.isWorkday(LocalDate.ofEpochDay(candidate)) != workday) {
+            candidate += step;
+            if (candidate < 0) {
+                return FixaCalendar.NO_EPOCH_DAY;
+            }
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,127 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 在共用的基础日历之上叠加个人的休息日和工作日
+ */
+class OverlayCalendarTests {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 12, 31);
+
+    private static FixaCalendar base(FixaCalendarBuilder builder) {
+        FixaCalendar calendar = builder.build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        return calendar;
+    }
+
+    @Test
+    void sameAsMergedCalendarTest() {
+        verifyRandomOverlay(new FixaCalendarBuilder());
+        verifyRandomOverlay(new FixaCalendarBuilder().enableWorkdayIndex());
+    }
+
+    private static void verifyRandomOverlay(FixaCalendarBuilder builder) {
+        FixaCalendar base = base(builder);
+        // 合并后的日历：个人标记在基础数据之后添加，优先于基础日历
+        FixaCalendar merged = base(new FixaCalendarBuilder());
+        FixaOverlayCalendar overlay = new FixaOverlayCalendar(base);
+        Random random = new Random(42);
+        for (int i = 0; i < 40; i++) {
+            LocalDate date = START.plusDays(random.nextInt(366));
+            if (random.nextBoolean()) {
+                LocalDate last = date.plusDays(random.nextInt(3));
+                overlay.addDaysOff(date, last);
+                merged.addHolidays(date, last);
+            } else {
+                overlay.addWorkday(date);
+                merged.addFlexibleWorkday(date);
+            }
+        }
+        // 与基础日历的节假日、调休重叠的个人标记
+        overlay.addDayOff(LocalDate.of(2024, 4, 20));
+        merged.addHoliday(LocalDate.of(2024, 4, 20));
+        overlay.addWorkday(LocalDate.of(2024, 5, 1));
+        merged.addFlexibleWorkday(LocalDate.of(2024, 5, 1));
+
+        for (LocalDate date = START; !date.isAfter(END); date = date.plusDays(1)) {
+            assertEquals(merged.isWorkday(date), overlay.isWorkday(date), date::toString);
+            assertEquals(merged.isDayOff(date), overlay.isDayOff(date), date::toString);
+            assertEquals(merged.netWorkdays(date, END), overlay.netWorkdays(date, END), date::toString);
+            assertEquals(merged.workday(date, Duration.ofDays(9)), overlay.workday(date, Duration.ofDays(9)), date::toString);
+            assertEquals(merged.reverseWorkday(date, Duration.ofDays(4), true),
+                    overlay.reverseWorkday(date, Duration.ofDays(4), true), date::toString);
+            assertEquals(merged.reverseWorkday(date, Duration.ofDays(4), false),
+                    overlay.reverseWorkday(date, Duration.ofDays(4), false), date::toString);
+            assertEquals(merged.nextWorkday(date), overlay.nextWorkday(date), date::toString);
+            assertEquals(merged.previousWorkday(date), overlay.previousWorkday(date), date::toString);
+        }
+    }
+
+    @Test
+    void editTest() {
+        FixaCalendar base = base(new FixaCalendarBuilder());
+        FixaOverlayCalendar overlay = new FixaOverlayCalendar(base);
+        assertSame(base, overlay.getBase());
+        // 2024-04-15 至 04-19 请假，04-20 调休上班的周六也请假
+        overlay.addDaysOff(LocalDate.of(2024, 4, 15), LocalDate.of(2024, 4, 20));
+        assertEquals(6, overlay.getDayOffCount());
+        assertTrue(overlay.isDayOff(LocalDate.of(2024, 4, 20)));
+        assertEquals(base.netWorkdays(START, END) - 6, overlay.netWorkdays(START, END));
+        // 04-20 改为加班，其余日期取消请假
+        overlay.addWorkday(LocalDate.of(2024, 4, 20));
+        assertEquals(5, overlay.getDayOffCount());
+        assertEquals(1, overlay.getWorkdayCount());
+        overlay.reset(LocalDate.of(2024, 4, 15), LocalDate.of(2024, 4, 19));
+        assertEquals(0, overlay.getDayOffCount());
+        assertEquals(base.netWorkdays(START, END), overlay.netWorkdays(START, END));
+        assertThrows(IllegalArgumentException.class, () -> overlay.addDaysOff(END, START));
+
+        // 基础日历的修改立即对叠加日历生效，个人标记不受影响
+        base.addHoliday(LocalDate.of(2024, 6, 3));
+        assertTrue(overlay.isDayOff(LocalDate.of(2024, 6, 3)));
+        base.addHoliday(LocalDate.of(2024, 4, 20));
+        assertTrue(overlay.isWorkday(LocalDate.of(2024, 4, 20)));
+    }
+
+    @Test
+    void beforeEpochTest() {
+        FixaCalendar base = new FixaCalendarBuilder().build();
+        FixaOverlayCalendar overlay = new FixaOverlayCalendar(base);
+        // 跨越 1970-01-01 的个人标记
+        overlay.addDaysOff(LocalDate.of(1969, 12, 30), LocalDate.of(1970, 1, 2));
+        overlay.addWorkday(LocalDate.of(1969, 12, 27));
+        assertTrue(overlay.isDayOff(LocalDate.of(1969, 12, 31)));
+        assertTrue(overlay.isWorkday(LocalDate.of(1969, 12, 27)));
+        LocalDate start = LocalDate.of(1969, 12, 22);
+        LocalDate end = LocalDate.of(1970, 1, 9);
+        // 基础日历 15 个工作日，减去 4 天请假，加上 1 天加班
+        assertEquals(base.netWorkdays(start, end) - 4 + 1, overlay.netWorkdays(start, end));
+    }
+
+    @Test
+    void lazyBaseTest() {
+        FixaCalendar base = new FixaCalendarBuilder()
+                .registerDateLoader(new TestLoader((year, editor) -> editor
+                        .addHolidays(LocalDate.of(year, 10, 1), LocalDate.of(year, 10, 7))))
+                .enableLazyLoading()
+                .build();
+        FixaOverlayCalendar overlay = new FixaOverlayCalendar(base);
+        overlay.addDaysOff(LocalDate.of(2024, 9, 30), LocalDate.of(2024, 9, 30));
+        // 查询时由基础日历加载所需的年份
+        assertEquals(LocalDate.of(2024, 10, 8), overlay.workday(LocalDate.of(2024, 9, 27), Duration.ofDays(1)));
+        assertEquals(0, overlay.netWorkdays(LocalDate.of(2024, 9, 28), LocalDate.of(2024, 10, 7)));
+        assertTrue(overlay.isDayOff(LocalDate.of(2025, 10, 3)));
+    }
+}
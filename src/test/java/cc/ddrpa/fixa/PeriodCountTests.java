@@ -0,0 +1,127 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按周期分组统计的结果与逐个周期调用单日判定一致
+ */
+class PeriodCountTests {
+
+    private static FixaCalendar calendar(FixaCalendarBuilder builder) {
+        FixaCalendar calendar = builder.build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        // 1970 年前后各有一个节假日和调休
+        calendar.addHoliday(LocalDate.of(1969, 12, 31));
+        calendar.addFlexibleWorkday(LocalDate.of(1969, 12, 27));
+        calendar.addHoliday(LocalDate.of(1970, 1, 1));
+        calendar.addFlexibleWorkday(LocalDate.of(1970, 1, 3));
+        return calendar;
+    }
+
+    @Test
+    void monthTest() {
+        FixaCalendar calendar = calendar(new FixaCalendarBuilder());
+        FixaPeriodCounts counts = calendar.countByPeriod(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 12, 31),
+                FixaPeriod.MONTH);
+        assertEquals(FixaPeriod.MONTH, counts.getPeriod());
+        assertEquals(12, counts.size());
+        // 首个周期只统计 1 月 15 日之后的日期
+        assertEquals(LocalDate.of(2024, 1, 1), counts.getPeriodStart(0));
+        assertEquals(17, counts.getDays()[0]);
+        // 2024 年 4 月：8 个周末，22 日至 25 日放假，19 日、20 日调休，其中 20 日是周六
+        assertEquals(LocalDate.of(2024, 4, 1), counts.getPeriodStart(3));
+        assertEquals(30, counts.getDays()[3]);
+        assertEquals(8, counts.getWeekends()[3]);
+        assertEquals(4, counts.getHolidays()[3]);
+        assertEquals(2, counts.getFlexibleWorkdays()[3]);
+        assertEquals(19, counts.getWorkdays()[3]);
+        assertEquals(calendar.netWorkdays(LocalDate.of(2024, 4, 1), LocalDate.of(2024, 4, 30)), counts.getWorkdays()[3]);
+        verify(calendar, counts, LocalDate.of(2024, 1, 15), LocalDate.of(2024, 12, 31));
+    }
+
+    @Test
+    void allPeriodsTest() {
+        FixaCalendar calendar = calendar(new FixaCalendarBuilder());
+        LocalDate start = LocalDate.of(1969, 11, 20);
+        LocalDate end = LocalDate.of(2025, 3, 3);
+        for (FixaPeriod period : FixaPeriod.values()) {
+            verify(calendar, calendar.countByPeriod(start, end, period), start, end);
+        }
+        // 单日区间
+        FixaPeriodCounts single = calendar.countByPeriod(LocalDate.of(1970, 1, 1), LocalDate.of(1970, 1, 1),
+                FixaPeriod.ISO_WEEK);
+        assertEquals(1, single.size());
+        assertEquals(LocalDate.of(1969, 12, 29), single.getPeriodStart(0));
+        assertEquals(1, single.getHolidays()[0]);
+        assertEquals(0, single.getWorkdays()[0]);
+        assertThrows(IllegalArgumentException.class,
+                () -> calendar.countByPeriod(end, start, FixaPeriod.MONTH));
+    }
+
+    @Test
+    void boundedWeekendRuleTest() {
+        // 周末规则只在 2024 年 3 月起的一年内生效
+        FixaCalendar calendar = calendar(new FixaCalendarBuilder()
+                .setWeekendRule(FixaWeekendRule.ofWindow(FixaWeekendEnum.SATURDAY_AND_SUNDAY,
+                        LocalDate.of(2024, 3, 1), Duration.ofDays(365))));
+        LocalDate start = LocalDate.of(2023, 12, 1);
+        LocalDate end = LocalDate.of(2025, 6, 30);
+        verify(calendar, calendar.countByPeriod(start, end, FixaPeriod.QUARTER), start, end);
+        verify(calendar, calendar.countByPeriod(start, end, FixaPeriod.ISO_WEEK), start, end);
+    }
+
+    @Test
+    void mappedCalendarTest(@TempDir Path dir) {
+        FixaCalendar calendar = calendar(new FixaCalendarBuilder());
+        Path file = dir.resolve("calendar.fixm");
+        FixaMappedCalendar.write(calendar, file);
+        LocalDate start = LocalDate.of(1969, 6, 1);
+        LocalDate end = LocalDate.of(2024, 12, 31);
+        try (FixaMappedCalendar mapped = FixaMappedCalendar.open(file)) {
+            verify(calendar, mapped.countByPeriod(start, end, FixaPeriod.MONTH), start, end);
+        }
+    }
+
+    private static void verify(FixaCalendar calendar, FixaPeriodCounts counts, LocalDate start, LocalDate end) {
+        FixaPeriod period = counts.getPeriod();
+        LocalDate periodStart = period.startOf(start);
+        int index = 0;
+        for (; !periodStart.isAfter(end); periodStart = period.next(periodStart), index++) {
+            LocalDate from = periodStart.isBefore(start) ? start : periodStart;
+            LocalDate next = period.next(periodStart);
+            LocalDate to = next.isAfter(end) ? end : next.minusDays(1);
+            int days = 0;
+            int workdays = 0;
+            int weekends = 0;
+            int holidays = 0;
+            int flexibleWorkdays = 0;
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                days++;
+                workdays += calendar.isWorkday(date) ? 1 : 0;
+                weekends += calendar.isWeekend(date) ? 1 : 0;
+                holidays += calendar.isHoliday(date) ? 1 : 0;
+                flexibleWorkdays += calendar.isFlexibleWorkday(date) ? 1 : 0;
+            }
+            String message = period + " " + periodStart;
+            assertEquals(periodStart, counts.getPeriodStart(index), message);
+            assertEquals(periodStart.toEpochDay(), counts.getPeriodStarts()[index], message);
+            assertEquals(days, counts.getDays()[index], message);
+            assertEquals(workdays, counts.getWorkdays()[index], message);
+            assertEquals(days - workdays, counts.getDayOffs()[index], message);
+            assertEquals(weekends, counts.getWeekends()[index], message);
+            assertEquals(holidays, counts.getHolidays()[index], message);
+            assertEquals(flexibleWorkdays, counts.getFlexibleWorkdays()[index], message);
+        }
+        assertEquals(index, counts.size());
+    }
+}
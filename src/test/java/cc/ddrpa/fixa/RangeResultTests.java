@@ -0,0 +1,111 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 区间查询的三种结果形式（int[]、IntConsumer、List 视图）应当一致
+ */
+class RangeResultTests {
+
+    private static final FixaCalendar calendar = new FixaCalendarBuilder()
+            .setWeekendRule(FixaWeekendRule.of(FixaWeekendEnum.SATURDAY_AND_SUNDAY))
+            .build();
+    private static final LocalDate START_DATE = LocalDate.of(2024, 3, 25);
+    private static final LocalDate END_DATE = LocalDate.of(2024, 5, 10);
+
+    @BeforeAll
+    static void setup() {
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+    }
+
+    private static int[] toEpochDays(List<LocalDate> dates) {
+        return dates.stream().mapToLong(LocalDate::toEpochDay).mapToInt(Math::toIntExact).toArray();
+    }
+
+    private static void assertSameForms(int[] epochDays, List<LocalDate> view, List<Integer> visited) {
+        assertArrayEquals(epochDays, toEpochDays(view));
+        assertArrayEquals(epochDays, visited.stream().mapToInt(Integer::intValue).toArray());
+        // 随机访问与顺序访问结果一致
+        assertEquals(view, IntStream.range(0, view.size()).mapToObj(view::get).collect(Collectors.toList()));
+    }
+
+    @Test
+    void holidaysTest() {
+        List<Integer> visited = new ArrayList<>();
+        calendar.forEachHoliday(START_DATE, END_DATE, visited::add);
+        assertSameForms(calendar.holidayEpochDays(START_DATE, END_DATE), calendar.holidays(START_DATE, END_DATE), visited);
+        assertEquals(DATA_HOLIDAYS, calendar.holidays(START_DATE, END_DATE));
+    }
+
+    @Test
+    void flexibleWorkdaysTest() {
+        List<Integer> visited = new ArrayList<>();
+        calendar.forEachFlexibleWorkday(START_DATE, END_DATE, visited::add);
+        assertSameForms(calendar.flexibleWorkdayEpochDays(START_DATE, END_DATE),
+                calendar.flexibleWorkdays(START_DATE, END_DATE), visited);
+        assertEquals(DATA_FLEXIBLE_WORKDAYS, calendar.flexibleWorkdays(START_DATE, END_DATE));
+    }
+
+    @Test
+    void dayOffsAndWorkdaysTest() {
+        List<Integer> visitedDayOffs = new ArrayList<>();
+        calendar.forEachDayOff(START_DATE, END_DATE, visitedDayOffs::add);
+        List<LocalDate> dayOffs = calendar.dayOffs(START_DATE, END_DATE);
+        assertSameForms(calendar.dayOffEpochDays(START_DATE, END_DATE), dayOffs, visitedDayOffs);
+
+        List<Integer> visitedWorkdays = new ArrayList<>();
+        calendar.forEachWorkday(START_DATE, END_DATE, visitedWorkdays::add);
+        List<LocalDate> workdays = calendar.workdays(START_DATE, END_DATE);
+        assertSameForms(calendar.workdayEpochDays(START_DATE, END_DATE), workdays, visitedWorkdays);
+        assertEquals(calendar.netWorkdays(START_DATE, END_DATE), workdays.size());
+
+        // 工作日与非工作日恰好划分整个区间
+        List<LocalDate> allDays = START_DATE.datesUntil(END_DATE.plusDays(1)).collect(Collectors.toList());
+        assertEquals(allDays.stream().filter(calendar::isWorkday).collect(Collectors.toList()), workdays);
+        assertEquals(allDays.stream().filter(calendar::isDayOff).collect(Collectors.toList()), dayOffs);
+    }
+
+    /**
+     * 1970 年之前以及跨越 1970-01-01 的区间，随机访问与顺序访问结果一致
+     */
+    @Test
+    void beforeEpochTest() {
+        FixaCalendar beforeEpoch = new FixaCalendarBuilder().build();
+        beforeEpoch.addHolidays(LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 2));
+        for (LocalDate startDate : new LocalDate[]{LocalDate.of(1960, 1, 1), LocalDate.of(1969, 11, 20)}) {
+            LocalDate endDate = startDate.plusDays(90);
+            List<Integer> visited = new ArrayList<>();
+            beforeEpoch.forEachWorkday(startDate, endDate, visited::add);
+            assertSameForms(beforeEpoch.workdayEpochDays(startDate, endDate),
+                    beforeEpoch.workdays(startDate, endDate), visited);
+            visited.clear();
+            beforeEpoch.forEachDayOff(startDate, endDate, visited::add);
+            assertSameForms(beforeEpoch.dayOffEpochDays(startDate, endDate),
+                    beforeEpoch.dayOffs(startDate, endDate), visited);
+        }
+        assertEquals(LocalDate.of(1960, 1, 1),
+                beforeEpoch.workdays(LocalDate.of(1960, 1, 1), LocalDate.of(1960, 3, 31)).get(0));
+    }
+
+    @Test
+    void singleDayAndInvalidRangeTest() {
+        LocalDate saturday = LocalDate.of(2024, 4, 27);
+        assertEquals(List.of(saturday), calendar.dayOffs(saturday, saturday));
+        assertEquals(0, calendar.workdayEpochDays(saturday, saturday).length);
+        assertThrows(IllegalArgumentException.class, () -> calendar.workdays(END_DATE, START_DATE));
+    }
+}
@@ -0,0 +1,155 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 多个 key 共用日历、加载结果和位图
+ */
+class RegistryTests {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+    private static final LocalDate NATIONAL_DAY = LocalDate.of(2024, 10, 1);
+
+    private final TestLoader national = TestLoader.ofTestCases();
+    private final TestLoader regional = TestLoader.ofTestCases();
+
+    /**
+     * key 的奇偶决定数据源，个位数为 9 的 key 使用三休
+     */
+    private FixaCalendarRegistry<Integer> registry(int maximumSize) {
+        return new FixaCalendarRegistry<>(maximumSize, key -> {
+            FixaCalendarBuilder builder = new FixaCalendarBuilder()
+                    .registerDateLoader(key % 2 == 0 ? national : regional);
+            if (key % 10 == 9) {
+                builder.setWeekendRule(FixaWeekendRule.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+            }
+            return builder;
+        });
+    }
+
+    @Test
+    void sharedCalendarTest() {
+        FixaCalendarRegistry<Integer> registry = registry(100);
+        for (int key = 0; key < 100; key++) {
+            registry.get(key);
+        }
+        assertEquals(100, registry.size());
+        // 两个数据源，regional 有两种周末规则
+        assertEquals(3, registry.calendarCount());
+        assertEquals(1, national.loads.get());
+        assertEquals(1, regional.loads.get());
+        assertSame(registry.get(2), registry.get(4));
+        assertNotSame(registry.get(1), registry.get(9));
+        // 不同周末规则的日历共用节假日位图，相同数据的不同数据源共用所有位图
+        assertSame(registry.get(1).snapshot().holidayMap, registry.get(9).snapshot().holidayMap);
+        assertSame(registry.get(1).snapshot().extraDayOffMap, registry.get(2).snapshot().extraDayOffMap);
+    }
+
+    @Test
+    void derivedCalendarTest() {
+        FixaCalendarRegistry<Integer> registry = registry(100);
+        for (int key : new int[]{1, 9}) {
+            FixaCalendar expected = new FixaCalendarBuilder()
+                    .setWeekendRule(registry.get(key).getWeekendRule())
+                    .registerDateLoader(TestLoader.ofTestCases())
+                    .build();
+            FixaCalendar actual = registry.get(key);
+            assertArrayEquals(expected.dayOffEpochDays(START_DATE, END_DATE), actual.dayOffEpochDays(START_DATE, END_DATE));
+            assertEquals(expected.netWorkdays(START_DATE, END_DATE), actual.netWorkdays(START_DATE, END_DATE));
+        }
+    }
+
+    @Test
+    void updateTest() {
+        FixaCalendarRegistry<Integer> registry = registry(100);
+        FixaCalendar calendar = registry.get(9);
+        assertTrue(calendar.isWorkday(NATIONAL_DAY));
+        regional.data = regional.data.andThen((year, editor) -> editor.addHolidays(NATIONAL_DAY, NATIONAL_DAY.plusDays(6)));
+        assertTrue(registry.update(2024));
+        assertEquals(1, regional.updates.size());
+        assertEquals(0, national.updates.size());
+        assertTrue(calendar.isHoliday(NATIONAL_DAY));
+        assertTrue(registry.get(1).isHoliday(NATIONAL_DAY));
+    }
+
+    @Test
+    void evictionTest() {
+        FixaCalendarRegistry<Integer> registry = registry(2);
+        FixaCalendar first = registry.get(0);
+        registry.get(1);
+        registry.get(3);
+        assertEquals(2, registry.size());
+        // key 0 被淘汰，national 的加载结果随之释放，再次访问时重新加载；key 1 和 3 共用一个日历
+        assertEquals(1, registry.calendarCount());
+        assertNotSame(first, registry.get(0));
+        assertEquals(2, national.loads.get());
+        assertEquals(1, regional.loads.get());
+        registry.invalidate(0);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void readOnlyTest() {
+        FixaCalendarRegistry<Integer> registry = registry(100);
+        FixaCalendar calendar = registry.get(2);
+        assertThrows(UnsupportedOperationException.class, () -> calendar.addHoliday(NATIONAL_DAY));
+        assertThrows(UnsupportedOperationException.class, () -> calendar.edit().addHoliday(NATIONAL_DAY).commit());
+        assertThrows(UnsupportedOperationException.class, () -> calendar.update(2024));
+        assertTrue(registry.get(4).isWorkday(NATIONAL_DAY));
+        // 图层不受影响
+        calendar.createLayer().addHoliday(NATIONAL_DAY);
+        assertThrows(IllegalArgumentException.class, () -> new FixaCalendarRegistry<Integer>(10,
+                key -> new FixaCalendarBuilder().registerDateLoader(national).enableLazyLoading()).get(0));
+    }
+
+    /**
+     * 一个数据源加载缓慢时，其他数据源和已创建的日历不需要等待
+     */
+    @Test
+    void slowSourceTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TestLoader slow = new TestLoader() {
+            @Override
+            public boolean load(FixaCalendar calendarInstance) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.load(calendarInstance);
+            }
+        };
+        FixaCalendarRegistry<Integer> registry = new FixaCalendarRegistry<>(100, key -> new FixaCalendarBuilder()
+                .registerDateLoader(key < 0 ? slow : key % 2 == 0 ? national : regional));
+        FixaCalendar cached = registry.get(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<FixaCalendar> first = executor.submit(() -> registry.get(-1));
+            Future<FixaCalendar> second = executor.submit(() -> registry.get(-2));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertSame(cached, registry.get(2));
+            assertTrue(registry.get(1).isWorkday(NATIONAL_DAY));
+            assertFalse(first.isDone());
+            release.countDown();
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, slow.loads.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
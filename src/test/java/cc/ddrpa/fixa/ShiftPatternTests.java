@@ -0,0 +1,183 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 周期不是 7 天的轮班规则，按起始日期和周期直接计算
+ */
+class ShiftPatternTests {
+
+    private static final LocalDate ANCHOR = LocalDate.of(2024, 3, 4);
+    // 2-2-3 轮班：上二休二、上三休二、上二休三，14 天一个周期
+    private static final int[] PITMAN = {2, 2, 3, 2, 2, 3};
+    private static final long PITMAN_MASK = 0b11100110001100L;
+
+    /**
+     * 逐日按周期判定是否休息
+     */
+    private static boolean isOff(LocalDate date, LocalDate anchor, int cycle, long mask) {
+        long day = Math.floorMod(ChronoUnit.DAYS.between(anchor, date), (long) cycle);
+        return ((mask >>> day) & 1L) != 0;
+    }
+
+    @Test
+    void patternTest() {
+        assertEquals(FixaWeekendRule.ofPattern(ANCHOR, 14, PITMAN_MASK), FixaWeekendRule.ofRotation(ANCHOR, PITMAN));
+        // 起始日期相差整数个周期的规则相同
+        assertEquals(FixaWeekendRule.ofRotation(ANCHOR, 4, 3), FixaWeekendRule.ofRotation(ANCHOR.minusDays(70), 4, 3));
+        assertNotEquals(FixaWeekendRule.ofRotation(ANCHOR, 4, 3), FixaWeekendRule.ofRotation(ANCHOR.plusDays(1), 4, 3));
+        // 周一开始的 7 天周期与周规则相同
+        assertEquals(FixaWeekendRule.of(FixaWeekendEnum.SATURDAY_AND_SUNDAY), FixaWeekendRule.ofRotation(ANCHOR, 5, 2));
+        assertEquals(FixaWeekendRule.none(), FixaWeekendRule.ofRotation(ANCHOR, 3));
+        assertThrows(IllegalArgumentException.class, () -> FixaWeekendRule.ofPattern(ANCHOR, 4, 0b1111));
+        assertThrows(IllegalArgumentException.class, () -> FixaWeekendRule.ofPattern(ANCHOR, 4, 0b10000));
+        assertThrows(IllegalArgumentException.class, () -> FixaWeekendRule.ofPattern(ANCHOR, 65, 1));
+        assertThrows(IllegalArgumentException.class, () -> FixaWeekendRule.ofRotation(ANCHOR, 4, 0, 3));
+        assertThrows(IllegalArgumentException.class, () -> FixaWeekendRule.ofRotation(ANCHOR, 40, 40));
+        // 64 天的周期使用全部位
+        FixaWeekendRule longest = FixaWeekendRule.ofPattern(ANCHOR, 64, Long.MIN_VALUE);
+        assertTrue(longest.isWeekend(ANCHOR.plusDays(63)));
+        assertTrue(longest.isWeekend(ANCHOR.minusDays(1)));
+        assertEquals(2, longest.countWeekends(ANCHOR.minusDays(1), ANCHOR.plusDays(63)));
+    }
+
+    @Test
+    void isWeekendAndCountTest() {
+        Random random = new Random(25);
+        for (int[] runs : new int[][]{{4, 3}, {4, 4}, PITMAN, {6, 1, 5, 2}, {1, 1}}) {
+            FixaWeekendRule rule = FixaWeekendRule.ofRotation(ANCHOR, runs);
+            int cycle = 0;
+            long mask = 0L;
+            for (int i = 0; i < runs.length; i++) {
+                for (int day = 0; day < runs[i]; day++, cycle++) {
+                    mask |= (i % 2 == 1 ? 1L : 0L) << cycle;
+                }
+            }
+            for (int i = 0; i < 50; i++) {
+                // 覆盖 1970 年之前和起始日期之前的日期
+                LocalDate startDate = LocalDate.of(1969, 1, 1).plusDays(random.nextInt(365 * 60));
+                LocalDate endDate = startDate.plusDays(random.nextInt(400));
+                long expected = 0;
+                for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                    boolean off = isOff(date, ANCHOR, cycle, mask);
+                    assertEquals(off, rule.isWeekend(date), date::toString);
+                    if (off) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, rule.countWeekends(startDate, endDate));
+            }
+        }
+    }
+
+    /**
+     * 轮班规则与节假日、调休组合，启用索引与否结果一致，且与逐日判定一致
+     */
+    @Test
+    void calendarTest() {
+        FixaCalendar[] calendars = new FixaCalendar[2];
+        for (int i = 0; i < calendars.length; i++) {
+            FixaCalendarBuilder builder = new FixaCalendarBuilder()
+                    .setWeekendRule(FixaWeekendRule.ofRotation(ANCHOR, PITMAN));
+            if (i == 1) {
+                builder.enableWorkdayIndex();
+            }
+            calendars[i] = builder.build();
+            calendars[i].addHolidays(DATA_HOLIDAYS);
+            calendars[i].addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        }
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        LocalDate last = LocalDate.of(2025, 12, 31);
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            boolean workday = DATA_FLEXIBLE_WORKDAYS.contains(date)
+                    || !DATA_HOLIDAYS.contains(date) && !isOff(date, ANCHOR, 14, PITMAN_MASK);
+            assertEquals(workday, calendars[0].isWorkday(date), date::toString);
+            assertEquals(workday, calendars[1].isWorkday(date), date::toString);
+        }
+        Random random = new Random(14);
+        for (int i = 0; i < 200; i++) {
+            LocalDate date = first.plusDays(random.nextInt(365 * 3));
+            Duration duration = Duration.ofDays(1 + random.nextInt(400));
+            LocalDate expected = calendars[0].workday(date, duration);
+            assertEquals(expected, calendars[1].workday(date, duration), "workday(" + date + ", " + duration + ")");
+            assertEquals(duration.toDays(), calendars[0].netWorkdays(date.plusDays(1), expected));
+            assertEquals(calendars[0].netWorkdays(date, expected), calendars[1].netWorkdays(date, expected));
+            assertEquals(calendars[0].reverseWorkday(date, duration, true),
+                    calendars[1].reverseWorkday(date, duration, true), "reverseWorkday(" + date + ", " + duration + ")");
+        }
+    }
+
+    /**
+     * 多个班组共用一个加载器，节假日只加载一次，每个班组只多出一个轮班规则
+     */
+    @Test
+    void crewRegistryTest() {
+        TestLoader loader = TestLoader.ofTestCases();
+        // 四个班组做四休四，起始日期依次错开两天
+        FixaCalendarRegistry<Integer> registry = new FixaCalendarRegistry<>(100, crew -> new FixaCalendarBuilder()
+                .setWeekendRule(FixaWeekendRule.ofRotation(ANCHOR.plusDays(crew % 4 * 2L), 4, 4))
+                .registerDateLoader(loader));
+        LocalDate startDate = LocalDate.of(2024, 6, 1);
+        LocalDate endDate = LocalDate.of(2024, 6, 30);
+        for (int crew = 0; crew < 100; crew++) {
+            FixaCalendar calendar = registry.get(crew);
+            assertSame(registry.get(crew % 4), calendar);
+            // 每天恰好有两个班组上班，30 天内每个班组上班 14 至 16 天
+            int workdays = calendar.netWorkdays(startDate, endDate);
+            assertTrue(workdays >= 14 && workdays <= 16, () -> String.valueOf(workdays));
+        }
+        assertEquals(1, loader.loads.get());
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            int working = 0;
+            for (int crew = 0; crew < 4; crew++) {
+                working += registry.get(crew).isWorkday(date) ? 1 : 0;
+            }
+            assertEquals(2, working, date.toString());
+        }
+        // 节假日对所有班组都是非工作日
+        assertTrue(registry.get(1).isDayOff(LocalDate.of(2024, 5, 1)));
+    }
+
+    @Test
+    void persistenceTest(@TempDir Path dir) {
+        FixaWeekendRule rule = FixaWeekendRule.ofRotation(ANCHOR, PITMAN);
+        FixaCalendar calendar = new FixaCalendarBuilder().setWeekendRule(rule).build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        LocalDate startDate = LocalDate.of(2024, 1, 1);
+        LocalDate endDate = LocalDate.of(2024, 12, 31);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        calendar.saveSnapshot(out, "v1");
+        FixaCalendar restored = new FixaCalendarBuilder().setWeekendRule(rule).build();
+        assertTrue(restored.loadSnapshot(new ByteArrayInputStream(out.toByteArray()), "v1"));
+        assertEquals(calendar.netWorkdays(startDate, endDate), restored.netWorkdays(startDate, endDate));
+        // 周末规则不同的日历不接受该快照
+        FixaCalendar weekly = new FixaCalendarBuilder().build();
+        assertFalse(weekly.loadSnapshot(new ByteArrayInputStream(out.toByteArray()), "v1"));
+
+        Path file = dir.resolve("crew.fixm");
+        FixaMappedCalendar.write(calendar, file);
+        try (FixaMappedCalendar mapped = FixaMappedCalendar.open(file)) {
+            assertEquals(rule, mapped.getWeekendRule());
+            assertEquals(calendar.netWorkdays(startDate, endDate), mapped.netWorkdays(startDate, endDate));
+            for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+                assertEquals(calendar.isWorkday(date), mapped.isWorkday(date), date::toString);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import cc.ddrpa.fixa.loader.SnapshotDateLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 二进制快照的写入、读取与过期判断
+ */
+class SnapshotPersistenceTests {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END_DATE = LocalDate.of(2024, 12, 31);
+
+    private static byte[] save(FixaCalendar calendar, String source) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        calendar.saveSnapshot(out, source);
+        return out.toByteArray();
+    }
+
+    @Test
+    void roundTripTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        byte[] bytes = save(calendar, "v1");
+
+        FixaCalendar restored = new FixaCalendarBuilder().build();
+        assertTrue(restored.loadSnapshot(new ByteArrayInputStream(bytes), "v1"));
+        assertEquals(DATA_HOLIDAYS, restored.holidays(START_DATE, END_DATE));
+        assertEquals(DATA_FLEXIBLE_WORKDAYS, restored.flexibleWorkdays(START_DATE, END_DATE));
+        assertArrayEquals(calendar.dayOffEpochDays(START_DATE, END_DATE), restored.dayOffEpochDays(START_DATE, END_DATE));
+        assertEquals(calendar.netWorkdays(START_DATE, END_DATE), restored.netWorkdays(START_DATE, END_DATE));
+    }
+
+    @Test
+    void staleSnapshotTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        byte[] bytes = save(calendar, "v1");
+
+        // 数据来源不一致
+        FixaCalendar restored = new FixaCalendarBuilder().build();
+        assertFalse(restored.loadSnapshot(new ByteArrayInputStream(bytes), "v2"));
+        assertTrue(restored.holidays(START_DATE, END_DATE).isEmpty());
+        // 周末规则不一致
+        FixaCalendar sundayOnly = new FixaCalendarBuilder().setWeekendType(FixaWeekendEnum.SUNDAY_ONLY).build();
+        assertFalse(sundayOnly.loadSnapshot(new ByteArrayInputStream(bytes), null));
+        assertTrue(sundayOnly.holidays(START_DATE, END_DATE).isEmpty());
+        // 数据损坏
+        bytes[bytes.length - 8] ^= 0x01;
+        assertThrows(FixaCalendarException.class, () -> restored.loadSnapshot(new ByteArrayInputStream(bytes), "v1"));
+    }
+
+    @Test
+    void snapshotDateLoaderTest(@TempDir Path dir) throws Exception {
+        TestLoader source = TestLoader.ofTestCases();
+        source.source = "v1";
+        String snapshotFile = dir.resolve("holiday-calendar.snapshot").toString();
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .registerDateLoader(new SnapshotDateLoader(source, snapshotFile))
+                .build();
+        assertEquals(1, source.loads.get());
+        assertTrue(Files.exists(Path.of(snapshotFile)));
+
+        // 快照可用时不再访问数据源
+        FixaCalendar restored = new FixaCalendarBuilder()
+                .registerDateLoader(new SnapshotDateLoader(source, snapshotFile))
+                .build();
+        assertEquals(1, source.loads.get());
+        assertEquals(calendar.holidays(START_DATE, END_DATE), restored.holidays(START_DATE, END_DATE));
+        assertEquals(calendar.netWorkdays(START_DATE, END_DATE), restored.netWorkdays(START_DATE, END_DATE));
+
+        // 数据源变化后快照过期
+        source.source = "v2";
+        new FixaCalendarBuilder()
+                .registerDateLoader(new SnapshotDateLoader(source, snapshotFile))
+                .build();
+        assertEquals(2, source.loads.get());
+
+        // 快照损坏时回退到数据源
+        Files.write(Path.of(snapshotFile), new byte[]{1, 2, 3});
+        FixaCalendar recovered = new FixaCalendarBuilder()
+                .registerDateLoader(new SnapshotDateLoader(source, snapshotFile))
+                .build();
+        assertEquals(3, source.loads.get());
+        assertEquals(DATA_HOLIDAYS, recovered.holidays(START_DATE, END_DATE));
+    }
+
+    /**
+     * 多个日历同时写入同一个快照，各自使用随机的临时文件，结果总是完整的快照
+     */
+    @Test
+    void concurrentWritersTest(@TempDir Path dir) throws Exception {
+        TestLoader source = TestLoader.ofTestCases();
+        source.source = "v1";
+        String snapshotFile = dir.resolve("holiday-calendar.snapshot").toString();
+        int writers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch ready = new CountDownLatch(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    return new FixaCalendarBuilder()
+                            .registerDateLoader(new SnapshotDateLoader(source, snapshotFile))
+                            .build();
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        int loads = source.loads.get();
+        FixaCalendar restored = new FixaCalendarBuilder()
+                .registerDateLoader(new SnapshotDateLoader(source, snapshotFile))
+                .build();
+        assertEquals(loads, source.loads.get());
+        assertEquals(DATA_HOLIDAYS, restored.holidays(START_DATE, END_DATE));
+        // 不残留临时文件
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(Path.of(snapshotFile)), files.collect(Collectors.toList()));
+        }
+    }
+}
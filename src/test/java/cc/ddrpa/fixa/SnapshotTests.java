@@ -0,0 +1,85 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import cc.ddrpa.fixa.loader.IFixaDateLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * update(year) 期间的修改只在加载完成后一次性可见
+ */
+class SnapshotTests {
+
+    private static final LocalDate NATIONAL_DAY = LocalDate.of(2024, 10, 1);
+    private static final LocalDate FLEXIBLE_WORKDAY = LocalDate.of(2024, 10, 12);
+
+    private static FixaCalendar calendar(IFixaDateLoader loader) {
+        return new FixaCalendarBuilder()
+                .setWeekendRule(FixaWeekendRule.of(FixaWeekendEnum.SATURDAY_AND_SUNDAY))
+                .registerDateLoader(loader)
+                .build();
+    }
+
+    @Test
+    void readersSeePreviousStateDuringUpdateTest() throws Exception {
+        CountDownLatch halfApplied = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+        FixaCalendar calendar = calendar(new TestLoader() {
+            @Override
+            public boolean update(int year, FixaCalendar calendarInstance) {
+                calendarInstance.addHolidays(NATIONAL_DAY, NATIONAL_DAY.plusDays(6));
+                halfApplied.countDown();
+                await(checked);
+                calendarInstance.addFlexibleWorkday(FLEXIBLE_WORKDAY);
+                return true;
+            }
+        });
+        CompletableFuture<Boolean> update = CompletableFuture.supplyAsync(() -> calendar.update(2024));
+        assertTrue(halfApplied.await(5, TimeUnit.SECONDS));
+        // 加载器已经添加了节假日，但更新尚未完成
+        assertFalse(calendar.isHoliday(NATIONAL_DAY));
+        assertTrue(calendar.isWorkday(NATIONAL_DAY));
+        assertTrue(calendar.isDayOff(FLEXIBLE_WORKDAY));
+        checked.countDown();
+        assertTrue(update.get(5, TimeUnit.SECONDS));
+        assertTrue(calendar.isHoliday(NATIONAL_DAY));
+        assertFalse(calendar.isWorkday(NATIONAL_DAY));
+        assertTrue(calendar.isWorkday(FLEXIBLE_WORKDAY));
+    }
+
+    @Test
+    void failedUpdateIsDiscardedTest() {
+        TestLoader loader = new TestLoader((year, editor) -> editor.addHoliday(NATIONAL_DAY));
+        loader.loadYears = new int[0];
+        FixaCalendar calendar = calendar(loader);
+        // 加载器写入节假日后抛出异常
+        loader.failures.set(1);
+        assertThrows(FixaCalendarException.class, () -> calendar.update(2024));
+        assertFalse(calendar.isHoliday(NATIONAL_DAY));
+        assertTrue(calendar.isWorkday(NATIONAL_DAY));
+    }
+
+    @Test
+    void viewIsBoundToSnapshotTest() {
+        FixaCalendar calendar = calendar(new TestLoader());
+        List<LocalDate> holidays = calendar.holidays(NATIONAL_DAY, NATIONAL_DAY.plusDays(6));
+        calendar.addHolidays(NATIONAL_DAY, NATIONAL_DAY.plusDays(6));
+        assertTrue(holidays.isEmpty());
+        assertEquals(7, calendar.holidays(NATIONAL_DAY, NATIONAL_DAY.plusDays(6)).size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
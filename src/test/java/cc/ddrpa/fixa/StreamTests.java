@@ -0,0 +1,93 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 工作日和非工作日的惰性流
+ */
+class StreamTests {
+
+    private static final LocalDate START_DATE = LocalDate.of(2000, 1, 1);
+    private static final LocalDate END_DATE = LocalDate.of(2029, 12, 31);
+    private static final FixaCalendar CALENDAR = new FixaCalendarBuilder().build();
+
+    static {
+        CALENDAR.addHolidays(DATA_HOLIDAYS);
+        CALENDAR.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+    }
+
+    @Test
+    void sameAsArrayTest() {
+        assertArrayEquals(CALENDAR.workdayEpochDays(START_DATE, END_DATE),
+                CALENDAR.workdayEpochDayStream(START_DATE, END_DATE).toArray());
+        assertArrayEquals(CALENDAR.dayOffEpochDays(START_DATE, END_DATE),
+                CALENDAR.dayOffEpochDayStream(START_DATE, END_DATE).toArray());
+        // 并行处理的结果保持顺序
+        assertArrayEquals(CALENDAR.workdayEpochDays(START_DATE, END_DATE),
+                CALENDAR.workdayEpochDayStream(START_DATE, END_DATE).parallel().toArray());
+        List<LocalDate> dayOffs = CALENDAR.dayOffStream(START_DATE, END_DATE).parallel().collect(Collectors.toList());
+        assertEquals(CALENDAR.dayOffs(START_DATE, END_DATE), dayOffs);
+        assertEquals(CALENDAR.netWorkdays(START_DATE, END_DATE),
+                CALENDAR.workdayStream(START_DATE, END_DATE).parallel().count());
+        assertEquals(List.of(LocalDate.of(2024, 4, 19)),
+                CALENDAR.workdayStream(LocalDate.of(2024, 4, 19), LocalDate.of(2024, 4, 19)).collect(Collectors.toList()));
+    }
+
+    /**
+     * 1970 年之前以及跨越 1970-01-01 的区间，并行处理的结果与顺序处理一致
+     */
+    @Test
+    void beforeEpochParallelTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        calendar.addHolidays(LocalDate.of(1960, 2, 10), LocalDate.of(1960, 2, 12));
+        calendar.addHolidays(LocalDate.of(1969, 12, 31), LocalDate.of(1970, 1, 2));
+        LocalDate[][] ranges = {
+                {LocalDate.of(1950, 1, 1), LocalDate.of(1965, 12, 31)},
+                {LocalDate.of(1955, 1, 1), LocalDate.of(1975, 12, 31)},
+        };
+        for (LocalDate[] range : ranges) {
+            int[] workdays = calendar.workdayEpochDays(range[0], range[1]);
+            assertArrayEquals(workdays, calendar.workdayEpochDayStream(range[0], range[1]).parallel().toArray());
+            assertEquals(workdays.length, calendar.workdayEpochDayStream(range[0], range[1]).parallel().count());
+            assertArrayEquals(calendar.dayOffEpochDays(range[0], range[1]),
+                    calendar.dayOffEpochDayStream(range[0], range[1]).parallel().toArray());
+            // 拆分后两部分的大小之和不变，前一部分的日期都在后一部分之前
+            Spliterator.OfInt suffix = calendar.workdayEpochDayStream(range[0], range[1]).spliterator();
+            Spliterator.OfInt prefix = suffix.trySplit();
+            assertNotNull(prefix);
+            int prefixSize = (int) prefix.getExactSizeIfKnown();
+            assertEquals(workdays.length, prefixSize + suffix.getExactSizeIfKnown());
+            int[] last = new int[]{Integer.MIN_VALUE};
+            prefix.forEachRemaining((int epochDay) -> last[0] = epochDay);
+            assertEquals(workdays[prefixSize - 1], last[0]);
+            assertTrue(suffix.tryAdvance((int epochDay) -> assertTrue(epochDay > last[0])));
+        }
+    }
+
+    @Test
+    void splitTest() {
+        Spliterator.OfInt spliterator = CALENDAR.workdayEpochDayStream(START_DATE, END_DATE).spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED));
+        long size = spliterator.getExactSizeIfKnown();
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(size, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+        // 大小与实际遍历的元素数量一致
+        long[] visited = new long[1];
+        prefix.forEachRemaining((int epochDay) -> visited[0]++);
+        assertEquals(size - spliterator.getExactSizeIfKnown(), visited[0]);
+        assertEquals(0, prefix.estimateSize());
+        assertTrue(spliterator.tryAdvance((int epochDay) -> assertTrue(epochDay > LocalDate.of(2014, 12, 31).toEpochDay())));
+        // 开始遍历后不再拆分
+        assertNull(spliterator.trySplit());
+    }
+}
@@ -1,7 +1,15 @@
 package cc.ddrpa.fixa;
 
+import cc.ddrpa.fixa.loader.IFixaDateLoader;
+
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 public class TestCases {
     public static final List<LocalDate> DATA_HOLIDAYS = List.of(
@@ -17,4 +25,104 @@ public class TestCases {
             LocalDate.of(2024, 4, 19),
             LocalDate.of(2024, 4, 20),
             LocalDate.of(2024, 5, 4));
-}
\ No newline at end of file
+
+    /**
+     * 测试用的加载器
+     * <p>
+     * load 时写入 {@link #loadYears} 中每一年的数据，update、loadYear 时写入该年的数据，并记录每次调用（包括失败的调用）。
+     * 需要特殊行为时覆盖对应的方法
+     */
+    static class TestLoader implements IFixaDateLoader {
+
+        // 写入某一年的数据，默认不写入任何数据
+        volatile BiConsumer<Integer, FixaCalendarEditor> data = (year, editor) -> {
+        };
+        // load 时写入的年份
+        volatile int[] loadYears = {2024};
+        // update 时是否以整年替换的方式写入
+        volatile boolean replaceOnUpdate = false;
+        // 数据源版本
+        volatile String source;
+        // 接下来失败的 update、loadYear 调用次数，失败前写入的数据随异常一同被丢弃
+        final AtomicInteger failures = new AtomicInteger();
+        // 成功的 update 会清除过期标记
+        final AtomicBoolean outdated = new AtomicBoolean(false);
+        final AtomicInteger loads = new AtomicInteger();
+        final List<Integer> updates = new CopyOnWriteArrayList<>();
+        final Map<Integer, Integer> yearLoads = new ConcurrentHashMap<>();
+
+        TestLoader() {
+        }
+
+        TestLoader(BiConsumer<Integer, FixaCalendarEditor> data) {
+            this.data = data;
+        }
+
+        /**
+         * load 时写入 {@link #DATA_HOLIDAYS} 和 {@link #DATA_FLEXIBLE_WORKDAYS}
+         */
+        static TestLoader ofTestCases() {
+            return new TestLoader((year, editor) -> {
+                if (year == 2024) {
+                    editor.addHolidays(DATA_HOLIDAYS).addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+                }
+            });
+        }
+
+        @Override
+        public boolean load(FixaCalendar calendarInstance) {
+            loads.incrementAndGet();
+            FixaCalendarEditor editor = calendarInstance.edit();
+            for (int year : loadYears) {
+                data.accept(year, editor);
+            }
+            editor.commit();
+            return true;
+        }
+
+        @Override
+        public boolean update(int year, FixaCalendar calendarInstance) {
+            updates.add(year);
+            if (replaceOnUpdate) {
+                FixaCalendar layer = calendarInstance.createLayer();
+                write(year, layer);
+                calendarInstance.replaceYear(year, layer);
+            } else {
+                write(year, calendarInstance);
+            }
+            failIfRequested();
+            outdated.set(false);
+            return true;
+        }
+
+        @Override
+        public boolean loadYear(int year, FixaCalendar calendarInstance) {
+            yearLoads.merge(year, 1, Integer::sum);
+            write(year, calendarInstance);
+            failIfRequested();
+            return true;
+        }
+
+        @Override
+        public boolean isOutdated() {
+            return outdated.get();
+        }
+
+        @Override
+        public String source() {
+            return source;
+        }
+
+        private void write(int year, FixaCalendar calendarInstance) {
+            FixaCalendarEditor editor = calendarInstance.edit();
+            data.accept(year, editor);
+            editor.commit();
+        }
+
+        private void failIfRequested() {
+            if (failures.getAndUpdate(count -> Math.max(count - 1, 0)) > 0) {
+                throw new FixaCalendarException("Failed to download file", null);
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.loader.NopeDateLoader;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 周末规则按 epoch day 直接计算，对任意日期都有效
+ */
+class WeekendRuleTests {
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+
+    private static LocalDate randomDate() {
+        // 覆盖 1970 年至 2300 年
+        return EPOCH.plusDays(random.nextInt(365 * 330));
+    }
+
+    @Test
+    void weekendTypeTest() {
+        assertEquals(FixaWeekendRule.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY),
+                FixaWeekendRule.of(FixaWeekendEnum.SATURDAY_AND_SUNDAY));
+        assertEquals(FixaWeekendRule.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY),
+                FixaWeekendRule.of(FixaWeekendEnum.FRIDAY_AND_SATURDAY));
+        assertEquals(FixaWeekendRule.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY),
+                FixaWeekendRule.of(FixaWeekendEnum.MONDAY_AND_TUESDAY));
+        assertEquals(FixaWeekendRule.of(DayOfWeek.SUNDAY), FixaWeekendRule.of(FixaWeekendEnum.SUNDAY_ONLY));
+        assertEquals(FixaWeekendRule.of(DayOfWeek.SATURDAY), FixaWeekendRule.of(FixaWeekendEnum.SATURDAY_ONLY));
+        assertEquals(FixaWeekendRule.none(), FixaWeekendRule.of(FixaWeekendEnum.UNDEFINED));
+        assertThrows(IllegalArgumentException.class, () -> FixaWeekendRule.of(DayOfWeek.values()));
+    }
+
+    @RepeatedTest(10)
+    void isWeekendAndCountTest() {
+        Set<DayOfWeek> weekend = Set.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        FixaWeekendRule rule = FixaWeekendRule.of(weekend.toArray(new DayOfWeek[0]));
+        LocalDate startDate = randomDate();
+        LocalDate endDate = startDate.plusDays(random.nextInt(100));
+        long expected = startDate.datesUntil(endDate.plusDays(1))
+                .filter(date -> weekend.contains(date.getDayOfWeek()))
+                .count();
+        assertEquals(expected, rule.countWeekends(startDate, endDate));
+        startDate.datesUntil(endDate.plusDays(1))
+                .forEach(date -> assertEquals(weekend.contains(date.getDayOfWeek()), rule.isWeekend(date)));
+    }
+
+    /**
+     * 不设置周末计算区间时，任意日期的周末都应当是非工作日
+     */
+    @RepeatedTest(10)
+    void unboundedCalendarTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .setWeekendType(FixaWeekendEnum.SATURDAY_AND_SUNDAY)
+                .build();
+        LocalDate date = randomDate();
+        boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+        assertEquals(weekend, calendar.isWeekend(date));
+        assertEquals(weekend, calendar.isDayOff(date));
+        LocalDate endDate = date.plusDays(random.nextInt(3650));
+        long expected = date.datesUntil(endDate.plusDays(1))
+                .filter(day -> day.getDayOfWeek().getValue() < 6)
+                .count();
+        assertEquals(expected, calendar.netWorkdays(date, endDate));
+    }
+
+    /**
+     * 三休日历，启用索引与否结果一致，且与逐日判定一致
+     */
+    @RepeatedTest(5)
+    void threeDayWeekendTest() {
+        FixaCalendar[] calendars = new FixaCalendar[2];
+        for (int i = 0; i < calendars.length; i++) {
+            FixaCalendarBuilder builder = new FixaCalendarBuilder()
+                    .setWeekendRule(FixaWeekendRule.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+            if (i == 1) {
+                builder.enableWorkdayIndex();
+            }
+            calendars[i] = builder.build();
+            calendars[i].addHolidays(DATA_HOLIDAYS);
+            calendars[i].addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        }
+        for (int i = 0; i < 200; i++) {
+            // 索引只覆盖 2024 年的数据，其余日期依赖周末规则的算术计算
+            LocalDate date = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365 * 4) - 365 * 2);
+            Duration duration = Duration.ofDays(1 + random.nextInt(800));
+            LocalDate expected = calendars[0].workday(date, duration);
+            assertEquals(expected, calendars[1].workday(date, duration), "workday(" + date + ", " + duration + ")");
+            assertEquals(duration.toDays(), calendars[0].netWorkdays(date.plusDays(1), expected));
+            assertTrue(calendars[0].isWorkday(expected));
+            assertEquals(calendars[0].reverseWorkday(date, duration, true),
+                    calendars[1].reverseWorkday(date, duration, true), "reverseWorkday(" + date + ", " + duration + ")");
+            assertEquals(calendars[0].netWorkdays(date, duration), calendars[1].netWorkdays(date, duration));
+        }
+    }
+
+    /**
+     * 设置了周末计算区间时保持旧版本的行为，区间之外没有周末
+     */
+    @Test
+    void weekendWindowTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder()
+                .setWeekendRule(FixaWeekendRule.ofWindow(FixaWeekendEnum.SATURDAY_AND_SUNDAY,
+                        LocalDate.of(2024, 1, 1), Duration.ofDays(365)))
+                .build();
+        assertTrue(calendar.isWeekend(LocalDate.of(2024, 6, 1)));
+        assertFalse(calendar.isWeekend(LocalDate.of(2026, 6, 6)));
+        assertTrue(calendar.isWorkday(LocalDate.of(2026, 6, 6)));
+        assertEquals(104, calendar.rawDayOffMapClone().getCardinality());
+    }
+
+    /**
+     * 旧版本的子类以逐个列出的周末日期构造日历
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    void legacyWeekendDaysTest() {
+        // 2024-01-06 起 52 周的周六、周日
+        int first = Math.toIntExact(LocalDate.of(2024, 1, 6).toEpochDay());
+        int[] weekendPos = IntStream.range(0, 52).flatMap(i -> IntStream.of(first + i * 7, first + i * 7 + 1)).toArray();
+        FixaCalendar calendar = new FixaCalendar(weekendPos, new NopeDateLoader()) {
+        };
+        for (LocalDate date = LocalDate.of(2023, 12, 1); date.isBefore(LocalDate.of(2025, 2, 1)); date = date.plusDays(1)) {
+            int epochDay = Math.toIntExact(date.toEpochDay());
+            boolean weekend = Arrays.binarySearch(weekendPos, epochDay) >= 0;
+            assertEquals(weekend, calendar.isWeekend(date), date::toString);
+        }
+        assertEquals(FixaWeekendRule.none(), new FixaCalendar(new int[0], new NopeDateLoader()) {
+        }.getWeekendRule());
+        // 不是每周固定几天的日期无法表示为周末规则
+        assertThrows(IllegalArgumentException.class, () -> new FixaCalendar(new int[]{first, first + 14}, new NopeDateLoader()) {
+        });
+    }
+}
@@ -0,0 +1,70 @@
+package cc.ddrpa.fixa;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static cc.ddrpa.fixa.TestCases.DATA_FLEXIBLE_WORKDAYS;
+import static cc.ddrpa.fixa.TestCases.DATA_HOLIDAYS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 启用工作日索引后，查询结果应当与逐轮计算 rangeCardinality 的结果一致
+ */
+class WorkdayIndexTests {
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    private static FixaCalendar calendar(boolean workdayIndexEnabled) {
+        FixaCalendarBuilder builder = new FixaCalendarBuilder()
+                .setWeekendRule(FixaWeekendRule.of(FixaWeekendEnum.SATURDAY_AND_SUNDAY));
+        if (workdayIndexEnabled) {
+            builder.enableWorkdayIndex();
+        }
+        FixaCalendar calendar = builder.build();
+        calendar.addHolidays(DATA_HOLIDAYS);
+        calendar.addFlexibleWorkdays(DATA_FLEXIBLE_WORKDAYS);
+        // 一段较长的假期
+        calendar.addHolidays(LocalDate.of(2025, 1, 27), LocalDate.of(2025, 2, 14));
+        return calendar;
+    }
+
+    private static void assertSameResults(FixaCalendar expected, FixaCalendar actual) {
+        for (int i = 0; i < 500; i++) {
+            // 覆盖索引范围之前、之中和之后的日期
+            LocalDate date = FIRST_DAY.plusDays(random.nextInt(365 * 3) - 60);
+            Duration duration = Duration.ofDays(random.nextInt(400));
+            boolean endDateMustBeWorkday = random.nextBoolean();
+            assertEquals(expected.workday(date, duration), actual.workday(date, duration),
+                    "workday(" + date + ", " + duration + ")");
+            assertEquals(expected.reverseWorkday(date, duration, endDateMustBeWorkday),
+                    actual.reverseWorkday(date, duration, endDateMustBeWorkday),
+                    "reverseWorkday(" + date + ", " + duration + ", " + endDateMustBeWorkday + ")");
+            assertEquals(expected.netWorkdays(date, duration), actual.netWorkdays(date, duration),
+                    "netWorkdays(" + date + ", " + duration + ")");
+        }
+    }
+
+    @RepeatedTest(5)
+    void sameResultsAsRangeCardinalityTest() {
+        assertSameResults(calendar(false), calendar(true));
+    }
+
+    @Test
+    void rebuildAfterChangeTest() {
+        FixaCalendar expected = calendar(false);
+        FixaCalendar actual = calendar(true);
+        assertSameResults(expected, actual);
+        // 索引创建之后再修改日历
+        for (FixaCalendar calendar : new FixaCalendar[]{expected, actual}) {
+            calendar.addHolidays(LocalDate.of(2024, 10, 1), LocalDate.of(2024, 10, 7));
+            calendar.addFlexibleWorkday(LocalDate.of(2024, 10, 12));
+            calendar.addHoliday(LocalDate.of(2026, 6, 1));
+        }
+        assertSameResults(expected, actual);
+    }
+}
@@ -0,0 +1,84 @@
+package cc.ddrpa.fixa;
+
+import cc.ddrpa.fixa.TestCases.TestLoader;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按年份整体替换节假日数据，并返回变化
+ */
+class YearUpdateTests {
+
+    private static final LocalDate LABOUR_DAY = LocalDate.of(2024, 5, 1);
+    private static final LocalDate DAY_AFTER = LocalDate.of(2024, 5, 2);
+    // 周六
+    private static final LocalDate SATURDAY = LocalDate.of(2024, 4, 27);
+    private static final LocalDate NEXT_NEW_YEAR = LocalDate.of(2025, 1, 1);
+
+    @Test
+    void replaceYearTest() {
+        FixaCalendar calendar = new FixaCalendarBuilder().build();
+        calendar.addHolidays(LABOUR_DAY, DAY_AFTER);
+        calendar.addFlexibleWorkday(SATURDAY);
+        calendar.addHoliday(NEXT_NEW_YEAR);
+        // 新数据撤销了 5 月 2 日和周六的调休，新增了 5 月 3 日
+        FixaCalendar layer = calendar.createLayer();
+        layer.edit().addHoliday(LABOUR_DAY).addHoliday(LocalDate.of(2024, 5, 3)).commit();
+        FixaYearChanges changes = calendar.replaceYear(2024, layer);
+        assertEquals(2024, changes.getYear());
+        assertEquals(List.of(LocalDate.of(2024, 5, 3)), changes.getAddedHolidays());
+        assertEquals(List.of(DAY_AFTER), changes.getRemovedHolidays());
+        assertEquals(List.of(), changes.getAddedFlexibleWorkdays());
+        assertEquals(List.of(SATURDAY), changes.getRemovedFlexibleWorkdays());
+        assertFalse(changes.isEmpty());
+        assertTrue(calendar.isWorkday(DAY_AFTER));
+        assertTrue(calendar.isDayOff(LocalDate.of(2024, 5, 3)));
+        // 撤销调休后周六恢复为周末
+        assertTrue(calendar.isDayOff(SATURDAY));
+        // 其他年份的数据不受影响
+        assertTrue(calendar.isHoliday(NEXT_NEW_YEAR));
+        assertTrue(calendar.replaceYear(2024, layer).isEmpty());
+    }
+
+    @Test
+    void sameAsRebuildTest() {
+        // 同一日期既是节假日又是调休工作日时，沿用图层中是否休息的结果
+        FixaCalendar layer = new FixaCalendarBuilder().build().createLayer();
+        layer.edit()
+                .addHolidays(LocalDate.of(2024, 9, 15), LocalDate.of(2024, 9, 17))
+                .addFlexibleWorkday(LocalDate.of(2024, 9, 14))
+                .addFlexibleWorkday(LocalDate.of(2024, 9, 17))
+                .commit();
+        FixaCalendar updated = new FixaCalendarBuilder().build().createLayer();
+        updated.edit()
+                .addHolidays(LocalDate.of(2024, 9, 10), LocalDate.of(2024, 9, 16))
+                .addFlexibleWorkday(LocalDate.of(2024, 9, 21))
+                .commit();
+        updated.replaceYear(2024, layer);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 12, 31);
+        assertEquals(layer.holidays(start, end), updated.holidays(start, end));
+        assertEquals(layer.flexibleWorkdays(start, end), updated.flexibleWorkdays(start, end));
+        assertEquals(layer.dayOffs(start, end), updated.dayOffs(start, end));
+        assertEquals(layer.netWorkdays(start, end), updated.netWorkdays(start, end));
+    }
+
+    @Test
+    void updateYearTest() {
+        TestLoader loader = new TestLoader((year, editor) -> editor.addHolidays(LABOUR_DAY, DAY_AFTER));
+        loader.replaceOnUpdate = true;
+        FixaCalendar calendar = new FixaCalendarBuilder().registerDateLoader(loader).build();
+        assertTrue(calendar.isHoliday(DAY_AFTER));
+        loader.data = (year, editor) -> editor.addHoliday(LABOUR_DAY).addFlexibleWorkday(SATURDAY);
+        FixaYearChanges changes = calendar.updateYear(2024);
+        assertEquals(List.of(DAY_AFTER), changes.getRemovedHolidays());
+        assertEquals(List.of(SATURDAY), changes.getAddedFlexibleWorkdays());
+        assertTrue(calendar.isWorkday(DAY_AFTER));
+        assertTrue(calendar.isWorkday(SATURDAY));
+        assertTrue(calendar.updateYear(2024).isEmpty());
+    }
+}